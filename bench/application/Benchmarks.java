@@ -0,0 +1,452 @@
+package application;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javafx.application.Platform;
+import javafx.scene.Scene;
+import javafx.scene.paint.Color;
+
+/**
+ * This class has the JMH benchmarks of the graphing calculator: parsing and compiling expressions,
+ * evaluating them one sample at a time, sampling them across a viewport the way a Graph does,
+ * evaluating each function exactly and with FastMath, coloring the domain of complex functions, and
+ * updating a GraphArea on the JavaFX thread. The expressions come from corpus.txt next to this class,
+ * and each score is the average time of one unit of work, such as one sample or one pixel.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+public class Benchmarks {
+	
+	private static final int SAMPLES = 1000;		// How many x values each evaluation call goes through.
+	private static final int INTERVALS = 20000;		// How many intervals a viewport is sampled at, as in Graph.
+	private static final int UPDATES = 20;			// How many updates are run on the JavaFX thread at a time.
+	private static final int UPDATE_GRAPHS = 6;		// How many graphs are on the GraphArea that is updated.
+	private static final int PARAMETER_GRAPHS = 12;	// How many graphs use the parameter that is changed.
+	private static final int DOMAIN_SIZE = 800;		// The width and height of each domain coloring image.
+	
+	/**
+	 * Parsing builds a tree of boxed functions.
+	 * @param c The corpus section.
+	 * @return The function.
+	 */
+	@Benchmark
+	public Function<Double, Double> parse (Corpus c) {
+		return Parser.parse(c.next());
+	}
+	
+	/**
+	 * Compiling builds an Expression.
+	 * @param c The corpus section.
+	 * @return The expression.
+	 */
+	@Benchmark
+	public Expression compile (Corpus c) {
+		return Parser.compile(c.next());
+	}
+	
+	/**
+	 * Evaluate a parsed function at many x values, one call at a time.
+	 * @param c The corpus section.
+	 * @return The sum of the values.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public double evaluateParsed (Corpus c) {
+		Function<Double, Double> f = c.parsed.get(c.next++ % c.parsed.size());
+		double sum = 0;
+		for (int j = 0; j < SAMPLES; j++) {
+			sum += f.apply(-10 + j * 20.0 / SAMPLES);
+		}
+		return sum;
+	}
+	
+	/**
+	 * Evaluate a compiled expression at many x values, one call at a time.
+	 * @param c The corpus section.
+	 * @return The sum of the values.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public double evaluateCompiled (Corpus c) {
+		Expression f = c.compiled.get(c.next++ % c.compiled.size());
+		double sum = 0;
+		for (int j = 0; j < SAMPLES; j++) {
+			sum += f.applyAsDouble(-10 + j * 20.0 / SAMPLES);
+		}
+		return sum;
+	}
+	
+	/**
+	 * Evaluate a compiled expression at many x values, a batch at a time.
+	 * @param c The corpus section.
+	 * @return The sum of the last value of each batch.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public double evaluateBatch (Corpus c) {
+		Expression f = c.compiled.get(c.next++ % c.compiled.size());
+		double sum = 0;
+		for (int start = 0; start < SAMPLES; start += Expression.BATCH) {
+			int n = Math.min(Expression.BATCH, SAMPLES - start);
+			for (int j = 0; j < n; j++) {
+				c.xs[j] = -10 + (start + j) * 20.0 / SAMPLES;
+			}
+			f.evaluate(c.xs, 0, c.ys, n, c.scratch);
+			sum += c.ys[n - 1];
+		}
+		return sum;
+	}
+	
+	/**
+	 * Sample across a viewport exactly as a Graph does before it is drawn.
+	 * @param c The corpus section.
+	 * @return The middle sample.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(INTERVALS + 1)
+	public double sample (Corpus c) {
+		c.buffer.sample(c.compiled.get(c.next++ % c.compiled.size()), -10, 10, INTERVALS);
+		return c.buffer.getY(c.buffer.size() / 2);
+	}
+	
+	/**
+	 * Evaluate a function exactly, a batch at a time across the range it is plotted over.
+	 * @param m The function.
+	 * @return The values.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(Expression.BATCH)
+	public double[] mathExact (MathCase m) {
+		m.exact.evaluate(m.xs, 0, m.ys, Expression.BATCH, m.scratch);
+		return m.ys;
+	}
+	
+	/**
+	 * Evaluate a function with its approximation, which runs the same code as mathExact for a
+	 * function without one.
+	 * @param m The function.
+	 * @return The values.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(Expression.BATCH)
+	public double[] mathFast (MathCase m) {
+		m.exact.approximate().evaluate(m.xs, 0, m.ys, Expression.BATCH, m.scratch);
+		return m.ys;
+	}
+	
+	/**
+	 * Find every pass of a domain coloring image.
+	 * @param d The complex function.
+	 * @return The image.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(DOMAIN_SIZE * DOMAIN_SIZE)
+	public int[] domain (Domain d) {
+		DomainColoring.render(d.f, d.image, DOMAIN_SIZE, DOMAIN_SIZE, d.view);
+		return d.image;
+	}
+	
+	/**
+	 * Pan the viewport, which samples and draws every graph again.
+	 * @param u The GraphArea.
+	 * @return How far it was panned.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(UPDATES)
+	public double updatePan (Update u) {
+		return u.onFxThread(i -> {
+			u.ga.pan(0, 0, i % 100, 0);
+			u.ga.update();
+		});
+	}
+	
+	/**
+	 * Update when nothing has changed.
+	 * @param u The GraphArea.
+	 * @return How far it is panned.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(UPDATES)
+	public double updateIdle (Update u) {
+		return u.onFxThread(i -> u.ga.update());
+	}
+	
+	/**
+	 * Change a parameter that a dozen more graphs use, as dragging a slider does.
+	 * @param u The GraphArea, with the graphs that use the parameter.
+	 * @return How far it is panned.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(UPDATES)
+	public double updateParameter (ParameterUpdate u) {
+		return u.onFxThread(i -> {
+			u.ga.getParameters().set('a', 1 + i % 100 / 100.0);
+			u.ga.parametersChanged(1L << Parameters.slot('a'));
+		});
+	}
+	
+	/**
+	 * @return The expressions of each section of corpus.txt, by the name of the section.
+	 */
+	static Map<String, List<String>> corpus () {
+		Map<String, List<String>> corpus = new LinkedHashMap<String, List<String>>();
+		try (BufferedReader in = new BufferedReader(new InputStreamReader(
+				Benchmarks.class.getResourceAsStream("corpus.txt"), StandardCharsets.UTF_8))) {
+			List<String> section = null;
+			for (String line = in.readLine(); line != null; line = in.readLine()) {
+				line = line.trim();
+				if (line.startsWith("[") && line.endsWith("]")) {
+					section = new ArrayList<String>();
+					corpus.put(line.substring(1, line.length() - 1), section);
+				} else if (!line.equals("") && !line.startsWith("#") && section != null) {
+					section.add(line);
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return corpus;
+	}
+	
+	/**
+	 * This class represents a section of the corpus, parsed and compiled, and the buffers that it
+	 * is evaluated into. Each benchmark goes through the expressions in turn.
+	 */
+	@State(Scope.Thread)
+	public static class Corpus {
+		@Param({"short", "long"})
+		public String section;								// The name of the section.
+		
+		private List<String> texts;							// The expressions.
+		private List<Function<Double, Double>> parsed;		// The expressions, parsed.
+		private List<Expression> compiled;					// The expressions, compiled.
+		private int next;									// The index of the next expression.
+		private double[] xs = new double[Expression.BATCH];	// The x values of a batch.
+		private double[] ys = new double[Expression.BATCH];	// The y values of a batch.
+		private double[][] scratch = new double[64][Expression.BATCH];	// The scratch rows of a batch.
+		private SampleBuffer buffer = new SampleBuffer();	// Where a viewport is sampled to.
+		
+		/**
+		 * Read, parse and compile the section.
+		 */
+		@Setup
+		public void setup () {
+			texts = corpus().get(section);
+			parsed = new ArrayList<Function<Double, Double>>();
+			compiled = new ArrayList<Expression>();
+			for (String text : texts) {
+				parsed.add(Parser.parse(text));
+				compiled.add(Parser.compile(text));
+			}
+		}
+		
+		/**
+		 * @return The text of the next expression.
+		 */
+		private String next () {
+			return texts.get(next++ % texts.size());
+		}
+	}
+	
+	/**
+	 * This class represents a function of FastMathReport.cases and the x values across the range it
+	 * is plotted over.
+	 */
+	@State(Scope.Thread)
+	public static class MathCase {
+		@Param({"abs", "acos", "asin", "atan", "cbrt", "ceil", "cos", "cosh", "exp", "floor", "log", "ln", "max", "min",
+				"round", "sin", "sinh", "sqrt", "tan", "tanh", "pow.whole", "pow"})
+		public String function;								// The name of the function.
+		
+		private Expression exact;							// The function of x.
+		private double[] xs = new double[Expression.BATCH];	// The x values.
+		private double[] ys = new double[Expression.BATCH];	// The y values.
+		private double[][] scratch = new double[4][Expression.BATCH];	// The scratch rows.
+		
+		/**
+		 * Compile the function and spread the x values across its range.
+		 */
+		@Setup
+		public void setup () {
+			exact = Parser.compile(FastMathReport.cases().get(function));
+			double[] range = FastMathReport.range(function);
+			for (int j = 0; j < Expression.BATCH; j++) {
+				xs[j] = range[0] + (range[1] - range[0]) * j / (Expression.BATCH - 1);
+			}
+		}
+	}
+	
+	/**
+	 * This class represents a complex function and its image, over a square viewport from -2 to 2
+	 * on both axes.
+	 */
+	@State(Scope.Thread)
+	public static class Domain {
+		@Param({"polynomial", "rational", "sinc", "essential"})
+		public String function;								// The name of the function.
+		
+		private ComplexExpression f;						// The function.
+		private int[] image = new int[DOMAIN_SIZE * DOMAIN_SIZE];	// The image.
+		private double[] view = {DOMAIN_SIZE / 4.0, DOMAIN_SIZE / 2.0, DOMAIN_SIZE / 4.0, DOMAIN_SIZE / 2.0};	// The viewport.
+		
+		/**
+		 * Compile the function.
+		 */
+		@Setup
+		public void setup () {
+			Map<String, String> functions = new LinkedHashMap<String, String>();
+			functions.put("polynomial", "z ^ 2 - 1");
+			functions.put("rational", "( z ^ 3 - 1 ) / ( z - i )");
+			functions.put("sinc", "sin ( z ) / z");
+			functions.put("essential", "exp ( 1 / z )");
+			f = Parser.compileComplex(functions.get(function), new Parameters());
+		}
+	}
+	
+	/**
+	 * This class represents a GraphArea with the first graphs of the corpus, in a scene so that it
+	 * is styled. It needs the JavaFX toolkit, which needs either a display or the Monocle headless
+	 * platform, and the benchmarks that use it fail if the toolkit cannot start.
+	 */
+	@State(Scope.Benchmark)
+	public static class Update {
+		protected GraphArea ga;	// The GraphArea.
+		private int calls;		// How many updates have been run.
+		
+		/**
+		 * Start the toolkit and build the GraphArea on the JavaFX thread.
+		 * @throws InterruptedException If interrupted while waiting for the JavaFX thread.
+		 */
+		@Setup(Level.Trial)
+		public void setup () throws InterruptedException {
+			CountDownLatch started = new CountDownLatch(1);
+			try {
+				Platform.startup(started::countDown);
+			} catch (IllegalStateException e) {
+				// The toolkit is already running.
+				started.countDown();
+			}
+			started.await();
+			runAndWait(() -> {
+				ga = new GraphArea(800, 600, -10, 10, 2, -10, 10, 2);
+				new Scene(ga, 800, 600);
+				ga.resize(800, 600);
+				List<String> texts = new ArrayList<String>();
+				for (List<String> section : corpus().values()) {
+					texts.addAll(section);
+				}
+				for (int j = 0; j < UPDATE_GRAPHS && j < texts.size(); j++) {
+					ga.addGraph(new Graph(Parser.compile(texts.get(j)), ga, Color.hsb(j * 60, 1, 0.8)));
+				}
+				addGraphs();
+				ga.update();
+			});
+		}
+		
+		/**
+		 * Add any more graphs that a benchmark needs, on the JavaFX thread.
+		 */
+		protected void addGraphs () {
+		}
+		
+		/**
+		 * Run a number of updates on the JavaFX thread and wait for them, so that handing them over
+		 * costs little next to the updates themselves.
+		 * @param update One update, given how many have been run before it.
+		 * @return How far the GraphArea is panned afterwards.
+		 * @throws IllegalStateException If an update fails.
+		 */
+		double onFxThread (UpdateCall update) {
+			runAndWait(() -> {
+				for (int i = 0; i < UPDATES; i++) {
+					update.run(calls++);
+				}
+			});
+			return ga.getXTranslation();
+		}
+		
+		/**
+		 * Run work on the JavaFX thread and wait for it.
+		 * @param work The work.
+		 * @throws IllegalStateException If the work fails, such as when JavaFX cannot lay out text.
+		 */
+		private static void runAndWait (Runnable work) {
+			CountDownLatch done = new CountDownLatch(1);
+			Throwable[] failure = new Throwable[1];
+			Platform.runLater(() -> {
+				try {
+					work.run();
+				} catch (Throwable t) {
+					failure[0] = t;
+				} finally {
+					done.countDown();
+				}
+			});
+			try {
+				done.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while waiting for the JavaFX thread", e);
+			}
+			if (failure[0] != null) {
+				throw new IllegalStateException("Could not update the GraphArea", failure[0]);
+			}
+		}
+	}
+	
+	/**
+	 * This class represents a GraphArea that also has a dozen graphs using the parameter a.
+	 */
+	@State(Scope.Benchmark)
+	public static class ParameterUpdate extends Update {
+		
+		@Override
+		protected void addGraphs () {
+			for (int i = 0; i < PARAMETER_GRAPHS; i++) {
+				ga.addGraph(new Graph(Parser.compile("a * sin ( b * x + " + i + " )", false, ga.getParameters()), ga,
+						Color.hsb(i * 30, 0.5, 1)));
+			}
+		}
+	}
+	
+	/**
+	 * This interface is one update run on the JavaFX thread.
+	 */
+	interface UpdateCall {
+		
+		/**
+		 * @param i How many updates have been run before this one.
+		 */
+		void run (int i);
+	}
+}
@@ -0,0 +1,102 @@
+package application;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * This class reports how far the approximation of each function in Token.FUNCTIONS, and of powers,
+ * is from the exact function, as a multiple of the larger of 1 and the size of the exact value, the
+ * way FastMath.ERROR is defined. Each function is checked at evenly spaced points across the range
+ * that Benchmarks plots it over and at random points of every size from 1e-300 to 1e300 of either
+ * sign, and wherever the exact value is not a finite number the approximation has to match it. It
+ * exits with a status of 1 if any function is off by more than FastMath.ERROR.
+ * Usage: FastMathReport [--samples n]
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class FastMathReport {
+	
+	/**
+	 * Check every function and print the report.
+	 * @param args The options.
+	 */
+	public static void main (String[] args) {
+		int samples = 1000000;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--samples")) {
+				samples = Integer.parseInt(args[++i]);
+			}
+		}
+		System.out.println(String.format(Locale.ROOT, "%-12s %-10s %12s %14s  %s", "function", "fast path", "max error",
+				"at x", "bound " + FastMath.ERROR));
+		boolean passed = true;
+		for (Map.Entry<String, String> entry : cases().entrySet()) {
+			Expression exact = Parser.compile(entry.getValue());
+			Expression fast = exact.approximate();
+			double[] range = range(entry.getKey());
+			
+			// Check evenly spaced points across the plotted range, then random points of every size.
+			Random random = new Random(entry.getKey().hashCode());
+			double worst = 0, at = 0;
+			boolean matched = true;
+			for (int i = 0; i < 2 * samples && matched; i++) {
+				double x = i < samples ? range[0] + (range[1] - range[0]) * i / (samples - 1)
+						: Math.copySign(Math.pow(10, -300 + 600 * random.nextDouble()), random.nextDouble() - 0.5);
+				double e = exact.applyAsDouble(x), a = fast.applyAsDouble(x);
+				if (Double.isNaN(e) || Double.isInfinite(e)) {
+					matched = Double.compare(e, a) == 0;
+					if (!matched) {
+						at = x;
+					}
+				} else {
+					double error = Math.abs(a - e) / Math.max(1, Math.abs(e));
+					if (!(error <= worst)) {
+						worst = error;
+						at = x;
+					}
+				}
+			}
+			boolean ok = matched && worst <= FastMath.ERROR;
+			passed &= ok;
+			System.out.println(String.format(Locale.ROOT, "%-12s %-10s %12.3e %14.6g  %s", entry.getKey(),
+					fast == exact ? "exact" : "FastMath", matched ? worst : Double.NaN, at,
+					ok ? "ok" : matched ? "EXCEEDS" : "MISMATCH"));
+		}
+		System.exit(passed ? 0 : 1);
+	}
+	
+	/**
+	 * @return The expression that each function is checked and benchmarked with, by name: the function
+	 * of x for each function in Token.FUNCTIONS, and then whole and other powers of x.
+	 */
+	static Map<String, String> cases () {
+		Map<String, String> cases = new LinkedHashMap<String, String>();
+		for (String f : Token.FUNCTIONS) {
+			cases.put(f, new Token(f).getNumArgs() == 2 ? f + " ( x , 0.5 )" : f + " ( x )");
+		}
+		cases.put("pow.whole", "x ^ 3");
+		cases.put("pow", "x ^ 2.5");
+		return cases;
+	}
+	
+	/**
+	 * @param name The name of a function in cases.
+	 * @return The smallest and largest x values that it is plotted over, which stay within its domain.
+	 */
+	static double[] range (String name) {
+		switch (name) {
+		case "acos":
+		case "asin":
+			return new double[] {-1, 1};
+		case "log":
+		case "ln":
+		case "sqrt":
+		case "pow":
+			return new double[] {0.01, 100};
+		default:
+			return new double[] {-10, 10};
+		}
+	}
+}
@@ -0,0 +1,135 @@
+package application;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+/**
+ * This class measures the latency of a PlotServer under load. It sends a number of requests with
+ * a fixed number in flight at once, each asking for the expressions of one line of the benchmark
+ * corpus, and prints the median, 99th percentile, and longest latency, the throughput, and how many
+ * requests got each status. Without --url it starts a server of its own on a free port.
+ * Usage: PlotServerLoadTest [--url http://host:port] [--requests n] [--concurrency n] [--format f] [--size WxH]
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class PlotServerLoadTest {
+	
+	/**
+	 * Run the load test.
+	 * @param args The options.
+	 * @throws Exception If the corpus cannot be read or the server cannot be started.
+	 */
+	public static void main (String[] args) throws Exception {
+		String url = null, format = "json", size = "400x300";
+		int requests = 10000, concurrency = 1000;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--url")) {
+				url = args[++i];
+			} else if (args[i].equals("--requests")) {
+				requests = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("--concurrency")) {
+				concurrency = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("--format")) {
+				format = args[++i];
+			} else if (args[i].equals("--size")) {
+				size = args[++i];
+			}
+		}
+		
+		// Start a server in this process unless one was given.
+		PlotServer server = null;
+		if (url == null) {
+			server = new PlotServer(new InetSocketAddress("127.0.0.1", 0), Math.max(4096, concurrency),
+					Runtime.getRuntime().availableProcessors() * 2);
+			server.start();
+			url = "http://127.0.0.1:" + server.getPort();
+		}
+		
+		// Build one request for each line of the corpus, and send them in turn.
+		List<URI> uris = new ArrayList<URI>();
+		for (String expression : corpus()) {
+			uris.add(URI.create(url + "/plot?format=" + format + "&size=" + size + "&x=-10,10&y=-10,10&expr="
+					+ URLEncoder.encode(expression, StandardCharsets.UTF_8)));
+		}
+		ExecutorService executor = PlotServer.newRequestExecutor();
+		HttpClient client = HttpClient.newBuilder().executor(executor).build();
+		long[] latencies = new long[requests];
+		Map<Integer, Integer> statuses = new TreeMap<Integer, Integer>();
+		Semaphore permits = new Semaphore(concurrency);
+		CountDownLatch done = new CountDownLatch(requests);
+		long start = System.nanoTime();
+		for (int i = 0; i < requests; i++) {
+			permits.acquire();
+			int index = i;
+			long sent = System.nanoTime();
+			client.sendAsync(HttpRequest.newBuilder(uris.get(i % uris.size())).build(), HttpResponse.BodyHandlers.discarding())
+					.whenComplete((response, failure) -> {
+						latencies[index] = System.nanoTime() - sent;
+						int status = failure == null ? response.statusCode() : -1;
+						synchronized (statuses) {
+							statuses.merge(status, 1, Integer::sum);
+						}
+						permits.release();
+						done.countDown();
+					});
+		}
+		done.await();
+		double seconds = (System.nanoTime() - start) / 1e9;
+		
+		// Report the latencies and the statuses, where -1 counts requests that failed to connect.
+		Arrays.sort(latencies);
+		System.out.println(String.format("%d requests, %d in flight, %s %s", requests, concurrency, format, size));
+		System.out.println(String.format("p50 %.2f ms, p99 %.2f ms, max %.2f ms", percentile(latencies, 50) / 1e6,
+				percentile(latencies, 99) / 1e6, latencies[requests - 1] / 1e6));
+		System.out.println(String.format("%.0f requests/s", requests / seconds));
+		System.out.println("statuses " + statuses);
+		if (server != null) {
+			server.stop();
+		}
+		System.exit(0);
+	}
+	
+	/**
+	 * @param sorted Latencies in increasing order.
+	 * @param p A percentile between 0 and 100.
+	 * @return The latency at the percentile.
+	 */
+	private static long percentile (long[] sorted, double p) {
+		int index = (int) Math.ceil(p / 100 * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+	}
+	
+	/**
+	 * @return Every expression in the benchmark corpus.
+	 * @throws IOException If the corpus cannot be read.
+	 */
+	private static List<String> corpus () throws IOException {
+		List<String> list = new ArrayList<String>();
+		try (BufferedReader in = new BufferedReader(new InputStreamReader(
+				PlotServerLoadTest.class.getResourceAsStream("corpus.txt"), StandardCharsets.UTF_8))) {
+			for (String line = in.readLine(); line != null; line = in.readLine()) {
+				line = line.trim();
+				if (!line.equals("") && !line.startsWith("#") && !line.startsWith("[")) {
+					list.add(line);
+				}
+			}
+		}
+		return list;
+	}
+}
@@ -0,0 +1,91 @@
+package application;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class measures how well a StreamGraph keeps up with a fast producer. One thread offers samples
+ * of a noisy sine wave at a fixed rate while this thread acts as the FX thread, draining the stream and
+ * finding its columns for a scrolling window once every pulse, and then it prints how many samples were
+ * taken and dropped, how long each pulse took, and how much the pulses allocated.
+ * Usage: StreamBenchmark [--rate samples/s] [--seconds n] [--fps n] [--columns n] [--window x]
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class StreamBenchmark {
+	
+	/**
+	 * Run the benchmark.
+	 * @param args The options.
+	 * @throws InterruptedException If the producer cannot be waited for.
+	 */
+	public static void main (String[] args) throws InterruptedException {
+		double rate = 1e6, seconds = 5, fps = 60, window = 2;
+		int columns = 1600;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--rate")) {
+				rate = Double.parseDouble(args[++i]);
+			} else if (args[i].equals("--seconds")) {
+				seconds = Double.parseDouble(args[++i]);
+			} else if (args[i].equals("--fps")) {
+				fps = Double.parseDouble(args[++i]);
+			} else if (args[i].equals("--columns")) {
+				columns = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("--window")) {
+				window = Double.parseDouble(args[++i]);
+			}
+		}
+		StreamGraph stream = new StreamGraph("bench", null, null);
+		SampleBuffer buffer = new SampleBuffer();
+		
+		// Offer samples in batches whenever the producer falls behind the rate, with x in seconds.
+		long total = (long) (rate * seconds);
+		double perNano = rate / 1e9;
+		double step = 1 / rate;
+		Thread producer = new Thread(() -> {
+			long start = System.nanoTime();
+			for (long n = 0; n < total; ) {
+				long due = Math.min(total, (long) ((System.nanoTime() - start) * perNano));
+				for (; n < due; n++) {
+					double x = n * step;
+					stream.offer(x, Math.sin(2 * Math.PI * x) + 0.1 * Math.sin(977 * x));
+				}
+				Thread.onSpinWait();
+			}
+		}, "stream-producer");
+		
+		// Pulse at the frame rate until the producer is done and the ring is empty.
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long frame = (long) (1e9 / fps);
+		long[] pulses = new long[(int) (seconds * fps * 2) + 16];
+		int count = 0;
+		long taken = 0;
+		long allocated = threads.getCurrentThreadAllocatedBytes();
+		producer.start();
+		long next = System.nanoTime();
+		while (producer.isAlive() || taken < total - stream.getRing().getDropped()) {
+			long start = System.nanoTime();
+			int n = stream.drain();
+			taken += n;
+			double to = Math.max(window, taken == 0 ? 0 : stream.getCount() / rate);
+			stream.columns(to - window, to, columns, buffer);
+			if (count < pulses.length) {
+				pulses[count++] = System.nanoTime() - start;
+			}
+			next += frame;
+			LockSupport.parkNanos(next - System.nanoTime());
+		}
+		allocated = threads.getCurrentThreadAllocatedBytes() - allocated;
+		producer.join();
+		
+		// Report what happened.
+		long[] sorted = Arrays.copyOf(pulses, count);
+		Arrays.sort(sorted);
+		System.out.println(String.format("%.0f samples/s for %.1f s, %.0f pulses/s, %d columns", rate, seconds, fps, columns));
+		System.out.println(String.format("taken %d, dropped %d", taken, stream.getRing().getDropped()));
+		System.out.println(String.format("pulse p50 %.3f ms, p99 %.3f ms, max %.3f ms", sorted[count / 2] / 1e6,
+				sorted[Math.min(count - 1, (int) (count * 0.99))] / 1e6, sorted[count - 1] / 1e6));
+		System.out.println(String.format("allocated %d bytes in %d pulses", allocated, count));
+	}
+}
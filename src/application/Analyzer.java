@@ -0,0 +1,511 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * This class finds the interesting points of a list of functions over an interval: their roots, the
+ * points where two of them intersect, and their local minima and maxima. Candidates are bracketed
+ * from samples taken on a regular grid and then refined with Brent's method. The work is split into
+ * sub-intervals, and intersections into pairs of functions, which all run in parallel. An analysis
+ * can be cancelled from any thread, which makes it stop within a few evaluations. It has a nested
+ * class for the points it finds.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class Analyzer {
+	
+	private static final int INTERVALS = 4096;			// How many intervals the range is sampled on.
+	private static final int CHUNKS = 8;				// How many sub-intervals the range is split into.
+	private static final int MAX_ITERATIONS = 100;		// The most iterations spent refining one point.
+	private static final double EPSILON = Math.ulp(1.0);	// The relative precision of a double.
+	private static final double GOLDEN = 0.3819660112501051;	// The golden section step of Brent's minimizer.
+	
+	private List<DoubleUnaryOperator> functions;		// The functions to analyze.
+	private double from, to;							// The interval to analyze.
+	private double step;								// The distance between samples.
+	private double tolerance;							// How precisely points are located.
+	private double[][] values;							// The samples of each function.
+	private ExecutorService executor;					// Runs the parts of the analysis.
+	private volatile boolean cancelled;					// Whether or not the analysis should stop.
+	
+	/**
+	 * Create an analysis of the given functions that runs on the common fork-join pool.
+	 * @param functions The functions to analyze. They are called from several threads at once.
+	 * @param from The left end of the interval to analyze.
+	 * @param to The right end of the interval to analyze.
+	 */
+	public Analyzer (List<DoubleUnaryOperator> functions, double from, double to) {
+		this(functions, from, to, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Create an analysis of the given functions.
+	 * @param functions The functions to analyze. They are called from several threads at once.
+	 * @param from The left end of the interval to analyze.
+	 * @param to The right end of the interval to analyze.
+	 * @param executor Runs the parts of the analysis.
+	 */
+	public Analyzer (List<DoubleUnaryOperator> functions, double from, double to, ExecutorService executor) {
+		this.functions = new ArrayList<DoubleUnaryOperator>(functions);
+		this.from = from;
+		this.to = to;
+		this.executor = executor;
+		step = (to - from) / INTERVALS;
+		tolerance = (to - from) * 1e-12;
+	}
+	
+	/**
+	 * Stop the analysis as soon as possible. This may be called from any thread.
+	 */
+	public void cancel () {
+		cancelled = true;
+	}
+	
+	/**
+	 * @return cancelled
+	 */
+	public boolean isCancelled () {
+		return cancelled;
+	}
+	
+	/**
+	 * Run the analysis, blocking until it is finished.
+	 * @return Every point that was found, from left to right.
+	 * @throws CancellationException If the analysis was cancelled.
+	 */
+	public List<Feature> run () {
+		int n = functions.size();
+		if (!(to > from) || Double.isInfinite(to - from)) {
+			return new ArrayList<Feature>();
+		}
+		
+		// Sample every function, a sub-interval at a time.
+		values = new double[n][INTERVALS + 1];
+		List<Callable<List<Feature>>> tasks = new ArrayList<Callable<List<Feature>>>();
+		for (int i = 0; i < n; i++) {
+			for (int c = 0; c < CHUNKS; c++) {
+				int f = i, start = chunkStart(c), end = chunkStart(c + 1);
+				tasks.add(() -> {
+					sample(f, start, end);
+					return null;
+				});
+			}
+		}
+		runAll(tasks);
+		
+		// Look for roots and extrema of each function and intersections of each pair, a sub-interval at a time.
+		tasks.clear();
+		for (int c = 0; c < CHUNKS; c++) {
+			int start = chunkStart(c), end = chunkStart(c + 1);
+			for (int i = 0; i < n; i++) {
+				int f = i;
+				tasks.add(() -> {
+					List<Feature> found = new ArrayList<Feature>();
+					findRoots(f, start, end, found);
+					findExtrema(f, start, end, found);
+					return found;
+				});
+				for (int j = i + 1; j < n; j++) {
+					int g = j;
+					tasks.add(() -> {
+						List<Feature> found = new ArrayList<Feature>();
+						findIntersections(f, g, start, end, found);
+						return found;
+					});
+				}
+			}
+		}
+		List<Feature> features = new ArrayList<Feature>();
+		for (List<Feature> found : runAll(tasks)) {
+			features.addAll(found);
+		}
+		Collections.sort(features, Comparator.comparingDouble(Feature::getX));
+		return features;
+	}
+	
+	/**
+	 * Run tasks on the executor and wait for all of them.
+	 * @param tasks The tasks to run.
+	 * @return The results of the tasks, in the same order.
+	 * @throws CancellationException If the analysis was cancelled.
+	 */
+	private <T> List<T> runAll (List<Callable<T>> tasks) {
+		checkCancelled();
+		List<T> results;
+		try {
+			results = Parallel.invokeAll(executor, tasks);
+		} catch (CancellationException e) {
+			
+			// Being interrupted cancels the rest of the analysis too.
+			cancel();
+			throw e;
+		}
+		checkCancelled();
+		return results;
+	}
+	
+	/**
+	 * @throws CancellationException If the analysis was cancelled.
+	 */
+	private void checkCancelled () {
+		if (cancelled) {
+			throw new CancellationException();
+		}
+	}
+	
+	/**
+	 * @param c A sub-interval.
+	 * @return The index of the first sample of the sub-interval.
+	 */
+	private static int chunkStart (int c) {
+		return c * INTERVALS / CHUNKS;
+	}
+	
+	/**
+	 * @param k The index of a sample.
+	 * @return The x value of the sample.
+	 */
+	private double xAt (int k) {
+		return k == INTERVALS ? to : from + k * step;
+	}
+	
+	/**
+	 * Sample a function over part of the grid. The last sub-interval also samples the right end.
+	 * @param f The index of the function.
+	 * @param start The first sample.
+	 * @param end The sample after the last one, unless this is the last sub-interval.
+	 */
+	private void sample (int f, int start, int end) {
+		DoubleUnaryOperator function = functions.get(f);
+		double[] v = values[f];
+		int last = end == INTERVALS ? INTERVALS : end - 1;
+		for (int k = start; k <= last; k++) {
+			if ((k & 63) == 0) {
+				checkCancelled();
+			}
+			v[k] = function.applyAsDouble(xAt(k));
+		}
+	}
+	
+	/**
+	 * Find the roots of a function where its samples change sign, ignoring sign changes across
+	 * poles, where the function grows instead of shrinking toward the root.
+	 * @param f The index of the function.
+	 * @param start The first sample to look after.
+	 * @param end The sample after the last one to look after.
+	 * @param found The list that the roots are added to.
+	 */
+	private void findRoots (int f, int start, int end, List<Feature> found) {
+		DoubleUnaryOperator function = functions.get(f);
+		double[] v = values[f];
+		for (int k = start; k < end; k++) {
+			if (v[k] == 0) {
+				found.add(new Feature(Feature.Kind.ROOT, xAt(k), 0, f, -1));
+			} else if (v[k] * v[k + 1] < 0) {
+				double x = findRoot(function, xAt(k), xAt(k + 1), v[k], v[k + 1]);
+				double y = function.applyAsDouble(x);
+				if (Math.abs(y) <= Math.min(Math.abs(v[k]), Math.abs(v[k + 1]))) {
+					found.add(new Feature(Feature.Kind.ROOT, x, y, f, -1));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Find where two functions intersect, which are the roots of their difference.
+	 * @param f The index of the first function.
+	 * @param g The index of the second function.
+	 * @param start The first sample to look after.
+	 * @param end The sample after the last one to look after.
+	 * @param found The list that the intersections are added to.
+	 */
+	private void findIntersections (int f, int g, int start, int end, List<Feature> found) {
+		DoubleUnaryOperator first = functions.get(f);
+		DoubleUnaryOperator second = functions.get(g);
+		DoubleUnaryOperator difference = x -> first.applyAsDouble(x) - second.applyAsDouble(x);
+		double[] v = values[f], w = values[g];
+		for (int k = start; k < end; k++) {
+			double d0 = v[k] - w[k], d1 = v[k + 1] - w[k + 1];
+			if (d0 == 0) {
+				found.add(new Feature(Feature.Kind.INTERSECTION, xAt(k), v[k], f, g));
+			} else if (d0 * d1 < 0) {
+				double x = findRoot(difference, xAt(k), xAt(k + 1), d0, d1);
+				double y = first.applyAsDouble(x);
+				if (Math.abs(difference.applyAsDouble(x)) <= Math.min(Math.abs(d0), Math.abs(d1))
+						&& !Double.isInfinite(y)) {
+					found.add(new Feature(Feature.Kind.INTERSECTION, x, y, f, g));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Find the local minima and maxima of a function where the differences between its samples
+	 * change sign. A minimum or maximum that touches zero without the samples changing sign is also
+	 * a root, which would otherwise be missed. A sample that is not finite is a pole, which is never
+	 * next to an extremum.
+	 * @param f The index of the function.
+	 * @param start The first sample to look at.
+	 * @param end The sample after the last one to look at.
+	 * @param found The list that the extrema are added to.
+	 */
+	private void findExtrema (int f, int start, int end, List<Feature> found) {
+		DoubleUnaryOperator function = functions.get(f);
+		double[] v = values[f];
+		for (int k = Math.max(1, start); k < end; k++) {
+			double d0 = v[k] - v[k - 1], d1 = v[k + 1] - v[k];
+			if (!Double.isFinite(d0) || !Double.isFinite(d1) || (!(d0 > 0 && d1 < 0) && !(d0 < 0 && d1 > 0))) {
+				continue;
+			}
+			
+			// A maximum is a minimum of the negated function.
+			double sign = d0 > 0 ? -1 : 1;
+			double x = findMinimum(t -> sign * function.applyAsDouble(t), xAt(k - 1), xAt(k), xAt(k + 1));
+			double y = function.applyAsDouble(x);
+			
+			// Near a pole the refined value runs far past the samples around it, so it is not an extremum.
+			if (Double.isNaN(y) || Math.abs(y - v[k]) > 4 * (Math.abs(d0) + Math.abs(d1))) {
+				continue;
+			}
+			found.add(new Feature(sign < 0 ? Feature.Kind.MAXIMUM : Feature.Kind.MINIMUM, x, y, f, -1));
+			if (Math.abs(y) <= tolerance && v[k - 1] * v[k] > 0 && v[k] * v[k + 1] > 0) {
+				found.add(new Feature(Feature.Kind.ROOT, x, 0, f, -1));
+			}
+		}
+	}
+	
+	/**
+	 * Find a root of a function inside an interval where it changes sign, using Brent's method.
+	 * @param f The function.
+	 * @param a One end of the interval.
+	 * @param b The other end of the interval.
+	 * @param fa The value of the function at a.
+	 * @param fb The value of the function at b.
+	 * @return The root.
+	 */
+	private double findRoot (DoubleUnaryOperator f, double a, double b, double fa, double fb) {
+		double c = b, fc = fb;
+		double d = 0, e = 0;
+		for (int i = 0; i < MAX_ITERATIONS; i++) {
+			checkCancelled();
+			
+			// Keep the root between b and c, with b the better of the two.
+			if ((fb > 0 && fc > 0) || (fb < 0 && fc < 0)) {
+				c = a;
+				fc = fa;
+				d = b - a;
+				e = d;
+			}
+			if (Math.abs(fc) < Math.abs(fb)) {
+				a = b;
+				b = c;
+				c = a;
+				fa = fb;
+				fb = fc;
+				fc = fa;
+			}
+			double tol = 2 * EPSILON * Math.abs(b) + tolerance / 2;
+			double m = (c - b) / 2;
+			if (Math.abs(m) <= tol || fb == 0) {
+				return b;
+			}
+			
+			// Try inverse quadratic interpolation or the secant method, and bisect if it does not help enough.
+			if (Math.abs(e) >= tol && Math.abs(fa) > Math.abs(fb)) {
+				double s = fb / fa, p, q;
+				if (a == c) {
+					p = 2 * m * s;
+					q = 1 - s;
+				} else {
+					double r = fb / fc;
+					q = fa / fc;
+					p = s * (2 * m * q * (q - r) - (b - a) * (r - 1));
+					q = (q - 1) * (r - 1) * (s - 1);
+				}
+				if (p > 0) {
+					q = -q;
+				}
+				p = Math.abs(p);
+				if (2 * p < Math.min(3 * m * q - Math.abs(tol * q), Math.abs(e * q))) {
+					e = d;
+					d = p / q;
+				} else {
+					d = m;
+					e = d;
+				}
+			} else {
+				d = m;
+				e = d;
+			}
+			a = b;
+			fa = fb;
+			b += Math.abs(d) > tol ? d : Math.copySign(tol, m);
+			fb = f.applyAsDouble(b);
+		}
+		return b;
+	}
+	
+	/**
+	 * Find a minimum of a function inside an interval using Brent's method, which combines golden
+	 * section search with parabolic interpolation.
+	 * @param f The function.
+	 * @param left The left end of the interval.
+	 * @param middle A point inside the interval where the function is lower than at both ends.
+	 * @param right The right end of the interval.
+	 * @return The minimum.
+	 */
+	private double findMinimum (DoubleUnaryOperator f, double left, double middle, double right) {
+		double a = left, b = right;
+		double x = middle, w = middle, v = middle;
+		double fx = f.applyAsDouble(x), fw = fx, fv = fx;
+		double d = 0, e = 0;
+		for (int i = 0; i < MAX_ITERATIONS; i++) {
+			checkCancelled();
+			double xm = (a + b) / 2;
+			double tol1 = Math.sqrt(EPSILON) * Math.abs(x) + tolerance;
+			double tol2 = 2 * tol1;
+			if (Math.abs(x - xm) <= tol2 - (b - a) / 2) {
+				return x;
+			}
+			
+			// Try a parabola through the three best points, and take a golden section step if it does not fit.
+			boolean golden = true;
+			if (Math.abs(e) > tol1) {
+				double r = (x - w) * (fx - fv);
+				double q = (x - v) * (fx - fw);
+				double p = (x - v) * q - (x - w) * r;
+				q = 2 * (q - r);
+				if (q > 0) {
+					p = -p;
+				}
+				q = Math.abs(q);
+				double previous = e;
+				e = d;
+				if (Math.abs(p) < Math.abs(q * previous / 2) && p > q * (a - x) && p < q * (b - x)) {
+					d = p / q;
+					double u = x + d;
+					if (u - a < tol2 || b - u < tol2) {
+						d = Math.copySign(tol1, xm - x);
+					}
+					golden = false;
+				}
+			}
+			if (golden) {
+				e = x >= xm ? a - x : b - x;
+				d = GOLDEN * e;
+			}
+			
+			// Evaluate the new point and narrow the interval around the best one.
+			double u = Math.abs(d) >= tol1 ? x + d : x + Math.copySign(tol1, d);
+			double fu = f.applyAsDouble(u);
+			if (fu <= fx) {
+				if (u >= x) {
+					a = x;
+				} else {
+					b = x;
+				}
+				v = w;
+				fv = fw;
+				w = x;
+				fw = fx;
+				x = u;
+				fx = fu;
+			} else {
+				if (u < x) {
+					a = u;
+				} else {
+					b = u;
+				}
+				if (fu <= fw || w == x) {
+					v = w;
+					fv = fw;
+					w = u;
+					fw = fu;
+				} else if (fu <= fv || v == x || v == w) {
+					v = u;
+					fv = fu;
+				}
+			}
+		}
+		return x;
+	}
+	
+	/**
+	 * This class represents one point found by an analysis. It has fields for what kind of point it
+	 * is, where it is, and which functions it belongs to.
+	 * @author Mark Kikta
+	 * @version 1.0
+	 */
+	public static class Feature {
+		
+		/**
+		 * The kinds of points that an analysis finds.
+		 */
+		public enum Kind {
+			ROOT, INTERSECTION, MINIMUM, MAXIMUM
+		}
+		
+		private Kind kind;				// What kind of point this is.
+		private double x, y;			// Where this point is.
+		private int first, second;		// The indices of the functions this point belongs to, or -1 for none.
+		
+		/**
+		 * Create a point.
+		 * @param kind What kind of point this is.
+		 * @param x The x value of the point.
+		 * @param y The y value of the point.
+		 * @param first The index of the function this point belongs to.
+		 * @param second The index of the other function for an intersection, or -1.
+		 */
+		public Feature (Kind kind, double x, double y, int first, int second) {
+			this.kind = kind;
+			this.x = x;
+			this.y = y;
+			this.first = first;
+			this.second = second;
+		}
+		
+		/**
+		 * @return kind
+		 */
+		public Kind getKind () {
+			return kind;
+		}
+		
+		/**
+		 * @return x
+		 */
+		public double getX () {
+			return x;
+		}
+		
+		/**
+		 * @return y
+		 */
+		public double getY () {
+			return y;
+		}
+		
+		/**
+		 * @return first
+		 */
+		public int getFirst () {
+			return first;
+		}
+		
+		/**
+		 * @return second
+		 */
+		public int getSecond () {
+			return second;
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package application;
+
+import java.util.function.DoubleConsumer;
+
+import javafx.animation.AnimationTimer;
+
+/**
+ * This class extends AnimationTimer from JavaFX. It is the frame clock of animated expressions: on
+ * every pulse while it plays, it advances time by how long it has been since the last pulse, times
+ * its speed, and hands the step to whatever it drives, such as the parameter t. It expects a pulse
+ * every sixtieth of a second, and counts every pulse that comes more than half a frame late as a
+ * missed frame, which is also recorded as a Flight Recorder event along with how long the frame
+ * before it took.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class Animator extends AnimationTimer {
+	
+	private static final long FRAME = 1000000000L / 60;	// How many nanoseconds apart pulses are expected.
+	
+	private DoubleConsumer step;			// Advances what is animated by a number of seconds.
+	private double speed = 1;				// How many seconds of animation pass in each second.
+	private boolean playing;				// Whether or not time is passing.
+	private long last;						// When the last pulse came, or 0 if none has since playing started.
+	private long work;						// How long the last frame took to advance and redraw.
+	private long frames;					// How many frames have been shown while playing.
+	private long missed;					// How many of them came too late.
+	
+	/**
+	 * Create a paused frame clock.
+	 * @param step Advances what is animated by a number of seconds.
+	 */
+	public Animator (DoubleConsumer step) {
+		this.step = step;
+	}
+	
+	@Override
+	public void handle (long now) {
+		if (last != 0) {
+			long interval = now - last;
+			frames++;
+			if (interval > FRAME * 3 / 2) {
+				missed++;
+				GraphEvents.MissedFrame event = new GraphEvents.MissedFrame();
+				if (event.shouldCommit()) {
+					event.interval = interval;
+					event.work = work;
+					event.commit();
+				}
+			}
+			long start = System.nanoTime();
+			step.accept(interval / 1e9 * speed);
+			work = System.nanoTime() - start;
+		}
+		last = now;
+	}
+	
+	/**
+	 * Start time passing.
+	 */
+	public void play () {
+		playing = true;
+		last = 0;
+		start();
+	}
+	
+	/**
+	 * Stop time passing.
+	 */
+	public void pause () {
+		playing = false;
+		stop();
+	}
+	
+	/**
+	 * @return playing
+	 */
+	public boolean isPlaying () {
+		return playing;
+	}
+	
+	/**
+	 * @param speed How many seconds of animation pass in each second.
+	 */
+	public void setSpeed (double speed) {
+		this.speed = speed;
+	}
+	
+	/**
+	 * @return speed
+	 */
+	public double getSpeed () {
+		return speed;
+	}
+	
+	/**
+	 * @return frames
+	 */
+	public long getFrames () {
+		return frames;
+	}
+	
+	/**
+	 * @return missed
+	 */
+	public long getMissed () {
+		return missed;
+	}
+	
+	/**
+	 * @return How many nanoseconds the last frame took to advance and redraw.
+	 */
+	public long getWork () {
+		return work;
+	}
+}
@@ -0,0 +1,437 @@
+package application;
+
+import java.util.Arrays;
+import java.util.Queue;
+
+/**
+ * This class represents a compiled mathematical expression of a complex variable z, such as
+ * "( z ^ 3 - 1 ) / ( z + i )", where i is the imaginary unit. It is compiled from the same post-fix
+ * expression that the parser builds for an Expression, as a program for a stack machine whose
+ * registers each hold the real and imaginary parts of a batch of values. Each instruction runs across
+ * the whole batch before the next one starts, so a row of a DomainColoring is evaluated a batch at a
+ * time without creating any objects. Parameters are real, and are read from their slots in a set of
+ * Parameters each time the expression is evaluated. Only the functions in Token.COMPLEX_FUNCTIONS
+ * are supported, each as the principal branch of its complex extension, except for abs, which is
+ * the modulus. A ComplexExpression is immutable and may be evaluated from any thread.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class ComplexExpression {
+	
+	// Codes for the instructions that push a value.
+	private static final int Z = 0, CONSTANT = 1, PARAMETER = 2;
+	
+	// Codes for the supported operators.
+	private static final int ADD = 3, SUBTRACT = 4, MULTIPLY = 5, DIVIDE = 6, POWER = 7;
+	
+	// Codes for the supported single-argument functions.
+	private static final int ABS = 8, COS = 9, COSH = 10, EXP = 11, LOG = 12, LN = 13, SIN = 14, SINH = 15,
+			SQRT = 16, TAN = 17, TANH = 18, NEGATE = 19;
+	
+	private static final int MAX_POWER = 64;	// The largest whole exponent found by repeated multiplication.
+	
+	private String text;			// The text that this expression was compiled from.
+	private int[] program;			// The instructions, each followed by its operand if it pushes a constant or parameter.
+	private double[] constants;		// The real and imaginary parts of each constant.
+	private double[] values;		// The values of the parameters, by slot.
+	private long parameterMask;		// The slots of the parameters that this expression uses, one bit each.
+	private int depth;				// How many values the stack holds at most.
+	
+	/**
+	 * Create an expression with the given program.
+	 * @param text The text that this expression was compiled from.
+	 * @param program The instructions.
+	 * @param constants The real and imaginary parts of each constant.
+	 * @param values The values of the parameters, by slot, or null if there are none.
+	 * @param parameterMask The slots of the parameters that the expression uses, one bit each.
+	 * @param depth How many values the stack holds at most.
+	 */
+	private ComplexExpression (String text, int[] program, double[] constants, double[] values, long parameterMask,
+			int depth) {
+		this.text = text;
+		this.program = program;
+		this.constants = constants;
+		this.values = values;
+		this.parameterMask = parameterMask;
+		this.depth = depth;
+	}
+	
+	/**
+	 * Compile a post-fix expression of z. Tokens are handled the same way that Expression.compile
+	 * handles them, except that z and i are not parameters here, and x and y are not allowed.
+	 * @param text The text that the post-fix expression was made from.
+	 * @param queue The post-fix expression to be compiled.
+	 * @param parameters The values of the parameters, or null if the expression may not use any.
+	 * @return The compiled expression, null if invalid.
+	 */
+	static ComplexExpression compile (String text, Queue<Token> queue, Parameters parameters) {
+		int[] program = new int[2 * queue.size()];
+		double[] constants = new double[2 * queue.size()];
+		int length = 0, constantCount = 0, size = 0, depth = 0;
+		long parameterMask = 0;
+		
+		// Whether or not any operator or function has been applied.
+		boolean operated = false;
+		
+		for (Token t : queue) {
+			
+			// If the token is a constant, z, i, or a parameter, push it to the stack.
+			if (t.getType() == TokenType.CONSTANT || t.getType() == TokenType.PARAMETER) {
+				String symbol = t.getSymbol();
+				if (symbol.equals(Token.COMPLEX_VARIABLE)) {
+					program[length++] = Z;
+				} else if (t.getType() == TokenType.CONSTANT || symbol.equals(Token.IMAGINARY_UNIT)) {
+					boolean imaginary = t.getType() == TokenType.PARAMETER;
+					program[length++] = CONSTANT;
+					program[length++] = constantCount;
+					constants[constantCount++] = imaginary ? 0 : Double.parseDouble(symbol);
+					constants[constantCount++] = imaginary ? 1 : 0;
+				} else {
+					if (parameters == null) {
+						return null;
+					}
+					int slot = Parameters.slot(symbol.charAt(0));
+					parameterMask |= 1L << slot;
+					program[length++] = PARAMETER;
+					program[length++] = slot;
+				}
+				depth = Math.max(depth, ++size);
+			}
+			
+			// A function of z may not use x or y.
+			else if (t.getType() == TokenType.VARIABLE) {
+				return null;
+			}
+			
+			// If the token is an operator, operate on the top two values of the stack.
+			else if (t.getType() == TokenType.OPERATOR) {
+				operated = true;
+				
+				// If it is a negative symbol, negate the only value on the stack.
+				if (size == 1 && t.getSymbol().equals("-")) {
+					program[length++] = NEGATE;
+				} else if (size >= 2) {
+					program[length++] = operatorCode(t.getSymbol());
+					size--;
+				} else {
+					return null;
+				}
+			}
+			
+			// If the token is a function, apply it to the top of the stack, if it works on complex numbers.
+			else if (t.getType() == TokenType.FUNCTION) {
+				operated = true;
+				if (!Token.COMPLEX_FUNCTIONS.contains(t.getSymbol()) || size < 1) {
+					return null;
+				}
+				program[length++] = functionCode(t.getSymbol());
+			}
+		}
+		
+		// A lone constant or variable is only valid if it was the only token in the queue.
+		if (size != 1) {
+			return null;
+		} else if (!operated && queue.size() != 1) {
+			return null;
+		}
+		return new ComplexExpression(text, Arrays.copyOf(program, length), Arrays.copyOf(constants, constantCount),
+				parameters == null ? null : parameters.values, parameterMask, depth);
+	}
+	
+	/**
+	 * @param symbol The symbol of an operator.
+	 * @return Its code.
+	 */
+	private static int operatorCode (String symbol) {
+		switch (symbol) {
+		case "+": return ADD;
+		case "-": return SUBTRACT;
+		case "*": return MULTIPLY;
+		case "/": return DIVIDE;
+		default: return POWER;
+		}
+	}
+	
+	/**
+	 * @param symbol The name of a function in Token.COMPLEX_FUNCTIONS.
+	 * @return Its code.
+	 */
+	private static int functionCode (String symbol) {
+		switch (symbol) {
+		case "abs": return ABS;
+		case "cos": return COS;
+		case "cosh": return COSH;
+		case "exp": return EXP;
+		case "log": return LOG;
+		case "ln": return LN;
+		case "sin": return SIN;
+		case "sinh": return SINH;
+		case "sqrt": return SQRT;
+		case "tan": return TAN;
+		default: return TANH;
+		}
+	}
+	
+	/**
+	 * Evaluate this expression at a batch of values of z that share an imaginary part, such as a row
+	 * of pixels.
+	 * @param xs The real parts of z.
+	 * @param y The imaginary part of z.
+	 * @param outRe Where to put the real parts of this expression.
+	 * @param outIm Where to put the imaginary parts of this expression.
+	 * @param n How many values of z there are, at most Expression.BATCH.
+	 * @param stack At least getRegisters() arrays of at least Expression.BATCH doubles each, which may
+	 * be reused from one call to the next but not shared between threads.
+	 */
+	public void evaluate (double[] xs, double y, double[] outRe, double[] outIm, int n, double[][] stack) {
+		int size = 0;
+		for (int pc = 0; pc < program.length; pc++) {
+			int op = program[pc];
+			
+			// Push a value.
+			if (op <= PARAMETER) {
+				double[] re = stack[2 * size], im = stack[2 * size + 1];
+				if (op == Z) {
+					System.arraycopy(xs, 0, re, 0, n);
+					Arrays.fill(im, 0, n, y);
+				} else if (op == CONSTANT) {
+					int c = program[++pc];
+					Arrays.fill(re, 0, n, constants[c]);
+					Arrays.fill(im, 0, n, constants[c + 1]);
+				} else {
+					Arrays.fill(re, 0, n, values[program[++pc]]);
+					Arrays.fill(im, 0, n, 0);
+				}
+				size++;
+			}
+			
+			// Operate on the top two values, leaving the result in place of the first.
+			else if (op <= POWER) {
+				size--;
+				binary(op, stack[2 * size - 2], stack[2 * size - 1], stack[2 * size], stack[2 * size + 1], n);
+			}
+			
+			// Apply a function to the top value in place.
+			else {
+				unary(op, stack[2 * size - 2], stack[2 * size - 1], n);
+			}
+		}
+		System.arraycopy(stack[0], 0, outRe, 0, n);
+		System.arraycopy(stack[1], 0, outIm, 0, n);
+	}
+	
+	/**
+	 * Apply an operator across a batch, as a = a op b.
+	 * @param op The code of the operator.
+	 * @param ar The real parts of a.
+	 * @param ai The imaginary parts of a.
+	 * @param br The real parts of b.
+	 * @param bi The imaginary parts of b.
+	 * @param n How many values there are.
+	 */
+	private static void binary (int op, double[] ar, double[] ai, double[] br, double[] bi, int n) {
+		switch (op) {
+		case ADD:
+			for (int k = 0; k < n; k++) {
+				ar[k] += br[k];
+				ai[k] += bi[k];
+			}
+			break;
+		case SUBTRACT:
+			for (int k = 0; k < n; k++) {
+				ar[k] -= br[k];
+				ai[k] -= bi[k];
+			}
+			break;
+		case MULTIPLY:
+			for (int k = 0; k < n; k++) {
+				double re = ar[k] * br[k] - ai[k] * bi[k];
+				ai[k] = ar[k] * bi[k] + ai[k] * br[k];
+				ar[k] = re;
+			}
+			break;
+		case DIVIDE:
+			for (int k = 0; k < n; k++) {
+				double d = br[k] * br[k] + bi[k] * bi[k];
+				double re = (ar[k] * br[k] + ai[k] * bi[k]) / d;
+				ai[k] = (ai[k] * br[k] - ar[k] * bi[k]) / d;
+				ar[k] = re;
+			}
+			break;
+		default:
+			for (int k = 0; k < n; k++) {
+				power(ar, ai, br[k], bi[k], k);
+			}
+		}
+	}
+	
+	/**
+	 * Raise one value of a batch to a power, by repeated multiplication if the power is a whole number
+	 * no larger than MAX_POWER in size, and otherwise as the exponential of the power times the
+	 * principal logarithm.
+	 * @param ar The real parts of the base, where the real part of the result goes.
+	 * @param ai The imaginary parts of the base, where the imaginary part of the result goes.
+	 * @param br The real part of the exponent.
+	 * @param bi The imaginary part of the exponent.
+	 * @param k The index of the value.
+	 */
+	private static void power (double[] ar, double[] ai, double br, double bi, int k) {
+		double a = ar[k], b = ai[k];
+		if (bi == 0 && Math.abs(br) <= MAX_POWER && br == Math.rint(br)) {
+			double re = 1, im = 0, sr = a, si = b;
+			for (int e = (int) Math.abs(br); e != 0; e >>= 1) {
+				if ((e & 1) != 0) {
+					double t = re * sr - im * si;
+					im = re * si + im * sr;
+					re = t;
+				}
+				double t = sr * sr - si * si;
+				si = 2 * sr * si;
+				sr = t;
+			}
+			if (br < 0) {
+				double d = re * re + im * im;
+				re /= d;
+				im = -im / d;
+			}
+			ar[k] = re;
+			ai[k] = im;
+			return;
+		}
+		if (a == 0 && b == 0) {
+			ar[k] = br > 0 ? 0 : Double.NaN;
+			ai[k] = ar[k];
+			return;
+		}
+		double lnR = Math.log(Math.sqrt(a * a + b * b)), theta = Math.atan2(b, a);
+		double re = br * lnR - bi * theta, im = br * theta + bi * lnR;
+		double m = Math.exp(re);
+		ar[k] = m * Math.cos(im);
+		ai[k] = m * Math.sin(im);
+	}
+	
+	/**
+	 * Apply a function across a batch in place.
+	 * @param op The code of the function.
+	 * @param re The real parts.
+	 * @param im The imaginary parts.
+	 * @param n How many values there are.
+	 */
+	private static void unary (int op, double[] re, double[] im, int n) {
+		for (int k = 0; k < n; k++) {
+			double a = re[k], b = im[k];
+			switch (op) {
+			case NEGATE:
+				re[k] = -a;
+				im[k] = -b;
+				break;
+			case ABS:
+				re[k] = Math.sqrt(a * a + b * b);
+				im[k] = 0;
+				break;
+			case EXP: {
+				double m = Math.exp(a);
+				re[k] = m * Math.cos(b);
+				im[k] = m * Math.sin(b);
+				break;
+			}
+			case LN:
+				re[k] = Math.log(Math.sqrt(a * a + b * b));
+				im[k] = Math.atan2(b, a);
+				break;
+			case LOG:
+				re[k] = Math.log10(Math.sqrt(a * a + b * b));
+				im[k] = Math.atan2(b, a) / Math.log(10);
+				break;
+			case SQRT: {
+				double r = Math.sqrt(a * a + b * b);
+				re[k] = Math.sqrt((r + a) / 2);
+				im[k] = Math.copySign(Math.sqrt((r - a) / 2), b);
+				break;
+			}
+			case SIN:
+			case COS:
+			case SINH:
+			case COSH:
+				trigonometric(op, re, im, k);
+				break;
+			case TAN: {
+				double e = Math.exp(2 * b);
+				double d = Math.cos(2 * a) + (e + 1 / e) / 2;
+				re[k] = Math.sin(2 * a) / d;
+				im[k] = sinh(2 * b, e) / d;
+				break;
+			}
+			default: {
+				double e = Math.exp(2 * a);
+				double d = (e + 1 / e) / 2 + Math.cos(2 * b);
+				re[k] = sinh(2 * a, e) / d;
+				im[k] = Math.sin(2 * b) / d;
+			}
+			}
+		}
+	}
+	
+	/**
+	 * Apply the sine, cosine, hyperbolic sine, or hyperbolic cosine to one value of a batch, which takes
+	 * the sine and cosine of one part of the value and the hyperbolic sine and cosine of the other,
+	 * found from a single exponential.
+	 * @param op The code of the function.
+	 * @param re The real parts.
+	 * @param im The imaginary parts.
+	 * @param k The index of the value.
+	 */
+	private static void trigonometric (int op, double[] re, double[] im, int k) {
+		boolean hyperbolic = op == SINH || op == COSH;
+		double circular = hyperbolic ? im[k] : re[k], other = hyperbolic ? re[k] : im[k];
+		double sin = Math.sin(circular), cos = Math.cos(circular);
+		double e = Math.exp(other), cosh = (e + 1 / e) / 2, sinh = sinh(other, e);
+		switch (op) {
+		case SIN:
+			re[k] = sin * cosh;
+			im[k] = cos * sinh;
+			break;
+		case COS:
+			re[k] = cos * cosh;
+			im[k] = -sin * sinh;
+			break;
+		case SINH:
+			re[k] = sinh * cos;
+			im[k] = cosh * sin;
+			break;
+		default:
+			re[k] = cosh * cos;
+			im[k] = sinh * sin;
+		}
+	}
+	
+	/**
+	 * @param x A number.
+	 * @param e The exponential of x.
+	 * @return The hyperbolic sine of x, from its exponential except near 0, where it would cancel.
+	 */
+	private static double sinh (double x, double e) {
+		return Math.abs(x) < 1 ? FastMath.sinh(x) : (e - 1 / e) / 2;
+	}
+	
+	/**
+	 * @return How many arrays the stack passed to evaluate needs.
+	 */
+	public int getRegisters () {
+		return 2 * depth;
+	}
+	
+	/**
+	 * @return text
+	 */
+	public String getText () {
+		return text;
+	}
+	
+	/**
+	 * @return parameterMask
+	 */
+	public long getParameterMask () {
+		return parameterMask;
+	}
+}
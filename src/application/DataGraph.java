@@ -0,0 +1,43 @@
+package application;
+
+import javafx.scene.paint.Color;
+
+/**
+ * This class extends Graph. It represents the graph of a measured DataSeries rather than of an
+ * expression. Instead of sampling its function, it fills its samples from the series' pyramid of
+ * summaries with a minimum and maximum for each pixel column, so panning and zooming cost the same
+ * no matter how many rows the series has. Everything else that works on graphs, such as tracing,
+ * the table of values, and finding features, uses the series as a function that interpolates between
+ * rows.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class DataGraph extends Graph {
+	
+	private GraphArea ga;				// The GraphArea that this graph belongs to.
+	private DataSeries series;			// The series that this graph represents.
+	
+	/**
+	 * Set this graph's fields and style.
+	 * @param series The series to be graphed, whose pyramid has been built.
+	 * @param ga The GraphArea that this graph belongs to.
+	 * @param color The color of this graph.
+	 */
+	public DataGraph (DataSeries series, GraphArea ga, Color color) {
+		super(series, ga, color);
+		this.ga = ga;
+		this.series = series;
+	}
+	
+	@Override
+	protected void fill (SampleBuffer buffer, double from, double to) {
+		series.decimate(from, to, Math.max(1, (int) Math.ceil(ga.getWidth())), buffer);
+	}
+	
+	/**
+	 * @return series
+	 */
+	public DataSeries getSeries () {
+		return series;
+	}
+}
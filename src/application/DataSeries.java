@@ -0,0 +1,437 @@
+package application;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * This class represents a measured data series of (x, y) rows in order of x, which may be far too
+ * large for the heap. The rows are memory-mapped from a file of little-endian double pairs; a CSV
+ * file is first converted to one. Once, when the series is opened, a pyramid of summaries is built
+ * next to it: each level holds the minimum and maximum y of blocks of FANOUT entries of the level
+ * below. The minimum and maximum over any range of rows can then be found by reading a few entries
+ * on each level, so drawing a viewport costs the same whether it shows a thousand rows or a billion.
+ * The pyramid is memory-mapped too, so the heap stays flat. As a function, a series interpolates
+ * linearly between rows, and is not a number outside of them.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class DataSeries implements DoubleUnaryOperator {
+	
+	private static final int FANOUT = 64;		// How many entries of a level each entry of the next summarizes.
+	
+	private String name;						// The name of the file the series came from.
+	private MappedDoubles data;					// The rows, as x and y pairs.
+	private long rows;							// The number of rows.
+	private List<MappedDoubles> levels;			// The pyramid, as minimum and maximum pairs, finest first.
+	
+	/**
+	 * Open a data series and build its pyramid. This reads the whole file once, so it should not be
+	 * called on the JavaFX thread.
+	 * @param file A CSV file, whose name ends in .csv or .txt, or a file of little-endian x and y
+	 * double pairs. CSV rows are either an x and a y, or just a y, whose x is its row number; a row
+	 * that is not numbers, such as a header, is skipped.
+	 * @return The series.
+	 * @throws IOException If the file cannot be read, is empty, or is not in order of x.
+	 */
+	public static DataSeries open (Path file) throws IOException {
+		String name = file.getFileName().toString();
+		String lower = name.toLowerCase(Locale.ROOT);
+		Path binary = lower.endsWith(".csv") || lower.endsWith(".txt") ? convert(file) : file;
+		return new DataSeries(name, binary);
+	}
+	
+	/**
+	 * Map a file of x and y pairs and build its pyramid.
+	 * @param name The name of the series.
+	 * @param file The file.
+	 * @throws IOException If the file cannot be read, is empty, or is not in order of x.
+	 */
+	private DataSeries (String name, Path file) throws IOException {
+		this.name = name;
+		data = new MappedDoubles(file);
+		rows = data.length() / 2;
+		if (rows == 0) {
+			throw new IOException(name + " has no rows.");
+		}
+		levels = new ArrayList<MappedDoubles>();
+		
+		// Summarize the rows, checking that they are in order, then summarize each level until one is small.
+		try (DoubleWriter out = DoubleWriter.temporary()) {
+			double lastX = Double.NEGATIVE_INFINITY;
+			double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+			for (long i = 0; i < rows; i++) {
+				double x = data.get(2 * i), y = data.get(2 * i + 1);
+				if (x < lastX) {
+					throw new IOException(name + " is not in order of x at row " + i + ".");
+				}
+				lastX = x;
+				if (y < min) {
+					min = y;
+				}
+				if (y > max) {
+					max = y;
+				}
+				if (i % FANOUT == FANOUT - 1 || i == rows - 1) {
+					out.write(min, max);
+					min = Double.POSITIVE_INFINITY;
+					max = Double.NEGATIVE_INFINITY;
+				}
+			}
+			levels.add(out.map());
+		}
+		while (levels.get(levels.size() - 1).length() / 2 > FANOUT) {
+			MappedDoubles below = levels.get(levels.size() - 1);
+			long count = below.length() / 2;
+			try (DoubleWriter out = DoubleWriter.temporary()) {
+				double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+				for (long i = 0; i < count; i++) {
+					min = Math.min(min, below.get(2 * i));
+					max = Math.max(max, below.get(2 * i + 1));
+					if (i % FANOUT == FANOUT - 1 || i == count - 1) {
+						out.write(min, max);
+						min = Double.POSITIVE_INFINITY;
+						max = Double.NEGATIVE_INFINITY;
+					}
+				}
+				levels.add(out.map());
+			}
+		}
+	}
+	
+	/**
+	 * Convert a CSV file into a temporary file of x and y pairs, one row at a time.
+	 * @param file The CSV file.
+	 * @return The temporary file, which is deleted when the JVM exits.
+	 * @throws IOException If the file cannot be read.
+	 */
+	private static Path convert (Path file) throws IOException {
+		try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+				DoubleWriter out = DoubleWriter.temporary()) {
+			long row = 0;
+			for (String line = in.readLine(); line != null; line = in.readLine()) {
+				int comma = line.indexOf(',');
+				try {
+					if (comma < 0) {
+						out.write(row, Double.parseDouble(line.trim()));
+					} else {
+						int end = line.indexOf(',', comma + 1);
+						out.write(Double.parseDouble(line.substring(0, comma).trim()),
+								Double.parseDouble(line.substring(comma + 1, end < 0 ? line.length() : end).trim()));
+					}
+					row++;
+				} catch (NumberFormatException e) {
+					// Skip headers and rows that are not numbers.
+				}
+			}
+			return out.getFile();
+		}
+	}
+	
+	/**
+	 * Fill a buffer with what the series looks like between two x values at a given number of pixel
+	 * columns. If there are only a few rows in the range, they are added as they are. Otherwise each
+	 * column gets two points at its center, at the minimum and the maximum of its rows, so that the
+	 * lines between them cover everything the rows would. A row on either side of the range is added
+	 * too, so that the curve runs off the edges.
+	 * @param from The first x value.
+	 * @param to The last x value.
+	 * @param columns The number of pixel columns.
+	 * @param out The buffer, which is cleared first.
+	 */
+	public void decimate (double from, double to, int columns, SampleBuffer out) {
+		out.clear();
+		long first = Math.max(0, indexOf(from) - 1);
+		long last = Math.min(rows, indexOf(to) + 1);
+		if (last - first <= 2L * columns) {
+			out.ensureCapacity((int) (last - first));
+			for (long i = first; i < last; i++) {
+				out.add(getX(i), getY(i), i == first);
+			}
+			return;
+		}
+		out.ensureCapacity(2 * columns + 2);
+		out.add(getX(first), getY(first), true);
+		double step = (to - from) / columns;
+		double[] range = new double[2];
+		boolean gap = false;
+		long lo = first + 1;
+		for (int c = 0; c < columns; c++) {
+			long hi = c == columns - 1 ? last - 1 : Math.max(lo, indexOf(from + (c + 1) * step));
+			if (hi > lo) {
+				minMax(lo, hi, range);
+				if (range[0] <= range[1]) {
+					double x = from + (c + 0.5) * step;
+					out.add(x, range[0], gap);
+					out.add(x, range[1], false);
+					gap = false;
+				} else {
+					gap = true;
+				}
+			}
+			lo = hi;
+		}
+		out.add(getX(last - 1), getY(last - 1), gap);
+	}
+	
+	/**
+	 * Find the minimum and maximum y of a range of rows, ignoring values that are not numbers. The
+	 * range is widened to whole blocks one level at a time, reading at most a block's worth of entries
+	 * at each end on each level, so it costs about FANOUT times the number of levels.
+	 * @param lo The first row.
+	 * @param hi One past the last row.
+	 * @param out Where to put the minimum and the maximum, which are infinite and the wrong way round
+	 * if there are no numbers in the range.
+	 */
+	public void minMax (long lo, long hi, double[] out) {
+		out[0] = Double.POSITIVE_INFINITY;
+		out[1] = Double.NEGATIVE_INFINITY;
+		int level = 0;
+		long size = 1;
+		while (level < levels.size()) {
+			long next = size * FANOUT;
+			long up = (lo + next - 1) / next * next;
+			long down = hi / next * next;
+			if (up >= down) {
+				break;
+			}
+			scan(level, lo / size, up / size, out);
+			scan(level, down / size, hi / size, out);
+			lo = up;
+			hi = down;
+			size = next;
+			level++;
+		}
+		scan(level, lo / size, (hi + size - 1) / size, out);
+	}
+	
+	/**
+	 * Widen a minimum and maximum by the entries of a level.
+	 * @param level The level, where 0 is the rows themselves.
+	 * @param from The first entry.
+	 * @param to One past the last entry.
+	 * @param out The minimum and maximum to widen.
+	 */
+	private void scan (int level, long from, long to, double[] out) {
+		if (level == 0) {
+			for (long i = from; i < to; i++) {
+				double y = data.get(2 * i + 1);
+				if (y < out[0]) {
+					out[0] = y;
+				}
+				if (y > out[1]) {
+					out[1] = y;
+				}
+			}
+		} else {
+			MappedDoubles summary = levels.get(level - 1);
+			for (long i = from; i < to; i++) {
+				out[0] = Math.min(out[0], summary.get(2 * i));
+				out[1] = Math.max(out[1], summary.get(2 * i + 1));
+			}
+		}
+	}
+	
+	/**
+	 * Find the first row whose x value is at least the given one, with a binary search.
+	 * @param x An x value.
+	 * @return The row, or the number of rows if every row is before x.
+	 */
+	public long indexOf (double x) {
+		long lo = 0, hi = rows;
+		while (lo < hi) {
+			long mid = (lo + hi) >>> 1;
+			if (getX(mid) < x) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+	
+	/**
+	 * Interpolate linearly between the rows on either side of an x value.
+	 * @param x The x value.
+	 * @return The interpolated y value, or NaN if x is outside of the rows.
+	 */
+	@Override
+	public double applyAsDouble (double x) {
+		long i = indexOf(x);
+		if (i == rows) {
+			return Double.NaN;
+		}
+		double x1 = getX(i), y1 = getY(i);
+		if (x1 == x) {
+			return y1;
+		}
+		if (i == 0) {
+			return Double.NaN;
+		}
+		double x0 = getX(i - 1), y0 = getY(i - 1);
+		return y0 + (y1 - y0) * (x - x0) / (x1 - x0);
+	}
+	
+	/**
+	 * @param row A row.
+	 * @return The x value of the row.
+	 */
+	public double getX (long row) {
+		return data.get(2 * row);
+	}
+	
+	/**
+	 * @param row A row.
+	 * @return The y value of the row.
+	 */
+	public double getY (long row) {
+		return data.get(2 * row + 1);
+	}
+	
+	/**
+	 * @return rows
+	 */
+	public long getRows () {
+		return rows;
+	}
+	
+	/**
+	 * @return name
+	 */
+	public String getName () {
+		return name;
+	}
+	
+	/**
+	 * This class is a read-only array of doubles memory-mapped from a file. A single mapping cannot
+	 * be larger than 2 GiB, so the file is mapped in chunks.
+	 */
+	private static class MappedDoubles {
+		private static final int SHIFT = 27;					// Each chunk holds 2^SHIFT doubles.
+		private static final long MASK = (1L << SHIFT) - 1;		// Finds an index within a chunk.
+		
+		private DoubleBuffer[] chunks;		// The chunks of the file.
+		private long length;				// The number of doubles.
+		
+		/**
+		 * Map a file.
+		 * @param file The file.
+		 * @throws IOException If the file cannot be mapped.
+		 */
+		private MappedDoubles (Path file) throws IOException {
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+				length = channel.size() / 8;
+				chunks = new DoubleBuffer[(int) ((length + MASK) >> SHIFT)];
+				for (int i = 0; i < chunks.length; i++) {
+					long start = (long) i << SHIFT;
+					long count = Math.min(1L << SHIFT, length - start);
+					chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start * 8, count * 8)
+							.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+				}
+			}
+		}
+		
+		/**
+		 * @param i An index.
+		 * @return The double at the index.
+		 */
+		private double get (long i) {
+			return chunks[(int) (i >>> SHIFT)].get((int) (i & MASK));
+		}
+		
+		/**
+		 * @return length
+		 */
+		private long length () {
+			return length;
+		}
+	}
+	
+	/**
+	 * This class writes pairs of doubles to a temporary file through a small buffer, so that a file
+	 * of any size can be written without holding it in memory.
+	 */
+	private static class DoubleWriter implements AutoCloseable {
+		private Path file;				// The file being written.
+		private FileChannel channel;	// The channel to the file.
+		private ByteBuffer buffer;		// Doubles waiting to be written.
+		
+		/**
+		 * Create a temporary file, deleted when the JVM exits, and open it for writing.
+		 * @return The writer.
+		 * @throws IOException If the file cannot be created.
+		 */
+		private static DoubleWriter temporary () throws IOException {
+			DoubleWriter w = new DoubleWriter();
+			w.file = Files.createTempFile("graph-data", ".bin");
+			w.file.toFile().deleteOnExit();
+			w.channel = FileChannel.open(w.file, StandardOpenOption.WRITE);
+			w.buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+			return w;
+		}
+		
+		/**
+		 * @param a The first double of a pair.
+		 * @param b The second double of a pair.
+		 * @throws IOException If the file cannot be written.
+		 */
+		private void write (double a, double b) throws IOException {
+			if (buffer.remaining() < 16) {
+				flush();
+			}
+			buffer.putDouble(a);
+			buffer.putDouble(b);
+		}
+		
+		/**
+		 * Write out every double waiting in the buffer.
+		 * @throws IOException If the file cannot be written.
+		 */
+		private void flush () throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+		
+		/**
+		 * Finish writing and map what was written.
+		 * @return The doubles that were written.
+		 * @throws IOException If the file cannot be written or mapped.
+		 */
+		private MappedDoubles map () throws IOException {
+			flush();
+			return new MappedDoubles(file);
+		}
+		
+		/**
+		 * Finish writing.
+		 * @return The file.
+		 * @throws IOException If the file cannot be written.
+		 */
+		private Path getFile () throws IOException {
+			flush();
+			return file;
+		}
+		
+		@Override
+		public void close () throws IOException {
+			if (channel.isOpen()) {
+				flush();
+				channel.close();
+			}
+		}
+	}
+}
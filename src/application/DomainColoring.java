@@ -0,0 +1,279 @@
+package application;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BooleanSupplier;
+
+import javafx.application.Platform;
+import javafx.scene.paint.Color;
+
+/**
+ * This class extends Graph. It represents a complex function f(z), drawn by domain coloring: every
+ * pixel of the viewport is a value of z, colored with a hue for the argument of f(z) and a lightness
+ * for its modulus, so that zeros are black, poles are white, and values of modulus 1 are fully
+ * saturated. The image is found in passes from coarse blocks to single pixels, each pass evaluating
+ * only the points that the passes before it did not, a batch of points at a time in parallel bands of
+ * rows. The first pass is done right away whenever this graph is sampled, so that it keeps up while
+ * the user is zooming or panning, and the rest are done in the background, on threads of their own
+ * so that they never hold up the first pass of the next view, each one replacing the image once it is
+ * done. A background pass gives up as soon as the view changes. A RegionLayer shows the image.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class DomainColoring extends Graph {
+	
+	public static final String PREFIX = "f(z)";	// How the text of a complex function starts.
+	private static final int[] BLOCKS = {8, 4, 2, 1};	// The size of the blocks of each pass, from the first.
+	
+	// Finds the finer passes in the background, one image at a time, and hands their bands to REFINE_BANDS.
+	private static final ExecutorService REFINE = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "domain-coloring");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	// Evaluates the bands of the finer passes, apart from the common pool that the first pass uses.
+	private static final int REFINE_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+	private static final ExecutorService REFINE_BANDS = Executors.newFixedThreadPool(REFINE_THREADS, r -> {
+		Thread thread = new Thread(r, "domain-coloring-band");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	private GraphArea ga;						// The GraphArea that this graph belongs to.
+	private ComplexExpression f;				// The complex function.
+	private int width, height;					// The size of the image in pixels.
+	private int[] pixels = new int[0];			// The image, as premultiplied ARGB pixels, row by row.
+	private boolean painted;					// Whether or not the image has been shown since it last changed.
+	private volatile long generation;			// Counts the images started, so that a pass can tell it is out of date.
+	
+	/**
+	 * Set this graph's fields and style.
+	 * @param f The complex function.
+	 * @param ga The GraphArea that this graph belongs to.
+	 * @param color The color of this graph.
+	 */
+	public DomainColoring (ComplexExpression f, GraphArea ga, Color color) {
+		super(NONE, ga, color);
+		if (f == null) {
+			throw new IllegalArgumentException("Invalid complex function");
+		}
+		this.ga = ga;
+		this.f = f;
+	}
+	
+	/**
+	 * @param text The text that the user entered.
+	 * @return Whether or not it is a complex function, such as "f(z) = z ^ 2 - 1".
+	 */
+	public static boolean isFunction (String text) {
+		return text.trim().startsWith(PREFIX);
+	}
+	
+	/**
+	 * @param text The text of a complex function.
+	 * @return The right side of it.
+	 */
+	public static String rightSide (String text) {
+		text = text.trim().substring(PREFIX.length()).trim();
+		return text.startsWith("=") ? text.substring(1).trim() : text;
+	}
+	
+	/**
+	 * Find the first pass of the image for the current viewport, and start finding the rest in the
+	 * background. A complex function has no points to sample.
+	 */
+	@Override
+	protected void fill (SampleBuffer buffer, double from, double to) {
+		buffer.clear();
+		width = Math.max(1, (int) Math.ceil(ga.getWidth()));
+		height = Math.max(1, (int) Math.ceil(ga.getHeight()));
+		if (pixels.length != width * height) {
+			pixels = new int[width * height];
+		}
+		double[] view = {ga.getXScale(), ga.getXTranslation(), ga.getYScale(), ga.getYTranslation()};
+		int w = width, h = height;
+		pass(f, pixels, w, h, view, 0);
+		painted = false;
+		
+		// The finer passes go into a copy of the first one, which replaces this image after each pass.
+		long started = ++generation;
+		int[] first = pixels.clone();
+		BooleanSupplier stale = () -> started != generation;
+		REFINE.execute(() -> {
+			int[] image = first;
+			for (int level = 1; level < BLOCKS.length && !stale.getAsBoolean(); level++) {
+				try {
+					pass(f, image, w, h, view, level, REFINE_BANDS, REFINE_THREADS, stale);
+				} catch (RuntimeException e) {
+					return;
+				}
+				if (stale.getAsBoolean()) {
+					return;
+				}
+				int[] done = level == BLOCKS.length - 1 ? image : image.clone();
+				Platform.runLater(() -> {
+					if (started == generation) {
+						pixels = done;
+						painted = false;
+						ga.redrawRegions();
+					}
+				});
+			}
+		});
+	}
+	
+	/**
+	 * Find every pass of an image at once, as the background passes would.
+	 * @param f The complex function.
+	 * @param image Where to put the image, as premultiplied ARGB pixels, row by row.
+	 * @param width The width of the image in pixels.
+	 * @param height The height of the image in pixels.
+	 * @param view The x scale, x translation, y scale, and y translation from graph to screen coordinates.
+	 */
+	static void render (ComplexExpression f, int[] image, int width, int height, double[] view) {
+		for (int level = 0; level < BLOCKS.length; level++) {
+			pass(f, image, width, height, view, level);
+		}
+	}
+	
+	/**
+	 * Find one pass of an image on the common pool.
+	 * @param f The complex function.
+	 * @param image Where to put the image, as premultiplied ARGB pixels, row by row.
+	 * @param width The width of the image in pixels.
+	 * @param height The height of the image in pixels.
+	 * @param view The x scale, x translation, y scale, and y translation from graph to screen coordinates.
+	 * @param level The index of the pass in BLOCKS.
+	 */
+	private static void pass (ComplexExpression f, int[] image, int width, int height, double[] view, int level) {
+		pass(f, image, width, height, view, level, ForkJoinPool.commonPool(), ForkJoinPool.commonPool().getParallelism(),
+				() -> false);
+	}
+	
+	/**
+	 * Find one pass of an image. The function is evaluated at the top left pixel of every block of this
+	 * pass that was not the top left pixel of a block of the pass before it, and the whole block is
+	 * filled with its color. The rows of blocks are split into bands that are evaluated in parallel, and
+	 * each band stops early once the pass is no longer wanted, leaving the image unfinished.
+	 * @param f The complex function.
+	 * @param image Where to put the image, as premultiplied ARGB pixels, row by row.
+	 * @param width The width of the image in pixels.
+	 * @param height The height of the image in pixels.
+	 * @param view The x scale, x translation, y scale, and y translation from graph to screen coordinates.
+	 * @param level The index of the pass in BLOCKS.
+	 * @param executor The executor to evaluate the bands on.
+	 * @param threads How many threads the executor runs bands on.
+	 * @param stale Whether or not the pass is no longer wanted.
+	 */
+	private static void pass (ComplexExpression f, int[] image, int width, int height, double[] view, int level,
+			ExecutorService executor, int threads, BooleanSupplier stale) {
+		int block = BLOCKS[level];
+		int rows = (height + block - 1) / block;
+		Parallel.bands(executor, threads, rows, (start, end) -> {
+			double[] xs = new double[Expression.BATCH];
+			double[] re = new double[Expression.BATCH], im = new double[Expression.BATCH];
+			double[][] stack = new double[f.getRegisters()][Expression.BATCH];
+			int[] columns = new int[Expression.BATCH];
+			for (int r = start; r < end && !stale.getAsBoolean(); r++) {
+				int top = r * block;
+				double y = (view[3] - top - 0.5) / view[2];
+				
+				// On rows that the pass before this one covered, only every other block is new.
+				boolean covered = level > 0 && top % (2 * block) == 0;
+				int first = covered ? block : 0, step = covered ? 2 * block : block;
+				for (int c = first; c < width; ) {
+					int n = 0;
+					for (; n < Expression.BATCH && c < width; n++, c += step) {
+						columns[n] = c;
+						xs[n] = (c + 0.5 - view[1]) / view[0];
+					}
+					f.evaluate(xs, y, re, im, n, stack);
+					for (int i = 0; i < n; i++) {
+						int argb = color(re[i], im[i]);
+						int right = Math.min(width, columns[i] + block), bottom = Math.min(height, top + block);
+						for (int py = top; py < bottom; py++) {
+							for (int px = columns[i]; px < right; px++) {
+								image[py * width + px] = argb;
+							}
+						}
+					}
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Find the color of a value: its argument is the hue, starting from red for positive real values,
+	 * and its modulus m is the lightness, as m / (1 + m), so that it goes from black at 0 through full
+	 * saturation at 1 to white as m grows. The argument is found with FastMath, which is far more
+	 * accurate than a color needs to be.
+	 * @param re The real part of the value.
+	 * @param im The imaginary part of the value.
+	 * @return The color, as an opaque ARGB pixel, or a transparent one if the value is not a number.
+	 */
+	static int color (double re, double im) {
+		double m = Math.sqrt(re * re + im * im);
+		if (Double.isNaN(m)) {
+			return 0;
+		}
+		if (Double.isInfinite(m)) {
+			return 0xFFFFFFFF;
+		}
+		
+		// Find the argument from 0 to 2 pi, and the lightness from 0 to 1.
+		double angle = re == 0 && im == 0 ? 0 : FastMath.atan(im / re);
+		if (re < 0) {
+			angle += Math.PI;
+		} else if (angle < 0) {
+			angle += 2 * Math.PI;
+		}
+		double lightness = m / (1 + m);
+		
+		// Convert the hue and lightness to RGB at full saturation, rising or falling across each sixth of the hues.
+		double h = angle * 3 / Math.PI;
+		int sector = (int) h;
+		double chroma = 1 - Math.abs(2 * lightness - 1);
+		double x = chroma * ((sector & 1) == 0 ? h - sector : 1 - (h - sector));
+		double low = lightness - chroma / 2;
+		double r, g, b;
+		switch (sector) {
+		case 0: r = chroma; g = x; b = 0; break;
+		case 1: r = x; g = chroma; b = 0; break;
+		case 2: r = 0; g = chroma; b = x; break;
+		case 3: r = 0; g = x; b = chroma; break;
+		case 4: r = x; g = 0; b = chroma; break;
+		default: r = chroma; g = 0; b = x;
+		}
+		return 0xFF000000 | (int) ((r + low) * 255 + 0.5) << 16 | (int) ((g + low) * 255 + 0.5) << 8
+				| (int) ((b + low) * 255 + 0.5);
+	}
+	
+	/**
+	 * @return The image, as premultiplied ARGB pixels, row by row. It is now marked as shown.
+	 */
+	public int[] paint () {
+		painted = true;
+		return pixels;
+	}
+	
+	/**
+	 * @return Whether or not the image has been shown since it last changed.
+	 */
+	public boolean isPainted () {
+		return painted;
+	}
+	
+	@Override
+	public long getParameterMask () {
+		return f.getParameterMask();
+	}
+	
+	/**
+	 * @return f
+	 */
+	public ComplexExpression getComplexFunction () {
+		return f;
+	}
+}
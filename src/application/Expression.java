@@ -0,0 +1,756 @@
+package application;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.Stack;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * This class represents a compiled mathematical expression of x, or of x and y, as on the right
+ * side of a differential equation dy/dx = f(x, y). It is built from a post-fix expression by the
+ * parser as a tree of nodes that work on primitive doubles, so evaluating it never creates any
+ * objects. Parameters, such as a and b in "a * sin ( b * x )", are read from their slots in a set of
+ * Parameters each time the expression is evaluated, so changing them never compiles it again. Parts
+ * of the expression that depend on neither variable nor any parameter are folded into constants when
+ * it is compiled. An expression can also be evaluated at a batch of x values at once, one node at a
+ * time across the whole batch, which dispatches each node once per batch instead of once per value
+ * and runs each function in a tight loop. Every expression also has an approximation, which
+ * evaluates its transcendental functions and whole powers with FastMath instead, for drawing while
+ * the user is interacting. An Expression is immutable and may be evaluated from any thread.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class Expression implements DoubleUnaryOperator, DoubleBinaryOperator {
+	
+	// Codes for the supported operators.
+	private static final int ADD = 0, SUBTRACT = 1, MULTIPLY = 2, DIVIDE = 3, POWER = 4, MAX = 5, MIN = 6;
+	
+	// Codes for the supported single-argument functions.
+	private static final int ABS = 0, ACOS = 1, ASIN = 2, ATAN = 3, CBRT = 4, CEIL = 5, COS = 6, COSH = 7,
+			EXP = 8, FLOOR = 9, LOG = 10, LN = 11, ROUND = 12, SIN = 13, SINH = 14, SQRT = 15, TAN = 16,
+			TANH = 17, NEGATE = 18;
+	
+	public static final int BATCH = 256;	// The most x values that are evaluated at once.
+	
+	private String text;		// The text that this expression was compiled from.
+	private Node root;			// The root of the tree of nodes.
+	private long parameterMask;	// The slots of the parameters that this expression uses, one bit each.
+	private int registers;		// How many scratch arrays a batch evaluation needs.
+	private Expression approximation;	// This expression evaluated with FastMath, or itself if that changes nothing.
+	
+	/**
+	 * Create an expression with the given text and tree.
+	 * @param text The text that this expression was compiled from.
+	 * @param root The root of the tree of nodes.
+	 * @param parameterMask The slots of the parameters that the expression uses, one bit each.
+	 */
+	private Expression (String text, Node root, long parameterMask) {
+		this.text = text;
+		this.root = root;
+		this.parameterMask = parameterMask;
+		registers = root.registers();
+		
+		// The approximation of an approximate tree is the same tree, so this only goes one level deep.
+		Node approximate = root.approximate();
+		approximation = approximate == root ? this : new Expression(text, approximate, parameterMask);
+	}
+	
+	/**
+	 * Compile a post-fix expression. Tokens are handled the same way that Parser.evaluatePostfix
+	 * handles them, so an input of x is valid here exactly when it is valid there.
+	 * @param text The text that the post-fix expression was made from.
+	 * @param queue The post-fix expression to be compiled.
+	 * @param withY Whether or not the expression may also use y.
+	 * @param parameters The values of the parameters, or null if the expression may not use any.
+	 * @return The compiled expression, null if invalid.
+	 */
+	static Expression compile (String text, Queue<Token> queue, boolean withY, Parameters parameters) {
+		
+		// Stack to hold the nodes as compilation takes place, and the parameters that have been used.
+		Stack<Node> stack = new Stack<Node>();
+		long parameterMask = 0;
+		
+		// Whether or not any operator or function has been applied.
+		boolean operated = false;
+		
+		for (Token t : queue) {
+			
+			// If the token is a constant or a variable, push a leaf to the stack.
+			if (t.getType() == TokenType.CONSTANT) {
+				stack.push(new Constant(Double.parseDouble(t.getSymbol())));
+			} else if (t.getType() == TokenType.VARIABLE && t.getSymbol().equals("x")) {
+				stack.push(new Variable());
+			} else if (t.getType() == TokenType.VARIABLE) {
+				if (!withY) {
+					return null;
+				}
+				stack.push(new YVariable());
+			} else if (t.getType() == TokenType.PARAMETER) {
+				if (parameters == null) {
+					return null;
+				}
+				int slot = Parameters.slot(t.getSymbol().charAt(0));
+				parameterMask |= 1L << slot;
+				stack.push(new Parameter(parameters.values, slot));
+			}
+			
+			// If the token is an operator, operate on the top two nodes of the stack.
+			else if (t.getType() == TokenType.OPERATOR) {
+				operated = true;
+				
+				// If it is a negative symbol, negate the only node on the stack.
+				if (stack.size() == 1 && t.getSymbol().equals("-")) {
+					stack.push(unary(NEGATE, stack.pop()));
+				} else {
+					Node b = stack.pop();
+					Node a = stack.pop();
+					stack.push(binary(operatorCode(t.getSymbol()), a, b));
+				}
+			}
+			
+			// If the token is a function, apply it to the proper number of nodes from the top of the stack.
+			else if (t.getType() == TokenType.FUNCTION) {
+				operated = true;
+				if (t.getNumArgs() == 1) {
+					stack.push(unary(functionCode(t.getSymbol()), stack.pop()));
+				} else if (t.getNumArgs() == 2) {
+					Node b = stack.pop();
+					Node a = stack.pop();
+					stack.push(binary(t.getSymbol().equals("max") ? MAX : MIN, a, b));
+				}
+			}
+		}
+		
+		/*
+		 * A lone constant or variable is only valid if it was the only token in the queue,
+		 * exactly as in Parser.evaluatePostfix.
+		 */
+		if (stack.size() != 1) {
+			return null;
+		} else if (!operated && queue.size() != 1) {
+			return null;
+		}
+		return new Expression(text, stack.pop(), parameterMask);
+	}
+	
+	/**
+	 * Evaluate this expression at the given x value.
+	 * @param x The value of x.
+	 * @return The value of this expression.
+	 */
+	@Override
+	public double applyAsDouble (double x) {
+		return root.eval(x, 0);
+	}
+	
+	/**
+	 * Evaluate this expression at the given x and y values.
+	 * @param x The value of x.
+	 * @param y The value of y.
+	 * @return The value of this expression.
+	 */
+	@Override
+	public double applyAsDouble (double x, double y) {
+		return root.eval(x, y);
+	}
+	
+	/**
+	 * Evaluate this expression at a batch of x values.
+	 * @param xs The x values.
+	 * @param y The value of y.
+	 * @param out Where to put the values of this expression.
+	 * @param n How many x values there are, at most BATCH.
+	 * @param scratch At least getRegisters() arrays of at least BATCH doubles each, which may be
+	 * reused from one call to the next but not shared between threads.
+	 */
+	public void evaluate (double[] xs, double y, double[] out, int n, double[][] scratch) {
+		root.eval(xs, y, out, n, scratch, 0);
+	}
+	
+	/**
+	 * @return An expression that evaluates the same way as this one, except that its functions and
+	 * whole powers differ from Math by at most FastMath.ERROR each, or this expression if it uses
+	 * none of them. It shares the parameters of this expression.
+	 */
+	public Expression approximate () {
+		return approximation;
+	}
+	
+	/**
+	 * @return registers
+	 */
+	public int getRegisters () {
+		return registers;
+	}
+	
+	/**
+	 * @return text
+	 */
+	public String getText () {
+		return text;
+	}
+	
+	/**
+	 * @return parameterMask
+	 */
+	public long getParameterMask () {
+		return parameterMask;
+	}
+	
+	/**
+	 * Create a node applying a single-argument function, folding it if its argument is constant.
+	 * @param op The code of the function.
+	 * @param a The argument.
+	 * @return The new node.
+	 */
+	private static Node unary (int op, Node a) {
+		Node n = new Unary(op, a);
+		return a instanceof Constant ? new Constant(n.eval(0, 0)) : n;
+	}
+	
+	/**
+	 * Create a node applying an operator, folding it if both operands are constant.
+	 * @param op The code of the operator.
+	 * @param a The first operand.
+	 * @param b The second operand.
+	 * @return The new node.
+	 */
+	private static Node binary (int op, Node a, Node b) {
+		Node n = new Binary(op, a, b);
+		return a instanceof Constant && b instanceof Constant ? new Constant(n.eval(0, 0)) : n;
+	}
+	
+	/**
+	 * @param symbol The symbol of an operator.
+	 * @return The code of the operator.
+	 */
+	private static int operatorCode (String symbol) {
+		switch (symbol) {
+		case "+": return ADD;
+		case "-": return SUBTRACT;
+		case "*": return MULTIPLY;
+		case "/": return DIVIDE;
+		case "^": return POWER;
+		}
+		throw new IllegalArgumentException("Unsupported operator: " + symbol);
+	}
+	
+	/**
+	 * @param symbol The symbol of a single-argument function.
+	 * @return The code of the function.
+	 */
+	private static int functionCode (String symbol) {
+		switch (symbol) {
+		case "abs": return ABS;
+		case "acos": return ACOS;
+		case "asin": return ASIN;
+		case "atan": return ATAN;
+		case "cbrt": return CBRT;
+		case "ceil": return CEIL;
+		case "cos": return COS;
+		case "cosh": return COSH;
+		case "exp": return EXP;
+		case "floor": return FLOOR;
+		case "log": return LOG;
+		case "ln": return LN;
+		case "round": return ROUND;
+		case "sin": return SIN;
+		case "sinh": return SINH;
+		case "sqrt": return SQRT;
+		case "tan": return TAN;
+		case "tanh": return TANH;
+		}
+		throw new IllegalArgumentException("Unsupported function: " + symbol);
+	}
+	
+	/**
+	 * A node in the tree of an expression.
+	 */
+	private static abstract class Node {
+		
+		/**
+		 * @param x The value of x.
+		 * @param y The value of y.
+		 * @return The value of this node.
+		 */
+		abstract double eval (double x, double y);
+		
+		/**
+		 * Evaluate this node at a batch of x values. The values of the nodes below it go into the
+		 * scratch arrays from the given one on.
+		 * @param xs The x values.
+		 * @param y The value of y.
+		 * @param out Where to put the values of this node.
+		 * @param n How many x values there are.
+		 * @param scratch The scratch arrays.
+		 * @param next The first scratch array that this node may use.
+		 */
+		void eval (double[] xs, double y, double[] out, int n, double[][] scratch, int next) {
+			for (int i = 0; i < n; i++) {
+				out[i] = eval(xs[i], y);
+			}
+		}
+		
+		/**
+		 * @return How many scratch arrays evaluating this node at a batch of x values uses.
+		 */
+		int registers () {
+			return 0;
+		}
+		
+		/**
+		 * @return A node that evaluates the same way as this one but with FastMath wherever it has an
+		 * approximation, or this node if nothing below it does.
+		 */
+		Node approximate () {
+			return this;
+		}
+	}
+	
+	/**
+	 * A node with a constant value.
+	 */
+	private static final class Constant extends Node {
+		private final double value;
+		
+		private Constant (double value) {
+			this.value = value;
+		}
+		
+		@Override
+		double eval (double x, double y) {
+			return value;
+		}
+		
+		@Override
+		void eval (double[] xs, double y, double[] out, int n, double[][] scratch, int next) {
+			Arrays.fill(out, 0, n, value);
+		}
+	}
+	
+	/**
+	 * A node with the value of x.
+	 */
+	private static final class Variable extends Node {
+		
+		@Override
+		double eval (double x, double y) {
+			return x;
+		}
+		
+		@Override
+		void eval (double[] xs, double y, double[] out, int n, double[][] scratch, int next) {
+			if (out != xs) {
+				System.arraycopy(xs, 0, out, 0, n);
+			}
+		}
+	}
+	
+	/**
+	 * A node with the value of y.
+	 */
+	private static final class YVariable extends Node {
+		
+		@Override
+		double eval (double x, double y) {
+			return y;
+		}
+		
+		@Override
+		void eval (double[] xs, double y, double[] out, int n, double[][] scratch, int next) {
+			Arrays.fill(out, 0, n, y);
+		}
+	}
+	
+	/**
+	 * A node with the current value of a parameter.
+	 */
+	private static final class Parameter extends Node {
+		private final double[] values;
+		private final int slot;
+		
+		private Parameter (double[] values, int slot) {
+			this.values = values;
+			this.slot = slot;
+		}
+		
+		@Override
+		double eval (double x, double y) {
+			return values[slot];
+		}
+		
+		@Override
+		void eval (double[] xs, double y, double[] out, int n, double[][] scratch, int next) {
+			Arrays.fill(out, 0, n, values[slot]);
+		}
+	}
+	
+	/**
+	 * A node applying a single-argument function to another node.
+	 */
+	private static final class Unary extends Node {
+		private final int op;
+		private final Node a;
+		
+		private Unary (int op, Node a) {
+			this.op = op;
+			this.a = a;
+		}
+		
+		@Override
+		double eval (double x, double y) {
+			double v = a.eval(x, y);
+			switch (op) {
+			case ABS: return Math.abs(v);
+			case ACOS: return Math.acos(v);
+			case ASIN: return Math.asin(v);
+			case ATAN: return Math.atan(v);
+			case CBRT: return Math.cbrt(v);
+			case CEIL: return Math.ceil(v);
+			case COS: return Math.cos(v);
+			case COSH: return Math.cosh(v);
+			case EXP: return Math.exp(v);
+			case FLOOR: return Math.floor(v);
+			case LOG: return Math.log10(v);
+			case LN: return Math.log(v);
+			case ROUND: return Math.round(v);
+			case SIN: return Math.sin(v);
+			case SINH: return Math.sinh(v);
+			case SQRT: return Math.sqrt(v);
+			case TAN: return Math.tan(v);
+			case TANH: return Math.tanh(v);
+			default: return -v;
+			}
+		}
+		
+		@Override
+		void eval (double[] xs, double y, double[] out, int n, double[][] scratch, int next) {
+			a.eval(xs, y, out, n, scratch, next);
+			switch (op) {
+			case ABS:
+				for (int i = 0; i < n; i++) {
+					out[i] = Math.abs(out[i]);
+				}
+				break;
+			case ACOS:
+				for (int i = 0; i < n; i++) {
+					out[i] = Math.acos(out[i]);
+				}
+				break;
+			case ASIN:
+				for (int i = 0; i < n; i++) {
+					out[i] = Math.asin(out[i]);
+				}
+				break;
+			case ATAN:
+				for (int i = 0; i < n; i++) {
+					out[i] = Math.atan(out[i]);
+				}
+				break;
+			case CBRT:
+				for (int i = 0; i < n; i++) {
+					out[i] = Math.cbrt(out[i]);
+				}
+				break;
+			case CEIL:
+				for (int i = 0; i < n; i++) {
+					out[i] = Math.ceil(out[i]);
+				}
+				break;
+			case COS:
+				for (int i = 0; i < n; i++) {
+					out[i] = Math.cos(out[i]);
+				}
+				break;
+			case COSH:
+				for (int i = 0; i < n; i++) {
+					out[i] = Math.cosh(out[i]);
+				}
+				break;
+			case EXP:
+				for (int i = 0; i < n; i++) {
+					out[i] = Math.exp(out[i]);
+				}
+				break;
+			case FLOOR:
+				for (int i = 0; i < n; i++) {
+					out[i] = Math.floor(out[i]);
+				}
+				break;
+			case LOG:
+				for (int i = 0; i < n; i++) {
+					out[i] = Math.log10(out[i]);
+				}
+				break;
+			case LN:
+				for (int i = 0; i < n; i++) {
+					out[i] = Math.log(out[i]);
+				}
+				break;
+			case ROUND:
+				for (int i = 0; i < n; i++) {
+					out[i] = Math.round(out[i]);
+				}
+				break;
+			case SIN:
+				for (int i = 0; i < n; i++) {
+					out[i] = Math.sin(out[i]);
+				}
+				break;
+			case SINH:
+				for (int i = 0; i < n; i++) {
+					out[i] = Math.sinh(out[i]);
+				}
+				break;
+			case SQRT:
+				for (int i = 0; i < n; i++) {
+					out[i] = Math.sqrt(out[i]);
+				}
+				break;
+			case TAN:
+				for (int i = 0; i < n; i++) {
+					out[i] = Math.tan(out[i]);
+				}
+				break;
+			case TANH:
+				for (int i = 0; i < n; i++) {
+					out[i] = Math.tanh(out[i]);
+				}
+				break;
+			default:
+				for (int i = 0; i < n; i++) {
+					out[i] = -out[i];
+				}
+			}
+		}
+		
+		@Override
+		int registers () {
+			return a.registers();
+		}
+		
+		@Override
+		Node approximate () {
+			Node approximate = a.approximate();
+			switch (op) {
+			case ACOS: case ASIN: case ATAN: case CBRT: case COS: case COSH: case SIN: case SINH: case TAN:
+			case TANH:
+				return new Approximate(op, approximate);
+			default:
+				return approximate == a ? this : new Unary(op, approximate);
+			}
+		}
+	}
+	
+	/**
+	 * A node applying the FastMath approximation of a single-argument function to another node.
+	 */
+	private static final class Approximate extends Node {
+		private final int op;
+		private final Node a;
+		
+		private Approximate (int op, Node a) {
+			this.op = op;
+			this.a = a;
+		}
+		
+		@Override
+		double eval (double x, double y) {
+			double v = a.eval(x, y);
+			switch (op) {
+			case ACOS: return FastMath.acos(v);
+			case ASIN: return FastMath.asin(v);
+			case ATAN: return FastMath.atan(v);
+			case CBRT: return FastMath.cbrt(v);
+			case COS: return FastMath.cos(v);
+			case COSH: return FastMath.cosh(v);
+			case SIN: return FastMath.sin(v);
+			case SINH: return FastMath.sinh(v);
+			case TAN: return FastMath.tan(v);
+			default: return FastMath.tanh(v);
+			}
+		}
+		
+		@Override
+		void eval (double[] xs, double y, double[] out, int n, double[][] scratch, int next) {
+			a.eval(xs, y, out, n, scratch, next);
+			switch (op) {
+			case ACOS:
+				for (int i = 0; i < n; i++) {
+					out[i] = FastMath.acos(out[i]);
+				}
+				break;
+			case ASIN:
+				for (int i = 0; i < n; i++) {
+					out[i] = FastMath.asin(out[i]);
+				}
+				break;
+			case ATAN:
+				for (int i = 0; i < n; i++) {
+					out[i] = FastMath.atan(out[i]);
+				}
+				break;
+			case CBRT:
+				for (int i = 0; i < n; i++) {
+					out[i] = FastMath.cbrt(out[i]);
+				}
+				break;
+			case COS:
+				for (int i = 0; i < n; i++) {
+					out[i] = FastMath.cos(out[i]);
+				}
+				break;
+			case COSH:
+				for (int i = 0; i < n; i++) {
+					out[i] = FastMath.cosh(out[i]);
+				}
+				break;
+			case SIN:
+				for (int i = 0; i < n; i++) {
+					out[i] = FastMath.sin(out[i]);
+				}
+				break;
+			case SINH:
+				for (int i = 0; i < n; i++) {
+					out[i] = FastMath.sinh(out[i]);
+				}
+				break;
+			case TAN:
+				for (int i = 0; i < n; i++) {
+					out[i] = FastMath.tan(out[i]);
+				}
+				break;
+			default:
+				for (int i = 0; i < n; i++) {
+					out[i] = FastMath.tanh(out[i]);
+				}
+			}
+		}
+		
+		@Override
+		int registers () {
+			return a.registers();
+		}
+	}
+	
+	/**
+	 * A node applying an operator or a two-argument function to two other nodes.
+	 */
+	private static final class Binary extends Node {
+		private final int op;
+		private final Node a, b;
+		
+		private Binary (int op, Node a, Node b) {
+			this.op = op;
+			this.a = a;
+			this.b = b;
+		}
+		
+		@Override
+		double eval (double x, double y) {
+			double u = a.eval(x, y);
+			double v = b.eval(x, y);
+			switch (op) {
+			case ADD: return u + v;
+			case SUBTRACT: return u - v;
+			case MULTIPLY: return u * v;
+			case DIVIDE: return u / v;
+			case POWER: return Math.pow(u, v);
+			case MAX: return Math.max(u, v);
+			default: return Math.min(u, v);
+			}
+		}
+		
+		@Override
+		void eval (double[] xs, double y, double[] out, int n, double[][] scratch, int next) {
+			
+			// The first operand goes straight into out, and the second into a scratch array of its own.
+			double[] v = scratch[next];
+			b.eval(xs, y, v, n, scratch, next + 1);
+			a.eval(xs, y, out, n, scratch, next + 1);
+			switch (op) {
+			case ADD:
+				for (int i = 0; i < n; i++) {
+					out[i] = out[i] + v[i];
+				}
+				break;
+			case SUBTRACT:
+				for (int i = 0; i < n; i++) {
+					out[i] = out[i] - v[i];
+				}
+				break;
+			case MULTIPLY:
+				for (int i = 0; i < n; i++) {
+					out[i] = out[i] * v[i];
+				}
+				break;
+			case DIVIDE:
+				for (int i = 0; i < n; i++) {
+					out[i] = out[i] / v[i];
+				}
+				break;
+			case POWER:
+				for (int i = 0; i < n; i++) {
+					out[i] = Math.pow(out[i], v[i]);
+				}
+				break;
+			case MAX:
+				for (int i = 0; i < n; i++) {
+					out[i] = Math.max(out[i], v[i]);
+				}
+				break;
+			default:
+				for (int i = 0; i < n; i++) {
+					out[i] = Math.min(out[i], v[i]);
+				}
+			}
+		}
+		
+		@Override
+		int registers () {
+			return 1 + Math.max(a.registers(), b.registers());
+		}
+		
+		@Override
+		Node approximate () {
+			Node u = a.approximate(), v = b.approximate();
+			if (op == POWER) {
+				return new ApproximatePower(u, v);
+			}
+			return u == a && v == b ? this : new Binary(op, u, v);
+		}
+	}
+	
+	/**
+	 * A node raising one node to the power of another with FastMath.
+	 */
+	private static final class ApproximatePower extends Node {
+		private final Node a, b;
+		
+		private ApproximatePower (Node a, Node b) {
+			this.a = a;
+			this.b = b;
+		}
+		
+		@Override
+		double eval (double x, double y) {
+			return FastMath.pow(a.eval(x, y), b.eval(x, y));
+		}
+		
+		@Override
+		void eval (double[] xs, double y, double[] out, int n, double[][] scratch, int next) {
+			double[] v = scratch[next];
+			b.eval(xs, y, v, n, scratch, next + 1);
+			a.eval(xs, y, out, n, scratch, next + 1);
+			for (int i = 0; i < n; i++) {
+				out[i] = FastMath.pow(out[i], v[i]);
+			}
+		}
+		
+		@Override
+		int registers () {
+			return 1 + Math.max(a.registers(), b.registers());
+		}
+	}
+}
@@ -0,0 +1,239 @@
+package application;
+
+/**
+ * This class holds approximations of the functions that expressions may use, for drawing graphs
+ * while the user is zooming, panning, or dragging a slider. The trigonometric functions reduce their
+ * argument to within pi / 4 of a multiple of pi / 2 and evaluate a short polynomial, the inverse
+ * trigonometric functions start from a table of the inverse tangent of every eighth, the hyperbolic
+ * functions are found from one exponential, the cube root with Newton's method, and whole powers by
+ * repeated squaring. Every one differs from Math by at most ERROR times the larger of 1 and the size
+ * of the exact value, which a plotted point only turns into a visible error once the values in view
+ * are many millions of pixels across; GraphArea checks this against the current pixel size before
+ * using them. Arguments that the reductions do not handle accurately, such as very large angles, fall
+ * back to Math. The exponential, the logarithms, and powers that are not whole have no approximation
+ * here, since the JIT compiler already turns the ones in Math into faster code than a polynomial.
+ * Exact math is still used for analysis and for exported plots.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public final class FastMath {
+	
+	public static final double ERROR = 1e-9;		// The most that an approximation differs from Math, as described above.
+	
+	private static final double TWO_OVER_PI = 2 / Math.PI;
+	private static final double PIO2_HI = 1.57079632673412561417e+00;	// The first 33 bits of pi / 2.
+	private static final double PIO2_LO = 6.07710050650619224932e-11;	// The rest of pi / 2.
+	private static final double MAX_ANGLE = 1 << 20;	// The largest angle reduced here rather than by Math.
+	private static final double MAX_EXP = 700;			// The largest argument of a hyperbolic function found from exponentials.
+	private static final int MAX_POWER = 64;			// The largest whole exponent found by repeated squaring.
+	private static final double[] ATAN = new double[9];	// The inverse tangent of every eighth from 0 to 1.
+	
+	static {
+		for (int i = 0; i < ATAN.length; i++) {
+			ATAN[i] = Math.atan(i / 8.0);
+		}
+	}
+	
+	private FastMath () {
+	}
+	
+	/**
+	 * @param x An angle in radians.
+	 * @return An approximation of its sine.
+	 */
+	public static double sin (double x) {
+		if (!(Math.abs(x) <= MAX_ANGLE)) {
+			return Math.sin(x);
+		}
+		double k = Math.rint(x * TWO_OVER_PI);
+		double r = x - k * PIO2_HI - k * PIO2_LO;
+		switch ((int) k & 3) {
+		case 0: return sinReduced(r);
+		case 1: return cosReduced(r);
+		case 2: return -sinReduced(r);
+		default: return -cosReduced(r);
+		}
+	}
+	
+	/**
+	 * @param x An angle in radians.
+	 * @return An approximation of its cosine.
+	 */
+	public static double cos (double x) {
+		if (!(Math.abs(x) <= MAX_ANGLE)) {
+			return Math.cos(x);
+		}
+		double k = Math.rint(x * TWO_OVER_PI);
+		double r = x - k * PIO2_HI - k * PIO2_LO;
+		switch ((int) k & 3) {
+		case 0: return cosReduced(r);
+		case 1: return -sinReduced(r);
+		case 2: return -cosReduced(r);
+		default: return sinReduced(r);
+		}
+	}
+	
+	/**
+	 * @param x An angle in radians.
+	 * @return An approximation of its tangent.
+	 */
+	public static double tan (double x) {
+		if (!(Math.abs(x) <= MAX_ANGLE)) {
+			return Math.tan(x);
+		}
+		double k = Math.rint(x * TWO_OVER_PI);
+		double r = x - k * PIO2_HI - k * PIO2_LO;
+		return ((int) k & 1) == 0 ? sinReduced(r) / cosReduced(r) : -cosReduced(r) / sinReduced(r);
+	}
+	
+	/**
+	 * The Taylor series of the sine through the eleventh power, which is off by less than 1e-11
+	 * between -pi / 4 and pi / 4.
+	 * @param r An angle between -pi / 4 and pi / 4.
+	 * @return An approximation of its sine.
+	 */
+	private static double sinReduced (double r) {
+		double r2 = r * r;
+		return r + r * r2 * (-1.0 / 6 + r2 * (1.0 / 120 + r2 * (-1.0 / 5040 + r2 * (1.0 / 362880
+				+ r2 * (-1.0 / 39916800)))));
+	}
+	
+	/**
+	 * The Taylor series of the cosine through the tenth power, which is off by less than 2e-10
+	 * between -pi / 4 and pi / 4.
+	 * @param r An angle between -pi / 4 and pi / 4.
+	 * @return An approximation of its cosine.
+	 */
+	private static double cosReduced (double r) {
+		double r2 = r * r;
+		return 1 + r2 * (-1.0 / 2 + r2 * (1.0 / 24 + r2 * (-1.0 / 720 + r2 * (1.0 / 40320
+				+ r2 * (-1.0 / 3628800)))));
+	}
+	
+	/**
+	 * Find a to the power of b by repeated squaring if b is a whole number no larger than MAX_POWER
+	 * in size, which takes a few multiplications instead of a logarithm and an exponential and also
+	 * works for negative bases. Other powers are left to Math.
+	 * @param a The base.
+	 * @param b The exponent.
+	 * @return An approximation of a to the power of b.
+	 */
+	public static double pow (double a, double b) {
+		if (!(Math.abs(b) <= MAX_POWER) || b != Math.rint(b)) {
+			return Math.pow(a, b);
+		}
+		double result = 1, square = a;
+		for (int n = (int) Math.abs(b); n != 0; n >>= 1) {
+			if ((n & 1) != 0) {
+				result *= square;
+			}
+			square *= square;
+		}
+		return b < 0 ? 1 / result : result;
+	}
+	
+	/**
+	 * Find the inverse tangent of x from the nearest eighth c in the table, as the inverse tangent
+	 * of c plus that of (x - c) / (1 + x * c), which is at most 1/16 in size, from its Taylor series
+	 * through the seventh power. Arguments greater than 1 are reflected about pi / 4 first.
+	 * @param x A number.
+	 * @return An approximation of its inverse tangent.
+	 */
+	public static double atan (double x) {
+		double a = Math.abs(x);
+		boolean reflected = a > 1;
+		if (reflected) {
+			a = 1 / a;
+		}
+		int i = (int) (a * 8 + 0.5);
+		double c = i / 8.0;
+		double t = (a - c) / (1 + a * c), t2 = t * t;
+		double result = ATAN[i] + t * (1 + t2 * (-1.0 / 3 + t2 * (1.0 / 5 + t2 * (-1.0 / 7))));
+		if (reflected) {
+			result = Math.PI / 2 - result;
+		}
+		return Math.copySign(result, x);
+	}
+	
+	/**
+	 * @param x A number from -1 to 1.
+	 * @return An approximation of its inverse sine.
+	 */
+	public static double asin (double x) {
+		return atan(x / Math.sqrt((1 - x) * (1 + x)));
+	}
+	
+	/**
+	 * @param x A number from -1 to 1.
+	 * @return An approximation of its inverse cosine.
+	 */
+	public static double acos (double x) {
+		return 2 * atan(Math.sqrt((1 - x) / (1 + x)));
+	}
+	
+	/**
+	 * @param x A number.
+	 * @return An approximation of its hyperbolic sine, from its Taylor series near 0 where the
+	 * exponentials would cancel.
+	 */
+	public static double sinh (double x) {
+		double a = Math.abs(x);
+		if (a < 1) {
+			double x2 = x * x;
+			return x + x * x2 * (1.0 / 6 + x2 * (1.0 / 120 + x2 * (1.0 / 5040 + x2 * (1.0 / 362880
+					+ x2 * (1.0 / 39916800 + x2 * (1.0 / 6227020800L))))));
+		}
+		if (!(a <= MAX_EXP)) {
+			return Math.sinh(x);
+		}
+		double e = Math.exp(a);
+		return Math.copySign((e - 1 / e) / 2, x);
+	}
+	
+	/**
+	 * @param x A number.
+	 * @return An approximation of its hyperbolic cosine.
+	 */
+	public static double cosh (double x) {
+		double a = Math.abs(x);
+		if (!(a <= MAX_EXP)) {
+			return Math.cosh(x);
+		}
+		double e = Math.exp(a);
+		return (e + 1 / e) / 2;
+	}
+	
+	/**
+	 * @param x A number.
+	 * @return An approximation of its hyperbolic tangent, which is 1 in size to within rounding
+	 * beyond 20.
+	 */
+	public static double tanh (double x) {
+		double a = Math.abs(x);
+		if (a < 1) {
+			return sinh(x) / cosh(x);
+		}
+		if (!(a <= 20)) {
+			return a > 20 ? Math.copySign(1, x) : x;
+		}
+		return Math.copySign(1 - 2 / (Math.exp(2 * a) + 1), x);
+	}
+	
+	/**
+	 * Find the cube root of x from a first guess made by dividing the exponent of x by 3, then
+	 * three steps of Newton's method, each of which roughly squares the error.
+	 * @param x A number.
+	 * @return An approximation of its cube root.
+	 */
+	public static double cbrt (double x) {
+		double a = Math.abs(x);
+		if (!(a >= Double.MIN_NORMAL && a <= Double.MAX_VALUE)) {
+			return Math.cbrt(x);
+		}
+		double y = Double.longBitsToDouble(Double.doubleToRawLongBits(a) / 3 + 0x2A9F7893782DA1CEL);
+		y = (2 * y + a / (y * y)) / 3;
+		y = (2 * y + a / (y * y)) / 3;
+		y = (2 * y + a / (y * y)) / 3;
+		return Math.copySign(y, x);
+	}
+}
@@ -0,0 +1,116 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.scene.Group;
+import javafx.scene.control.Tooltip;
+import javafx.scene.shape.Circle;
+
+/**
+ * This class extends Group from JavaFX. It marks the roots, intersections, minima, and maxima found
+ * by an Analyzer on a GraphArea, with a tooltip on each marker giving its coordinates. Markers are
+ * pooled and reused like the lines of a GridLayer, and only the markers inside the visible part of
+ * the GraphArea are shown.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class FeatureLayer extends Group {
+	
+	private static final double RADIUS = 4;		// The radius of a marker in pixels.
+	
+	private GraphArea ga;						// The GraphArea that this layer belongs to.
+	private List<Analyzer.Feature> features;	// The points to mark.
+	private List<Circle> markers;				// Pool of markers.
+	private List<Tooltip> tooltips;				// The tooltip of each marker.
+	
+	/**
+	 * Create an empty layer belonging to the given GraphArea.
+	 * @param ga The GraphArea that this layer belongs to.
+	 */
+	public FeatureLayer (GraphArea ga) {
+		this.ga = ga;
+		features = new ArrayList<Analyzer.Feature>();
+		markers = new ArrayList<Circle>();
+		tooltips = new ArrayList<Tooltip>();
+	}
+	
+	/**
+	 * Replace the points to mark and draw them.
+	 * @param features The points to mark.
+	 */
+	public void setFeatures (List<Analyzer.Feature> features) {
+		this.features = features;
+		draw();
+	}
+	
+	/**
+	 * Move every marker to where its point is on the GraphArea.
+	 */
+	public void draw () {
+		double width = ga.getWidth();
+		double height = ga.getHeight();
+		int used = 0;
+		for (Analyzer.Feature f : features) {
+			double x = f.getX() * ga.getXScale() + ga.getXTranslation();
+			double y = -f.getY() * ga.getYScale() + ga.getYTranslation();
+			if (!(x >= 0 && x <= width && y >= 0 && y <= height)) {
+				continue;
+			}
+			
+			// Reuse a marker from the pool, or create one if the pool has run out.
+			if (used == markers.size()) {
+				Circle marker = new Circle(RADIUS);
+				Tooltip tooltip = new Tooltip();
+				Tooltip.install(marker, tooltip);
+				markers.add(marker);
+				tooltips.add(tooltip);
+				getChildren().add(marker);
+			}
+			Circle marker = markers.get(used);
+			marker.setCenterX(x);
+			marker.setCenterY(y);
+			marker.getStyleClass().setAll(styleClass(f.getKind()));
+			tooltips.get(used).setText(String.format("%s (%.6g, %.6g)", name(f.getKind()), f.getX(), f.getY()));
+			marker.setVisible(true);
+			used++;
+		}
+		
+		// Hide the markers that are not needed.
+		for (int i = used; i < markers.size(); i++) {
+			markers.get(i).setVisible(false);
+		}
+	}
+	
+	/**
+	 * @param kind A kind of point.
+	 * @return The CSS class of markers for that kind of point.
+	 */
+	private static String styleClass (Analyzer.Feature.Kind kind) {
+		switch (kind) {
+		case ROOT:
+			return "root-marker";
+		case INTERSECTION:
+			return "intersection-marker";
+		default:
+			return "extremum-marker";
+		}
+	}
+	
+	/**
+	 * @param kind A kind of point.
+	 * @return The name of that kind of point.
+	 */
+	private static String name (Analyzer.Feature.Kind kind) {
+		switch (kind) {
+		case ROOT:
+			return "Root";
+		case INTERSECTION:
+			return "Intersection";
+		case MINIMUM:
+			return "Minimum";
+		default:
+			return "Maximum";
+		}
+	}
+}
@@ -1,24 +1,38 @@
 package application;
 
+import java.util.function.DoubleUnaryOperator;
 import java.util.function.Function;
 
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
-import javafx.scene.shape.LineTo;
-import javafx.scene.shape.MoveTo;
-import javafx.scene.shape.Path;
-import javafx.scene.shape.Rectangle;
 
 /**
- * This class extends Path from JavaFX. Itrepresents the graph of a function. It has fields for
- * the GraphArea that this graph belongs to and for the function it represents. It has a method 
- * for drawing itself onto its GraphArea.
+ * This class extends Canvas from JavaFX. It represents the graph of a function. It has fields for
+ * the GraphArea that this graph belongs to, for the function it represents, for its color, for the
+ * buffer holding its sampled points, and for whether it needs to be drawn again. The buffer is reused
+ * between draws and the points are stroked straight onto the canvas, so drawing creates no objects per
+ * point. While the user is interacting with the GraphArea, expressions are sampled with their
+ * approximations, and the graph remembers that so that it can be sampled exactly afterwards. It has
+ * methods for invalidating itself and drawing itself onto its GraphArea, and it counts how long it
+ * last took to sample and to draw, for the PerformanceHud.
  * @author Mark Kikta
  * @version 1.0
  */
-public class Graph extends Path {
+public class Graph extends Canvas {
 	
-	private GraphArea ga;					// The GraphArea that this graph belongs to.
-	private Function<Double, Double> func;	// The function that this graph represents.
+	private static final int INTERVALS = 20000;	// How many intervals the visible x range is split into.
+	protected static final DoubleUnaryOperator NONE = x -> Double.NaN;	// The function of a kind of graph that has no function of x.
+	
+	private GraphArea ga;						// The GraphArea that this graph belongs to.
+	private DoubleUnaryOperator func;			// The function that this graph represents.
+	private Color color;						// The color of this graph.
+	private SampleBuffer samples;				// The sampled points of this graph.
+	private boolean dirty = true;				// Whether or not this graph needs to be drawn again.
+	private boolean approximate;				// Whether or not the samples were found with FastMath.
+	private long sampleNanos;					// How long this graph last took to be sampled.
+	private long renderNanos;					// How long this graph last took to be stroked onto its canvas.
+	private long samplesEvaluated;				// How many samples of this graph have been evaluated in all.
 	
 	/**
 	 * Set this graph's fields and style.
@@ -26,70 +40,220 @@ public class Graph extends Path {
 	 * @param ga The GraphArea that this graph belongs to.
 	 * @param color The color of this graph.
 	 */
-	public Graph (Function<Double, Double> func, GraphArea ga, Color color) {
+	public Graph (DoubleUnaryOperator func, GraphArea ga, Color color) {
 		
 		// Set fields.
 		this.ga = ga;
 		this.func = func;
+		this.color = color;
+		samples = new SampleBuffer();
 		
-		// Set this path's stroke width and color.
-		setStrokeWidth(2);
-		this.setStroke(color);
+		// The graph never needs to receive mouse events.
+		setMouseTransparent(true);
 		
 		// Add a new class representing this one to the CSS file.
 		getStyleClass().add("graph");
 	}
 	
 	/**
-	 * Draw this graph onto its GraphArea.
+	 * Set this graph's fields and style for a function that works on boxed doubles.
+	 * @param func The function to be graphed.
+	 * @param ga The GraphArea that this graph belongs to.
+	 * @param color The color of this graph.
+	 */
+	public Graph (Function<Double, Double> func, GraphArea ga, Color color) {
+		this(func == null ? null : (DoubleUnaryOperator) x -> func.apply(x), ga, color);
+	}
+	
+	/**
+	 * Draw this graph onto its GraphArea, sampling it first unless its samples are already up to date.
 	 */
 	public void draw () {
+		if (dirty) {
+			sample();
+		}
+		
+		// Stroke the sampled points onto this canvas.
+		render();
+	}
+	
+	/**
+	 * Sample the function across the visible x range without drawing it, for when the graph is
+	 * drawn by something other than this canvas. The visible bounds of ga account for zooming
+	 * and panning on it.
+	 */
+	public void sample () {
+		GraphEvents.Sample event = new GraphEvents.Sample();
+		event.begin();
+		long start = System.nanoTime();
+		fill(samples, ga.getVisibleXMin(), ga.getVisibleXMax());
+		sampleNanos = System.nanoTime() - start;
+		samplesEvaluated += samples.size();
+		if (event.shouldCommit()) {
+			event.expression = GraphEvents.describe(func);
+			event.samples = samples.size();
+			event.setViewport(ga);
+			event.commit();
+		}
 		
-		// Clear the path.
-		getElements().clear();
+		// This graph is now up to date.
+		dirty = false;
+	}
+	
+	/**
+	 * Fill a buffer with the points of this graph between two x values. By default the function is
+	 * sampled at evenly spaced x values, but kinds of graphs that can find their points some faster
+	 * way override this.
+	 * @param buffer The buffer.
+	 * @param from The first x value.
+	 * @param to The last x value.
+	 */
+	protected void fill (SampleBuffer buffer, double from, double to) {
+		approximate = func instanceof Expression && ga.isApproximating();
+		buffer.sample(approximate ? ((Expression) func).approximate() : func, from, to, INTERVALS);
+	}
+	
+	/**
+	 * Mark the samples of this graph as up to date after they were filled in by something other
+	 * than sample, such as a cache.
+	 */
+	public void markSampled () {
+		dirty = false;
+	}
+	
+	/**
+	 * Stroke the points in the sample buffer onto this canvas, which is kept the same size as the
+	 * GraphArea so that the graph does not run off of it.
+	 */
+	private void render () {
+		GraphEvents.Render event = new GraphEvents.Render();
+		event.begin();
+		long start = System.nanoTime();
 		
 		// Create variables for these so the counterpart functions don't have to be repeatedly called.
+		double width = ga.getWidth();
+		double height = ga.getHeight();
 		double xScale = ga.getXScale();
 		double xTrans = ga.getXTranslation();
 		double yScale = ga.getYScale();
 		double yTrans = ga.getYTranslation();
 		
-		// Difference between max and min, will always be positive.
-		double diff = ga.getXMax() - ga.getXMin();
-		
-		// Make increments dynamic.
-		double increment = diff / 20000;
+		// Match the size of the GraphArea.
+		if (getWidth() != width || getHeight() != height) {
+			setWidth(width);
+			setHeight(height);
+		}
 		
-		// Move the path to the first point on the left edge of the scene, applying modifiers accordingly.
-		double x = ga.getXMin() - ga.getXZoom() - ga.getXTempPan() - ga.getXPermaPan();
-		double y = func.apply(x);
-		getElements().add(new MoveTo(x * xScale + xTrans, -y * yScale + yTrans));
+		GraphicsContext gc = getGraphicsContext2D();
+		gc.clearRect(0, 0, width, height);
+		gc.setStroke(color);
+		gc.setLineWidth(2);
+		gc.beginPath();
 		
-		// This variable will be used for checking when a function gets too steep to display.
-		double prevY;
+		// Points far off screen are pulled in so that the canvas never sees huge coordinates.
+		double limit = 4 * Math.max(width, height);
 		
-		// For each x value after the first, calculate its y value and plot it.
-		// The modifiers on xMin and xMax account for zooming and panning on ga.
-		for (x = ga.getXMin() - ga.getXZoom() - ga.getXTempPan() - ga.getXPermaPan() + increment; x <= ga.getXMax() - ga.getXZoom() - ga.getXTempPan() - ga.getXPermaPan(); x += increment) {
-			// Save the current value of y as the previous.
-			prevY = y;
-			
-			// Calculate the y-coordinate of the point by applying the given function.
-			y = func.apply(x);
-
-			// Check if the function gets too steep.
-			if (Math.abs((y - prevY) / increment) > 999) {
-				
-				// If the function is (probably) discontinuous, merely move to the next point.
-				getElements().add(new MoveTo(x * xScale + xTrans, -y * yScale + yTrans));
+		// Move to the start of each segment and draw lines along it, skipping points that are not numbers.
+		boolean penDown = false;
+		for (int i = 0; i < samples.size(); i++) {
+			double y = samples.getY(i);
+			if (Double.isNaN(y) || Double.isInfinite(y)) {
+				penDown = false;
+				continue;
+			}
+			double sx = samples.getX(i) * xScale + xTrans;
+			double sy = Math.max(-limit, Math.min(limit, -y * yScale + yTrans));
+			if (!penDown || samples.isMove(i)) {
+				gc.moveTo(sx, sy);
+				penDown = true;
 			} else {
-				
-				// If the function is continuous, draw a line to the next point instead.
-				getElements().add(new LineTo(x * xScale + xTrans, -y * yScale + yTrans));
+				gc.lineTo(sx, sy);
 			}
 		}
-		
-		// Ensure that the graph does not run off its GraphArea.
-		setClip(new Rectangle(0, 0, ga.getPrefWidth(), ga.getPrefHeight()));
+		gc.stroke();
+		renderNanos = System.nanoTime() - start;
+		if (event.shouldCommit()) {
+			event.expression = GraphEvents.describe(func);
+			event.samples = samples.size();
+			event.setViewport(ga);
+			event.commit();
+		}
+	}
+	
+	/**
+	 * Mark this graph as needing to be drawn again.
+	 */
+	public void invalidate () {
+		dirty = true;
+	}
+	
+	/**
+	 * Mark this graph as needing to be sampled again because a parameter that it uses has changed.
+	 */
+	public void parametersChanged () {
+		invalidate();
+	}
+	
+	/**
+	 * @return The slots of the parameters that this graph uses, one bit each.
+	 */
+	public long getParameterMask () {
+		return func instanceof Expression ? ((Expression) func).getParameterMask() : 0;
+	}
+	
+	/**
+	 * @return dirty
+	 */
+	public boolean isDirty () {
+		return dirty;
+	}
+	
+	/**
+	 * @return approximate
+	 */
+	public boolean isApproximate () {
+		return approximate;
+	}
+	
+	/**
+	 * @return color
+	 */
+	public Color getColor () {
+		return color;
+	}
+	
+	/**
+	 * @return func
+	 */
+	public DoubleUnaryOperator getFunction () {
+		return func;
+	}
+	
+	/**
+	 * @return sampleNanos
+	 */
+	public long getSampleNanos () {
+		return sampleNanos;
+	}
+	
+	/**
+	 * @return renderNanos
+	 */
+	public long getRenderNanos () {
+		return renderNanos;
+	}
+	
+	/**
+	 * @return samplesEvaluated
+	 */
+	public long getSamplesEvaluated () {
+		return samplesEvaluated;
+	}
+	
+	/**
+	 * @return samples
+	 */
+	public SampleBuffer getSamples () {
+		return samples;
 	}
-}
\ No newline at end of file
+}
@@ -1,19 +1,31 @@
 package application;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.DoubleUnaryOperator;
 
-import javafx.geometry.Side;
-import javafx.scene.chart.NumberAxis;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.scene.Group;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
-import javafx.scene.shape.Line;
+import javafx.util.Duration;
 
 /**
  * This class extends Pane from JavaFX. It represents a pane on which the graphs of functions may 
  * be drawn. It has fields for the last of graphs on it, its input box, its x and y bounds, its x
- * and y increments, its x and y axes, and for the effects of zooming and panning on it. It has 
- * methods for adding and removing graphs, updating as the user interacts, zooming, and panning.
+ * and y increments, its x and y axes, and for the effects of zooming and panning on it. Its children
+ * are split into layers that are only redrawn when they are invalidated. While the user is zooming,
+ * panning, or dragging a slider, graphs are sampled with FastMath as long as the error of each call
+ * to it stays well under a pixel, and they are sampled exactly again once the user stops for a
+ * moment. Each view that the user stops at is kept in a ViewportHistory, so that stepping back and
+ * forth between views fills the graphs in from snapshots right away and only samples them again in
+ * the background. It has methods for adding and removing graphs, updating as the user interacts,
+ * zooming, panning, and stepping back and forth.
  * @author Mark Kikta
  * @version 1.0
  */
@@ -22,7 +34,7 @@ public class GraphArea extends Pane {
 	private double yMin, yMax;					// The minimum and maximum y values to display.
 	private double xIncrement, yIncrement;		// How much distance is between tick marks on the axes.
 	
-	private NumberAxis xAxis, yAxis;			// The axes of this GraphArea.
+	private GraphAxis xAxis, yAxis;				// The axes of this GraphArea.
 	
 	private double xTranslation, yTranslation;	// The translation factors that need to be applied to a graph.
 	private double xScale, yScale;				// The scale factors that need to be applied to a graph.
@@ -35,12 +47,62 @@ public class GraphArea extends Pane {
 	private double xPermaPan = 0;				// How much offset in the x direction that previous panning is responsible for.
 	private double yPermaPan = 0;				// How much offset in the y direction that previous panning is responsible for.
 	
-	private InputBox ib;						// Box for user input.
+	private InputBox ib;						// Box for user input, or null until it is first needed.
+	private SampleCache sampleCache;			// Samples to fill new graphs in from instead of sampling them, or null.
+	private Parameters parameters;				// The values of the parameters that the graphs may use.
+	private ValueTable valueTable;				// Table of values alongside the input box, or null until shown.
+	private static final double TABLE_WIDTH = 320;	// The width of the table of values.
+	private PerformanceHud hud;					// Overlay of performance counters, or null until shown.
 	private List<Graph> graphs;					// List of graphs.
 	
+	private GridLayer gridLayer;				// Layer holding the subdividing lines.
+	private Group graphLayer;					// Layer holding the graphs.
+	private RasterLayer rasterLayer;			// Layer the graphs are rasterized into instead, or null.
+	private boolean gridDirty = true;			// Whether or not the subdividing lines need to be redrawn.
+	private boolean axesDirty = true;			// Whether or not the axes need to be laid out again.
+	
+	private ShadeLayer shadeLayer;				// Layer shading the areas under graphs.
+	private boolean shadingDirty = true;		// Whether or not the shaded areas need to be rebuilt.
+	private RegionLayer regionLayer;			// Layer shading the regions where inequalities hold, and complex functions.
+	private TraceLayer traceLayer;				// Layer marking the points under the mouse.
+	private FeatureLayer featureLayer;			// Layer marking roots, intersections, and extrema.
+	private boolean featuresDirty = true;		// Whether or not the marked points need to be found again.
+	private Analyzer analyzer;					// The analysis that is running or finished last, or null.
+	private boolean interacting;				// Whether or not the user is zooming, panning, or dragging a slider.
+	private boolean moved;						// Whether or not the view has changed since the interaction started.
+	private PauseTransition settle;				// Ends the interaction once the user stops for a moment, or null.
+	private static final Duration SETTLE = Duration.millis(200);	// How long the user has to stop for.
+	private static final double MAX_PIXEL_ERROR = 0.01;		// The most that one call to FastMath may move a point, in pixels.
+	private ViewportHistory history;			// The views that the user has stopped at.
+	private ViewportHistory.Entry restoring;	// The view being stepped to, whose snapshots fill the graphs in, or null.
+	private long refreshes;						// Counts changes of view, parameters, and graphs, so that a refresh can tell that it is out of date.
+	
+	// Starts analyses one at a time in the background, so that a cancelled one never delays the next for long.
+	private static final ExecutorService ANALYSIS = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "graph-analysis");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	// Samples graphs that were filled in from snapshots again in the background, apart from the analyses.
+	private static final ExecutorService REFRESH = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "graph-refresh");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	// The stages of an update, and how long each of them took in the last update, for the PerformanceHud.
+	public static final String[] STAGES = {"axes", "grid", "shading", "graphs", "features"};
+	private long[] stageNanos = new long[STAGES.length];
+	private long updates;						// How many times this GraphArea has been updated.
+	
+	// The viewport that the layers were last drawn for, used to detect when it changes.
+	private double lastWidth, lastHeight, lastXScale, lastYScale, lastXTranslation, lastYTranslation;
+	
 	/**
 	 * Set this GraphArea's fields, calculate its translation and scale factors, and create and format
-	 * its x- and y-axes. Then draw subdividing lines across it.
+	 * its x- and y-axes. Then draw subdividing lines across it. The input box is not created until it
+	 * is first needed, so that the graph surface can be shown as soon as possible.
 	 * @param width The width of this GraphArea.
 	 * @param height The height of this GraphArea.
 	 * @param xMin The minimum x value.
@@ -60,26 +122,29 @@ public class GraphArea extends Pane {
 		this.xIncrement = xIncrement;
 		this.yIncrement = yIncrement;
 		graphs = new ArrayList<Graph>();
-		
-		// Create a new input box belonging to this graph area.
-		ib = new InputBox(height, width, this);
+		parameters = new Parameters();
+		history = new ViewportHistory();
 		
 		// Set the width and height.
 		setWidth(width);
 		setHeight(height);
 		
-		/*
-		 * Create the xAxis with the given quantities, display tick marks on its bottom, and do not
-		 * display ticks between the set ones.
-		 */
-		xAxis = new NumberAxis(xMin, xMax, xIncrement);	
-		xAxis.setSide(Side.BOTTOM);
-		xAxis.setMinorTickVisible(false);
+		// Create the axes.
+		xAxis = new GraphAxis(this, true);
+		yAxis = new GraphAxis(this, false);
 		
-		// Repeat the above with the respective values for the y-axis.
-		yAxis = new NumberAxis(yMin, yMax, yIncrement);
-		yAxis.setSide(Side.RIGHT);
-		yAxis.setMinorTickVisible(false);
+		// Create the layers and add them once, in drawing order. The input box goes on top once it is created.
+		gridLayer = new GridLayer(this);
+		graphLayer = new Group();
+		if (RasterLayer.isRequested()) {
+			rasterLayer = new RasterLayer(this);
+			graphLayer.getChildren().add(rasterLayer);
+		}
+		shadeLayer = new ShadeLayer(this);
+		regionLayer = new RegionLayer(this);
+		featureLayer = new FeatureLayer(this);
+		traceLayer = new TraceLayer(this);
+		getChildren().addAll(gridLayer, shadeLayer, regionLayer, xAxis, yAxis, graphLayer, featureLayer, traceLayer);
 		
 		// Update this graph area.
 		update();
@@ -90,12 +155,12 @@ public class GraphArea extends Pane {
 	
 	/**
 	 * Called when the scene needs to be updated. This refactors all fields in accordance
-	 * with whatever changes have been made to the scene.
+	 * with whatever changes have been made to the scene. If the viewport changed, the grid,
+	 * the axes, and every graph are invalidated. Only invalidated layers are redrawn.
 	 */
 	public void update () {
-		
-		// Remove all children from this GraphArea.
-		getChildren().clear();
+		GraphEvents.Update event = new GraphEvents.Update();
+		event.begin();
 		
 		// Create variables for these so they don't have to be repeatedly called.
 		double width = getWidth();
@@ -129,62 +194,206 @@ public class GraphArea extends Pane {
 		xTranslation = width * (Math.abs(xMin)  + xZoom  + xTempPan + xPermaPan) / (xMax - xMin);
 		yTranslation = height * (Math.abs(yMax) + yZoom + yTempPan + yPermaPan) / (yMax - yMin) ;
 		
-		/*
-		 * Set the bounds to new values, set the tick Unit, set the width equal to the width of this 
-		 * GraphArea, and translate the xAxis. Make sure to adjust the bounds based off of zooming and panning.
-		 */
-		xAxis.setLowerBound(xMin - xZoom - xTempPan - xPermaPan);
-		xAxis.setUpperBound(xMax - xZoom - xTempPan - xPermaPan);
-		xAxis.setTickUnit(xIncrement);
-		xAxis.setPrefWidth(width);
-		xAxis.setLayoutY(yTranslation);
+		// If the viewport has changed since the last update, everything that depends on it is invalid.
+		if (width != lastWidth || height != lastHeight || xScale != lastXScale || yScale != lastYScale
+				|| xTranslation != lastXTranslation || yTranslation != lastYTranslation) {
+			lastWidth = width;
+			lastHeight = height;
+			lastXScale = xScale;
+			lastYScale = yScale;
+			lastXTranslation = xTranslation;
+			lastYTranslation = yTranslation;
+			invalidateViewport();
+			if (restoring != null) {
+				restoreSnapshots(restoring);
+			}
+		}
 		
-		// Repeat for the y-axis with its respective values.
-		yAxis.setLowerBound(yMin + yZoom + yTempPan + yPermaPan);
-		yAxis.setUpperBound(yMax + yZoom + yTempPan + yPermaPan);
-		yAxis.setTickUnit(yIncrement);
-		yAxis.setPrefHeight(height);
-		yAxis.setLayoutX(xTranslation);
+		// Lay out the axes again if they are invalid.
+		long time = System.nanoTime();
+		if (axesDirty) {
+			xAxis.draw();
+			yAxis.draw();
+			axesDirty = false;
+		}
+		time = endStage(0, time);
 		
-		// Instantiate a temporary Line.
-		Line l;
-				
-		// Draw subdividing lines across the GraphArea, first in the x direction.
-		for (double i = 0; i < 2 * xMax; i += xIncrement / 2) {
-					
-			// Account for the scale factor and set the stroke width and color.
-			l = new Line(i * xScale, 0, i * xScale, height);
-			l.setStrokeWidth(0.2);
-			l.setStroke(Color.GREY);
-					
-			// Add this line to the list of lines and to the list of child nodes.
-			getChildren().add(l);
+		// Redraw the subdividing lines if they are invalid.
+		if (gridDirty) {
+			gridLayer.draw();
+			gridDirty = false;
 		}
-				
-		// Repeat for the y direction.
-		for (double j = 0; j < 2 * yMax; j += yIncrement / 2) {
-			l = new Line(0, j * yScale, width, j * yScale);
-			l.setStrokeWidth(0.2);
-			l.setStroke(Color.GREY);
-			getChildren().add(l);
+		time = endStage(1, time);
+		
+		// Rebuild the shaded areas if they are invalid.
+		if (shadingDirty) {
+			shadeLayer.draw();
+			shadingDirty = false;
 		}
+		time = endStage(2, time);
+		
+		// Redraw only the graphs that have been invalidated.
+		int drawn = drawDirtyGraphs();
+		time = endStage(3, time);
 		
-		// Add the axes and input box to the GraphArea.
-		getChildren().addAll(xAxis, yAxis);
+		// Keep the table of values along the right edge, and the performance counters in the bottom left corner.
+		if (valueTable != null) {
+			valueTable.relocate(width - TABLE_WIDTH, 0);
+			valueTable.setPrefSize(TABLE_WIDTH, height);
+		}
+		if (hud != null) {
+			hud.place();
+		}
 		
-		// Add all the graphs to this graph area, then draw them.
+		// Move the marked points right away, then find them again for the new visible range.
+		if (featuresDirty) {
+			featureLayer.draw();
+			analyze();
+			featuresDirty = false;
+		}
+		endStage(4, time);
+		updates++;
+		if (event.shouldCommit()) {
+			event.graphs = graphs.size();
+			event.graphsDrawn = drawn;
+			event.setViewport(this);
+			event.commit();
+		}
+	}
+	
+	/**
+	 * Record how long a stage of an update took.
+	 * @param stage The index of the stage in STAGES.
+	 * @param start When the stage started, from System.nanoTime.
+	 * @return When the stage ended, which is when the next one starts.
+	 */
+	private long endStage (int stage, long start) {
+		long end = System.nanoTime();
+		stageNanos[stage] = end - start;
+		return end;
+	}
+	
+	/**
+	 * Mark the point of each graph under the mouse, using the samples that the graphs were last
+	 * drawn from. Nothing is redrawn or sampled again.
+	 * @param x The x coordinate of the mouse.
+	 */
+	public void trace (double x) {
+		traceLayer.trace(graphs, x);
+	}
+	
+	/**
+	 * Stop marking the points of the graphs under the mouse.
+	 */
+	public void hideTrace () {
+		traceLayer.hide();
+	}
+	
+	/**
+	 * Show the table of values if it is hidden, or hide it if it is shown. It is created the first
+	 * time it is shown.
+	 */
+	public void toggleTable () {
+		if (valueTable == null) {
+			valueTable = new ValueTable();
+			valueTable.setGraphs(graphs);
+			valueTable.relocate(getWidth() - TABLE_WIDTH, 0);
+			valueTable.setPrefSize(TABLE_WIDTH, getHeight());
+			getChildren().add(valueTable);
+		} else {
+			valueTable.setVisible(!valueTable.isVisible());
+		}
+	}
+	
+	/**
+	 * Show the performance counters if they are hidden, or hide them if they are shown. They are
+	 * created the first time they are shown, and they are only measured while they are shown.
+	 */
+	public void togglePerformanceHud () {
+		if (hud == null) {
+			hud = new PerformanceHud(this);
+			getChildren().add(hud);
+		} else {
+			hud.setVisible(!hud.isVisible());
+		}
+	}
+	
+	/**
+	 * Find the roots, intersections, and extrema of every graph in the visible range in the
+	 * background and mark them once they are found. An analysis that is still running is cancelled.
+	 */
+	public void analyze () {
+		if (analyzer != null) {
+			analyzer.cancel();
+		}
+		List<DoubleUnaryOperator> functions = new ArrayList<DoubleUnaryOperator>();
 		for (Graph g : graphs) {
-			getChildren().add(g);
-			
+			functions.add(g.getFunction());
+		}
+		Analyzer a = new Analyzer(functions, getVisibleXMin(), getVisibleXMax());
+		analyzer = a;
+		ANALYSIS.execute(() -> {
 			try {
-				g.draw();
-			} catch (Exception e) {
-				// InputBox will display error message.
+				List<Analyzer.Feature> features = a.run();
+				Platform.runLater(() -> {
+					if (analyzer == a) {
+						featureLayer.setFeatures(features);
+					}
+				});
+			} catch (CancellationException e) {
+				// A newer analysis has replaced this one.
+			} catch (RuntimeException e) {
+				// A function could not be evaluated, so nothing new is marked.
 			}
+		});
+	}
+	
+	/**
+	 * Invalidate every layer that depends on the viewport. The input box is never invalidated.
+	 */
+	public void invalidateViewport () {
+		refreshes++;
+		gridDirty = true;
+		axesDirty = true;
+		shadingDirty = true;
+		featuresDirty = true;
+		for (Graph g : graphs) {
+			g.invalidate();
 		}
-		
-		// Add the input box to this graph area.
-		getChildren().addAll(ib);
+		if (rasterLayer != null) {
+			rasterLayer.invalidateAll();
+		}
+	}
+	
+	/**
+	 * Draw every graph that has been invalidated since it was last drawn, along with the regions of
+	 * the inequalities among them.
+	 * @return How many graphs were drawn.
+	 */
+	private int drawDirtyGraphs () {
+		int drawn = 0;
+		for (Graph g : graphs) {
+			if (g.isDirty()) {
+				drawn++;
+				try {
+					
+					// When rasterizing, only sample the graph here and let the raster layer draw it.
+					if (rasterLayer != null) {
+						g.sample();
+						rasterLayer.graphChanged(g);
+					} else {
+						g.draw();
+					}
+				} catch (Exception e) {
+					// InputBox will display error message.
+				}
+			}
+		}
+		if (rasterLayer != null) {
+			rasterLayer.redraw(graphs);
+		}
+		regionLayer.redraw(graphs);
+		return drawn;
 	}
 	
 	/**
@@ -195,6 +404,9 @@ public class GraphArea extends Pane {
 	 * @param y Where on the scene the scroll occurred in the y direction.
 	 */
 	public void zoom (double deltaY, double x, double y) {
+		GraphEvents.Zoom event = new GraphEvents.Zoom();
+		event.begin();
+		leave();
 		
 		// Determine the coordinates of the mouse with respect to the coordinate system.
 		double graphX1 = x / getWidth() * (xMax - xMin) - Math.abs(xMax);
@@ -227,7 +439,12 @@ public class GraphArea extends Pane {
 		// Adjust these values to account for the change between coordinate position.
 		xZoom += graphX2 - graphX1;
 		yZoom += graphY1 - graphY2;
-		
+		interact();
+		if (event.shouldCommit()) {
+			event.in = deltaY > 0;
+			event.setViewport(this);
+			event.commit();
+		}
 	}
 	
 	/**
@@ -239,6 +456,9 @@ public class GraphArea extends Pane {
 	 * @param y Where the pan is currently at in the y direction.
 	 */
 	public void pan (double xStart, double yStart, double x, double y) {
+		GraphEvents.Pan event = new GraphEvents.Pan();
+		event.begin();
+		leave();
 		
 		// Determine the coordinates of the mouse with respect to the coordinate system.
 		x = x / getWidth() * (xMax - xMin) - Math.abs(xMax);
@@ -247,6 +467,11 @@ public class GraphArea extends Pane {
 		// Set the temporary pan equal to how far the mouse has moved in each direction.
 		xTempPan = x - xStart;
 		yTempPan = yStart - y;
+		interact();
+		if (event.shouldCommit()) {
+			event.setViewport(this);
+			event.commit();
+		}
 	}
 
 	/**
@@ -261,22 +486,398 @@ public class GraphArea extends Pane {
 	}
 	
 	/**
-	 * Add a graph to this GraphArea and update.
+	 * Remember the view that the user is leaving, along with the samples that were taken for it, the
+	 * first time it changes in an interaction. This is called before anything about the view changes.
+	 */
+	private void leave () {
+		if (!moved) {
+			history.record(this);
+			moved = true;
+		}
+	}
+	
+	/**
+	 * Note that the user is interacting, so that graphs are sampled with approximations until the
+	 * user has stopped for a moment.
+	 */
+	private void interact () {
+		interacting = true;
+		if (settle == null) {
+			settle = new PauseTransition(SETTLE);
+			settle.setOnFinished(event -> settled());
+		}
+		settle.playFromStart();
+	}
+	
+	/**
+	 * End the interaction, and sample the graphs that were sampled with approximations exactly.
+	 */
+	private void settled () {
+		interacting = false;
+		moved = false;
+		boolean changed = false;
+		for (Graph g : graphs) {
+			if (g.isApproximate()) {
+				g.invalidate();
+				changed = true;
+			}
+		}
+		if (changed) {
+			update();
+		}
+		history.record(this);
+	}
+	
+	/**
+	 * Step back to the view before the current one in the history, ending any interaction first so
+	 * that the view it led to is remembered.
+	 * @return Whether or not there was a view to step back to.
+	 */
+	public boolean back () {
+		finishInteraction();
+		return step(history.back());
+	}
+	
+	/**
+	 * Step forward to the view that was last stepped back from.
+	 * @return Whether or not there was a view to step forward to.
+	 */
+	public boolean forward () {
+		finishInteraction();
+		return step(history.forward());
+	}
+	
+	/**
+	 * End an interaction right away instead of waiting for the user to stop for a moment.
+	 */
+	private void finishInteraction () {
+		if (interacting) {
+			endPan();
+			settle.stop();
+			settled();
+		}
+	}
+	
+	/**
+	 * Show the view of an entry of the history, filling its graphs in from its snapshots.
+	 * @param e The entry, or null.
+	 * @return Whether or not there was an entry.
+	 */
+	private boolean step (ViewportHistory.Entry e) {
+		if (e == null) {
+			return false;
+		}
+		double[] v = e.getView();
+		restoring = e;
+		try {
+			setViewport(v[0], v[1], v[2], v[3], v[4], v[5], v[6], v[7], v[8], v[9]);
+		} finally {
+			restoring = null;
+		}
+		return true;
+	}
+	
+	/**
+	 * Fill in every graph that has a snapshot in an entry of the history and draw it, without
+	 * sampling it, then sample those graphs exactly in the background and draw them again once they
+	 * are, unless the view, the parameters, or the graphs have changed by then. This is called once the graphs have been invalidated
+	 * for the view of the entry, so the graphs without a snapshot are sampled as usual.
+	 * @param e The entry.
+	 */
+	private void restoreSnapshots (ViewportHistory.Entry e) {
+		List<Graph> restored = new ArrayList<Graph>();
+		for (Graph g : graphs) {
+			if (e.restore(g, parameters)) {
+				g.markSampled();
+				redrawSampled(g);
+				restored.add(g);
+			}
+		}
+		if (restored.isEmpty()) {
+			return;
+		}
+		
+		// Sample the same points exactly, and swap them in if nothing has changed in the meantime.
+		long refresh = ++refreshes;
+		double from = getVisibleXMin(), to = getVisibleXMax();
+		double[] values = parameters.values.clone();
+		List<DoubleUnaryOperator> functions = new ArrayList<DoubleUnaryOperator>();
+		List<Integer> sizes = new ArrayList<Integer>();
+		for (Graph g : restored) {
+			functions.add(g.getFunction());
+			sizes.add(g.getSamples().size());
+		}
+		REFRESH.execute(() -> {
+			List<SampleBuffer> exact = new ArrayList<SampleBuffer>();
+			try {
+				for (int i = 0; i < functions.size(); i++) {
+					SampleBuffer b = new SampleBuffer();
+					b.sample(functions.get(i), from, to, sizes.get(i) - 1);
+					exact.add(b);
+				}
+			} catch (RuntimeException ex) {
+				// A function could not be evaluated, so the snapshot is kept.
+				return;
+			}
+			Platform.runLater(() -> {
+				if (refresh != refreshes || from != getVisibleXMin() || to != getVisibleXMax()
+						|| !Arrays.equals(values, parameters.values)) {
+					return;
+				}
+				for (int i = 0; i < restored.size(); i++) {
+					Graph g = restored.get(i);
+					if (graphs.contains(g) && !g.isDirty()) {
+						g.getSamples().copy(exact.get(i));
+						g.markSampled();
+						redrawSampled(g);
+					}
+				}
+				if (rasterLayer != null) {
+					rasterLayer.redraw(graphs);
+				}
+				regionLayer.redraw(graphs);
+			});
+		});
+	}
+	
+	/**
+	 * Draw a graph whose samples are already up to date for the current view.
+	 * @param g The graph.
+	 */
+	private void redrawSampled (Graph g) {
+		if (rasterLayer != null) {
+			rasterLayer.graphChanged(g);
+		} else {
+			g.draw();
+		}
+	}
+	
+	/**
+	 * Draw the regions of the inequalities and the images of the complex functions again if any of
+	 * them have changed, such as when the background passes of a DomainColoring finish.
+	 */
+	public void redrawRegions () {
+		regionLayer.redraw(graphs);
+	}
+	
+	/**
+	 * Whether or not graphs should be sampled with approximations, which is while the user is
+	 * interacting, unless the values in view are so large compared to a pixel that a single call to
+	 * FastMath, whose error grows with the size of its value, could move a point by more than
+	 * MAX_PIXEL_ERROR. That bound is per call, not for a whole function: an error made inside the
+	 * function is scaled by whatever is done to the result afterwards, so "1e12 * ( sin ( x ) - x )"
+	 * can move by far more than a pixel. That only lasts while the user is interacting, since the
+	 * graphs are sampled exactly once the view settles.
+	 * @return Whether or not to sample with approximations.
+	 */
+	public boolean isApproximating () {
+		double largest = Math.max(1, Math.max(Math.abs(getVisibleYMin()), Math.abs(getVisibleYMax())));
+		return interacting && FastMath.ERROR * largest * yScale <= MAX_PIXEL_ERROR;
+	}
+	
+	/**
+	 * Move the visible x range by a distance without changing its width, as if it had been panned.
+	 * @param dx How far to move it, which is positive to the right.
+	 */
+	public void scroll (double dx) {
+		xPermaPan -= dx;
+	}
+	
+	/**
+	 * Draw a graph and add it to this GraphArea. No other graph is redrawn, and when rasterizing only
+	 * the pixels it touches are redrawn. The graph is sampled before it is added so that an invalid
+	 * function never makes it onto this GraphArea, unless its samples can be filled in from the
+	 * sample cache.
 	 * @param g The graph to be added.
 	 */
 	public void addGraph (Graph g) {
-		graphs.add(g);
-		update();
+		refreshes++;
+		if (sampleCache != null) {
+			sampleCache.restore(g, getVisibleXMin(), getVisibleXMax(), parameters);
+		}
+		if (rasterLayer != null) {
+			if (g.isDirty()) {
+				g.sample();
+			}
+			graphs.add(g);
+			rasterLayer.graphChanged(g);
+			rasterLayer.redraw(graphs);
+		} else {
+			g.draw();
+			graphs.add(g);
+			graphLayer.getChildren().add(g);
+		}
+		regionLayer.redraw(graphs);
+		if (valueTable != null) {
+			valueTable.setGraphs(graphs);
+		}
+		analyze();
 	}
 	
 	/**
-	 * Remove a given graph from this GraphArea and update.
+	 * Remove a given graph from this GraphArea. No other graph is redrawn, and when rasterizing only
+	 * the pixels it touched are redrawn.
 	 * @param g The graph to be removed.
 	 */
 	public void removeGraph (Graph g) {
-		graphs.remove(g);
+		if (graphs.remove(g)) {
+			refreshes++;
+			graphLayer.getChildren().remove(g);
+			shadeLayer.remove(g);
+			if (rasterLayer != null) {
+				rasterLayer.graphRemoved(g);
+				rasterLayer.redraw(graphs);
+			}
+			regionLayer.redraw(graphs);
+			if (valueTable != null) {
+				valueTable.setGraphs(graphs);
+			}
+			analyze();
+		}
+	}
+	
+	/**
+	 * Sample again only the graphs that use any of the given parameters, along with the shading, the
+	 * marked points, and the table of values, then update this GraphArea, as when the user drags a
+	 * slider.
+	 * @param mask The slots of the parameters that have changed, one bit each.
+	 */
+	public void parametersChanged (long mask) {
+		parametersChanged(mask, true);
+	}
+	
+	/**
+	 * Sample again only the graphs that use any of the given parameters, along with the shading, the
+	 * marked points, and the table of values, then update this GraphArea. A change that the user is
+	 * making counts as interacting, so that the graphs are sampled with approximations until the user
+	 * stops, while a change that is made for the user, such as a frame of an animation, does not.
+	 * @param mask The slots of the parameters that have changed, one bit each.
+	 * @param interactive Whether or not the user is making the change.
+	 */
+	public void parametersChanged (long mask, boolean interactive) {
+		refreshes++;
+		boolean changed = false;
+		for (Graph g : graphs) {
+			if ((g.getParameterMask() & mask) != 0) {
+				g.parametersChanged();
+				changed = true;
+			}
+		}
+		if (changed) {
+			if (interactive) {
+				interact();
+			}
+			shadingDirty = true;
+			featuresDirty = true;
+			if (valueTable != null) {
+				valueTable.refresh();
+			}
+			update();
+		}
+	}
+	
+	/**
+	 * Replace the bounds, increments, and the effects of zooming and panning of this GraphArea, then
+	 * update it.
+	 * @param xMin The minimum x value.
+	 * @param xMax The maximum x value.
+	 * @param xIncrement How much distance between tick marks on the x-axis.
+	 * @param yMin The minimum y value.
+	 * @param yMax The maximum y value.
+	 * @param yIncrement How much distance between tick marks on the y-axis.
+	 * @param xZoom How much offset in the x direction that zooming is responsible for.
+	 * @param yZoom How much offset in the y direction that zooming is responsible for.
+	 * @param xPan How much offset in the x direction that panning is responsible for.
+	 * @param yPan How much offset in the y direction that panning is responsible for.
+	 */
+	public void setViewport (double xMin, double xMax, double xIncrement, double yMin, double yMax, double yIncrement,
+			double xZoom, double yZoom, double xPan, double yPan) {
+		this.xMin = xMin;
+		this.xMax = xMax;
+		this.xIncrement = xIncrement;
+		this.yMin = yMin;
+		this.yMax = yMax;
+		this.yIncrement = yIncrement;
+		this.xZoom = xZoom;
+		this.yZoom = yZoom;
+		xTempPan = 0;
+		yTempPan = 0;
+		xPermaPan = xPan;
+		yPermaPan = yPan;
 		update();
 	}
+	
+	/**
+	 * Set the cache that graphs added to this GraphArea are filled in from when it holds samples of
+	 * them for the visible range.
+	 * @param sampleCache The cache, or null to sample every graph.
+	 */
+	public void setSampleCache (SampleCache sampleCache) {
+		this.sampleCache = sampleCache;
+	}
+	
+	/**
+	 * Shade the area between a graph and the x-axis from one bound to another, replacing any area
+	 * already shaded under that graph.
+	 * @param g The graph.
+	 * @param a The lower bound.
+	 * @param b The upper bound.
+	 */
+	public void shade (Graph g, double a, double b) {
+		shadeLayer.shade(g, a, b);
+	}
+	
+	/**
+	 * Stop shading the area under a graph.
+	 * @param g The graph.
+	 */
+	public void unshade (Graph g) {
+		shadeLayer.remove(g);
+	}
+	
+	/**
+	 * Describe what this GraphArea currently shows as a Plot, so that it can be rendered without a window.
+	 * @return A plot with the visible bounds, the tick increments, and every graph.
+	 */
+	public Plot toPlot () {
+		Plot plot = new Plot(getVisibleXMin(), getVisibleXMax(), xIncrement, getVisibleYMin(), getVisibleYMax(),
+				yIncrement);
+		for (Graph g : graphs) {
+			Color c = g.getColor();
+			int argb = (int) Math.round(c.getOpacity() * 255) << 24 | (int) Math.round(c.getRed() * 255) << 16
+					| (int) Math.round(c.getGreen() * 255) << 8 | (int) Math.round(c.getBlue() * 255);
+			plot.addCurve(g.getFunction(), argb);
+		}
+		return plot;
+	}
+	
+	/**
+	 * @return The smallest x value currently visible, accounting for zooming and panning.
+	 */
+	public double getVisibleXMin() {
+		return xMin - xZoom - xTempPan - xPermaPan;
+	}
+	
+	/**
+	 * @return The largest x value currently visible, accounting for zooming and panning.
+	 */
+	public double getVisibleXMax() {
+		return xMax - xZoom - xTempPan - xPermaPan;
+	}
+	
+	/**
+	 * @return The smallest y value currently visible, accounting for zooming and panning.
+	 */
+	public double getVisibleYMin() {
+		return yMin + yZoom + yTempPan + yPermaPan;
+	}
+	
+	/**
+	 * @return The largest y value currently visible, accounting for zooming and panning.
+	 */
+	public double getVisibleYMax() {
+		return yMax + yZoom + yTempPan + yPermaPan;
+	}
 
 	/**
 	 * @return xMin;
@@ -306,6 +907,20 @@ public class GraphArea extends Pane {
 		return yMax;
 	}
 
+	/**
+	 * @return xIncrement
+	 */
+	public double getXIncrement() {
+		return xIncrement;
+	}
+
+	/**
+	 * @return yIncrement
+	 */
+	public double getYIncrement() {
+		return yIncrement;
+	}
+
 	/**
 	 * @return xTranslation
 	 */
@@ -334,6 +949,47 @@ public class GraphArea extends Pane {
 		return yScale;
 	}
 
+	/**
+	 * Get the input box of this GraphArea, creating it and adding it on top if this is the first time
+	 * it is needed.
+	 * @return ib
+	 */
+	public InputBox getInputBox() {
+		if (ib == null) {
+			ib = new InputBox((int) getHeight(), (int) getWidth(), this);
+			getChildren().add(ib);
+		}
+		return ib;
+	}
+
+	/**
+	 * @return How many times this GraphArea has been updated.
+	 */
+	public long getUpdateCount() {
+		return updates;
+	}
+	
+	/**
+	 * @return How long each stage in STAGES took in the last update, in nanoseconds.
+	 */
+	public long[] getStageNanos() {
+		return stageNanos.clone();
+	}
+	
+	/**
+	 * @return graphs
+	 */
+	public List<Graph> getGraphs() {
+		return graphs;
+	}
+	
+	/**
+	 * @return parameters
+	 */
+	public Parameters getParameters () {
+		return parameters;
+	}
+
 	/**
 	 * @return xZoom
 	 */
@@ -354,4 +1010,25 @@ public class GraphArea extends Pane {
 	public double getXPermaPan() {
 		return xPermaPan;
 	}
+
+	/**
+	 * @return yZoom
+	 */
+	public double getYZoom() {
+		return yZoom;
+	}
+
+	/**
+	 * @return yTempPan
+	 */
+	public double getYTempPan() {
+		return yTempPan;
+	}
+
+	/**
+	 * @return yPermaPan
+	 */
+	public double getYPermaPan() {
+		return yPermaPan;
+	}
 }
\ No newline at end of file
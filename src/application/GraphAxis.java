@@ -0,0 +1,207 @@
+package application;
+
+import java.text.DecimalFormat;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+import javafx.geometry.VPos;
+import javafx.scene.Group;
+import javafx.scene.shape.Line;
+import javafx.scene.text.Text;
+
+/**
+ * This class extends Group from JavaFX. It is a lightweight axis for a GraphArea, drawn as a line
+ * with tick marks and labels. Ticks are positioned arithmetically from the tick unit. The formatted
+ * label of every tick is cached, and each visible tick keeps its text node for as long as it stays
+ * on screen, so panning only moves nodes. Labels are formatted again only when the tick unit changes.
+ * Both are kept in rings of slots found from the index of a tick, so that looking them up neither
+ * boxes the index nor allocates an entry.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class GraphAxis extends Group {
+	
+	private static final int MAX_TICKS = 64;		// The most ticks that will be drawn.
+	private static final double TICK_LENGTH = 8;	// The length of a tick mark.
+	private static final double LABEL_GAP = 3;		// The distance between a tick mark and its label.
+	private static final int SLOTS = 128;			// The slots for labels on screen, a power of two above MAX_TICKS.
+	private static final int CACHE_SIZE = 512;		// The most formatted labels to remember, a power of two.
+	
+	private GraphArea ga;							// The GraphArea that this axis belongs to.
+	private boolean horizontal;						// Whether this is the x-axis or the y-axis.
+	private Line axisLine;							// The line along this axis.
+	private Line[] ticks;							// The tick marks, reused between draws.
+	private Text[] labels;							// The labels on screen, in the slot of their tick, or null.
+	private long[] labelTicks;						// The index of the tick of the label in each slot.
+	private Deque<Text> freeLabels;					// Labels that are not on screen and can be reused.
+	private String[] formatted;						// Formatted labels, in the slot of their tick, or null.
+	private long[] formattedTicks;					// The index of the tick of the formatted label in each slot.
+	private DecimalFormat format;					// The format for labels with the current tick unit.
+	private double unit;							// The tick unit that the labels were formatted with.
+	
+	/**
+	 * Create an axis belonging to the given GraphArea.
+	 * @param ga The GraphArea that this axis belongs to.
+	 * @param horizontal true for the x-axis, false for the y-axis.
+	 */
+	public GraphAxis (GraphArea ga, boolean horizontal) {
+		this.ga = ga;
+		this.horizontal = horizontal;
+		labels = new Text[SLOTS];
+		labelTicks = new long[SLOTS];
+		freeLabels = new ArrayDeque<Text>();
+		formatted = new String[CACHE_SIZE];
+		formattedTicks = new long[CACHE_SIZE];
+		
+		// Create the line along the axis and every tick mark up front.
+		axisLine = new Line();
+		axisLine.getStyleClass().add("axis-line");
+		getChildren().add(axisLine);
+		ticks = new Line[MAX_TICKS + 1];
+		for (int i = 0; i < ticks.length; i++) {
+			ticks[i] = new Line();
+			ticks[i].getStyleClass().add("axis-tick");
+			ticks[i].setVisible(false);
+			getChildren().add(ticks[i]);
+		}
+		
+		// The axis never needs to receive mouse events.
+		setMouseTransparent(true);
+		getStyleClass().add("graph-axis");
+	}
+	
+	/**
+	 * Position the line, ticks, and labels of this axis for the current viewport of its GraphArea.
+	 */
+	public void draw () {
+		
+		// Read the viewport in terms of this axis.
+		double step = horizontal ? ga.getXIncrement() : ga.getYIncrement();
+		double min = horizontal ? ga.getVisibleXMin() : ga.getVisibleYMin();
+		double max = horizontal ? ga.getVisibleXMax() : ga.getVisibleYMax();
+		double length = horizontal ? ga.getWidth() : ga.getHeight();
+		double position = horizontal ? ga.getYTranslation() : ga.getXTranslation();
+		
+		// Draw the line along the axis.
+		if (horizontal) {
+			setLine(axisLine, 0, position, length, position);
+		} else {
+			setLine(axisLine, position, 0, position, length);
+		}
+		
+		// If the tick unit changed, every label has to be formatted again.
+		if (step != unit) {
+			unit = step;
+			format = Ticks.labelFormat(step);
+			Arrays.fill(formatted, null);
+			for (int s = 0; s < SLOTS; s++) {
+				if (labels[s] != null) {
+					release(labels[s]);
+					labels[s] = null;
+				}
+			}
+		}
+		
+		// Determine the range of tick indices that are visible.
+		long first = 0;
+		long last = -1;
+		if (step > 0 && max > min && Double.isFinite(min / step) && Double.isFinite(max / step)) {
+			first = (long) Math.ceil(min / step);
+			last = Math.min((long) Math.floor(max / step), first + MAX_TICKS);
+		}
+		
+		// Release the labels of ticks that are no longer visible. The visible ticks are fewer than the
+		// slots, so no two of them share a slot.
+		for (int s = 0; s < SLOTS; s++) {
+			if (labels[s] != null && (labelTicks[s] < first || labelTicks[s] > last)) {
+				release(labels[s]);
+				labels[s] = null;
+			}
+		}
+		
+		// Position each visible tick and its label.
+		int used = 0;
+		for (long i = first; i <= last; i++) {
+			double p = horizontal ? i * step * ga.getXScale() + ga.getXTranslation()
+					: -i * step * ga.getYScale() + ga.getYTranslation();
+			int slot = (int) i & (SLOTS - 1);
+			Text label = labels[slot];
+			if (label == null) {
+				label = acquire(i);
+				labels[slot] = label;
+				labelTicks[slot] = i;
+			}
+			if (horizontal) {
+				setLine(ticks[used++], p, position, p, position + TICK_LENGTH);
+				label.setLayoutX(p - label.getLayoutBounds().getWidth() / 2);
+				label.setLayoutY(position + TICK_LENGTH + LABEL_GAP);
+			} else {
+				setLine(ticks[used++], position, p, position + TICK_LENGTH, p);
+				label.setLayoutX(position + TICK_LENGTH + LABEL_GAP);
+				label.setLayoutY(p);
+			}
+		}
+		
+		// Hide the tick marks that were not used.
+		for (int i = used; i < ticks.length; i++) {
+			ticks[i].setVisible(false);
+		}
+	}
+	
+	/**
+	 * Get a label for the tick with the given index, reusing a released label if there is one.
+	 * @param index The index of the tick.
+	 * @return The label, showing the value of the tick.
+	 */
+	private Text acquire (long index) {
+		
+		// Look up the formatted value of this tick, formatting it if its slot holds another tick.
+		int slot = (int) index & (CACHE_SIZE - 1);
+		String s = formatted[slot];
+		if (s == null || formattedTicks[slot] != index) {
+			s = format.format(index * unit);
+			formatted[slot] = s;
+			formattedTicks[slot] = index;
+		}
+		
+		// Reuse a released label, or create a new one.
+		Text t = freeLabels.poll();
+		if (t == null) {
+			t = new Text();
+			t.setTextOrigin(horizontal ? VPos.TOP : VPos.CENTER);
+			t.getStyleClass().add("axis-label");
+			getChildren().add(t);
+		}
+		if (!s.equals(t.getText())) {
+			t.setText(s);
+		}
+		t.setVisible(true);
+		return t;
+	}
+	
+	/**
+	 * Take a label off the screen so that it can be reused.
+	 * @param t The label.
+	 */
+	private void release (Text t) {
+		t.setVisible(false);
+		freeLabels.push(t);
+	}
+	
+	/**
+	 * Move a line to the given coordinates and show it.
+	 * @param l The line.
+	 * @param startX The x coordinate of the start of the line.
+	 * @param startY The y coordinate of the start of the line.
+	 * @param endX The x coordinate of the end of the line.
+	 * @param endY The y coordinate of the end of the line.
+	 */
+	private static void setLine (Line l, double startX, double startY, double endX, double endY) {
+		l.setStartX(startX);
+		l.setStartY(startY);
+		l.setEndX(endX);
+		l.setEndY(endY);
+		l.setVisible(true);
+	}
+}
@@ -0,0 +1,169 @@
+package application;
+
+import java.util.function.DoubleUnaryOperator;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * This class holds the Java Flight Recorder events of the graphing calculator, one nested class for
+ * each stage that can stutter: parsing an expression, sampling a graph, stroking it onto its canvas,
+ * updating, zooming, and panning a GraphArea, and animation frames that came too late. Each event
+ * is timed from begin to commit and carries the expression or viewport it worked on, so that a
+ * recording made with JFR.start can tie a slow frame to a particular expression or to a garbage
+ * collection. Events are filled in only if shouldCommit says they are being recorded, so they cost
+ * almost nothing otherwise.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class GraphEvents {
+	
+	private static final String CATEGORY = "Graphing Calculator";	// The category every event is shown under.
+	
+	/**
+	 * @param f A function.
+	 * @return The text of the function if it is an Expression, the name of its file if it is a
+	 * DataSeries, or a placeholder otherwise.
+	 */
+	static String describe (DoubleUnaryOperator f) {
+		if (f instanceof DataSeries) {
+			return ((DataSeries) f).getName();
+		}
+		return f instanceof Expression ? ((Expression) f).getText() : "f(x)";
+	}
+	
+	/**
+	 * This class is the base of events about a GraphArea, which carry the x and y ranges that it
+	 * shows once the event is over.
+	 */
+	abstract static class ViewportEvent extends Event {
+		@Label("Visible X Min")
+		double xMin;
+		
+		@Label("Visible X Max")
+		double xMax;
+		
+		@Label("Visible Y Min")
+		double yMin;
+		
+		@Label("Visible Y Max")
+		double yMax;
+		
+		/**
+		 * Record the ranges that a GraphArea shows.
+		 * @param ga The GraphArea.
+		 */
+		void setViewport (GraphArea ga) {
+			xMin = ga.getVisibleXMin();
+			xMax = ga.getVisibleXMax();
+			yMin = ga.getVisibleYMin();
+			yMax = ga.getVisibleYMax();
+		}
+	}
+	
+	/**
+	 * This class is the event of parsing or compiling one expression.
+	 */
+	@Name("application.Parse")
+	@Label("Parse Expression")
+	@Category(CATEGORY)
+	@Description("An expression is parsed into a function or compiled into an Expression")
+	static class Parse extends Event {
+		@Label("Expression")
+		String expression;
+		
+		@Label("Compiled")
+		boolean compiled;
+		
+		@Label("Succeeded")
+		boolean succeeded;
+	}
+	
+	/**
+	 * This class is the event of sampling one graph across the visible x range.
+	 */
+	@Name("application.Sample")
+	@Label("Sample Graph")
+	@Category(CATEGORY)
+	@Description("A graph evaluates its function across the visible x range")
+	static class Sample extends ViewportEvent {
+		@Label("Expression")
+		String expression;
+		
+		@Label("Samples")
+		int samples;
+	}
+	
+	/**
+	 * This class is the event of stroking one graph's samples onto its canvas.
+	 */
+	@Name("application.Render")
+	@Label("Render Graph")
+	@Category(CATEGORY)
+	@Description("A graph strokes its sampled points onto its canvas")
+	static class Render extends ViewportEvent {
+		@Label("Expression")
+		String expression;
+		
+		@Label("Samples")
+		int samples;
+	}
+	
+	/**
+	 * This class is the event of updating a GraphArea.
+	 */
+	@Name("application.Update")
+	@Label("Update Graph Area")
+	@Category(CATEGORY)
+	@Description("A GraphArea redraws whatever was invalidated since its last update")
+	static class Update extends ViewportEvent {
+		@Label("Graphs")
+		int graphs;
+		
+		@Label("Graphs Drawn")
+		int graphsDrawn;
+	}
+	
+	/**
+	 * This class is the event of zooming a GraphArea by one step.
+	 */
+	@Name("application.Zoom")
+	@Label("Zoom")
+	@Category(CATEGORY)
+	@Description("A GraphArea is zoomed in or out around the mouse")
+	static class Zoom extends ViewportEvent {
+		@Label("Zoomed In")
+		boolean in;
+	}
+	
+	/**
+	 * This class is the event of panning a GraphArea to where the mouse is.
+	 */
+	@Name("application.Pan")
+	@Label("Pan")
+	@Category(CATEGORY)
+	@Description("A GraphArea is panned to follow the mouse")
+	static class Pan extends ViewportEvent {
+	}
+	
+	/**
+	 * This class is the event of an animation frame that came more than half a frame late.
+	 */
+	@Name("application.MissedFrame")
+	@Label("Missed Frame")
+	@Category(CATEGORY)
+	@Description("An animation frame came more than half a frame later than a sixtieth of a second after the last one")
+	static class MissedFrame extends Event {
+		@Label("Interval")
+		@Timespan(Timespan.NANOSECONDS)
+		long interval;
+		
+		@Label("Previous Frame Work")
+		@Timespan(Timespan.NANOSECONDS)
+		long work;
+	}
+}
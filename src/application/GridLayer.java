@@ -0,0 +1,109 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.scene.Group;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Line;
+
+/**
+ * This class extends Group from JavaFX. It draws the subdividing lines across a GraphArea. Only
+ * the lines inside the visible part of the GraphArea are drawn, and the number of lines in each
+ * direction is capped, so drawing the grid costs the same no matter how far the user has zoomed
+ * or panned. Lines are pooled and reused between draws instead of being created each time.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class GridLayer extends Group {
+	
+	private static final int MAX_LINES = 64;	// The most lines that will be drawn in each direction.
+	
+	private GraphArea ga;						// The GraphArea that this grid belongs to.
+	private List<Line> verticals;				// Pool of lines running in the y direction.
+	private List<Line> horizontals;				// Pool of lines running in the x direction.
+	
+	/**
+	 * Create an empty grid belonging to the given GraphArea.
+	 * @param ga The GraphArea that this grid belongs to.
+	 */
+	public GridLayer (GraphArea ga) {
+		this.ga = ga;
+		verticals = new ArrayList<Line>();
+		horizontals = new ArrayList<Line>();
+		
+		// The grid never needs to receive mouse events.
+		setMouseTransparent(true);
+	}
+	
+	/**
+	 * Draw a subdividing line every half increment across the visible part of the GraphArea.
+	 */
+	public void draw () {
+		double width = ga.getWidth();
+		double height = ga.getHeight();
+		
+		// Position the lines in the x direction, then in the y direction.
+		int used = 0;
+		double step = Ticks.lineStep(ga.getXIncrement() / 2, ga.getVisibleXMin(), ga.getVisibleXMax(), MAX_LINES);
+		if (step > 0) {
+			double first = Math.ceil(ga.getVisibleXMin() / step);
+			for (int i = 0; i <= MAX_LINES && (first + i) * step <= ga.getVisibleXMax(); i++) {
+				double x = (first + i) * step * ga.getXScale() + ga.getXTranslation();
+				setLine(verticals, used++, x, 0, x, height);
+			}
+		}
+		hideFrom(verticals, used);
+		
+		used = 0;
+		step = Ticks.lineStep(ga.getYIncrement() / 2, ga.getVisibleYMin(), ga.getVisibleYMax(), MAX_LINES);
+		if (step > 0) {
+			double first = Math.ceil(ga.getVisibleYMin() / step);
+			for (int j = 0; j <= MAX_LINES && (first + j) * step <= ga.getVisibleYMax(); j++) {
+				double y = -(first + j) * step * ga.getYScale() + ga.getYTranslation();
+				setLine(horizontals, used++, 0, y, width, y);
+			}
+		}
+		hideFrom(horizontals, used);
+	}
+	
+	/**
+	 * Move the line at the given index of a pool, creating it if the pool is not that large yet.
+	 * @param pool The pool of lines.
+	 * @param index The index of the line in the pool.
+	 * @param startX The x coordinate of the start of the line.
+	 * @param startY The y coordinate of the start of the line.
+	 * @param endX The x coordinate of the end of the line.
+	 * @param endY The y coordinate of the end of the line.
+	 */
+	private void setLine (List<Line> pool, int index, double startX, double startY, double endX, double endY) {
+		Line l;
+		if (index < pool.size()) {
+			l = pool.get(index);
+		} else {
+			
+			// Set the stroke width and color of the new line, then add it to the pool and to this grid.
+			l = new Line();
+			l.setStrokeWidth(0.2);
+			l.setStroke(Color.GREY);
+			pool.add(l);
+			getChildren().add(l);
+		}
+		l.setStartX(startX);
+		l.setStartY(startY);
+		l.setEndX(endX);
+		l.setEndY(endY);
+		l.setVisible(true);
+	}
+	
+	/**
+	 * Hide every line in a pool from the given index onward.
+	 * @param pool The pool of lines.
+	 * @param index The index of the first line to hide.
+	 */
+	private static void hideFrom (List<Line> pool, int index) {
+		for (int i = index; i < pool.size(); i++) {
+			pool.get(i).setVisible(false);
+		}
+	}
+}
@@ -0,0 +1,379 @@
+package application;
+
+import java.util.Arrays;
+import java.util.function.DoubleUnaryOperator;
+
+import javafx.scene.paint.Color;
+
+/**
+ * This class extends Graph. It represents an inequality, such as "y < sin ( x )" or
+ * "x ^ 2 + y ^ 2 < 4", and the region of the viewport where it holds, which a RegionLayer shades in
+ * the color of this graph. When one side is y and the other side is a function of x, the function is
+ * sampled and drawn as the boundary like any other graph, and the region is filled from its samples
+ * by scanline polygon filling: each run of samples that are numbers is closed off along the top or
+ * bottom edge of the viewport into a polygon, every edge of the polygons is walked to find where it
+ * crosses each of a few scanlines per row of pixels, and the spans between pairs of crossings are
+ * filled. Otherwise, the difference of the two sides is evaluated at every corner of every pixel, a
+ * batch of corners at a time in parallel bands of rows, and each pixel is covered by the share of its
+ * corners where the inequality holds. Either way the edges of the region are anti-aliased, and the
+ * region is only found again after this graph has been sampled again. Whether or not an inequality
+ * is strict makes no difference to the shading, since the boundary itself has no area.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class Inequality extends Graph {
+	
+	private static final String[] RELATIONS = {"<=", ">=", "<", ">"};	// The relations, longest first.
+	private static final int SCANLINES = 4;		// How many scanlines cross each row of pixels.
+	
+	private GraphArea ga;						// The GraphArea that this graph belongs to.
+	private Expression difference;				// The side that should be less minus the other side, or null.
+	private boolean above;						// Whether the region is above the boundary, rather than below it.
+	private boolean approximate;				// Whether or not the region was found with FastMath.
+	private boolean shaded;						// Whether or not the region is up to date with the samples.
+	private int width, height;					// The size of the region in pixels.
+	private float[] coverage = new float[0];	// How much of each pixel the region covers, row by row.
+	
+	// The edges of the polygons, as their top and bottom points, and how many there are.
+	private double[] edges = new double[64];
+	private int edgeCount;
+	
+	// Where each scanline starts in the list of crossings, and the x coordinates of the crossings.
+	private int[] starts = new int[0];
+	private float[] crossings = new float[0];
+	
+	// Whether the inequality holds at each corner of each pixel, row by row.
+	private boolean[] corners = new boolean[0];
+	
+	/**
+	 * Set this graph's fields and style.
+	 * @param boundary The function of x that is the boundary, or NONE.
+	 * @param difference The side that should be less minus the other side, or null if there is a boundary.
+	 * @param above Whether the region is above the boundary, rather than below it.
+	 * @param ga The GraphArea that this graph belongs to.
+	 * @param color The color of this graph.
+	 */
+	private Inequality (DoubleUnaryOperator boundary, Expression difference, boolean above, GraphArea ga,
+			Color color) {
+		super(boundary, ga, color);
+		this.ga = ga;
+		this.difference = difference;
+		this.above = above;
+	}
+	
+	/**
+	 * @param text The text that the user entered.
+	 * @return Whether or not it is an inequality, such as "y < sin ( x )".
+	 */
+	public static boolean isInequality (String text) {
+		return text.indexOf('<') >= 0 || text.indexOf('>') >= 0;
+	}
+	
+	/**
+	 * Compile an inequality. If one side is y and the other does not use y, the other side is its
+	 * boundary. Otherwise the inequality may use x and y on both sides.
+	 * @param text The text of the inequality.
+	 * @param ga The GraphArea that the inequality will belong to.
+	 * @param color The color of the inequality.
+	 * @return The inequality.
+	 * @throws IllegalArgumentException If the text is not a valid inequality.
+	 */
+	public static Inequality compile (String text, GraphArea ga, Color color) {
+		
+		// Split the text around its only relation.
+		String relation = null;
+		int at = -1;
+		for (String r : RELATIONS) {
+			at = text.indexOf(r);
+			if (at >= 0) {
+				relation = r;
+				break;
+			}
+		}
+		if (relation == null) {
+			throw new IllegalArgumentException("Invalid inequality");
+		}
+		String left = text.substring(0, at).trim();
+		String right = text.substring(at + relation.length()).trim();
+		if (isInequality(left) || isInequality(right)) {
+			throw new IllegalArgumentException("Invalid inequality");
+		}
+		boolean less = relation.startsWith("<");
+		
+		// Look for y alone on one side, with a function of x on the other.
+		Parameters parameters = ga.getParameters();
+		Expression boundary = null;
+		if (left.equals("y")) {
+			boundary = Parser.compile(right, false, parameters);
+		} else if (right.equals("y")) {
+			boundary = Parser.compile(left, false, parameters);
+			less = !less;
+		}
+		if (boundary != null) {
+			return new Inequality(boundary, null, !less, ga, color);
+		}
+		
+		// Otherwise the region is wherever the lesser side minus the greater one is negative.
+		String lesser = less ? left : right, greater = less ? right : left;
+		Expression difference = lesser.isEmpty() || greater.isEmpty() ? null
+				: Parser.compile("( " + lesser + " ) - ( " + greater + " )", true, parameters);
+		if (difference == null) {
+			throw new IllegalArgumentException("Invalid inequality");
+		}
+		return new Inequality(NONE, difference, false, ga, color);
+	}
+	
+	@Override
+	protected void fill (SampleBuffer buffer, double from, double to) {
+		if (difference == null) {
+			super.fill(buffer, from, to);
+		} else {
+			buffer.clear();
+			approximate = ga.isApproximating();
+		}
+		shaded = false;
+	}
+	
+	/**
+	 * The samples were filled in by something other than sample, so the region has to be found again.
+	 */
+	@Override
+	public void markSampled () {
+		super.markSampled();
+		shaded = false;
+	}
+	
+	@Override
+	public boolean isApproximate () {
+		return difference == null ? super.isApproximate() : approximate;
+	}
+	
+	@Override
+	public long getParameterMask () {
+		return difference == null ? super.getParameterMask() : difference.getParameterMask();
+	}
+	
+	/**
+	 * Find the region for the current viewport unless it is already up to date. This graph should
+	 * already have been sampled for the current viewport.
+	 * @return How much of each pixel of the viewport the region covers, row by row.
+	 */
+	public float[] shade () {
+		int w = Math.max(1, (int) Math.ceil(ga.getWidth()));
+		int h = Math.max(1, (int) Math.ceil(ga.getHeight()));
+		if (shaded && w == width && h == height) {
+			return coverage;
+		}
+		width = w;
+		height = h;
+		if (coverage.length < w * h) {
+			coverage = new float[w * h];
+		} else {
+			Arrays.fill(coverage, 0, w * h, 0);
+		}
+		if (difference == null) {
+			scan(getSamples());
+		} else {
+			evaluate(approximate ? difference.approximate() : difference);
+		}
+		shaded = true;
+		return coverage;
+	}
+	
+	/**
+	 * Fill the region between the boundary and the top or bottom edge of the viewport.
+	 * @param samples The points of the boundary.
+	 */
+	private void scan (SampleBuffer samples) {
+		double xScale = ga.getXScale(), xTrans = ga.getXTranslation();
+		double yScale = ga.getYScale(), yTrans = ga.getYTranslation();
+		
+		// Close each run of points that are numbers off along the edge into a polygon. Points beyond the
+		// edges are pulled in to them, so a run can go straight across a jump, as the region does.
+		double edge = above ? -1 : height + 1;
+		edgeCount = 0;
+		int run = 0;
+		double firstX = 0, firstY = 0, lastX = 0, lastY = 0;
+		for (int i = 0; i <= samples.size(); i++) {
+			boolean valid = i < samples.size() && !Double.isNaN(samples.getY(i)) && !Double.isInfinite(samples.getY(i));
+			if (run > 0 && !valid) {
+				if (run > 1) {
+					addEdge(lastX, lastY, lastX, edge);
+					addEdge(firstX, edge, firstX, firstY);
+				}
+				run = 0;
+			}
+			if (!valid) {
+				continue;
+			}
+			double sx = samples.getX(i) * xScale + xTrans;
+			double sy = Math.max(-1, Math.min(height + 1, -samples.getY(i) * yScale + yTrans));
+			if (run++ == 0) {
+				firstX = sx;
+				firstY = sy;
+			} else {
+				addEdge(lastX, lastY, sx, sy);
+			}
+			lastX = sx;
+			lastY = sy;
+		}
+		
+		// Count the crossings of each scanline, then find where each scanline's crossings start.
+		int lines = height * SCANLINES;
+		if (starts.length < lines + 1) {
+			starts = new int[lines + 1];
+		} else {
+			Arrays.fill(starts, 0, lines + 1, 0);
+		}
+		for (int e = 0; e < edgeCount; e++) {
+			int top = firstScanline(edges[4 * e + 1]), bottom = Math.min(lines, firstScanline(edges[4 * e + 3]));
+			for (int s = Math.max(0, top); s < bottom; s++) {
+				starts[s + 1]++;
+			}
+		}
+		for (int s = 0; s < lines; s++) {
+			starts[s + 1] += starts[s];
+		}
+		if (crossings.length < starts[lines]) {
+			crossings = new float[starts[lines]];
+		}
+		
+		// Walk each edge down the scanlines that it crosses, which fills each scanline's crossings in.
+		int[] next = Arrays.copyOf(starts, lines);
+		for (int e = 0; e < edgeCount; e++) {
+			double x0 = edges[4 * e], y0 = edges[4 * e + 1], x1 = edges[4 * e + 2], y1 = edges[4 * e + 3];
+			int top = Math.max(0, firstScanline(y0)), bottom = Math.min(lines, firstScanline(y1));
+			double slope = (x1 - x0) / (y1 - y0);
+			for (int s = top; s < bottom; s++) {
+				double y = (s + 0.5) / SCANLINES;
+				crossings[next[s]++] = (float) (x0 + slope * (y - y0));
+			}
+		}
+		
+		// Fill between each pair of crossings, with each scanline covering its share of the row.
+		float weight = 1f / SCANLINES;
+		for (int s = 0; s < lines; s++) {
+			Arrays.sort(crossings, starts[s], starts[s + 1]);
+			int row = s / SCANLINES * width;
+			for (int c = starts[s]; c + 1 < starts[s + 1]; c += 2) {
+				fillSpan(row, crossings[c], crossings[c + 1], weight);
+			}
+		}
+	}
+	
+	/**
+	 * Add an edge of a polygon, skipping it if it is horizontal, since no scanline crosses it.
+	 * @param x0 The x coordinate of one end.
+	 * @param y0 The y coordinate of one end.
+	 * @param x1 The x coordinate of the other end.
+	 * @param y1 The y coordinate of the other end.
+	 */
+	private void addEdge (double x0, double y0, double x1, double y1) {
+		if (y0 == y1) {
+			return;
+		}
+		if (4 * edgeCount + 4 > edges.length) {
+			edges = Arrays.copyOf(edges, 2 * edges.length);
+		}
+		
+		// Edges are kept from top to bottom.
+		int e = 4 * edgeCount++;
+		boolean down = y0 < y1;
+		edges[e] = down ? x0 : x1;
+		edges[e + 1] = down ? y0 : y1;
+		edges[e + 2] = down ? x1 : x0;
+		edges[e + 3] = down ? y1 : y0;
+	}
+	
+	/**
+	 * @param y A y coordinate on the screen.
+	 * @return The first scanline at or below it. Each scanline is at the middle of its share of its row.
+	 */
+	private static int firstScanline (double y) {
+		return (int) Math.ceil(y * SCANLINES - 0.5);
+	}
+	
+	/**
+	 * Cover part of a row of pixels, weighting the pixels at each end by how much of them the span covers.
+	 * @param row The index of the first pixel of the row.
+	 * @param a The x coordinate where the span starts.
+	 * @param b The x coordinate where the span ends.
+	 * @param weight How much the span covers of each pixel it crosses entirely.
+	 */
+	private void fillSpan (int row, double a, double b, float weight) {
+		a = Math.max(0, a);
+		b = Math.min(width, b);
+		if (!(b > a)) {
+			return;
+		}
+		int ia = (int) a, ib = (int) b;
+		if (ia == ib) {
+			coverage[row + ia] += (float) (b - a) * weight;
+			return;
+		}
+		coverage[row + ia] += (float) (ia + 1 - a) * weight;
+		for (int x = ia + 1; x < ib; x++) {
+			coverage[row + x] += weight;
+		}
+		if (ib < width) {
+			coverage[row + ib] += (float) (b - ib) * weight;
+		}
+	}
+	
+	/**
+	 * Evaluate the difference of the two sides at every corner of every pixel, splitting the rows of
+	 * corners into bands that are evaluated in parallel, then cover each pixel by the share of its
+	 * corners where the difference is negative.
+	 * @param e The difference of the two sides.
+	 */
+	private void evaluate (Expression e) {
+		double xScale = ga.getXScale(), xTrans = ga.getXTranslation();
+		double yScale = ga.getYScale(), yTrans = ga.getYTranslation();
+		int columns = width + 1, rows = height + 1;
+		if (corners.length < rows * columns) {
+			corners = new boolean[rows * columns];
+		}
+		boolean[] out = corners;
+		Parallel.bands(rows, (start, end) -> {
+			double[] xs = new double[Expression.BATCH], values = new double[Expression.BATCH];
+			double[][] scratch = new double[e.getRegisters()][Expression.BATCH];
+			for (int r = start; r < end; r++) {
+				double y = (yTrans - r) / yScale;
+				for (int c = 0; c < columns; c += Expression.BATCH) {
+					int n = Math.min(Expression.BATCH, columns - c);
+					for (int i = 0; i < n; i++) {
+						xs[i] = (c + i - xTrans) / xScale;
+					}
+					e.evaluate(xs, y, values, n, scratch);
+					for (int i = 0; i < n; i++) {
+						out[r * columns + c + i] = values[i] < 0;
+					}
+				}
+			}
+		});
+		
+		// A pixel is covered by a quarter for each of its corners inside the region.
+		for (int r = 0; r < height; r++) {
+			for (int c = 0; c < width; c++) {
+				int i = r * columns + c;
+				int inside = (out[i] ? 1 : 0) + (out[i + 1] ? 1 : 0) + (out[i + columns] ? 1 : 0)
+						+ (out[i + columns + 1] ? 1 : 0);
+				coverage[r * width + c] = inside / 4f;
+			}
+		}
+	}
+	
+	/**
+	 * @return Whether or not the region is up to date with the samples of this graph.
+	 */
+	public boolean isShaded () {
+		return shaded;
+	}
+	
+	/**
+	 * @return Whether or not this inequality uses y on both sides or on neither, so that it has no boundary.
+	 */
+	public boolean isImplicit () {
+		return difference != null;
+	}
+}
@@ -1,14 +1,25 @@
 package application;
 
-import java.util.function.Function;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.DoubleUnaryOperator;
 
 import javafx.animation.FadeTransition;
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.scene.CacheHint;
 import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.Slider;
 import javafx.scene.control.TextField;
 import javafx.scene.effect.ColorAdjust;
+import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.MouseEvent;
@@ -25,17 +36,31 @@ import javafx.util.Duration;
  * This class represents a place for the user to input functions that they want 
  * graphed. It has fields for the graph area it belongs to, the number of rows
  * that it contains, informational text, and an info box. It has a private class
- * ButtonBox that is used for each input row. It has methods for removing rows, 
- * adding rows, and displaying info.
+ * ButtonBox that is used for each input row, and a private class SliderBox with a
+ * slider for each parameter that the graphs use. It has methods for removing rows, 
+ * adding rows, displaying info, and saving and restoring rows.
  * @author Mark Kikta
  * @version 1.0
  */
 public class InputBox extends VBox {
 	
+	private static final char TIME = 't';			// The parameter whose slider can be played.
+	private static final String PLAY = "\u25B6";		// The text of the button that plays time.
+	private static final String PAUSE = "\u275A\u275A";	// The text of the button that pauses time.
+	
+	// Starts integrals one at a time in the background, so that a cancelled one never delays the next for long.
+	private static final ExecutorService INTEGRATION = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "integral");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
 	private GraphArea ga;		// The graph area that this belongs to.
 	private int rows;			// The number of rows in this.
 	private static Text txt;	// The text that the info box will display when clicked.	
 	private static InfoBox ib;	// Displays information on how to use calculator.
+	private static Image xImage;	// The image on the button of every row, loaded once.
+	private VBox sliders;		// The sliders for the parameters that the graphs use, below the rows.
 	
 	/**
 	 * Set the fields, write the informational text, and create the initial row.
@@ -56,9 +81,19 @@ public class InputBox extends VBox {
 		getChildren().add(bb);
 		rows = 1;
 		
-		// Create and add the infobox and its text.
+		// Create and add the sliders, which start out empty, and the infobox. Its text is only created the first time it is displayed.
+		sliders = new VBox(5);
 		ib = new InfoBox(this);
-		getChildren().add(ib);
+		getChildren().addAll(sliders, ib);
+	}
+	
+	/**
+	 * Create the informational text if it has not been created yet.
+	 */
+	private static void createInfo () {
+		if (txt != null) {
+			return;
+		}
 		txt = new Text();
 		txt.setText("	Write your function as an expression of x. Type spaces between all \r\n" + 
 				"	characters and symbols. Supported functions include: \r\n" + 
@@ -66,7 +101,15 @@ public class InputBox extends VBox {
 				"	\"log\", \"ln\", \"max\", \"min\", \"round\", \"sin\", \"sinh\", \"sqrt\",\"tan\", \"tanh\".\r\n" + 
 				"	Single-argument functions should be entered in the form \"sin ( x )\".\r\n" + 
 				"	Two-argument functions should be entered \"max ( x , 2 )\", again \r\n" +
-				"	making sure to put spaces between each character and symbol.");
+				"	making sure to put spaces between each character and symbol.\r\n" +
+				"	Enter \"dy/dx = x * y\" to see the slope field of a differential \r\n" +
+				"	equation, then click on it to draw the solution through a point.\r\n" +
+				"	Enter \"y < sin ( x )\" or \"x ^ 2 + y ^ 2 < 4\" to shade the region \r\n" +
+				"	where an inequality holds, or \"f(z) = ( z ^ 2 - 1 ) / ( z - i )\" to \r\n" +
+				"	color each point z by the argument and modulus of a complex function.\r\n" +
+				"	Any other single letter, as in \"a * sin ( b * x )\", is a parameter \r\n" +
+				"	that can be changed with the slider that appears for it. The \r\n" +
+				"	slider for t can also be played, as in \"sin ( x - t )\", to animate it.");
 		txt.setStroke(Color.WHITE);
 	}
 	
@@ -86,28 +129,117 @@ public class InputBox extends VBox {
 	 */
 	public void addRow (ButtonBox bb) {
 		
-		// Determine the number of children in this input box before the first text field.
-		int mod;
-		if (!getChildren().contains(txt)) {
-			mod = 2;
-		} else {
-			mod = 3;
+		// Find the bottom row, which is the last button box.
+		ButtonBox last = null;
+		for (Object child : getChildren()) {
+			if (child instanceof ButtonBox) {
+				last = (ButtonBox) child;
+			}
 		}
 		
 		// Add a new row after this one.
-		if (!((ButtonBox) getChildren().get(getChildren().size() - mod)).getTextField().getCharacters().toString().equals("")) {
+		if (!last.getTextField().getCharacters().toString().equals("")) {
 			int index = getChildren().indexOf(bb);
 			getChildren().add(index + 1, new ButtonBox());
 			rows++;
 		}
 	}
 	
+	/**
+	 * @return The expression, color, and bounds of every row that has a graph, from top to bottom.
+	 */
+	public List<Session.Entry> getEntries () {
+		List<Session.Entry> entries = new ArrayList<Session.Entry>();
+		for (Object child : getChildren()) {
+			if (child instanceof ButtonBox && ga.getGraphs().contains(((ButtonBox) child).g)) {
+				ButtonBox bb = (ButtonBox) child;
+				entries.add(new Session.Entry(bb.tf.getText(), bb.g.getColor(), bb.bounds.getText()));
+			}
+		}
+		return entries;
+	}
+	
+	/**
+	 * Fill the bottom row with a saved expression and bounds, graph it in its saved color, and
+	 * add a new row below it.
+	 * @param entry The saved row.
+	 */
+	public void addEntry (Session.Entry entry) {
+		
+		// The bottom row is the last button box, which comes before the info box.
+		ButtonBox bb = null;
+		for (Object child : getChildren()) {
+			if (child instanceof ButtonBox) {
+				bb = (ButtonBox) child;
+			}
+		}
+		bb.tf.setText(entry.getExpression());
+		bb.bounds.setText(entry.getBounds());
+		bb.graph(entry.getColor());
+		bb.addNewRow();
+	}
+	
+	/**
+	 * Show a slider for every parameter that a graph in this input box uses, and only for those,
+	 * in order of their names.
+	 */
+	private void updateSliders () {
+		long mask = 0;
+		for (Object child : getChildren()) {
+			if (child instanceof ButtonBox && ga.getGraphs().contains(((ButtonBox) child).g)) {
+				mask |= ((ButtonBox) child).g.getParameterMask();
+			}
+		}
+		
+		// Remove the sliders that are no longer used, then add the missing ones where they belong.
+		long shown = 0;
+		for (int i = sliders.getChildren().size() - 1; i >= 0; i--) {
+			SliderBox sb = (SliderBox) sliders.getChildren().get(i);
+			if ((mask & 1L << sb.slot) == 0) {
+				sb.pause();
+				sliders.getChildren().remove(i);
+			} else {
+				shown |= 1L << sb.slot;
+			}
+		}
+		for (int slot = 0, index = 0; slot < Parameters.COUNT; slot++) {
+			if ((mask & 1L << slot) != 0) {
+				if ((shown & 1L << slot) == 0) {
+					sliders.getChildren().add(index, new SliderBox(slot));
+				}
+				index++;
+			}
+		}
+	}
+	
+	/**
+	 * Integrate again every graph that uses any of the given parameters and has bounds once the
+	 * parameters have settled, and until then stop showing their integrals, which no longer hold.
+	 * @param mask The slots of the parameters, one bit each.
+	 * @param settled Whether or not the parameters have stopped changing.
+	 */
+	private void integrateDependents (long mask, boolean settled) {
+		for (Object child : getChildren()) {
+			if (child instanceof ButtonBox) {
+				ButtonBox bb = (ButtonBox) child;
+				if (bb.g != null && (bb.g.getParameterMask() & mask) != 0) {
+					if (settled) {
+						bb.integrate();
+					} else {
+						bb.forgetIntegral();
+					}
+				}
+			}
+		}
+	}
+	
 	/**
 	 * Change whether or not the informational text is displayed.
 	 */
 	public void displayInfo() {
 		
 		// If the info is not displayed, display it. If it is displayed, remove it.
+		createInfo();
 		if (!getChildren().contains(txt)) {
 			getChildren().add(txt);
 			ib.setOpacity(1);
@@ -118,18 +250,22 @@ public class InputBox extends VBox {
 	}
 	
 	/**
-	 * This private class extends HBox from JavaFX. It has a textfield for entering functions
-	 * and a button for deleting/clearing its corresponding textfield. It has fields for its 
-	 * textfield, button, and the graph currently associated with it. It has methods to add a 
-	 * new row after itself, remove itself from an input box, and to graph its contents as a
-	 * function.
+	 * This private class extends HBox from JavaFX. It has a textfield for entering functions,
+	 * a textfield for entering bounds to integrate between, and a button for deleting/clearing
+	 * its corresponding textfield. It has fields for its textfields, button, integral label, and
+	 * the graph currently associated with it. It has methods to add a new row after itself, remove
+	 * itself from an input box, graph its contents as a function, and integrate that function.
 	 * @author Mark Kikta
 	 * @version 1.0
 	 */
 	private class ButtonBox extends HBox {
-		private TextField tf;	// The textfield for entering functions.
-		private Button b;		// The button that deletes/clears this row.
-		private Graph g;		// The graph currently associated with this.
+		private TextField tf;		// The textfield for entering functions.
+		private TextField bounds;	// The textfield for entering bounds to integrate between.
+		private Button b;			// The button that deletes/clears this row.
+		private Label integral;		// Shows the integral between the bounds.
+		private long integrations;	// Counts the integrals asked for, so that only the newest one is shown.
+		private AtomicBoolean cancelled = new AtomicBoolean();	// Cancels the integral being found, if any.
+		private Graph g;			// The graph currently associated with this.
 		
 		/**
 		 * Instantiate the textfield and button, set their listeners, and add them
@@ -142,7 +278,10 @@ public class InputBox extends VBox {
 			
 			// Create a new button and replace it with an x.
 			b = new Button();
-			ImageView x = new ImageView("application/x.png");
+			if (xImage == null) {
+				xImage = new Image("application/x.png");
+			}
+			ImageView x = new ImageView(xImage);
 			
 			// These color adjusts will be used when interacting with the button.
 			ColorAdjust grey = new ColorAdjust();
@@ -177,7 +316,9 @@ public class InputBox extends VBox {
 					
 					tf.clear();
 					ga.removeGraph(g);
+					forgetIntegral();
 					removeThisRow();
+					updateSliders();
 				}
 			});
 			
@@ -192,30 +333,55 @@ public class InputBox extends VBox {
 			tf.setOnKeyPressed( event -> {
 				if (event.getCode() == KeyCode.ENTER) {
 					addNewRow();
-					graph();
+					graph(new Color(Math.random(), Math.random(), Math.random(), 1));
 				}
 			});
 			
+			// Create a new textfield that integrates the graph between its bounds when the user presses enter.
+			bounds = new TextField();
+			bounds.setPromptText("\u222b a , b");
+			bounds.setPrefWidth(80);
+			bounds.setOnKeyPressed( event -> {
+				if (event.getCode() == KeyCode.ENTER) {
+					integrate();
+				}
+			});
+			integral = new Label();
+			integral.getStyleClass().add("integral-label");
+			
 			// Add these nodes to this button box, and create a style class for it.
 			getChildren().add(tf);
+			getChildren().add(bounds);
 			getChildren().add(b);
+			getChildren().add(integral);
 			getStyleClass().add("button-box");
 		}
 		
 		/**
 		 * Graph the contents of the textfield.
+		 * @param color The color of the graph.
 		 */
-		private void graph() {
+		private void graph(Color color) {
 			
 			// Remove the current graph.
 			ga.removeGraph(g);
 			
-			// Parse the contents of the textfield, then add the graph to the graph area and draw it.
+			// Parse the contents of the textfield, then add the graph to the graph area, which draws it.
 			try {
-				Function<Double, Double> f = Parser.parse(tf.getCharacters().toString());
-				g = new Graph(f, ga, new Color(Math.random(), Math.random(), Math.random(), 1));
+				String text = tf.getCharacters().toString();
+				if (SlopeField.isEquation(text)) {
+					g = new SlopeField(Parser.compile(SlopeField.rightSide(text), true, ga.getParameters()), ga, color);
+				} else if (DomainColoring.isFunction(text)) {
+					g = new DomainColoring(Parser.compileComplex(DomainColoring.rightSide(text), ga.getParameters()), ga,
+							color);
+				} else if (Inequality.isInequality(text)) {
+					g = Inequality.compile(text, ga, color);
+				} else {
+					g = new Graph(Parser.compile(text, false, ga.getParameters()), ga, color);
+				}
 				ga.addGraph(g);
-				g.draw();
+				integrate();
+				updateSliders();
 			} 
 			
 			// If an error occurs, display an error message to the user.
@@ -248,9 +414,73 @@ public class InputBox extends VBox {
 						getChildren().remove(errorMessage);
 					}
 				});
+				
+				// The graph that was removed may have been the last one to use a parameter.
+				updateSliders();
 			}
 		}
 
+		/**
+		 * Shade the area under the graph between the bounds that were entered, and integrate the
+		 * graph between them in the background. Clearing the bounds removes the shading.
+		 */
+		private void integrate () {
+			String text = bounds.getCharacters().toString().trim();
+			if (g != null) {
+				ga.unshade(g);
+			}
+			forgetIntegral();
+			if (g == null || g instanceof SlopeField || g instanceof Inequality || g instanceof DomainColoring
+					|| text.equals("")) {
+				return;
+			}
+			
+			// The bounds are two numbers separated by a comma.
+			String[] parts = text.split(",");
+			double lower, upper;
+			try {
+				if (parts.length != 2) {
+					throw new NumberFormatException();
+				}
+				lower = Double.parseDouble(parts[0].trim());
+				upper = Double.parseDouble(parts[1].trim());
+			} catch (NumberFormatException e) {
+				integral.setText("Invalid bounds!");
+				return;
+			}
+			ga.shade(g, lower, upper);
+			
+			// Integrate off of the application thread, and show the result or the failure only if no newer integral was asked for.
+			long request = integrations;
+			DoubleUnaryOperator f = g.getFunction();
+			AtomicBoolean stop = cancelled;
+			CompletableFuture.supplyAsync(() -> Integrator.integrate(f, lower, upper, stop), INTEGRATION).whenComplete((r, e) -> {
+				Platform.runLater(() -> {
+					if (integrations != request) {
+						return;
+					}
+					if (e == null) {
+						integral.setText(String.format("\u222b = %.10g \u00b1 %.2g (%d evaluations)", r.getValue(),
+								r.getError(), r.getEvaluations()));
+					} else {
+						Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+						integral.setText("Could not integrate: " + cause.getMessage());
+					}
+				});
+			});
+		}
+		
+		/**
+		 * Stop showing the integral, and cancel one that is still being found, such as while the
+		 * parameters that it depends on are changing.
+		 */
+		private void forgetIntegral () {
+			integrations++;
+			cancelled.set(true);
+			cancelled = new AtomicBoolean();
+			integral.setText("");
+		}
+		
 		/**
 		 * Call InputBox.removeRow on this if this is not the only button box.
 		 */
@@ -276,4 +506,100 @@ public class InputBox extends VBox {
 			return tf;
 		}
 	}
+	
+	/**
+	 * This private class extends HBox from JavaFX. It has a slider for the value of one parameter,
+	 * and labels for its name and its value. Moving the slider only samples again the graphs that
+	 * use the parameter, which read its new value from their compiled slots, and once the slider
+	 * stops it integrates them again.
+	 * @author Mark Kikta
+	 * @version 1.0
+	 */
+	private class SliderBox extends HBox {
+		private int slot;			// The slot of the parameter.
+		private Slider slider;		// Sets the value of the parameter.
+		private Label value;		// Shows the value of the parameter.
+		private Animator animator;	// Advances the parameter while it plays, if it is time.
+		
+		/**
+		 * Create the slider, starting at the current value of the parameter, and its labels.
+		 * @param slot The slot of the parameter.
+		 */
+		private SliderBox (int slot) {
+			this.slot = slot;
+			char name = Parameters.name(slot);
+			double current = ga.getParameters().get(name);
+			slider = new Slider(Math.min(-10, current), Math.max(10, current), current);
+			slider.setPrefWidth(200);
+			value = new Label(String.format("%.3f", current));
+			
+			// Sample the dependent graphs on every change, but only integrate them once the value settles.
+			// The frames of an animation are not the user interacting, so they are sampled exactly.
+			slider.valueProperty().addListener((observable, old, now) -> {
+				ga.getParameters().set(name, now.doubleValue());
+				value.setText(String.format("%.3f", now.doubleValue()));
+				ga.parametersChanged(1L << slot, animator == null || !animator.isPlaying());
+				integrateDependents(1L << slot, !slider.isValueChanging());
+			});
+			slider.valueChangingProperty().addListener((observable, was, changing) -> {
+				if (!changing) {
+					integrateDependents(1L << slot, true);
+				}
+			});
+			
+			// Add these nodes to this slider box, and create a style class for it.
+			getChildren().addAll(new Label(String.valueOf(name)), slider, value);
+			getStyleClass().add("slider-box");
+			if (name == TIME) {
+				addPlayer();
+			}
+		}
+		
+		/**
+		 * Add a button that plays and pauses time, a slider for how fast it passes, and a label
+		 * showing how many frames were missed while it played. While playing, every frame moves the
+		 * slider forward, wrapping around at its end, so that the graphs are sampled again through
+		 * the same listener as when it is dragged, and are only integrated once it is paused.
+		 */
+		private void addPlayer () {
+			Label missed = new Label();
+			animator = new Animator(seconds -> {
+				double next = slider.getValue() + seconds;
+				if (next > slider.getMax()) {
+					next = slider.getMin() + (next - slider.getMin()) % (slider.getMax() - slider.getMin());
+				}
+				slider.setValueChanging(true);
+				slider.setValue(next);
+				missed.setText(animator.getMissed() + " missed");
+			});
+			
+			// Create the button that plays and pauses time.
+			Button play = new Button(PLAY);
+			play.setOnAction(event -> {
+				if (animator.isPlaying()) {
+					pause();
+					play.setText(PLAY);
+				} else {
+					animator.play();
+					play.setText(PAUSE);
+				}
+			});
+			
+			// Create the slider for how many seconds of time pass in each second, from a quarter to four.
+			Slider speed = new Slider(0.25, 4, 1);
+			speed.setPrefWidth(60);
+			speed.valueProperty().addListener((observable, old, now) -> animator.setSpeed(now.doubleValue()));
+			getChildren().addAll(play, speed, missed);
+		}
+		
+		/**
+		 * Stop time from passing, if it is, and integrate the graphs that depend on it.
+		 */
+		private void pause () {
+			if (animator != null && animator.isPlaying()) {
+				animator.pause();
+				slider.setValueChanging(false);
+			}
+		}
+	}
 }
\ No newline at end of file
@@ -0,0 +1,281 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * This class integrates functions numerically with adaptive Gauss-Kronrod quadrature. Each
+ * interval is estimated with the 15-point Kronrod rule and its embedded 7-point Gauss rule, whose
+ * difference gives an error estimate, and the interval with the largest error is bisected until the
+ * total error is small enough, so evaluations are only spent where the integrand is hard. The range
+ * is split into parts that are integrated in parallel on threads of their own, so that integrating
+ * never holds up the common pool that graphs are drawn with. An integration can be cancelled from
+ * any thread through its flag, which makes every part stop after its next bisection. It has a nested
+ * class for the result.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class Integrator {
+	
+	private static final double REL_TOL = 1e-10;			// The error allowed relative to the integral of |f|.
+	private static final double ABS_TOL = 1e-12;			// The error that is always allowed.
+	private static final int MAX_SEGMENTS = 8192;			// The most segments that one part is bisected into.
+	private static final int MIN_PARTS = 16;				// The fewest parts that the range is split into.
+	private static final double EPSILON = Math.ulp(1.0);	// The relative precision of a double.
+	private static final int THREADS = Runtime.getRuntime().availableProcessors();	// How many parts run at once.
+	
+	// Integrates the parts of every integration.
+	private static final ExecutorService PARTS = Executors.newFixedThreadPool(THREADS, r -> {
+		Thread thread = new Thread(r, "integration");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	// The nodes of the 15-point Kronrod rule on [-1, 1]. The odd ones are the nodes of the 7-point Gauss rule.
+	private static final double[] XGK = {
+			0.991455371120812639206854697526329, 0.949107912342758524526189684047851,
+			0.864864423359769072789712788640926, 0.741531185599394439863864773280788,
+			0.586087235467691130294144845693013, 0.405845151377397166906606412076961,
+			0.207784955007898467600689403773245, 0.000000000000000000000000000000000};
+	
+	// The weights of the 15-point Kronrod rule.
+	private static final double[] WGK = {
+			0.022935322010529224963732008058970, 0.063092092629978553290700663189204,
+			0.104790010322250183839876322541518, 0.140653259715525918745189590510238,
+			0.169004726639267902826583426598550, 0.190350578064785409913256402421014,
+			0.204432940075298892414161999234649, 0.209482141084727828012999174891714};
+	
+	// The weights of the 7-point Gauss rule.
+	private static final double[] WG = {
+			0.129484966168869693270611432679082, 0.279705391489276667901467771423780,
+			0.381830050505118944950369775488975, 0.417959183673469387755102040816327};
+	
+	/**
+	 * Integrate a function from a to b, splitting the range into enough parts to keep every processor busy.
+	 * @param f The function, which is called from several threads at once.
+	 * @param a The lower bound.
+	 * @param b The upper bound.
+	 * @return The integral, its estimated error, and how many evaluations it took.
+	 */
+	public static Result integrate (DoubleUnaryOperator f, double a, double b) {
+		return integrate(f, a, b, new AtomicBoolean());
+	}
+	
+	/**
+	 * Integrate a function from a to b, splitting the range into enough parts to keep every processor
+	 * busy, unless it is cancelled.
+	 * @param f The function, which is called from several threads at once.
+	 * @param a The lower bound.
+	 * @param b The upper bound.
+	 * @param cancelled Set to stop the integration as soon as possible, from any thread.
+	 * @return The integral, its estimated error, and how many evaluations it took.
+	 * @throws CancellationException If cancelled, or if interrupted while waiting for the parts.
+	 */
+	public static Result integrate (DoubleUnaryOperator f, double a, double b, AtomicBoolean cancelled) {
+		return integrate(f, a, b, Math.max(MIN_PARTS, 4 * THREADS), cancelled);
+	}
+	
+	/**
+	 * Integrate a function from a to b.
+	 * @param f The function, which is called from several threads at once.
+	 * @param a The lower bound.
+	 * @param b The upper bound.
+	 * @param parts How many equal parts to split the range into and integrate in parallel.
+	 * @param cancelled Set to stop the integration as soon as possible, from any thread.
+	 * @return The integral, its estimated error, and how many evaluations it took.
+	 * @throws CancellationException If cancelled, or if interrupted while waiting for the parts.
+	 */
+	public static Result integrate (DoubleUnaryOperator f, double a, double b, int parts, AtomicBoolean cancelled) {
+		if (a == b) {
+			return new Result(0, 0, 0);
+		}
+		
+		// Integrate each part on its own.
+		List<Callable<Result>> tasks = new ArrayList<Callable<Result>>();
+		double width = (b - a) / parts;
+		for (int i = 0; i < parts; i++) {
+			double from = a + i * width;
+			double to = i == parts - 1 ? b : a + (i + 1) * width;
+			tasks.add(() -> integratePart(f, from, to, ABS_TOL / parts, cancelled));
+		}
+		
+		// Add up the parts.
+		double value = 0, error = 0;
+		long evaluations = 0;
+		for (Result r : Parallel.invokeAll(PARTS, tasks)) {
+			value += r.getValue();
+			error += r.getError();
+			evaluations += r.getEvaluations();
+		}
+		return new Result(value, error, evaluations);
+	}
+	
+	/**
+	 * Integrate one part of the range, bisecting the segment with the largest error until the total
+	 * error is small enough or there are too many segments.
+	 * @param f The function.
+	 * @param a The lower bound of the part.
+	 * @param b The upper bound of the part.
+	 * @param absTol The error that is always allowed for this part.
+	 * @param cancelled Whether or not the integration has been cancelled.
+	 * @return The integral of the part, its estimated error, and how many evaluations it took.
+	 * @throws CancellationException If the integration was cancelled.
+	 */
+	private static Result integratePart (DoubleUnaryOperator f, double a, double b, double absTol,
+			AtomicBoolean cancelled) {
+		PriorityQueue<Segment> queue = new PriorityQueue<Segment>(
+				(s, t) -> Double.compare(t.error, s.error));
+		Segment first = new Segment(f, a, b);
+		queue.add(first);
+		double value = first.value, error = first.error, absolute = first.absolute;
+		int evaluations = 15;
+		while (error > Math.max(absTol, REL_TOL * absolute) && queue.size() < MAX_SEGMENTS) {
+			if (cancelled.get()) {
+				throw new CancellationException("The integration was cancelled");
+			}
+			
+			// Bisect the worst segment, and stop if it cannot be made any smaller.
+			Segment worst = queue.poll();
+			double middle = (worst.a + worst.b) / 2;
+			if (!(middle > Math.min(worst.a, worst.b) && middle < Math.max(worst.a, worst.b))) {
+				queue.add(worst);
+				break;
+			}
+			Segment left = new Segment(f, worst.a, middle);
+			Segment right = new Segment(f, middle, worst.b);
+			evaluations += 30;
+			value += left.value + right.value - worst.value;
+			error += left.error + right.error - worst.error;
+			absolute += left.absolute + right.absolute - worst.absolute;
+			queue.add(left);
+			queue.add(right);
+			
+			// A result that is not a number cannot be improved.
+			if (Double.isNaN(value) || Double.isInfinite(value)) {
+				break;
+			}
+		}
+		
+		// Add the segments up again, since the running totals lose precision.
+		value = 0;
+		error = 0;
+		for (Segment s : queue) {
+			value += s.value;
+			error += s.error;
+		}
+		return new Result(value, error, evaluations);
+	}
+	
+	/**
+	 * This class is one segment of the range with its 15-point Kronrod estimate.
+	 */
+	private static class Segment {
+		private double a, b;			// The bounds of the segment.
+		private double value;			// The Kronrod estimate of the integral.
+		private double error;			// The estimated error of the integral.
+		private double absolute;		// The Kronrod estimate of the integral of |f|.
+		
+		/**
+		 * Estimate the integral of a function over a segment, following QUADPACK's QK15.
+		 * @param f The function.
+		 * @param a The lower bound of the segment.
+		 * @param b The upper bound of the segment.
+		 */
+		private Segment (DoubleUnaryOperator f, double a, double b) {
+			this.a = a;
+			this.b = b;
+			double center = (a + b) / 2;
+			double half = (b - a) / 2;
+			double[] f1 = new double[7], f2 = new double[7];
+			
+			// Evaluate at the center, then at each pair of nodes.
+			double fc = f.applyAsDouble(center);
+			double gauss = fc * WG[3];
+			double kronrod = fc * WGK[7];
+			double abs = Math.abs(kronrod);
+			for (int j = 0; j < 7; j++) {
+				double x = half * XGK[j];
+				f1[j] = f.applyAsDouble(center - x);
+				f2[j] = f.applyAsDouble(center + x);
+				double sum = f1[j] + f2[j];
+				kronrod += WGK[j] * sum;
+				abs += WGK[j] * (Math.abs(f1[j]) + Math.abs(f2[j]));
+				if (j % 2 == 1) {
+					gauss += WG[j / 2] * sum;
+				}
+			}
+			
+			// The error is scaled by how much the function varies over the segment.
+			double mean = kronrod / 2;
+			double asc = WGK[7] * Math.abs(fc - mean);
+			for (int j = 0; j < 7; j++) {
+				asc += WGK[j] * (Math.abs(f1[j] - mean) + Math.abs(f2[j] - mean));
+			}
+			value = kronrod * half;
+			absolute = abs * Math.abs(half);
+			asc *= Math.abs(half);
+			error = Math.abs((kronrod - gauss) * half);
+			if (asc != 0 && error != 0) {
+				error = asc * Math.min(1, Math.pow(200 * error / asc, 1.5));
+			}
+			if (absolute > Double.MIN_NORMAL / (50 * EPSILON)) {
+				error = Math.max(50 * EPSILON * absolute, error);
+			}
+			if (Double.isNaN(error)) {
+				error = Double.POSITIVE_INFINITY;
+			}
+		}
+	}
+	
+	/**
+	 * This class is the result of an integration. It has fields for the value of the integral,
+	 * its estimated error, and the number of evaluations it took.
+	 * @author Mark Kikta
+	 * @version 1.0
+	 */
+	public static class Result {
+		private double value;		// The value of the integral.
+		private double error;		// The estimated absolute error of the value.
+		private long evaluations;	// How many times the function was evaluated.
+		
+		/**
+		 * Create a result.
+		 * @param value The value of the integral.
+		 * @param error The estimated absolute error of the value.
+		 * @param evaluations How many times the function was evaluated.
+		 */
+		public Result (double value, double error, long evaluations) {
+			this.value = value;
+			this.error = error;
+			this.evaluations = evaluations;
+		}
+		
+		/**
+		 * @return value
+		 */
+		public double getValue () {
+			return value;
+		}
+		
+		/**
+		 * @return error
+		 */
+		public double getError () {
+			return error;
+		}
+		
+		/**
+		 * @return evaluations
+		 */
+		public long getEvaluations () {
+			return evaluations;
+		}
+	}
+}
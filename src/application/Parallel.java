@@ -0,0 +1,92 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * This class has methods shared by everything that splits its work into parts that run in parallel,
+ * so that they all wait for the parts and report their failures the same way. An unchecked exception
+ * thrown by a part is thrown again as it is, any other is wrapped in an IllegalStateException, and
+ * being interrupted while waiting throws a CancellationException, since the results are incomplete.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class Parallel {
+	
+	private static final int BANDS_PER_THREAD = 4;	// How many bands each thread gets, so that uneven bands even out.
+	
+	/**
+	 * Split rows into bands and run every band on the common pool, waiting for all of them.
+	 * @param rows How many rows there are.
+	 * @param band Does the work of a band of rows.
+	 * @throws CancellationException If interrupted while waiting, in which case the interrupt status is set again.
+	 */
+	public static void bands (int rows, Band band) {
+		bands(ForkJoinPool.commonPool(), ForkJoinPool.commonPool().getParallelism(), rows, band);
+	}
+	
+	/**
+	 * Split rows into bands and run every band on an executor, waiting for all of them.
+	 * @param executor The executor.
+	 * @param threads How many threads the executor runs bands on.
+	 * @param rows How many rows there are.
+	 * @param band Does the work of a band of rows.
+	 * @throws CancellationException If interrupted while waiting, in which case the interrupt status is set again.
+	 */
+	public static void bands (ExecutorService executor, int threads, int rows, Band band) {
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		int bands = Math.min(rows, BANDS_PER_THREAD * threads);
+		for (int b = 0; b < bands; b++) {
+			int start = b * rows / bands, end = (b + 1) * rows / bands;
+			tasks.add(() -> {
+				band.run(start, end);
+				return null;
+			});
+		}
+		invokeAll(executor, tasks);
+	}
+	
+	/**
+	 * Run tasks on an executor and wait for all of them.
+	 * @param executor The executor.
+	 * @param tasks The tasks to run.
+	 * @return The results of the tasks, in the same order.
+	 * @throws CancellationException If interrupted while waiting, in which case the interrupt status is set again.
+	 */
+	public static <T> List<T> invokeAll (ExecutorService executor, List<Callable<T>> tasks) {
+		List<T> results = new ArrayList<T>();
+		try {
+			for (Future<T> future : executor.invokeAll(tasks)) {
+				results.add(future.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CancellationException("Interrupted while waiting for parallel work");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+		return results;
+	}
+	
+	/**
+	 * This interface represents the work of one band of rows.
+	 */
+	public interface Band {
+		
+		/**
+		 * Do the work of the rows from start to end.
+		 * @param start The first row, inclusive.
+		 * @param end The last row, exclusive.
+		 */
+		void run (int start, int end);
+	}
+}
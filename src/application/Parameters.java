@@ -0,0 +1,75 @@
+package application;
+
+import java.util.Arrays;
+
+/**
+ * This class holds the values of the parameters that expressions may use, such as a and b in
+ * "a * sin ( b * x )". A parameter is any single letter other than x, y, and e, and each one has a
+ * slot in an array that compiled expressions read from whenever they are evaluated, so changing a
+ * value takes effect without compiling anything again. Sets of parameters are kept as bit masks with
+ * one bit per slot. Values are only changed on the JavaFX thread, before the graphs that use them
+ * are sampled or analyzed again.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class Parameters {
+	
+	public static final int COUNT = 52;		// How many parameters there can be, one for each letter in each case.
+	private static final double DEFAULT = 1;	// The value that every parameter starts with.
+	
+	final double[] values;					// The value of each parameter, by slot.
+	
+	/**
+	 * Create a set of parameters that are all at their default value.
+	 */
+	public Parameters () {
+		values = new double[COUNT];
+		Arrays.fill(values, DEFAULT);
+	}
+	
+	/**
+	 * @param name A symbol.
+	 * @return Whether or not the symbol is the name of a parameter.
+	 */
+	public static boolean isName (String name) {
+		return name.length() == 1 && slot(name.charAt(0)) >= 0 && !name.equals("x") && !name.equals("y")
+				&& !name.equals("e");
+	}
+	
+	/**
+	 * @param name The name of a parameter.
+	 * @return Its slot, or -1 if the name is not a letter.
+	 */
+	public static int slot (char name) {
+		if (name >= 'a' && name <= 'z') {
+			return name - 'a';
+		} else if (name >= 'A' && name <= 'Z') {
+			return 26 + name - 'A';
+		}
+		return -1;
+	}
+	
+	/**
+	 * @param slot The slot of a parameter.
+	 * @return Its name.
+	 */
+	public static char name (int slot) {
+		return (char) (slot < 26 ? 'a' + slot : 'A' + slot - 26);
+	}
+	
+	/**
+	 * @param name The name of a parameter.
+	 * @return Its value.
+	 */
+	public double get (char name) {
+		return values[slot(name)];
+	}
+	
+	/**
+	 * @param name The name of a parameter.
+	 * @param value Its new value.
+	 */
+	public void set (char name, double value) {
+		values[slot(name)] = value;
+	}
+}
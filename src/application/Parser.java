@@ -4,17 +4,21 @@ import java.util.LinkedList;
 import java.util.Queue;
 import java.util.Stack;
 import java.util.StringTokenizer;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 
 /**
- * This class has a method to parse a string representation of a mathematical expression
- * using Dijkstra's Shunting-Yard Algorithm. It has a helper method that converts this post-fix
- * expression into a function.
+ * This class has methods to parse a string representation of a mathematical expression
+ * using Dijkstra's Shunting-Yard Algorithm. It has helper methods that convert this post-fix
+ * expression into a function or compile it into an Expression.
  * @author Mark Kikta
  * @version 1.0
  */
 public class Parser {
 	
+	private static final AtomicLong parses = new AtomicLong();		// How many expressions have been parsed.
+	private static final AtomicLong parseNanos = new AtomicLong();	// How long parsing them has taken in all.
+	
 	/**
 	 * Tokenizes the input string and puts it into Reverse Polish Notation using 
 	 * Dijkstra's Shunting-Yard Algorithm. After that, it turns it into a function
@@ -23,6 +27,121 @@ public class Parser {
 	 * @return The resulting function.
 	 */
 	public static Function<Double, Double> parse (String input) {
+		GraphEvents.Parse event = new GraphEvents.Parse();
+		event.begin();
+		long start = System.nanoTime();
+		
+		// Put the input into post-fix, then return the evaluation of this post-fix.
+		Queue<Token> queue = toPostfix(input);
+		Function<Double, Double> f = queue == null ? null : evaluatePostfix(queue);
+		count(start);
+		if (event.shouldCommit()) {
+			event.expression = input;
+			event.succeeded = f != null;
+			event.commit();
+		}
+		return f;
+	}
+	
+	/**
+	 * Tokenizes the input string and puts it into Reverse Polish Notation, then compiles it
+	 * into an Expression that evaluates primitive doubles without creating any objects.
+	 * @param input The String to be parsed.
+	 * @return The resulting expression, null if the input is empty or has an unsupported token.
+	 */
+	public static Expression compile (String input) {
+		return compile(input, false, null);
+	}
+	
+	/**
+	 * Tokenizes the input string and puts it into Reverse Polish Notation, then compiles it
+	 * into an Expression that may use y as well as x, such as the right side of dy/dx = f(x, y).
+	 * @param input The String to be parsed.
+	 * @param withY Whether or not the expression may use y.
+	 * @return The resulting expression, null if the input is empty or has an unsupported token.
+	 */
+	public static Expression compile (String input, boolean withY) {
+		return compile(input, withY, null);
+	}
+	
+	/**
+	 * Tokenizes the input string and puts it into Reverse Polish Notation, then compiles it
+	 * into an Expression whose parameters are read from the given set whenever it is evaluated,
+	 * so that changing their values never needs the input to be parsed again.
+	 * @param input The String to be parsed.
+	 * @param withY Whether or not the expression may use y.
+	 * @param parameters The values of the parameters, or null if the expression may not use any.
+	 * @return The resulting expression, null if the input is empty or has an unsupported token.
+	 */
+	public static Expression compile (String input, boolean withY, Parameters parameters) {
+		GraphEvents.Parse event = new GraphEvents.Parse();
+		event.begin();
+		long start = System.nanoTime();
+		Queue<Token> queue = toPostfix(input);
+		Expression e = queue == null ? null : Expression.compile(input, queue, withY, parameters);
+		count(start);
+		if (event.shouldCommit()) {
+			event.expression = input;
+			event.compiled = true;
+			event.succeeded = e != null;
+			event.commit();
+		}
+		return e;
+	}
+	
+	/**
+	 * Tokenizes the input string and puts it into Reverse Polish Notation, then compiles it
+	 * into a ComplexExpression of z, as on the right side of f(z) = ( z ^ 2 - 1 ) / z.
+	 * @param input The String to be parsed.
+	 * @param parameters The values of the parameters, or null if the expression may not use any.
+	 * @return The resulting expression, null if the input is empty or has an unsupported token.
+	 */
+	public static ComplexExpression compileComplex (String input, Parameters parameters) {
+		GraphEvents.Parse event = new GraphEvents.Parse();
+		event.begin();
+		long start = System.nanoTime();
+		Queue<Token> queue = toPostfix(input);
+		ComplexExpression e = queue == null ? null : ComplexExpression.compile(input, queue, parameters);
+		count(start);
+		if (event.shouldCommit()) {
+			event.expression = input;
+			event.compiled = true;
+			event.succeeded = e != null;
+			event.commit();
+		}
+		return e;
+	}
+	
+	/**
+	 * Count one more parsed expression, for the PerformanceHud.
+	 * @param start When parsing it started, from System.nanoTime.
+	 */
+	private static void count (long start) {
+		parseNanos.addAndGet(System.nanoTime() - start);
+		parses.incrementAndGet();
+	}
+	
+	/**
+	 * @return How many expressions have been parsed or compiled.
+	 */
+	public static long getParseCount () {
+		return parses.get();
+	}
+	
+	/**
+	 * @return How many nanoseconds parsing and compiling expressions has taken in all.
+	 */
+	public static long getParseNanos () {
+		return parseNanos.get();
+	}
+	
+	/**
+	 * Tokenizes the input string and puts it into Reverse Polish Notation using 
+	 * Dijkstra's Shunting-Yard Algorithm.
+	 * @param input The String to be parsed.
+	 * @return The post-fix expression, null if the input is empty or has an unsupported token.
+	 */
+	private static Queue<Token> toPostfix (String input) {
 		
 		// If the string is empty, return null.
 		if (input.equals("")) {
@@ -52,8 +171,9 @@ public class Parser {
 				return null;
 			}
 			
-			// If the token is a number (or an x) push it to the output queue.
-			if (token.getType() == TokenType.CONSTANT || token.getType() == TokenType.VARIABLE) {
+			// If the token is a number (or an x or a parameter) push it to the output queue.
+			if (token.getType() == TokenType.CONSTANT || token.getType() == TokenType.VARIABLE
+					|| token.getType() == TokenType.PARAMETER) {
 				queue.add(token);
 			} 
 			
@@ -110,8 +230,7 @@ public class Parser {
 			queue.add(stack.pop());
 		}
 		
-		// Return the evaluation of this post-fix.
-		return evaluatePostfix(queue);
+		return queue;
 	}
 
 	/**
@@ -127,6 +246,13 @@ public class Parser {
 		// Stack to hold the tokens as conversion takes place.
 		Stack<Token> stack = new Stack<Token>();
 		
+		// Functions are only of x, so any other variable or a parameter makes the input invalid.
+		for (Token t : queue) {
+			if (t.getType() == TokenType.PARAMETER || t.getType() == TokenType.VARIABLE && !t.getSymbol().equals("x")) {
+				return null;
+			}
+		}
+		
 		// For each token in the queue, check its type and perform the requisite actions.
 		// Much of the logic lies in the methods called from the Token class.
 		for (Token t : queue) {
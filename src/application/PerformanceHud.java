@@ -0,0 +1,194 @@
+package application;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.control.Label;
+
+/**
+ * This class extends Label from JavaFX. It is an overlay in the bottom left corner of a GraphArea
+ * that shows how the GraphArea is performing: the time between frames, how often it is updated and
+ * how long each stage of its last update took, how long parsing takes, how many nodes are in the
+ * scene, how quickly the JavaFX thread allocates memory, and for each graph, how many samples it
+ * evaluates, how long each sample takes, and how long it takes to draw. Everything comes from
+ * counters that the GraphArea, its graphs, and the Parser keep anyway, read twice a second, and
+ * nothing is measured while the overlay is hidden.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class PerformanceHud extends Label {
+	
+	private static final long REFRESH = 500000000L;	// How often the counters are read, in nanoseconds.
+	private static final double GAP = 10;			// The distance from the corner of the GraphArea.
+	private static final int NAME_LENGTH = 24;		// The most characters of an expression that are shown.
+	
+	private GraphArea ga;							// The GraphArea that this overlay belongs to.
+	private AnimationTimer timer;					// Counts frames and reads the counters while shown.
+	private com.sun.management.ThreadMXBean threads;	// Measures allocation, or null if it cannot.
+	
+	// The counters at the start of the current window, so that rates can be found at its end.
+	private long windowStart;						// When the window started.
+	private long lastFrame;							// When the last frame was.
+	private int frames;								// How many frames there have been in the window.
+	private long longestFrame;						// The longest time between frames in the window.
+	private long updates;							// How many updates there had been.
+	private long parses;							// How many expressions had been parsed.
+	private long parseNanos;						// How long parsing had taken.
+	private long allocated;							// How much the JavaFX thread had allocated.
+	private Map<Graph, Long> evaluated;				// How many samples each graph had evaluated.
+	
+	/**
+	 * Create an overlay for a GraphArea, which starts measuring right away.
+	 * @param ga The GraphArea that this overlay belongs to.
+	 */
+	public PerformanceHud (GraphArea ga) {
+		this.ga = ga;
+		evaluated = new HashMap<Graph, Long>();
+		if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+			threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+			if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+				threads = null;
+			}
+		}
+		timer = new AnimationTimer() {
+			@Override
+			public void handle (long now) {
+				frame(now);
+			}
+		};
+		
+		// Only measure while the overlay is shown, starting a new window each time it is.
+		visibleProperty().addListener((observable, was, is) -> {
+			if (is) {
+				start();
+			} else {
+				timer.stop();
+			}
+		});
+		setMouseTransparent(true);
+		getStyleClass().add("performance-hud");
+		setText("Measuring...");
+		start();
+	}
+	
+	/**
+	 * Move this overlay to the bottom left corner of its GraphArea.
+	 */
+	public void place () {
+		relocate(GAP, ga.getHeight() - prefHeight(-1) - GAP);
+	}
+	
+	/**
+	 * Start a new window and the timer.
+	 */
+	private void start () {
+		lastFrame = 0;
+		resetWindow(System.nanoTime());
+		timer.start();
+	}
+	
+	/**
+	 * Count a frame, and show the counters once the window is over.
+	 * @param now The time of the frame, in nanoseconds.
+	 */
+	private void frame (long now) {
+		if (lastFrame != 0) {
+			frames++;
+			longestFrame = Math.max(longestFrame, now - lastFrame);
+		}
+		lastFrame = now;
+		if (now - windowStart >= REFRESH) {
+			show(now);
+			resetWindow(now);
+		}
+	}
+	
+	/**
+	 * Remember the counters at the start of a window.
+	 * @param now When the window starts, in nanoseconds.
+	 */
+	private void resetWindow (long now) {
+		windowStart = now;
+		frames = 0;
+		longestFrame = 0;
+		updates = ga.getUpdateCount();
+		parses = Parser.getParseCount();
+		parseNanos = Parser.getParseNanos();
+		allocated = allocated();
+		evaluated.clear();
+		for (Graph g : ga.getGraphs()) {
+			evaluated.put(g, g.getSamplesEvaluated());
+		}
+	}
+	
+	/**
+	 * Show the counters for the window that is ending.
+	 * @param now When the window ends, in nanoseconds.
+	 */
+	private void show (long now) {
+		double seconds = (now - windowStart) / 1e9;
+		StringBuilder sb = new StringBuilder();
+		
+		// Frames and updates.
+		double frameMillis = frames == 0 ? 0 : (now - windowStart) / 1e6 / frames;
+		sb.append(String.format("frame %.1f ms, longest %.1f ms", frameMillis, longestFrame / 1e6));
+		sb.append(String.format("%nupdates %.0f/s, last", (ga.getUpdateCount() - updates) / seconds));
+		long[] stages = ga.getStageNanos();
+		for (int i = 0; i < stages.length; i++) {
+			sb.append(String.format(" %s %.2f", GraphArea.STAGES[i], stages[i] / 1e6));
+		}
+		sb.append(" ms");
+		
+		// Parsing, the scene graph, and allocation.
+		long parsed = Parser.getParseCount() - parses;
+		sb.append(String.format("%nparser %d in window, %.1f us each", parsed,
+				parsed == 0 ? 0 : (Parser.getParseNanos() - parseNanos) / 1e3 / parsed));
+		sb.append(String.format("%nnodes %d", countNodes(ga.getScene() == null ? ga : ga.getScene().getRoot())));
+		if (threads != null) {
+			sb.append(String.format(", allocation %.1f MB/s", (allocated() - allocated) / 1e6 / seconds));
+		}
+		
+		// Each graph, by the expression it shows.
+		List<Graph> graphs = ga.getGraphs();
+		for (Graph g : graphs) {
+			String name = g.getFunction() instanceof Expression ? ((Expression) g.getFunction()).getText() : "f(x)";
+			if (name.length() > NAME_LENGTH) {
+				name = name.substring(0, NAME_LENGTH - 3) + "...";
+			}
+			long before = evaluated.containsKey(g) ? evaluated.get(g) : g.getSamplesEvaluated();
+			int size = g.getSamples().size();
+			sb.append(String.format("%n%s: %.0f samples/s, %.1f ns/sample, draw %.2f ms", name,
+					(g.getSamplesEvaluated() - before) / seconds, size == 0 ? 0 : (double) g.getSampleNanos() / size,
+					g.getRenderNanos() / 1e6));
+		}
+		setText(sb.toString());
+		place();
+	}
+	
+	/**
+	 * @return How many bytes the JavaFX thread has allocated, or 0 if that cannot be measured.
+	 */
+	@SuppressWarnings("deprecation")
+	private long allocated () {
+		return threads == null ? 0 : threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+	
+	/**
+	 * @param node A node.
+	 * @return How many nodes there are in the tree rooted at the node.
+	 */
+	private static int countNodes (Node node) {
+		int count = 1;
+		if (node instanceof Parent) {
+			for (Node child : ((Parent) node).getChildrenUnmodifiable()) {
+				count += countNodes(child);
+			}
+		}
+		return count;
+	}
+}
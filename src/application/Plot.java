@@ -0,0 +1,147 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * This class describes what a plot shows, independently of JavaFX: the visible bounds, the
+ * distance between ticks, and the curves with their colors. It is used to render plots without
+ * a window, for example when exporting them. It has a nested class for a single curve.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class Plot {
+	
+	private double xMin, xMax;				// The minimum and maximum visible x values.
+	private double yMin, yMax;				// The minimum and maximum visible y values.
+	private double xIncrement, yIncrement;	// How much distance is between tick marks on the axes.
+	private List<Curve> curves;				// The curves on this plot, in drawing order.
+	
+	/**
+	 * Create an empty plot with the given bounds and ten ticks along each axis.
+	 * @param xMin The minimum visible x value.
+	 * @param xMax The maximum visible x value.
+	 * @param yMin The minimum visible y value.
+	 * @param yMax The maximum visible y value.
+	 */
+	public Plot (double xMin, double xMax, double yMin, double yMax) {
+		this(xMin, xMax, (xMax - xMin) / 10, yMin, yMax, (yMax - yMin) / 10);
+	}
+	
+	/**
+	 * Create an empty plot with the given bounds and increments.
+	 * @param xMin The minimum visible x value.
+	 * @param xMax The maximum visible x value.
+	 * @param xIncrement How much distance between tick marks on the x-axis.
+	 * @param yMin The minimum visible y value.
+	 * @param yMax The maximum visible y value.
+	 * @param yIncrement How much distance between tick marks on the y-axis.
+	 */
+	public Plot (double xMin, double xMax, double xIncrement, double yMin, double yMax, double yIncrement) {
+		if (!(xMax > xMin) || !(yMax > yMin)) {
+			throw new IllegalArgumentException("The maximum bounds must be greater than the minimum bounds.");
+		}
+		this.xMin = xMin;
+		this.xMax = xMax;
+		this.xIncrement = xIncrement;
+		this.yMin = yMin;
+		this.yMax = yMax;
+		this.yIncrement = yIncrement;
+		curves = new ArrayList<Curve>();
+	}
+	
+	/**
+	 * Add a curve to this plot.
+	 * @param function The function that the curve represents.
+	 * @param argb The color of the curve, as a non-premultiplied ARGB value.
+	 */
+	public void addCurve (DoubleUnaryOperator function, int argb) {
+		curves.add(new Curve(function, argb));
+	}
+	
+	/**
+	 * @return curves
+	 */
+	public List<Curve> getCurves () {
+		return Collections.unmodifiableList(curves);
+	}
+	
+	/**
+	 * @return xMin
+	 */
+	public double getXMin () {
+		return xMin;
+	}
+	
+	/**
+	 * @return xMax
+	 */
+	public double getXMax () {
+		return xMax;
+	}
+	
+	/**
+	 * @return yMin
+	 */
+	public double getYMin () {
+		return yMin;
+	}
+	
+	/**
+	 * @return yMax
+	 */
+	public double getYMax () {
+		return yMax;
+	}
+	
+	/**
+	 * @return xIncrement
+	 */
+	public double getXIncrement () {
+		return xIncrement;
+	}
+	
+	/**
+	 * @return yIncrement
+	 */
+	public double getYIncrement () {
+		return yIncrement;
+	}
+	
+	/**
+	 * This class represents one curve on a plot. It has fields for the function it represents and
+	 * for its color.
+	 * @author Mark Kikta
+	 * @version 1.0
+	 */
+	public static class Curve {
+		private DoubleUnaryOperator function;	// The function that this curve represents.
+		private int argb;						// The non-premultiplied ARGB color of this curve.
+		
+		/**
+		 * Create a curve.
+		 * @param function The function that this curve represents.
+		 * @param argb The color of this curve, as a non-premultiplied ARGB value.
+		 */
+		public Curve (DoubleUnaryOperator function, int argb) {
+			this.function = function;
+			this.argb = argb;
+		}
+		
+		/**
+		 * @return function
+		 */
+		public DoubleUnaryOperator getFunction () {
+			return function;
+		}
+		
+		/**
+		 * @return argb
+		 */
+		public int getArgb () {
+			return argb;
+		}
+	}
+}
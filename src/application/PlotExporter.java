@@ -0,0 +1,436 @@
+package application;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * This class renders a Plot at any resolution without JavaFX or a window, so that it can be used
+ * by batch jobs as well as by the calculator. PNG images are rendered one band of rows at a time
+ * by a Rasterizer and compressed as they go, so memory use depends only on the width of the image.
+ * SVG images are written with each curve decimated to at most four points per pixel column.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class PlotExporter {
+	
+	private static final int BAND_ROWS = 256;				// The number of rows rendered at once.
+	private static final int MAX_LINES = 64;				// The most grid lines in each direction.
+	private static final int BACKGROUND = 0xFF2F4F4F;		// DarkSlateGray, as in the stylesheet.
+	private static final int GRID = 0xFF808080;				// Grey.
+	private static final int AXIS = 0xFFFAEBD7;				// AntiqueWhite, as in the stylesheet.
+	private static final double GRID_WIDTH = 0.2;			// The width of grid lines at 800 pixels.
+	private static final double AXIS_WIDTH = 1;				// The width of the axes at 800 pixels.
+	private static final double CURVE_WIDTH = 2;			// The width of curves at 800 pixels.
+	private static final double TICK_LENGTH = 8;			// The length of tick marks at 800 pixels.
+	
+	// The colors given to curves in order when they are not chosen by the user.
+	static final int[] PALETTE = {0xFFFF6347, 0xFF7FFFD4, 0xFFFFD700, 0xFFDA70D6, 0xFF98FB98, 0xFF87CEFA};
+	
+	/**
+	 * Render a plot as a PNG image.
+	 * @param plot The plot.
+	 * @param width The width of the image in pixels.
+	 * @param height The height of the image in pixels.
+	 * @param out The stream that the image is written to. It is flushed but not closed.
+	 * @throws IOException If the stream cannot be written to.
+	 */
+	public static void writePng (Plot plot, int width, int height, OutputStream out) throws IOException {
+		Frame f = new Frame(plot, width, height);
+		List<SampleBuffer> samples = sampleCurves(plot, width);
+		
+		// Render and write one band of rows at a time.
+		int band = Math.min(height, BAND_ROWS);
+		IntBuffer pixels = IntBuffer.allocate(width * band);
+		Rasterizer r = new Rasterizer(pixels, width, band);
+		PngWriter png = new PngWriter(out, width, height);
+		for (int top = 0; top < height; top += band) {
+			int rows = Math.min(band, height - top);
+			r.setOrigin(0, top);
+			r.setClip(0, 0, width, rows);
+			r.fill(BACKGROUND);
+			drawGrid(r, plot, f);
+			drawAxes(r, plot, f);
+			for (int i = 0; i < samples.size(); i++) {
+				r.drawCurve(samples.get(i), f.xScale, f.xTrans, f.yScale, f.yTrans,
+						Rasterizer.premultiply(plot.getCurves().get(i).getArgb()), CURVE_WIDTH * f.scale);
+			}
+			png.writeRows(pixels, width, rows);
+		}
+		png.finish();
+	}
+	
+	/**
+	 * Render a plot as an SVG image.
+	 * @param plot The plot.
+	 * @param width The width of the image in pixels.
+	 * @param height The height of the image in pixels.
+	 * @param out The writer that the image is written to. It is flushed but not closed.
+	 * @throws IOException If the writer cannot be written to.
+	 */
+	public static void writeSvg (Plot plot, int width, int height, Writer out) throws IOException {
+		Frame f = new Frame(plot, width, height);
+		DecimalFormat n = new DecimalFormat("0.##", DecimalFormatSymbols.getInstance(Locale.ROOT));
+		
+		out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		out.write("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + width + "\" height=\"" + height
+				+ "\" viewBox=\"0 0 " + width + " " + height + "\">\n");
+		out.write("<rect width=\"100%\" height=\"100%\" fill=\"" + hex(BACKGROUND) + "\"/>\n");
+		
+		// Write the grid lines.
+		out.write("<g stroke=\"" + hex(GRID) + "\" stroke-width=\"" + n.format(GRID_WIDTH * f.scale) + "\">\n");
+		double step = Ticks.lineStep(plot.getXIncrement() / 2, plot.getXMin(), plot.getXMax(), MAX_LINES);
+		for (double v : positions(step, plot.getXMin(), plot.getXMax())) {
+			String x = n.format(v * f.xScale + f.xTrans);
+			out.write("<line x1=\"" + x + "\" y1=\"0\" x2=\"" + x + "\" y2=\"" + height + "\"/>\n");
+		}
+		step = Ticks.lineStep(plot.getYIncrement() / 2, plot.getYMin(), plot.getYMax(), MAX_LINES);
+		for (double v : positions(step, plot.getYMin(), plot.getYMax())) {
+			String y = n.format(-v * f.yScale + f.yTrans);
+			out.write("<line x1=\"0\" y1=\"" + y + "\" x2=\"" + width + "\" y2=\"" + y + "\"/>\n");
+		}
+		out.write("</g>\n");
+		
+		// Write the axes, their tick marks, and their labels.
+		double tick = TICK_LENGTH * f.scale;
+		String ax = n.format(f.xTrans);
+		String ay = n.format(f.yTrans);
+		out.write("<g stroke=\"" + hex(AXIS) + "\" stroke-width=\"" + n.format(AXIS_WIDTH * f.scale) + "\">\n");
+		out.write("<line x1=\"0\" y1=\"" + ay + "\" x2=\"" + width + "\" y2=\"" + ay + "\"/>\n");
+		out.write("<line x1=\"" + ax + "\" y1=\"0\" x2=\"" + ax + "\" y2=\"" + height + "\"/>\n");
+		StringBuilder labels = new StringBuilder();
+		DecimalFormat xf = Ticks.labelFormat(plot.getXIncrement());
+		for (double v : positions(Ticks.lineStep(plot.getXIncrement(), plot.getXMin(), plot.getXMax(), MAX_LINES),
+				plot.getXMin(), plot.getXMax())) {
+			double x = v * f.xScale + f.xTrans;
+			out.write("<line x1=\"" + n.format(x) + "\" y1=\"" + ay + "\" x2=\"" + n.format(x) + "\" y2=\""
+					+ n.format(f.yTrans + tick) + "\"/>\n");
+			labels.append("<text x=\"" + n.format(x) + "\" y=\"" + n.format(f.yTrans + tick * 1.4)
+					+ "\" text-anchor=\"middle\" dominant-baseline=\"hanging\">" + xf.format(v) + "</text>\n");
+		}
+		DecimalFormat yf = Ticks.labelFormat(plot.getYIncrement());
+		for (double v : positions(Ticks.lineStep(plot.getYIncrement(), plot.getYMin(), plot.getYMax(), MAX_LINES),
+				plot.getYMin(), plot.getYMax())) {
+			double y = -v * f.yScale + f.yTrans;
+			out.write("<line x1=\"" + ax + "\" y1=\"" + n.format(y) + "\" x2=\"" + n.format(f.xTrans + tick)
+					+ "\" y2=\"" + n.format(y) + "\"/>\n");
+			labels.append("<text x=\"" + n.format(f.xTrans + tick * 1.4) + "\" y=\"" + n.format(y)
+					+ "\" dominant-baseline=\"middle\">" + yf.format(v) + "</text>\n");
+		}
+		out.write("</g>\n");
+		out.write("<g fill=\"" + hex(AXIS) + "\" font-family=\"sans-serif\" font-size=\"" + n.format(12 * f.scale)
+				+ "\">\n");
+		out.write(labels.toString());
+		out.write("</g>\n");
+		
+		// Write each curve as a path, one at a time so that only one sample buffer is needed.
+		SampleBuffer samples = new SampleBuffer();
+		for (Plot.Curve c : plot.getCurves()) {
+			samples.sample(c.getFunction(), plot.getXMin(), plot.getXMax(), intervals(width));
+			out.write("<path fill=\"none\" stroke-linejoin=\"round\" stroke=\"" + hex(c.getArgb()) + "\"");
+			if ((c.getArgb() >>> 24) != 0xFF) {
+				out.write(" stroke-opacity=\"" + n.format((c.getArgb() >>> 24) / 255.0) + "\"");
+			}
+			out.write(" stroke-width=\"" + n.format(CURVE_WIDTH * f.scale) + "\" d=\"");
+			writeDecimatedPath(samples, f, height, n, out);
+			out.write("\"/>\n");
+		}
+		out.write("</svg>\n");
+		out.flush();
+	}
+	
+	/**
+	 * Write the points of a curve as SVG path data, keeping only the first, lowest, highest, and
+	 * last point of each segment inside each pixel column, in the order they occur.
+	 * @param samples The points of the curve.
+	 * @param f The frame that the curve is drawn in.
+	 * @param height The height of the image, used to keep points near it.
+	 * @param n The format for coordinates.
+	 * @param out The writer that the path data is written to.
+	 * @throws IOException If the writer cannot be written to.
+	 */
+	private static void writeDecimatedPath (SampleBuffer samples, Frame f, int height, DecimalFormat n, Writer out)
+			throws IOException {
+		double limit = 4.0 * height;
+		StringBuilder d = new StringBuilder();
+		
+		// The column being decimated, the indices of its first, lowest, highest, and last points,
+		// and whether its first point starts a new segment.
+		long column = 0;
+		int first = -1, low = -1, high = -1, last = -1;
+		boolean columnMove = true;
+		boolean pendingMove = true;
+		double[] ys = new double[samples.size()];
+		for (int i = 0; i < samples.size(); i++) {
+			double y = samples.getY(i);
+			
+			// Points that are not numbers end the current segment.
+			if (Double.isNaN(y) || Double.isInfinite(y)) {
+				if (first >= 0) {
+					appendColumn(d, samples, ys, f, n, first, low, high, last, columnMove);
+					first = -1;
+				}
+				pendingMove = true;
+				continue;
+			}
+			ys[i] = Math.max(-limit, Math.min(limit, -y * f.yScale + f.yTrans));
+			long c = (long) Math.floor(samples.getX(i) * f.xScale + f.xTrans);
+			
+			// Write the current column when the column changes or a new segment starts.
+			if (first >= 0 && (c != column || samples.isMove(i))) {
+				appendColumn(d, samples, ys, f, n, first, low, high, last, columnMove);
+				first = -1;
+			}
+			if (samples.isMove(i)) {
+				pendingMove = true;
+			}
+			if (first < 0) {
+				column = c;
+				first = low = high = i;
+				columnMove = pendingMove;
+				pendingMove = false;
+			}
+			if (ys[i] > ys[low]) {
+				low = i;
+			}
+			if (ys[i] < ys[high]) {
+				high = i;
+			}
+			last = i;
+			
+			// Flush the path data every so often so that it never grows large.
+			if (d.length() > 1 << 16) {
+				out.write(d.toString());
+				d.setLength(0);
+			}
+		}
+		if (first >= 0) {
+			appendColumn(d, samples, ys, f, n, first, low, high, last, columnMove);
+		}
+		out.write(d.toString());
+	}
+	
+	/**
+	 * Append the kept points of one pixel column to path data, in the order they occur.
+	 * @param d The path data.
+	 * @param samples The points of the curve.
+	 * @param ys The screen y coordinates of the points.
+	 * @param f The frame that the curve is drawn in.
+	 * @param n The format for coordinates.
+	 * @param first The index of the first point in the column.
+	 * @param low The index of the lowest point in the column.
+	 * @param high The index of the highest point in the column.
+	 * @param last The index of the last point in the column.
+	 * @param move Whether the first point starts a new segment.
+	 */
+	private static void appendColumn (StringBuilder d, SampleBuffer samples, double[] ys, Frame f, DecimalFormat n,
+			int first, int low, int high, int last, boolean move) {
+		int[] kept = {first, Math.min(low, high), Math.max(low, high), last};
+		int previous = -1;
+		for (int i : kept) {
+			if (i <= previous) {
+				continue;
+			}
+			d.append(previous < 0 && move ? 'M' : 'L');
+			d.append(n.format(samples.getX(i) * f.xScale + f.xTrans)).append(',').append(n.format(ys[i])).append(' ');
+			previous = i;
+		}
+	}
+	
+	/**
+	 * Draw grid lines every half increment.
+	 * @param r The rasterizer to draw with.
+	 * @param plot The plot.
+	 * @param f The frame that the plot is drawn in.
+	 */
+	private static void drawGrid (Rasterizer r, Plot plot, Frame f) {
+		int grid = Rasterizer.premultiply(GRID);
+		double half = GRID_WIDTH * f.scale / 2;
+		double step = Ticks.lineStep(plot.getXIncrement() / 2, plot.getXMin(), plot.getXMax(), MAX_LINES);
+		for (double v : positions(step, plot.getXMin(), plot.getXMax())) {
+			double x = v * f.xScale + f.xTrans;
+			r.fillRect(x - half, 0, x + half, f.height, grid);
+		}
+		step = Ticks.lineStep(plot.getYIncrement() / 2, plot.getYMin(), plot.getYMax(), MAX_LINES);
+		for (double v : positions(step, plot.getYMin(), plot.getYMax())) {
+			double y = -v * f.yScale + f.yTrans;
+			r.fillRect(0, y - half, f.width, y + half, grid);
+		}
+	}
+	
+	/**
+	 * Draw the axes and their tick marks.
+	 * @param r The rasterizer to draw with.
+	 * @param plot The plot.
+	 * @param f The frame that the plot is drawn in.
+	 */
+	private static void drawAxes (Rasterizer r, Plot plot, Frame f) {
+		int axis = Rasterizer.premultiply(AXIS);
+		double half = AXIS_WIDTH * f.scale / 2;
+		double tick = TICK_LENGTH * f.scale;
+		r.fillRect(0, f.yTrans - half, f.width, f.yTrans + half, axis);
+		r.fillRect(f.xTrans - half, 0, f.xTrans + half, f.height, axis);
+		for (double v : positions(Ticks.lineStep(plot.getXIncrement(), plot.getXMin(), plot.getXMax(), MAX_LINES),
+				plot.getXMin(), plot.getXMax())) {
+			double x = v * f.xScale + f.xTrans;
+			r.fillRect(x - half, f.yTrans, x + half, f.yTrans + tick, axis);
+		}
+		for (double v : positions(Ticks.lineStep(plot.getYIncrement(), plot.getYMin(), plot.getYMax(), MAX_LINES),
+				plot.getYMin(), plot.getYMax())) {
+			double y = -v * f.yScale + f.yTrans;
+			r.fillRect(f.xTrans, y - half, f.xTrans + tick, y + half, axis);
+		}
+	}
+	
+	/**
+	 * @param step The distance between lines, or 0 for none.
+	 * @param min The smallest visible value.
+	 * @param max The largest visible value.
+	 * @return Every multiple of the step between the smallest and largest visible values.
+	 */
+	private static List<Double> positions (double step, double min, double max) {
+		List<Double> list = new ArrayList<Double>();
+		if (step > 0) {
+			double first = Math.ceil(min / step);
+			for (int i = 0; i <= MAX_LINES && (first + i) * step <= max; i++) {
+				list.add((first + i) * step);
+			}
+		}
+		return list;
+	}
+	
+	/**
+	 * Sample every curve of a plot densely enough for an image of the given width.
+	 * @param plot The plot.
+	 * @param width The width of the image in pixels.
+	 * @return The samples of each curve, in the same order as the curves.
+	 */
+	private static List<SampleBuffer> sampleCurves (Plot plot, int width) {
+		List<SampleBuffer> list = new ArrayList<SampleBuffer>();
+		for (Plot.Curve c : plot.getCurves()) {
+			SampleBuffer s = new SampleBuffer();
+			s.sample(c.getFunction(), plot.getXMin(), plot.getXMax(), intervals(width));
+			list.add(s);
+		}
+		return list;
+	}
+	
+	/**
+	 * @param width The width of an image in pixels.
+	 * @return How many intervals to sample curves with, at least two per pixel column.
+	 */
+	private static int intervals (int width) {
+		return Math.max(20000, width * 2);
+	}
+	
+	/**
+	 * @param argb A color.
+	 * @return The color as a hexadecimal RGB string, ignoring its alpha.
+	 */
+	private static String hex (int argb) {
+		return String.format("#%06x", argb & 0xFFFFFF);
+	}
+	
+	/**
+	 * Render expressions to a file from the command line, for example:
+	 * <pre>java application.PlotExporter --size 16384x16384 --x -10,10 --y -10,10 --out plot.png "sin ( x )"</pre>
+	 * The format is chosen by the extension of the output file, which is either .png or .svg.
+	 * @param args The options, followed by the expressions.
+	 */
+	public static void main (String[] args) {
+		int width = 800, height = 800;
+		double xMin = -10, xMax = 10, yMin = -10, yMax = 10;
+		String file = null;
+		List<String> expressions = new ArrayList<String>();
+		try {
+			for (int i = 0; i < args.length; i++) {
+				if (args[i].equals("--size")) {
+					String[] size = args[++i].split("x");
+					width = Integer.parseInt(size[0]);
+					height = Integer.parseInt(size[1]);
+				} else if (args[i].equals("--x")) {
+					String[] bounds = args[++i].split(",");
+					xMin = Double.parseDouble(bounds[0]);
+					xMax = Double.parseDouble(bounds[1]);
+				} else if (args[i].equals("--y")) {
+					String[] bounds = args[++i].split(",");
+					yMin = Double.parseDouble(bounds[0]);
+					yMax = Double.parseDouble(bounds[1]);
+				} else if (args[i].equals("--out")) {
+					file = args[++i];
+				} else {
+					expressions.add(args[i]);
+				}
+			}
+			if (file == null || width <= 0 || height <= 0) {
+				throw new IllegalArgumentException("An output file and a positive size are required.");
+			}
+			
+			// Compile every expression, giving each curve a color from a fixed palette.
+			Plot plot = new Plot(xMin, xMax, yMin, yMax);
+			for (int i = 0; i < expressions.size(); i++) {
+				Expression e = Parser.compile(expressions.get(i));
+				if (e == null) {
+					throw new IllegalArgumentException("Invalid expression: " + expressions.get(i));
+				}
+				plot.addCurve(e, PALETTE[i % PALETTE.length]);
+			}
+			export(plot, width, height, file);
+		} catch (Exception e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: PlotExporter [--size WxH] [--x min,max] [--y min,max] --out file.png|file.svg"
+					+ " expression...");
+			System.exit(1);
+		}
+	}
+	
+	/**
+	 * Render a plot to a file, as SVG if its name ends in .svg and as PNG otherwise.
+	 * @param plot The plot.
+	 * @param width The width of the image in pixels.
+	 * @param height The height of the image in pixels.
+	 * @param file The name of the file.
+	 * @throws IOException If the file cannot be written.
+	 */
+	public static void export (Plot plot, int width, int height, String file) throws IOException {
+		try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(Paths.get(file)))) {
+			if (file.toLowerCase(Locale.ROOT).endsWith(".svg")) {
+				writeSvg(plot, width, height, new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+			} else {
+				writePng(plot, width, height, out);
+			}
+		}
+	}
+	
+	/**
+	 * The size of an image and the transformation from plot to image coordinates.
+	 */
+	private static class Frame {
+		private final double width, height;		// The size of the image in pixels.
+		private final double xScale, xTrans;	// The x scale factor and translation.
+		private final double yScale, yTrans;	// The y scale factor and translation.
+		private final double scale;				// How much larger than 800 pixels the image is.
+		
+		private Frame (Plot plot, int width, int height) {
+			this.width = width;
+			this.height = height;
+			xScale = width / (plot.getXMax() - plot.getXMin());
+			xTrans = -plot.getXMin() * xScale;
+			yScale = height / (plot.getYMax() - plot.getYMin());
+			yTrans = plot.getYMax() * yScale;
+			scale = Math.max(1, Math.min(width, height) / 800.0);
+		}
+	}
+}
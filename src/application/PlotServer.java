@@ -0,0 +1,446 @@
+package application;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * This class serves plots over HTTP without JavaFX or a window, for dashboards that want to show
+ * graphs. A request to /plot gives the expressions as expr parameters and the viewport as x, y, and
+ * size parameters, and gets back a PNG or SVG image rendered by PlotExporter, or the sampled points
+ * as JSON, for example:
+ * <pre>GET /plot?expr=sin+(+x+)&amp;x=-10,10&amp;y=-2,2&amp;size=800x400&amp;format=svg</pre>
+ * The same parameters may be sent as a form in the body of a POST. Each request runs on its own
+ * virtual thread where the JVM has them, and on a pooled thread otherwise. Compiled expressions are
+ * shared by every request through a small cache. Requests are turned away with 503 once too many
+ * are in flight, and rendering is limited to a few requests at a time so that a burst of requests
+ * queues for the processors instead of thrashing them.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class PlotServer {
+	
+	private static final int MAX_PIXELS = 4096 * 4096;	// The largest image that is rendered.
+	private static final int MAX_SAMPLES = 100000;		// The most points returned for each curve.
+	private static final int MAX_EXPRESSIONS = 16;		// The most curves in one plot.
+	private static final int CACHE_SIZE = 1024;			// The most compiled expressions that are kept.
+	private static final long QUEUE_TIMEOUT = 10;		// How many seconds a request waits to be rendered.
+	
+	private HttpServer server;							// The server.
+	private ExecutorService executor;					// Runs each request.
+	private int maxInFlight;							// The most requests accepted at once.
+	private AtomicInteger inFlight;						// How many requests are being handled.
+	private Semaphore renderers;						// Permits to render, one for each request rendering.
+	private Map<String, Expression> expressions;		// Compiled expressions, least recently used first.
+	
+	/**
+	 * Create a server bound to an address. It does not accept requests until it is started.
+	 * @param address The address to listen on.
+	 * @param maxInFlight The most requests accepted at once; any more get 503.
+	 * @param maxRendering The most requests rendered at once; the rest wait for a turn.
+	 * @throws IOException If the address cannot be bound.
+	 */
+	public PlotServer (InetSocketAddress address, int maxInFlight, int maxRendering) throws IOException {
+		this.maxInFlight = maxInFlight;
+		inFlight = new AtomicInteger();
+		renderers = new Semaphore(maxRendering, true);
+		expressions = new LinkedHashMap<String, Expression>(CACHE_SIZE, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected boolean removeEldestEntry (Map.Entry<String, Expression> eldest) {
+				return size() > CACHE_SIZE;
+			}
+		};
+		executor = newRequestExecutor();
+		server = HttpServer.create(address, maxInFlight);
+		server.setExecutor(executor);
+		server.createContext("/plot", this::handle);
+		server.createContext("/health", exchange -> send(exchange, 200, "text/plain", "ok\n".getBytes(StandardCharsets.UTF_8)));
+	}
+	
+	/**
+	 * Start accepting requests.
+	 */
+	public void start () {
+		server.start();
+	}
+	
+	/**
+	 * Stop accepting requests, giving those in flight a moment to finish.
+	 */
+	public void stop () {
+		server.stop(1);
+		executor.shutdownNow();
+	}
+	
+	/**
+	 * @return The port that the server listens on, which is useful when it was bound to port 0.
+	 */
+	public int getPort () {
+		return server.getAddress().getPort();
+	}
+	
+	/**
+	 * Handle a request for a plot, turning it away if too many are in flight.
+	 * @param exchange The request and its response.
+	 * @throws IOException If the response cannot be sent.
+	 */
+	private void handle (HttpExchange exchange) throws IOException {
+		try {
+			if (inFlight.incrementAndGet() > maxInFlight) {
+				exchange.getResponseHeaders().set("Retry-After", "1");
+				error(exchange, 503, "Too many requests are in flight.");
+				return;
+			}
+			if (!exchange.getRequestMethod().equals("GET") && !exchange.getRequestMethod().equals("POST")) {
+				error(exchange, 405, "Only GET and POST are supported.");
+				return;
+			}
+			Map<String, List<String>> params = parameters(exchange);
+			Request r;
+			try {
+				r = new Request(params);
+			} catch (IllegalArgumentException e) {
+				error(exchange, 400, e.getMessage());
+				return;
+			}
+			
+			// Render only once a permit is free, so that waiting requests do not compete for the processors.
+			if (!renderers.tryAcquire(QUEUE_TIMEOUT, TimeUnit.SECONDS)) {
+				exchange.getResponseHeaders().set("Retry-After", "1");
+				error(exchange, 503, "Timed out waiting to render.");
+				return;
+			}
+			byte[] body;
+			try {
+				body = render(r);
+			} finally {
+				renderers.release();
+			}
+			send(exchange, 200, r.contentType(), body);
+		} catch (InterruptedException e) {
+			error(exchange, 503, "The server is stopping.");
+		} catch (RuntimeException e) {
+			error(exchange, 500, String.valueOf(e.getMessage()));
+		} finally {
+			inFlight.decrementAndGet();
+			exchange.close();
+		}
+	}
+	
+	/**
+	 * Render a request in the format it asks for.
+	 * @param r The request.
+	 * @return The body of the response.
+	 * @throws IOException If the response cannot be rendered.
+	 */
+	private byte[] render (Request r) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		if (r.format.equals("png")) {
+			PlotExporter.writePng(r.plot, r.width, r.height, out);
+		} else if (r.format.equals("svg")) {
+			Writer w = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+			PlotExporter.writeSvg(r.plot, r.width, r.height, w);
+			w.flush();
+		} else {
+			writeJson(r, out);
+		}
+		return out.toByteArray();
+	}
+	
+	/**
+	 * Write the sampled points of every curve of a request as JSON: the x values once, then the y
+	 * values of each curve, with null where a curve is not a number.
+	 * @param r The request.
+	 * @param out The stream to write to.
+	 * @throws IOException If the stream cannot be written to.
+	 */
+	private static void writeJson (Request r, OutputStream out) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		SampleBuffer s = new SampleBuffer();
+		List<Plot.Curve> curves = r.plot.getCurves();
+		sb.append("{\"x\":[");
+		s.sample(x -> x, r.plot.getXMin(), r.plot.getXMax(), r.samples - 1);
+		for (int i = 0; i < s.size(); i++) {
+			sb.append(i == 0 ? "" : ",").append(s.getX(i));
+		}
+		sb.append("],\"curves\":[");
+		for (int c = 0; c < curves.size(); c++) {
+			s.sample(curves.get(c).getFunction(), r.plot.getXMin(), r.plot.getXMax(), r.samples - 1);
+			sb.append(c == 0 ? "" : ",").append("{\"expression\":\"").append(escape(r.texts.get(c))).append("\",\"y\":[");
+			for (int i = 0; i < s.size(); i++) {
+				double y = s.getY(i);
+				sb.append(i == 0 ? "" : ",").append(Double.isNaN(y) || Double.isInfinite(y) ? "null" : Double.toString(y));
+			}
+			sb.append("]}");
+		}
+		sb.append("]}\n");
+		out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+	}
+	
+	/**
+	 * Find a compiled expression in the cache, or compile it and add it to the cache.
+	 * @param text The expression.
+	 * @return The compiled expression, or null if it is not valid.
+	 */
+	private Expression compile (String text) {
+		synchronized (expressions) {
+			Expression e = expressions.get(text);
+			if (e != null) {
+				return e;
+			}
+		}
+		
+		// Compile outside of the lock, since two requests compiling the same expression at once is harmless.
+		Expression e;
+		try {
+			e = Parser.compile(text);
+		} catch (RuntimeException ex) {
+			e = null;
+		}
+		if (e != null) {
+			synchronized (expressions) {
+				expressions.put(text, e);
+			}
+		}
+		return e;
+	}
+	
+	/**
+	 * Read the parameters of a request, from its query and, for a POST, from a form in its body.
+	 * @param exchange The request.
+	 * @return The values of each parameter, in the order they were given.
+	 * @throws IOException If the body cannot be read.
+	 */
+	private static Map<String, List<String>> parameters (HttpExchange exchange) throws IOException {
+		Map<String, List<String>> params = new LinkedHashMap<String, List<String>>();
+		addParameters(params, exchange.getRequestURI().getRawQuery());
+		if (exchange.getRequestMethod().equals("POST")) {
+			try (InputStream in = exchange.getRequestBody()) {
+				addParameters(params, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+			}
+		}
+		return params;
+	}
+	
+	/**
+	 * Add the parameters of a URL-encoded query or form to a map.
+	 * @param params The map.
+	 * @param query The query or form, which may be null.
+	 */
+	private static void addParameters (Map<String, List<String>> params, String query) {
+		if (query == null || query.equals("")) {
+			return;
+		}
+		for (String pair : query.split("&")) {
+			int equals = pair.indexOf('=');
+			String key = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), StandardCharsets.UTF_8);
+			String value = equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+			params.computeIfAbsent(key, k -> new ArrayList<String>()).add(value);
+		}
+	}
+	
+	/**
+	 * Send an error as plain text.
+	 * @param exchange The request and its response.
+	 * @param status The status code.
+	 * @param message What went wrong.
+	 * @throws IOException If the response cannot be sent.
+	 */
+	private static void error (HttpExchange exchange, int status, String message) throws IOException {
+		send(exchange, status, "text/plain; charset=utf-8", (message + "\n").getBytes(StandardCharsets.UTF_8));
+	}
+	
+	/**
+	 * Send a response and close the exchange.
+	 * @param exchange The request and its response.
+	 * @param status The status code.
+	 * @param type The content type of the body.
+	 * @param body The body.
+	 * @throws IOException If the response cannot be sent.
+	 */
+	private static void send (HttpExchange exchange, int status, String type, byte[] body) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", type);
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+	
+	/**
+	 * @param s A string.
+	 * @return The string with quotes and backslashes escaped for JSON.
+	 */
+	private static String escape (String s) {
+		return s.replace("\\", "\\\\").replace("\"", "\\\"");
+	}
+	
+	/**
+	 * Create the executor that runs requests: one virtual thread per request if the JVM has virtual
+	 * threads, which is looked up reflectively so that the server still runs on older JVMs, and a
+	 * pool of daemon threads otherwise.
+	 * @return The executor.
+	 */
+	static ExecutorService newRequestExecutor () {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool(r -> {
+				Thread thread = new Thread(r, "plot-request");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+	
+	/**
+	 * Serve plots until the process is stopped. The options are --host, --port, --max-in-flight, and
+	 * --max-rendering, for example:
+	 * <pre>java application.PlotServer --port 8080</pre>
+	 * By default it only listens on the loopback address.
+	 * @param args The options.
+	 * @throws IOException If the server cannot be started.
+	 */
+	public static void main (String[] args) throws IOException {
+		String host = "127.0.0.1";
+		int port = 8080;
+		int maxInFlight = 4096;
+		int maxRendering = Runtime.getRuntime().availableProcessors() * 2;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--host")) {
+				host = args[++i];
+			} else if (args[i].equals("--port")) {
+				port = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("--max-in-flight")) {
+				maxInFlight = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("--max-rendering")) {
+				maxRendering = Integer.parseInt(args[++i]);
+			} else {
+				System.err.println("Usage: PlotServer [--host address] [--port n] [--max-in-flight n] [--max-rendering n]");
+				System.exit(1);
+			}
+		}
+		PlotServer server = new PlotServer(new InetSocketAddress(host, port), maxInFlight, maxRendering);
+		server.start();
+		System.out.println("Serving plots on http://" + host + ":" + server.getPort() + "/plot");
+	}
+	
+	/**
+	 * This class represents a request for a plot that has been checked: its plot with compiled curves,
+	 * the text of each curve, its size, its format, and how many points to sample for JSON.
+	 */
+	private class Request {
+		private Plot plot;				// The plot.
+		private List<String> texts;		// The text of each curve.
+		private int width, height;		// The size of the image in pixels.
+		private String format;			// Either png, svg, or json.
+		private int samples;			// How many points each curve is sampled at for JSON.
+		
+		/**
+		 * Check the parameters of a request and compile its expressions.
+		 * @param params The parameters.
+		 * @throws IllegalArgumentException If a parameter is missing or not valid.
+		 */
+		private Request (Map<String, List<String>> params) {
+			texts = params.getOrDefault("expr", new ArrayList<String>());
+			if (texts.isEmpty() || texts.size() > MAX_EXPRESSIONS) {
+				throw new IllegalArgumentException("Between 1 and " + MAX_EXPRESSIONS + " expr parameters are required.");
+			}
+			double[] x = range(params, "x");
+			double[] y = range(params, "y");
+			String[] size = first(params, "size", "800x600").split("x");
+			try {
+				width = Integer.parseInt(size[0].trim());
+				height = Integer.parseInt(size[1].trim());
+			} catch (RuntimeException e) {
+				throw new IllegalArgumentException("size must be WIDTHxHEIGHT.");
+			}
+			if (width <= 0 || height <= 0 || (long) width * height > MAX_PIXELS) {
+				throw new IllegalArgumentException("size must be positive and at most " + MAX_PIXELS + " pixels.");
+			}
+			format = first(params, "format", "png");
+			if (!format.equals("png") && !format.equals("svg") && !format.equals("json")) {
+				throw new IllegalArgumentException("format must be png, svg, or json.");
+			}
+			try {
+				samples = Integer.parseInt(first(params, "samples", Integer.toString(width)));
+			} catch (NumberFormatException e) {
+				samples = -1;
+			}
+			if (samples < 2 || samples > MAX_SAMPLES) {
+				throw new IllegalArgumentException("samples must be between 2 and " + MAX_SAMPLES + ".");
+			}
+			
+			// Compile the curves, giving them the same colors as exported plots.
+			plot = new Plot(x[0], x[1], y[0], y[1]);
+			for (int i = 0; i < texts.size(); i++) {
+				Expression e = compile(texts.get(i));
+				if (e == null) {
+					throw new IllegalArgumentException("Invalid expression: " + texts.get(i));
+				}
+				plot.addCurve(e, PlotExporter.PALETTE[i % PlotExporter.PALETTE.length]);
+			}
+		}
+		
+		/**
+		 * @return The content type of the response.
+		 */
+		private String contentType () {
+			if (format.equals("png")) {
+				return "image/png";
+			} else if (format.equals("svg")) {
+				return "image/svg+xml";
+			}
+			return "application/json";
+		}
+		
+		/**
+		 * @param params The parameters.
+		 * @param name The name of a range parameter, given as min,max.
+		 * @return The minimum and maximum of the range, which default to -10 and 10.
+		 * @throws IllegalArgumentException If the range is not two increasing numbers.
+		 */
+		private double[] range (Map<String, List<String>> params, String name) {
+			String[] bounds = first(params, name, "-10,10").split(",");
+			try {
+				double min = Double.parseDouble(bounds[0].trim()), max = Double.parseDouble(bounds[1].trim());
+				if (min < max && !Double.isInfinite(max - min)) {
+					return new double[] {min, max};
+				}
+			} catch (RuntimeException e) {
+				// Fall through to the error below.
+			}
+			throw new IllegalArgumentException(name + " must be min,max with min below max.");
+		}
+		
+		/**
+		 * @param params The parameters.
+		 * @param name The name of a parameter.
+		 * @param fallback The value to use if the parameter is missing.
+		 * @return The first value of the parameter.
+		 */
+		private String first (Map<String, List<String>> params, String name, String fallback) {
+			List<String> values = params.get(name);
+			return values == null || values.isEmpty() ? fallback : values.get(0);
+		}
+	}
+}
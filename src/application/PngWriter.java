@@ -0,0 +1,141 @@
+package application;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * This class writes an opaque RGB PNG image to a stream one band of rows at a time. Rows are
+ * compressed as soon as they are written and compressed data is flushed in IDAT chunks of a fixed
+ * size, so the whole image never has to be held in memory.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class PngWriter {
+	
+	private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+	private static final int CHUNK_SIZE = 1 << 16;	// The most compressed bytes in one IDAT chunk.
+	
+	private DataOutputStream out;		// The stream that the image is written to.
+	private int width, height;			// The size of the image in pixels.
+	private int rowsWritten;			// How many rows have been written so far.
+	private byte[] row;					// A filtered row, reused for every row.
+	private DeflaterOutputStream idat;	// Compresses rows into IDAT chunks.
+	private Deflater deflater;			// The compressor used by idat.
+	
+	/**
+	 * Start a PNG image by writing its signature and header.
+	 * @param out The stream that the image is written to.
+	 * @param width The width of the image in pixels.
+	 * @param height The height of the image in pixels.
+	 * @throws IOException If the stream cannot be written to.
+	 */
+	public PngWriter (OutputStream out, int width, int height) throws IOException {
+		this.out = new DataOutputStream(out);
+		this.width = width;
+		this.height = height;
+		row = new byte[1 + width * 3];
+		
+		// Write the signature, then a header for 8-bit RGB without interlacing.
+		this.out.write(SIGNATURE);
+		ByteBuffer header = ByteBuffer.allocate(13);
+		header.putInt(width).putInt(height).put((byte) 8).put((byte) 2).put((byte) 0).put((byte) 0).put((byte) 0);
+		writeChunk("IHDR", header.array(), 0, 13);
+		
+		// Compressed data goes out through a stream that cuts it into IDAT chunks.
+		deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+		idat = new DeflaterOutputStream(new ChunkStream(), deflater, CHUNK_SIZE);
+	}
+	
+	/**
+	 * Write the next rows of the image from premultiplied ARGB pixels. Pixels are blended over
+	 * black if they are not opaque.
+	 * @param pixels The pixels, row by row.
+	 * @param stride The number of pixels from the start of one row to the next.
+	 * @param rows The number of rows to write.
+	 * @throws IOException If the stream cannot be written to.
+	 */
+	public void writeRows (IntBuffer pixels, int stride, int rows) throws IOException {
+		if (rowsWritten + rows > height) {
+			throw new IllegalStateException("More rows were written than the image has.");
+		}
+		for (int y = 0; y < rows; y++) {
+			
+			// Each row starts with the filter type, which is 1 (Sub): each byte minus the one to its left.
+			row[0] = 1;
+			int base = y * stride;
+			int previous = 0;
+			for (int x = 0; x < width; x++) {
+				int argb = pixels.get(base + x);
+				int i = 1 + x * 3;
+				row[i] = (byte) (((argb >>> 16) & 0xFF) - ((previous >>> 16) & 0xFF));
+				row[i + 1] = (byte) (((argb >>> 8) & 0xFF) - ((previous >>> 8) & 0xFF));
+				row[i + 2] = (byte) ((argb & 0xFF) - (previous & 0xFF));
+				previous = argb;
+			}
+			idat.write(row);
+		}
+		rowsWritten += rows;
+	}
+	
+	/**
+	 * Finish the image by flushing the compressed data and writing the end chunk.
+	 * The underlying stream is flushed but not closed.
+	 * @throws IOException If the stream cannot be written to, or not every row was written.
+	 */
+	public void finish () throws IOException {
+		if (rowsWritten != height) {
+			throw new IOException("Only " + rowsWritten + " of " + height + " rows were written.");
+		}
+		idat.finish();
+		deflater.end();
+		writeChunk("IEND", new byte[0], 0, 0);
+		out.flush();
+	}
+	
+	/**
+	 * Write a chunk with its length and checksum.
+	 * @param type The four-letter type of the chunk.
+	 * @param data The array holding the data of the chunk.
+	 * @param offset Where the data starts in the array.
+	 * @param length How many bytes of data to write.
+	 * @throws IOException If the stream cannot be written to.
+	 */
+	private void writeChunk (String type, byte[] data, int offset, int length) throws IOException {
+		byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+		CRC32 crc = new CRC32();
+		crc.update(typeBytes);
+		crc.update(data, offset, length);
+		out.writeInt(length);
+		out.write(typeBytes);
+		out.write(data, offset, length);
+		out.writeInt((int) crc.getValue());
+	}
+	
+	/**
+	 * A stream that writes everything written to it as IDAT chunks.
+	 */
+	private class ChunkStream extends OutputStream {
+		
+		@Override
+		public void write (int b) throws IOException {
+			write(new byte[] {(byte) b}, 0, 1);
+		}
+		
+		@Override
+		public void write (byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				int n = Math.min(len, CHUNK_SIZE);
+				writeChunk("IDAT", b, off, n);
+				off += n;
+				len -= n;
+			}
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package application;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+/**
+ * This class extends ImageView from JavaFX. It is an alternative to drawing each graph on its own
+ * canvas: every graph of a GraphArea is rasterized into a single PixelBuffer by a Rasterizer, which
+ * works well on the software pipeline where large canvases and paths are slow. It keeps track of the
+ * rectangle of pixels that is out of date and only redraws and uploads that rectangle.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class RasterLayer extends ImageView {
+	
+	private static final double LINE_WIDTH = 2;	// The width of every graph in pixels.
+	
+	private GraphArea ga;						// The GraphArea that this layer belongs to.
+	private int width, height;					// The size of the buffer in pixels.
+	private IntBuffer pixels;					// The premultiplied ARGB pixels.
+	private PixelBuffer<IntBuffer> buffer;		// The pixel buffer backing the image.
+	private Rasterizer rasterizer;				// Draws graphs into the pixels.
+	private Map<Graph, int[]> drawnBounds;		// The pixels each graph touched when it was last drawn.
+	
+	// The dirty rectangle, as left, top, right, and bottom edges. It is empty when left >= right.
+	private int dirtyLeft, dirtyTop, dirtyRight, dirtyBottom;
+	
+	/**
+	 * Create an empty layer belonging to the given GraphArea.
+	 * @param ga The GraphArea that this layer belongs to.
+	 */
+	public RasterLayer (GraphArea ga) {
+		this.ga = ga;
+		drawnBounds = new HashMap<Graph, int[]>();
+		dirtyLeft = Integer.MAX_VALUE;
+		dirtyTop = Integer.MAX_VALUE;
+		dirtyRight = Integer.MIN_VALUE;
+		dirtyBottom = Integer.MIN_VALUE;
+		
+		// The layer never needs to receive mouse events.
+		setMouseTransparent(true);
+	}
+	
+	/**
+	 * @return Whether or not graphs should be rasterized by a RasterLayer. This is the case if it is
+	 * asked for with the graph.raster system property or if JavaFX was asked to render in software.
+	 */
+	public static boolean isRequested () {
+		String order = System.getProperty("prism.order", "");
+		return Boolean.getBoolean("graph.raster") || order.trim().startsWith("sw");
+	}
+	
+	/**
+	 * Mark the pixels of a graph, both where it was last drawn and where it will be drawn now, as dirty.
+	 * The graph should already have been sampled for the current viewport.
+	 * @param g The graph that changed.
+	 */
+	public void graphChanged (Graph g) {
+		addDirty(drawnBounds.get(g));
+		int[] bounds = Rasterizer.bounds(g.getSamples(), ga.getXScale(), ga.getXTranslation(),
+				ga.getYScale(), ga.getYTranslation(), LINE_WIDTH);
+		drawnBounds.put(g, bounds);
+		addDirty(bounds);
+	}
+	
+	/**
+	 * Mark the pixels where a graph was last drawn as dirty and forget it.
+	 * @param g The graph that was removed.
+	 */
+	public void graphRemoved (Graph g) {
+		addDirty(drawnBounds.remove(g));
+	}
+	
+	/**
+	 * Mark every pixel as dirty.
+	 */
+	public void invalidateAll () {
+		dirtyLeft = 0;
+		dirtyTop = 0;
+		dirtyRight = Integer.MAX_VALUE;
+		dirtyBottom = Integer.MAX_VALUE;
+	}
+	
+	/**
+	 * Redraw the dirty rectangle from the given graphs and upload it, then mark it as clean.
+	 * @param graphs Every graph of the GraphArea, in drawing order.
+	 */
+	public void redraw (List<Graph> graphs) {
+		
+		// Match the size of the GraphArea, which makes every pixel dirty.
+		int w = Math.max(1, (int) Math.ceil(ga.getWidth()));
+		int h = Math.max(1, (int) Math.ceil(ga.getHeight()));
+		if (buffer == null || w != width || h != height) {
+			width = w;
+			height = h;
+			pixels = ByteBuffer.allocateDirect(w * h * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+			buffer = new PixelBuffer<IntBuffer>(w, h, pixels, PixelFormat.getIntArgbPreInstance());
+			rasterizer = new Rasterizer(pixels, w, h);
+			setImage(new WritableImage(buffer));
+			invalidateAll();
+		}
+		
+		// Cut the dirty rectangle down to the buffer and stop if nothing is left.
+		int left = Math.max(0, dirtyLeft);
+		int top = Math.max(0, dirtyTop);
+		int right = Math.min(width, dirtyRight);
+		int bottom = Math.min(height, dirtyBottom);
+		dirtyLeft = Integer.MAX_VALUE;
+		dirtyTop = Integer.MAX_VALUE;
+		dirtyRight = Integer.MIN_VALUE;
+		dirtyBottom = Integer.MIN_VALUE;
+		if (left >= right || top >= bottom) {
+			return;
+		}
+		
+		// Clear the rectangle, then draw every graph into it.
+		rasterizer.setClip(left, top, right - left, bottom - top);
+		rasterizer.fill(0);
+		for (Graph g : graphs) {
+			Color c = g.getColor();
+			rasterizer.drawCurve(g.getSamples(), ga.getXScale(), ga.getXTranslation(), ga.getYScale(),
+					ga.getYTranslation(), Rasterizer.toArgbPre(c.getRed(), c.getGreen(), c.getBlue(), c.getOpacity()),
+					LINE_WIDTH);
+		}
+		
+		// Upload only the rectangle that was redrawn.
+		Rectangle2D region = new Rectangle2D(left, top, right - left, bottom - top);
+		buffer.updateBuffer(b -> region);
+	}
+	
+	/**
+	 * Grow the dirty rectangle to include the given bounds.
+	 * @param bounds The left, top, right, and bottom edges of the bounds, or null for none.
+	 */
+	private void addDirty (int[] bounds) {
+		if (bounds == null) {
+			return;
+		}
+		dirtyLeft = Math.min(dirtyLeft, bounds[0]);
+		dirtyTop = Math.min(dirtyTop, bounds[1]);
+		dirtyRight = Math.max(dirtyRight, bounds[2]);
+		dirtyBottom = Math.max(dirtyBottom, bounds[3]);
+	}
+}
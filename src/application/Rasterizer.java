@@ -0,0 +1,439 @@
+package application;
+
+import java.nio.IntBuffer;
+
+/**
+ * This class draws sampled curves straight into a buffer of premultiplied ARGB pixels, without
+ * using the JavaFX scene graph, so it runs the same on a software-only pipeline or with no window
+ * at all. Curves are drawn one pixel column at a time: the part of the curve inside a column is
+ * widened by the line width in both directions and anti-aliased by how much of each pixel it covers.
+ * Coverage is collected in a mask, keeping the largest value for each pixel, and the mask is blended
+ * in once at the end, so every pixel is blended at most once per curve no matter how densely the
+ * curve was sampled. All drawing is limited to a clip rectangle, so only a dirty part of the buffer
+ * has to be redrawn.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class Rasterizer {
+	
+	private IntBuffer pixels;				// The pixels, row by row.
+	private int width, height;				// The size of the buffer in pixels.
+	private int stride;						// The number of pixels from the start of one row to the next.
+	private int clipX0, clipY0;				// The top left corner of the clip rectangle, inclusive.
+	private int clipX1, clipY1;				// The bottom right corner of the clip rectangle, exclusive.
+	private double originX, originY;		// Where the top left corner of the buffer is on the screen.
+	
+	// The column being drawn and the range of the curve inside of it.
+	private int column;
+	private double spanTop, spanBottom;
+	private boolean spanning;
+	
+	// How much of each pixel the current curve covers, and the rectangle of the mask that was touched.
+	private float[] mask;
+	private int maskX0, maskY0, maskX1, maskY1;
+	
+	private int[] row;						// One row of pixels, copied out of the buffer to be blended.
+	
+	/**
+	 * Create a rasterizer that draws into the given pixels.
+	 * @param pixels The pixels, row by row.
+	 * @param width The width of the buffer in pixels.
+	 * @param height The height of the buffer in pixels.
+	 */
+	public Rasterizer (IntBuffer pixels, int width, int height) {
+		this.pixels = pixels;
+		this.width = width;
+		this.height = height;
+		stride = width;
+		setClip(0, 0, width, height);
+	}
+	
+	/**
+	 * Limit drawing to the given rectangle, which is cut down to fit inside the buffer.
+	 * @param x The left edge of the rectangle.
+	 * @param y The top edge of the rectangle.
+	 * @param w The width of the rectangle.
+	 * @param h The height of the rectangle.
+	 */
+	public void setClip (int x, int y, int w, int h) {
+		clipX0 = Math.max(0, x);
+		clipY0 = Math.max(0, y);
+		clipX1 = Math.min(width, x + w);
+		clipY1 = Math.min(height, y + h);
+	}
+	
+	/**
+	 * Shift everything that is drawn, so that the buffer can hold one tile of a larger image.
+	 * @param x Where the left edge of the buffer is on the screen.
+	 * @param y Where the top edge of the buffer is on the screen.
+	 */
+	public void setOrigin (double x, double y) {
+		originX = x;
+		originY = y;
+	}
+	
+	/**
+	 * Set every pixel inside the clip rectangle to the given color.
+	 * @param argb The premultiplied color.
+	 */
+	public void fill (int argb) {
+		for (int y = clipY0; y < clipY1; y++) {
+			int row = y * stride;
+			for (int x = clipX0; x < clipX1; x++) {
+				pixels.put(row + x, argb);
+			}
+		}
+	}
+	
+	/**
+	 * Blend a color over a rectangle, weighting the pixels along its edges by how much of them the
+	 * rectangle covers. This is used for straight lines such as grid lines and axes.
+	 * @param left The left edge of the rectangle.
+	 * @param top The top edge of the rectangle.
+	 * @param right The right edge of the rectangle.
+	 * @param bottom The bottom edge of the rectangle.
+	 * @param argb The premultiplied color.
+	 */
+	public void fillRect (double left, double top, double right, double bottom, int argb) {
+		left -= originX;
+		right -= originX;
+		top -= originY;
+		bottom -= originY;
+		int x0 = (int) Math.max(clipX0, Math.floor(left));
+		int x1 = (int) Math.min(clipX1 - 1, Math.ceil(right) - 1);
+		int y0 = (int) Math.max(clipY0, Math.floor(top));
+		int y1 = (int) Math.min(clipY1 - 1, Math.ceil(bottom) - 1);
+		for (int y = y0; y <= y1; y++) {
+			double yCoverage = Math.min(y + 1, bottom) - Math.max(y, top);
+			for (int x = x0; x <= x1; x++) {
+				double coverage = yCoverage * (Math.min(x + 1, right) - Math.max(x, left));
+				if (coverage > 0) {
+					blend(y * stride + x, argb, Math.min(1, coverage));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Blend a color over every pixel inside the clip rectangle by how much of it a region covers, as
+	 * found by an Inequality. Whole regions are blended at once, so each row is copied out of the
+	 * buffer and blended in fixed point, two channels to a multiplication, with the color scaled by
+	 * the coverage in 256ths.
+	 * @param coverage How much of each pixel of the buffer the region covers, from 0 to 1, row by row.
+	 * @param argb The premultiplied color.
+	 */
+	public void fillCoverage (float[] coverage, int argb) {
+		int srcRB = argb & 0x00FF00FF, srcAG = (argb >>> 8) & 0x00FF00FF;
+		if (row == null || row.length < width) {
+			row = new int[width];
+		}
+		int n = clipX1 - clipX0;
+		for (int y = clipY0; y < clipY1; y++) {
+			int start = y * stride + clipX0;
+			pixels.get(start, row, 0, n);
+			for (int x = 0; x < n; x++) {
+				float c = coverage[start + x];
+				if (!(c > 0)) {
+					continue;
+				}
+				int k = c >= 1 ? 256 : (int) (c * 256);
+				int rb = (srcRB * k >>> 8) & 0x00FF00FF, ag = (srcAG * k >>> 8) & 0x00FF00FF;
+				int inverse = 255 - (ag >>> 16);
+				int dst = row[x];
+				int dstRB = (dst & 0x00FF00FF) * inverse, dstAG = ((dst >>> 8) & 0x00FF00FF) * inverse;
+				dstRB = ((dstRB + 0x00800080 + ((dstRB >>> 8) & 0x00FF00FF)) >>> 8) & 0x00FF00FF;
+				dstAG = ((dstAG + 0x00800080 + ((dstAG >>> 8) & 0x00FF00FF)) >>> 8) & 0x00FF00FF;
+				row[x] = (ag + dstAG) << 8 | (rb + dstRB);
+			}
+			pixels.put(start, row, 0, n);
+		}
+	}
+	
+	/**
+	 * Blend an image the size of the buffer over every pixel inside the clip rectangle, as found by a
+	 * DomainColoring. Opaque pixels are copied and transparent ones are skipped, and each row is copied
+	 * out of the buffer and back, as in fillCoverage.
+	 * @param image The premultiplied ARGB pixels of the image, row by row.
+	 */
+	public void drawImage (int[] image) {
+		if (row == null || row.length < width) {
+			row = new int[width];
+		}
+		int n = clipX1 - clipX0;
+		for (int y = clipY0; y < clipY1; y++) {
+			int start = y * stride + clipX0;
+			pixels.get(start, row, 0, n);
+			for (int x = 0; x < n; x++) {
+				int src = image[start + x];
+				int inverse = 255 - (src >>> 24);
+				if (inverse == 0) {
+					row[x] = src;
+				} else if (inverse < 255) {
+					int dst = row[x];
+					int dstRB = (dst & 0x00FF00FF) * inverse, dstAG = ((dst >>> 8) & 0x00FF00FF) * inverse;
+					dstRB = ((dstRB + 0x00800080 + ((dstRB >>> 8) & 0x00FF00FF)) >>> 8) & 0x00FF00FF;
+					dstAG = ((dstAG + 0x00800080 + ((dstAG >>> 8) & 0x00FF00FF)) >>> 8) & 0x00FF00FF;
+					row[x] = src + (dstAG << 8 | dstRB);
+				}
+			}
+			pixels.put(start, row, 0, n);
+		}
+	}
+	
+	/**
+	 * Draw the points in a sample buffer as a curve, starting a new segment wherever the buffer
+	 * says to and skipping points that are not numbers.
+	 * @param samples The points of the curve, in the coordinates of the graph.
+	 * @param xScale The x scale factor from graph to screen coordinates.
+	 * @param xTrans The x translation from graph to screen coordinates.
+	 * @param yScale The y scale factor from graph to screen coordinates.
+	 * @param yTrans The y translation from graph to screen coordinates.
+	 * @param argb The premultiplied color of the curve.
+	 * @param lineWidth The width of the curve in pixels.
+	 */
+	public void drawCurve (SampleBuffer samples, double xScale, double xTrans, double yScale, double yTrans,
+			int argb, double lineWidth) {
+		if (clipX0 >= clipX1 || clipY0 >= clipY1) {
+			return;
+		}
+		
+		// Points far off the buffer are pulled in so that columns never see huge coordinates.
+		double limit = 4 * Math.max(width, height);
+		double half = lineWidth / 2;
+		spanning = false;
+		if (mask == null) {
+			mask = new float[stride * height];
+		}
+		maskX0 = clipX1;
+		maskY0 = clipY1;
+		maskX1 = clipX0;
+		maskY1 = clipY0;
+		
+		boolean penDown = false;
+		double px = 0, py = 0;
+		for (int i = 0; i < samples.size(); i++) {
+			double y = samples.getY(i);
+			if (Double.isNaN(y) || Double.isInfinite(y)) {
+				penDown = false;
+				continue;
+			}
+			double sx = samples.getX(i) * xScale + xTrans - originX;
+			double sy = Math.max(-limit, Math.min(limit, -y * yScale + yTrans - originY));
+			if (!penDown || samples.isMove(i)) {
+				
+				// A new segment never joins the range of the last one, even in the same column.
+				flushColumn(argb, half);
+				addToColumn((int) Math.floor(sx), sy, sy, argb, half);
+				penDown = true;
+			} else {
+				addSegment(px, py, sx, sy, argb, half);
+			}
+			px = sx;
+			py = sy;
+		}
+		flushColumn(argb, half);
+		
+		// Blend the color in by the mask, clearing the mask for the next curve.
+		for (int y = maskY0; y < maskY1; y++) {
+			int row = y * stride;
+			for (int x = maskX0; x < maskX1; x++) {
+				float coverage = mask[row + x];
+				if (coverage > 0) {
+					blend(row + x, argb, Math.min(1, coverage));
+					mask[row + x] = 0;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Add a segment of the curve to every column that it passes through.
+	 * @param x0 The x coordinate of the start of the segment.
+	 * @param y0 The y coordinate of the start of the segment.
+	 * @param x1 The x coordinate of the end of the segment.
+	 * @param y1 The y coordinate of the end of the segment.
+	 * @param argb The premultiplied color of the curve.
+	 * @param half Half the width of the curve.
+	 */
+	private void addSegment (double x0, double y0, double x1, double y1, int argb, double half) {
+		
+		// Walk the segment from left to right.
+		if (x1 < x0) {
+			double t = x0; x0 = x1; x1 = t;
+			t = y0; y0 = y1; y1 = t;
+		}
+		int first = (int) Math.floor(x0);
+		int last = (int) Math.floor(x1);
+		if (first == last) {
+			addToColumn(first, y0, y1, argb, half);
+			return;
+		}
+		
+		// Only the columns inside the clip rectangle, and the ones within a line width of it, matter.
+		int reach = (int) Math.ceil(half) + 1;
+		first = Math.max(first, clipX0 - reach);
+		last = Math.min(last, clipX1 + reach);
+		double slope = (y1 - y0) / (x1 - x0);
+		for (int c = first; c <= last; c++) {
+			double left = Math.max(x0, c);
+			double right = Math.min(x1, c + 1);
+			addToColumn(c, y0 + slope * (left - x0), y0 + slope * (right - x0), argb, half);
+		}
+	}
+	
+	/**
+	 * Extend the range of the curve in a column, drawing the previous column if this is a new one.
+	 * @param c The column.
+	 * @param ya One y coordinate of the curve in the column.
+	 * @param yb Another y coordinate of the curve in the column.
+	 * @param argb The premultiplied color of the curve.
+	 * @param half Half the width of the curve.
+	 */
+	private void addToColumn (int c, double ya, double yb, int argb, double half) {
+		if (spanning && c != column) {
+			flushColumn(argb, half);
+		}
+		double top = Math.min(ya, yb);
+		double bottom = Math.max(ya, yb);
+		if (!spanning) {
+			column = c;
+			spanTop = top;
+			spanBottom = bottom;
+			spanning = true;
+		} else {
+			spanTop = Math.min(spanTop, top);
+			spanBottom = Math.max(spanBottom, bottom);
+		}
+	}
+	
+	/**
+	 * Add the range of the curve in the current column to the mask, widened by the line width, with
+	 * each pixel weighted by how much of it the widened range covers.
+	 * @param argb The premultiplied color of the curve.
+	 * @param half Half the width of the curve.
+	 */
+	private void flushColumn (int argb, double half) {
+		if (!spanning) {
+			return;
+		}
+		spanning = false;
+		
+		// The range is widened across neighbouring columns too, so steep parts are as thick as flat ones.
+		double left = column + 0.5 - half;
+		double right = column + 0.5 + half;
+		double top = spanTop - half;
+		double bottom = spanBottom + half;
+		int x0 = Math.max(clipX0, (int) Math.floor(left));
+		int x1 = Math.min(clipX1 - 1, (int) Math.ceil(right) - 1);
+		int y0 = Math.max(clipY0, (int) Math.floor(top));
+		int y1 = Math.min(clipY1 - 1, (int) Math.ceil(bottom) - 1);
+		if (x0 > x1 || y0 > y1) {
+			return;
+		}
+		maskX0 = Math.min(maskX0, x0);
+		maskX1 = Math.max(maskX1, x1 + 1);
+		maskY0 = Math.min(maskY0, y0);
+		maskY1 = Math.max(maskY1, y1 + 1);
+		for (int x = x0; x <= x1; x++) {
+			double xCoverage = Math.min(x + 1, right) - Math.max(x, left);
+			for (int y = y0; y <= y1; y++) {
+				float coverage = (float) (xCoverage * (Math.min(y + 1, bottom) - Math.max(y, top)));
+				int index = y * stride + x;
+				if (coverage > mask[index]) {
+					mask[index] = coverage;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Blend a color over the pixel at the given index.
+	 * @param index The index of the pixel.
+	 * @param argb The premultiplied color.
+	 * @param coverage How much of the pixel the color covers, from 0 to 1.
+	 */
+	private void blend (int index, int argb, double coverage) {
+		int a = (int) (((argb >>> 24) & 0xFF) * coverage + 0.5);
+		int r = (int) (((argb >>> 16) & 0xFF) * coverage + 0.5);
+		int g = (int) (((argb >>> 8) & 0xFF) * coverage + 0.5);
+		int b = (int) ((argb & 0xFF) * coverage + 0.5);
+		if (a == 0) {
+			return;
+		}
+		int dst = pixels.get(index);
+		int inverse = 255 - a;
+		int da = a + (((dst >>> 24) & 0xFF) * inverse + 127) / 255;
+		int dr = r + (((dst >>> 16) & 0xFF) * inverse + 127) / 255;
+		int dg = g + (((dst >>> 8) & 0xFF) * inverse + 127) / 255;
+		int db = b + ((dst & 0xFF) * inverse + 127) / 255;
+		pixels.put(index, (da << 24) | (dr << 16) | (dg << 8) | db);
+	}
+	
+	/**
+	 * Find the pixels that a curve touches, so that they can be marked as dirty.
+	 * @param samples The points of the curve, in the coordinates of the graph.
+	 * @param xScale The x scale factor from graph to screen coordinates.
+	 * @param xTrans The x translation from graph to screen coordinates.
+	 * @param yScale The y scale factor from graph to screen coordinates.
+	 * @param yTrans The y translation from graph to screen coordinates.
+	 * @param lineWidth The width of the curve in pixels.
+	 * @return The left, top, right, and bottom edges of the touched pixels, or null if there are none.
+	 */
+	public static int[] bounds (SampleBuffer samples, double xScale, double xTrans, double yScale, double yTrans,
+			double lineWidth) {
+		double left = Double.POSITIVE_INFINITY, top = Double.POSITIVE_INFINITY;
+		double right = Double.NEGATIVE_INFINITY, bottom = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < samples.size(); i++) {
+			double y = samples.getY(i);
+			if (Double.isNaN(y) || Double.isInfinite(y)) {
+				continue;
+			}
+			double sx = samples.getX(i) * xScale + xTrans;
+			double sy = -y * yScale + yTrans;
+			left = Math.min(left, sx);
+			right = Math.max(right, sx);
+			top = Math.min(top, sy);
+			bottom = Math.max(bottom, sy);
+		}
+		if (left > right) {
+			return null;
+		}
+		double pad = lineWidth / 2 + 1;
+		return new int[] {clampToInt(Math.floor(left - pad)), clampToInt(Math.floor(top - pad)),
+				clampToInt(Math.ceil(right + pad)), clampToInt(Math.ceil(bottom + pad))};
+	}
+	
+	/**
+	 * @param v A value.
+	 * @return The value, rounded toward zero and kept inside the range of an int.
+	 */
+	private static int clampToInt (double v) {
+		return (int) Math.max(Integer.MIN_VALUE / 2, Math.min(Integer.MAX_VALUE / 2, v));
+	}
+	
+	/**
+	 * Convert a non-premultiplied ARGB color to a premultiplied ARGB pixel.
+	 * @param argb The non-premultiplied color.
+	 * @return The premultiplied pixel.
+	 */
+	public static int premultiply (int argb) {
+		return toArgbPre(((argb >>> 16) & 0xFF) / 255.0, ((argb >>> 8) & 0xFF) / 255.0, (argb & 0xFF) / 255.0,
+				((argb >>> 24) & 0xFF) / 255.0);
+	}
+	
+	/**
+	 * Convert a color to a premultiplied ARGB pixel.
+	 * @param red The red component, from 0 to 1.
+	 * @param green The green component, from 0 to 1.
+	 * @param blue The blue component, from 0 to 1.
+	 * @param opacity The opacity, from 0 to 1.
+	 * @return The premultiplied pixel.
+	 */
+	public static int toArgbPre (double red, double green, double blue, double opacity) {
+		int a = (int) Math.round(opacity * 255);
+		int r = (int) Math.round(red * opacity * 255);
+		int g = (int) Math.round(green * opacity * 255);
+		int b = (int) Math.round(blue * opacity * 255);
+		return (a << 24) | (r << 16) | (g << 8) | b;
+	}
+}
@@ -0,0 +1,115 @@
+package application;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+/**
+ * This class extends ImageView from JavaFX. It shades the regions where the inequalities of a
+ * GraphArea hold, each in the color of its inequality, in a single PixelBuffer, over the images of
+ * its complex functions. The regions are blended over one another in drawing order by how much of
+ * each pixel they cover, so where regions overlap their colors mix and build up just as translucent
+ * shapes would, without a node per region. The buffer is only blended again when a region or image
+ * has been found again, one of these graphs has been added or removed, or the size of the GraphArea
+ * has changed.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class RegionLayer extends ImageView {
+	
+	private static final double OPACITY = 0.3;	// The opacity of each region.
+	
+	private GraphArea ga;						// The GraphArea that this layer belongs to.
+	private int width, height;					// The size of the buffer in pixels.
+	private IntBuffer pixels;					// The premultiplied ARGB pixels.
+	private PixelBuffer<IntBuffer> buffer;		// The pixel buffer backing the image.
+	private Rasterizer rasterizer;				// Blends the regions into the pixels.
+	private List<Graph> shown;					// The graphs whose regions or images are in the buffer, in drawing order.
+	
+	/**
+	 * Create an empty layer belonging to the given GraphArea.
+	 * @param ga The GraphArea that this layer belongs to.
+	 */
+	public RegionLayer (GraphArea ga) {
+		this.ga = ga;
+		shown = new ArrayList<Graph>();
+		
+		// The layer never needs to receive mouse events.
+		setMouseTransparent(true);
+	}
+	
+	/**
+	 * Draw the image of every complex function among the given graphs into the buffer, then blend the
+	 * region of every inequality over them, and upload it, unless nothing has changed since it was last
+	 * done. The graphs should already have been sampled for the current viewport.
+	 * @param graphs Every graph of the GraphArea, in drawing order.
+	 */
+	public void redraw (List<Graph> graphs) {
+		List<Graph> drawn = new ArrayList<Graph>(), inequalities = new ArrayList<Graph>();
+		boolean changed = false;
+		for (Graph g : graphs) {
+			if (g instanceof DomainColoring && !g.isDirty()) {
+				drawn.add(g);
+				changed |= !((DomainColoring) g).isPainted();
+			} else if (g instanceof Inequality && !g.isDirty()) {
+				inequalities.add(g);
+				changed |= !((Inequality) g).isShaded();
+			}
+		}
+		drawn.addAll(inequalities);
+		
+		// Match the size of the GraphArea, which changes every region.
+		int w = Math.max(1, (int) Math.ceil(ga.getWidth()));
+		int h = Math.max(1, (int) Math.ceil(ga.getHeight()));
+		if (w != width || h != height) {
+			width = w;
+			height = h;
+			pixels = null;
+			changed = true;
+		}
+		if (!changed && drawn.equals(shown)) {
+			return;
+		}
+		shown = drawn;
+		
+		// With nothing to shade, the buffer is let go until there is something again.
+		if (drawn.isEmpty()) {
+			pixels = null;
+			buffer = null;
+			setImage(null);
+			return;
+		}
+		if (pixels == null) {
+			pixels = ByteBuffer.allocateDirect(w * h * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+			buffer = new PixelBuffer<IntBuffer>(w, h, pixels, PixelFormat.getIntArgbPreInstance());
+			rasterizer = new Rasterizer(pixels, w, h);
+			setImage(new WritableImage(buffer));
+		}
+		
+		// Clear the buffer, then draw every image and blend in every region.
+		rasterizer.fill(0);
+		for (Graph g : drawn) {
+			if (g instanceof DomainColoring) {
+				
+				// An image found before the GraphArea was resized waits for the next one.
+				int[] image = ((DomainColoring) g).paint();
+				if (image.length == w * h) {
+					rasterizer.drawImage(image);
+				}
+			} else {
+				Color c = g.getColor();
+				rasterizer.fillCoverage(((Inequality) g).shade(),
+						Rasterizer.toArgbPre(c.getRed(), c.getGreen(), c.getBlue(), OPACITY));
+			}
+		}
+		buffer.updateBuffer(b -> null);
+	}
+}
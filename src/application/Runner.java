@@ -1,11 +1,25 @@
 package application;
 
+import java.io.File;
+import java.io.IOException;
+
+import javafx.animation.AnimationTimer;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.event.EventHandler;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import javafx.scene.Node;
 import javafx.scene.Scene;
+import javafx.scene.control.TextInputControl;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyCodeCombination;
+import javafx.scene.input.KeyCombination;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.input.ScrollEvent;
+import javafx.scene.paint.Color;
 
 /**
  * This program displays a graph area and an input box for users to enter a function
@@ -17,11 +31,17 @@ import javafx.scene.input.ScrollEvent;
 public class Runner extends Application {
 	
 	private double xPanStart, yPanStart;	// These are used to keep track of where a pan starts.
+	private boolean panning;				// Whether or not the current drag pans, which it does unless it started on the input box.
 	
 	@Override
 	/**
 	 * This displays a GraphArea, adds some sample graphs to it, attaches
-	 * the CSS file, and displays it on a fixed-size stage.
+	 * the CSS file, and displays it on a fixed-size stage. The input box and the
+	 * last session are added once the graph surface is on screen. With the
+	 * --startup-report argument, the time to the first frame and the time until
+	 * the whole interface is shown are printed, and with --exit-after-startup the
+	 * application also exits then, which is used to measure startup and to
+	 * create a class-data sharing archive.
 	 * @param stage The main stage of the application.
 	 */
 	public void start(Stage stage) {
@@ -55,8 +75,9 @@ public class Runner extends Application {
 		    // This one is called whenever a pan starts.
 		    EventHandler<MouseEvent> panStart = new EventHandler<MouseEvent>() {
 		    	@Override
-		    	// Get the coordinates of where the mouse is when the pan starts.
+		    	// Get the coordinates of where the mouse is when the pan starts, unless it is on the input box.
 		    	public void handle (MouseEvent e) {
+		    		panning = !isOnInputBox(e);
 		    		
 		    		/*
 		    		 *  Convert the location given by the mouse event (which is relative to the width and
@@ -87,6 +108,9 @@ public class Runner extends Application {
 		    	@Override
 		    	// Pan the graph based on where the pan started and where the mouse currently is.
 		    	public void handle(MouseEvent e) {
+		    		if (!panning) {
+		    			return;
+		    		}
 		    		ga.pan(xPanStart, yPanStart, e.getX(), e.getY());
 		    		ga.update();
 		    	}
@@ -94,6 +118,176 @@ public class Runner extends Application {
 		    
 		    // Add this event handler to the scene.
 		    scene.addEventFilter(MouseEvent.MOUSE_DRAGGED, panner);
+		    
+		    // These event handlers trace the graphs under the mouse while it moves, and stop when it leaves or pans.
+		    EventHandler<MouseEvent> tracer = new EventHandler<MouseEvent>() {
+		    	@Override
+		    	// Mark the points under the mouse without updating the graph area.
+		    	public void handle (MouseEvent e) {
+		    		ga.trace(e.getX());
+		    	}
+		    };
+		    EventHandler<MouseEvent> untracer = new EventHandler<MouseEvent>() {
+		    	@Override
+		    	// Hide the marked points.
+		    	public void handle (MouseEvent e) {
+		    		ga.hideTrace();
+		    	}
+		    };
+		    
+		    // Add these event handlers to the scene, except for leaving, which only counts for the graph area itself.
+		    scene.addEventFilter(MouseEvent.MOUSE_MOVED, tracer);
+		    scene.addEventFilter(MouseEvent.MOUSE_PRESSED, untracer);
+		    ga.addEventHandler(MouseEvent.MOUSE_EXITED, untracer);
+		    
+		    // This event handler draws the solutions of every slope field through a point that the user clicks without dragging.
+		    EventHandler<MouseEvent> solver = new EventHandler<MouseEvent>() {
+		    	@Override
+		    	// Convert the click to the coordinate system, unless it was on the input box.
+		    	public void handle (MouseEvent e) {
+		    		if (e.getButton() != MouseButton.PRIMARY || !e.isStillSincePress() || isOnInputBox(e)) {
+		    			return;
+		    		}
+		    		double x = (e.getX() - ga.getXTranslation()) / ga.getXScale();
+		    		double y = (ga.getYTranslation() - e.getY()) / ga.getYScale();
+		    		for (Graph g : ga.getGraphs()) {
+		    			if (g instanceof SlopeField) {
+		    				((SlopeField) g).addTrajectory(x, y);
+		    			}
+		    		}
+		    		ga.update();
+		    	}
+		    };
+		    
+		    // Add this event handler to the scene.
+		    scene.addEventFilter(MouseEvent.MOUSE_CLICKED, solver);
+		    
+		    // This event handler exports what the graph area shows when the user presses Shortcut+E.
+		    KeyCombination exportKeys = new KeyCodeCombination(KeyCode.E, KeyCombination.SHORTCUT_DOWN);
+		    EventHandler<KeyEvent> exporter = new EventHandler<KeyEvent>() {
+		    	@Override
+		    	// Ask where to save the image, then render it at four times the size of the window in the background.
+		    	public void handle (KeyEvent e) {
+		    		if (!exportKeys.match(e)) {
+		    			return;
+		    		}
+		    		e.consume();
+		    		FileChooser chooser = new FileChooser();
+		    		chooser.setTitle("Export Graph");
+		    		chooser.getExtensionFilters().addAll(new FileChooser.ExtensionFilter("PNG Image", "*.png"),
+		    				new FileChooser.ExtensionFilter("SVG Image", "*.svg"));
+		    		File file = chooser.showSaveDialog(stage);
+		    		if (file == null) {
+		    			return;
+		    		}
+		    		Plot plot = ga.toPlot();
+		    		int width = (int) Math.ceil(ga.getWidth()) * 4;
+		    		int height = (int) Math.ceil(ga.getHeight()) * 4;
+		    		Thread thread = new Thread(() -> {
+		    			try {
+		    				PlotExporter.export(plot, width, height, file.getPath());
+		    			} catch (IOException ex) {
+		    				ex.printStackTrace();
+		    			}
+		    		}, "graph-export");
+		    		thread.setDaemon(true);
+		    		thread.start();
+		    	}
+		    };
+		    
+		    // Add this event handler to the scene.
+		    scene.addEventFilter(KeyEvent.KEY_PRESSED, exporter);
+		    
+		    // This event handler imports a measured data series when the user presses Shortcut+O.
+		    KeyCombination importKeys = new KeyCodeCombination(KeyCode.O, KeyCombination.SHORTCUT_DOWN);
+		    EventHandler<KeyEvent> importer = new EventHandler<KeyEvent>() {
+		    	@Override
+		    	// Ask for the file, then map it and summarize it in the background before graphing it.
+		    	public void handle (KeyEvent e) {
+		    		if (!importKeys.match(e)) {
+		    			return;
+		    		}
+		    		e.consume();
+		    		FileChooser chooser = new FileChooser();
+		    		chooser.setTitle("Import Data");
+		    		chooser.getExtensionFilters().addAll(new FileChooser.ExtensionFilter("CSV Data", "*.csv", "*.txt"),
+		    				new FileChooser.ExtensionFilter("Binary x, y Doubles", "*.*"));
+		    		File file = chooser.showOpenDialog(stage);
+		    		if (file == null) {
+		    			return;
+		    		}
+		    		Thread thread = new Thread(() -> {
+		    			try {
+		    				DataSeries series = DataSeries.open(file.toPath());
+		    				Platform.runLater(() -> ga.addGraph(new DataGraph(series, ga,
+		    						new Color(Math.random(), Math.random(), Math.random(), 1))));
+		    			} catch (IOException ex) {
+		    				ex.printStackTrace();
+		    			}
+		    		}, "data-import");
+		    		thread.setDaemon(true);
+		    		thread.start();
+		    	}
+		    };
+		    
+		    // Add this event handler to the scene.
+		    scene.addEventFilter(KeyEvent.KEY_PRESSED, importer);
+		    
+		    // This event handler shows or hides the table of values when the user presses Shortcut+T.
+		    KeyCombination tableKeys = new KeyCodeCombination(KeyCode.T, KeyCombination.SHORTCUT_DOWN);
+		    EventHandler<KeyEvent> tabler = new EventHandler<KeyEvent>() {
+		    	@Override
+		    	// Toggle the table of values.
+		    	public void handle (KeyEvent e) {
+		    		if (tableKeys.match(e)) {
+		    			e.consume();
+		    			ga.toggleTable();
+		    		}
+		    	}
+		    };
+		    
+		    // Add this event handler to the scene.
+		    scene.addEventFilter(KeyEvent.KEY_PRESSED, tabler);
+		    
+		    // This event handler shows or hides the performance counters when the user presses Shortcut+P.
+		    KeyCombination hudKeys = new KeyCodeCombination(KeyCode.P, KeyCombination.SHORTCUT_DOWN);
+		    EventHandler<KeyEvent> hudToggler = new EventHandler<KeyEvent>() {
+		    	@Override
+		    	// Toggle the performance counters.
+		    	public void handle (KeyEvent e) {
+		    		if (hudKeys.match(e)) {
+		    			e.consume();
+		    			ga.togglePerformanceHud();
+		    		}
+		    	}
+		    };
+		    
+		    // Add this event handler to the scene.
+		    scene.addEventFilter(KeyEvent.KEY_PRESSED, hudToggler);
+		    
+		    // This event handler steps back to the last view when the user presses Shortcut+Z, and forward again with Shortcut+Shift+Z or Shortcut+Y.
+		    KeyCombination backKeys = new KeyCodeCombination(KeyCode.Z, KeyCombination.SHORTCUT_DOWN);
+		    KeyCombination forwardKeys = new KeyCodeCombination(KeyCode.Z, KeyCombination.SHORTCUT_DOWN, KeyCombination.SHIFT_DOWN);
+		    KeyCombination redoKeys = new KeyCodeCombination(KeyCode.Y, KeyCombination.SHORTCUT_DOWN);
+		    EventHandler<KeyEvent> historian = new EventHandler<KeyEvent>() {
+		    	@Override
+		    	// Step through the views, unless the keys are meant to undo typing in a text field.
+		    	public void handle (KeyEvent e) {
+		    		if (e.getTarget() instanceof TextInputControl) {
+		    			return;
+		    		}
+		    		if (backKeys.match(e)) {
+		    			e.consume();
+		    			ga.back();
+		    		} else if (forwardKeys.match(e) || redoKeys.match(e)) {
+		    			e.consume();
+		    			ga.forward();
+		    		}
+		    	}
+		    };
+		    
+		    // Add this event handler to the scene.
+		    scene.addEventFilter(KeyEvent.KEY_PRESSED, historian);
 			
 		    
 		    // Attach the CSS file, title the window, add the scene to the stage, format the stage, and finally show the stage.
@@ -101,11 +295,94 @@ public class Runner extends Application {
 	 	    stage.setTitle("Graphing Calculator--Mark Kikta");
 	 	    stage.setScene(scene);
 	 	    stage.show();
+	 	    
+	 	    // Once the graph surface is on screen, create the rest of the interface and restore the last session.
+	 	    boolean exitAfterStartup = getParameters().getRaw().contains("--exit-after-startup");
+	 	    boolean reportStartup = exitAfterStartup || getParameters().getRaw().contains("--startup-report");
+	 	    new AnimationTimer() {
+	 	    	private int pulses;			// How many pulses there have been since the stage was shown.
+	 	    	private long firstFrame;	// When the graph surface was first on screen, in milliseconds.
+	 	    	
+	 	    	@Override
+	 	    	// The first pulse draws the graph surface, so it is on screen by the second one.
+	 	    	public void handle (long now) {
+	 	    		pulses++;
+	 	    		if (pulses == 2) {
+	 	    			firstFrame = System.currentTimeMillis();
+	 	    			finishStartup(stage, ga, exitAfterStartup);
+	 	    		} else if (pulses == 3) {
+	 	    			
+	 	    			// The rest of the interface has now been drawn too, so the user can interact with it.
+	 	    			stop();
+	 	    			if (reportStartup) {
+	 	    				long start = ProcessHandle.current().info().startInstant().map(i -> i.toEpochMilli()).orElse(firstFrame);
+	 	    				System.out.println("Startup: first frame " + (firstFrame - start) + " ms, interactive "
+	 	    						+ (System.currentTimeMillis() - start) + " ms");
+	 	    			}
+	 	    			if (exitAfterStartup) {
+	 	    				Platform.exit();
+	 	    			}
+	 	    		}
+	 	    	}
+	 	    }.start();
 	    } catch (Exception e) {
 	    	e.printStackTrace();
 	    }
 	};
 	
+	/**
+	 * Create the parts of the interface that are not needed for the first frame, restore the last
+	 * session, start any live stream, and save the session when the window closes.
+	 * @param stage The main stage of the application.
+	 * @param ga The GraphArea on the stage.
+	 * @param exitAfterStartup Whether or not the application is only being started to be measured,
+	 * in which case the session is not saved.
+	 */
+	private void finishStartup (Stage stage, GraphArea ga, boolean exitAfterStartup) {
+		ga.getInputBox();
+		Session session = new Session();
+		try {
+			session.load(ga);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		
+		// With --stream-port=n, graph the samples that a local producer writes to that port.
+		String streamPort = getParameters().getNamed().get("stream-port");
+		if (streamPort != null) {
+			StreamGraph stream = new StreamGraph("stream", ga, Color.CRIMSON);
+			try {
+				stream.listen(Integer.parseInt(streamPort));
+				ga.addGraph(stream);
+				stream.start();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		if (!exitAfterStartup) {
+			stage.setOnHidden(event -> {
+				try {
+					session.save(ga);
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			});
+		}
+	}
+	
+	/**
+	 * @param e A mouse event.
+	 * @return Whether or not it happened on the input box or on one of its children, such as a slider.
+	 */
+	private static boolean isOnInputBox (MouseEvent e) {
+		for (Node n = e.getPickResult().getIntersectedNode(); n != null; n = n.getParent()) {
+			if (n instanceof InputBox) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
 	/**
 	 * JavaFX boilerplate. Launch the application.
 	 * @param args
@@ -0,0 +1,226 @@
+package application;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * This class holds the sampled points of a graph in primitive arrays that are reused between
+ * draws and only grow when more room is needed. Points are kept in the coordinates of the graph
+ * rather than of the screen. It has fields for the x and y values of each point and for whether
+ * each point starts a new segment. It has a method that samples a function without needing a scene,
+ * and methods that copy its points to and from a binary buffer.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class SampleBuffer {
+	
+	private static final double MAX_SLOPE = 999;	// Steeper than this, a function is treated as discontinuous.
+	
+	private double[] xs = new double[0];		// The x values of the points.
+	private double[] ys = new double[0];		// The y values of the points.
+	private boolean[] moves = new boolean[0];	// Whether each point starts a new segment.
+	private double[] batchXs, batchYs;			// One batch of x values of an Expression and its values at them.
+	private double[][] scratch = new double[0][];	// The scratch arrays of a batch evaluation.
+	private int size;							// The number of points in this buffer.
+	
+	/**
+	 * Make sure that this buffer can hold the given number of points, growing it if it cannot.
+	 * The points already in this buffer are kept.
+	 * @param capacity The number of points.
+	 */
+	public void ensureCapacity (int capacity) {
+		if (capacity > xs.length) {
+			int length = Math.max(capacity, xs.length + (xs.length >> 1));
+			xs = Arrays.copyOf(xs, length);
+			ys = Arrays.copyOf(ys, length);
+			moves = Arrays.copyOf(moves, length);
+		}
+	}
+	
+	/**
+	 * Remove every point from this buffer without giving up its arrays.
+	 */
+	public void clear () {
+		size = 0;
+	}
+	
+	/**
+	 * Replace the contents of this buffer with a copy of the points of another.
+	 * @param other The other buffer.
+	 */
+	public void copy (SampleBuffer other) {
+		ensureCapacity(other.size);
+		System.arraycopy(other.xs, 0, xs, 0, other.size);
+		System.arraycopy(other.ys, 0, ys, 0, other.size);
+		System.arraycopy(other.moves, 0, moves, 0, other.size);
+		size = other.size;
+	}
+	
+	/**
+	 * Add a point to the end of this buffer.
+	 * @param x The x value of the point.
+	 * @param y The y value of the point.
+	 * @param move Whether the point starts a new segment rather than continuing the last one.
+	 */
+	public void add (double x, double y, boolean move) {
+		ensureCapacity(size + 1);
+		xs[size] = x;
+		ys[size] = y;
+		moves[size] = move;
+		size++;
+	}
+	
+	/**
+	 * Replace the contents of this buffer with evenly spaced samples of a function. A point starts
+	 * a new segment if it is the first point or if the function is (probably) discontinuous there.
+	 * @param func The function to be sampled.
+	 * @param from The first x value.
+	 * @param to The last x value.
+	 * @param intervals The number of intervals between samples.
+	 */
+	public void sample (DoubleUnaryOperator func, double from, double to, int intervals) {
+		ensureCapacity(intervals + 1);
+		double increment = (to - from) / intervals;
+		for (int i = 0; i <= intervals; i++) {
+			xs[i] = from + i * increment;
+		}
+		
+		// Expressions are evaluated a batch at a time, and other functions one point at a time.
+		if (func instanceof Expression) {
+			evaluate((Expression) func, intervals + 1);
+		} else {
+			for (int i = 0; i <= intervals; i++) {
+				ys[i] = func.applyAsDouble(xs[i]);
+			}
+		}
+		
+		// Check if the function gets too steep to display.
+		double prevY = 0;
+		for (int i = 0; i <= intervals; i++) {
+			moves[i] = i == 0 || Math.abs((ys[i] - prevY) / increment) > MAX_SLOPE;
+			prevY = ys[i];
+		}
+		size = intervals + 1;
+	}
+	
+	/**
+	 * Evaluate an expression at the first n x values of this buffer, a batch at a time, reusing the
+	 * same scratch arrays every time.
+	 * @param e The expression.
+	 * @param n How many x values to evaluate it at.
+	 */
+	private void evaluate (Expression e, int n) {
+		if (batchXs == null) {
+			batchXs = new double[Expression.BATCH];
+			batchYs = new double[Expression.BATCH];
+		}
+		if (scratch.length < e.getRegisters()) {
+			scratch = new double[e.getRegisters()][Expression.BATCH];
+		}
+		for (int start = 0; start < n; start += Expression.BATCH) {
+			int count = Math.min(Expression.BATCH, n - start);
+			System.arraycopy(xs, start, batchXs, 0, count);
+			e.evaluate(batchXs, 0, batchYs, count, scratch);
+			System.arraycopy(batchYs, 0, ys, start, count);
+		}
+	}
+	
+	/**
+	 * Find the point whose x value is closest to the given one with a binary search, which relies on
+	 * the points being in order of x, as they are after sampling.
+	 * @param x An x value.
+	 * @return The index of the closest point, or -1 if this buffer is empty.
+	 */
+	public int nearest (double x) {
+		if (size == 0) {
+			return -1;
+		}
+		int i = Arrays.binarySearch(xs, 0, size, x);
+		if (i >= 0) {
+			return i;
+		}
+		
+		// Otherwise the value falls between two points, so pick the closer of them.
+		int after = -i - 1;
+		if (after == 0) {
+			return 0;
+		}
+		if (after == size) {
+			return size - 1;
+		}
+		return x - xs[after - 1] <= xs[after] - x ? after - 1 : after;
+	}
+	
+	/**
+	 * @return The number of bytes that write will put into a buffer.
+	 */
+	public int bytes () {
+		return 4 + size * 17;
+	}
+	
+	/**
+	 * Copy the points of this buffer into a binary buffer: the number of points, then every x
+	 * value, then every y value, then a byte for whether each point starts a new segment.
+	 * @param out The buffer to write to, starting at its position, which is moved past the points.
+	 */
+	public void write (ByteBuffer out) {
+		out.putInt(size);
+		out.asDoubleBuffer().put(xs, 0, size);
+		out.position(out.position() + size * 8);
+		out.asDoubleBuffer().put(ys, 0, size);
+		out.position(out.position() + size * 8);
+		for (int i = 0; i < size; i++) {
+			out.put((byte) (moves[i] ? 1 : 0));
+		}
+	}
+	
+	/**
+	 * Replace the contents of this buffer with points copied from a binary buffer in the format
+	 * that write uses.
+	 * @param in The buffer to read from, starting at its position, which is moved past the points.
+	 */
+	public void read (ByteBuffer in) {
+		int n = in.getInt();
+		ensureCapacity(n);
+		in.asDoubleBuffer().get(xs, 0, n);
+		in.position(in.position() + n * 8);
+		in.asDoubleBuffer().get(ys, 0, n);
+		in.position(in.position() + n * 8);
+		for (int i = 0; i < n; i++) {
+			moves[i] = in.get() != 0;
+		}
+		size = n;
+	}
+	
+	/**
+	 * @param i The index of a point.
+	 * @return The x value of the point.
+	 */
+	public double getX (int i) {
+		return xs[i];
+	}
+	
+	/**
+	 * @param i The index of a point.
+	 * @return The y value of the point.
+	 */
+	public double getY (int i) {
+		return ys[i];
+	}
+	
+	/**
+	 * @param i The index of a point.
+	 * @return Whether the point starts a new segment.
+	 */
+	public boolean isMove (int i) {
+		return moves[i];
+	}
+	
+	/**
+	 * @return size
+	 */
+	public int size () {
+		return size;
+	}
+}
@@ -0,0 +1,164 @@
+package application;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * This class keeps the last samples of a set of graphs in a binary file, so that a session can be
+ * shown again without sampling its graphs. Each entry is keyed by a hash of the expression it was
+ * sampled from and of the values of the parameters that the expression uses, and it records the x
+ * range that it covers, so samples are only reused when all of them still match. Graphs that are not
+ * expressions are never cached. The file is read into memory and closed right away rather than
+ * mapped, since a mapping would keep it open until it is garbage collected, and a file that is
+ * open cannot be replaced on Windows.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class SampleCache {
+	
+	private static final int MAGIC = 0x47534331;	// Marks a file as a sample cache ("GSC1").
+	
+	private ByteBuffer data;					// The contents of the file.
+	private Map<Long, Integer> offsets;			// Where the entry for each key starts.
+	
+	/**
+	 * Read a cache file and index its entries.
+	 * @param file The cache file.
+	 * @throws IOException If the file cannot be read or is not a sample cache.
+	 */
+	public SampleCache (Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException(file + " is too large to be a sample cache.");
+			}
+			data = ByteBuffer.allocate((int) channel.size());
+			while (data.hasRemaining() && channel.read(data) >= 0) {
+				// Keep reading until the whole file is in memory.
+			}
+			data.flip();
+		}
+		if (data.remaining() < 8 || data.getInt(0) != MAGIC) {
+			throw new IOException(file + " is not a sample cache.");
+		}
+		
+		// Each entry is a key and a range, followed by the samples, whose size is read to skip them.
+		offsets = new HashMap<Long, Integer>();
+		int count = data.getInt(4);
+		int position = 8;
+		for (int i = 0; i < count; i++) {
+			offsets.put(data.getLong(position), position);
+			int size = data.getInt(position + 24);
+			position += 28 + size * 17;
+		}
+	}
+	
+	/**
+	 * Fill in the samples of a graph from this cache, if the cache holds samples of the same
+	 * expression with the same parameter values over the same x range.
+	 * @param g The graph, which is marked as sampled if it was filled in.
+	 * @param from The first x value that the graph should be sampled at.
+	 * @param to The last x value that the graph should be sampled at.
+	 * @param parameters The parameters that the graph is sampled with.
+	 * @return Whether or not the samples were filled in.
+	 */
+	public boolean restore (Graph g, double from, double to, Parameters parameters) {
+		if (!(g.getFunction() instanceof Expression)) {
+			return false;
+		}
+		Integer offset = offsets.get(key(g, parameters));
+		if (offset == null || data.getDouble(offset + 8) != from || data.getDouble(offset + 16) != to) {
+			return false;
+		}
+		ByteBuffer entry = data.duplicate();
+		entry.position(offset + 24);
+		g.getSamples().read(entry);
+		g.markSampled();
+		return true;
+	}
+	
+	/**
+	 * Write the samples of every graph that is an expression to a cache file, replacing it.
+	 * @param file The cache file.
+	 * @param graphs The graphs.
+	 * @param from The first x value that the graphs were sampled at.
+	 * @param to The last x value that the graphs were sampled at.
+	 * @param parameters The parameters that the graphs were sampled with.
+	 * @throws IOException If the file cannot be written.
+	 */
+	public static void write (Path file, List<Graph> graphs, double from, double to, Parameters parameters)
+			throws IOException {
+		
+		// Find out how large the file will be.
+		long length = 8;
+		int count = 0;
+		for (Graph g : graphs) {
+			if (g.getFunction() instanceof Expression && !g.isDirty() && !g.isApproximate()) {
+				length += 24 + g.getSamples().bytes();
+				count++;
+			}
+		}
+		
+		// Copy each graph's samples into one buffer and write it out in one go.
+		ByteBuffer out = ByteBuffer.allocate((int) length);
+		out.putInt(MAGIC);
+		out.putInt(count);
+		for (Graph g : graphs) {
+			DoubleUnaryOperator f = g.getFunction();
+			if (f instanceof Expression && !g.isDirty() && !g.isApproximate()) {
+				out.putLong(key(g, parameters));
+				out.putDouble(from);
+				out.putDouble(to);
+				g.getSamples().write(out);
+			}
+		}
+		out.flip();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (out.hasRemaining()) {
+				channel.write(out);
+			}
+			channel.force(false);
+		}
+	}
+	
+	/**
+	 * @param g A graph that is an expression.
+	 * @param parameters The parameters that it is sampled with.
+	 * @return The key of its entry: a hash of its text and of the values of the parameters it uses.
+	 */
+	private static long key (Graph g, Parameters parameters) {
+		long h = hash(((Expression) g.getFunction()).getText());
+		long mask = g.getParameterMask();
+		for (int slot = 0; slot < Parameters.COUNT; slot++) {
+			if ((mask & 1L << slot) != 0) {
+				long bits = Double.doubleToLongBits(parameters.values[slot]);
+				for (int i = 0; i < 8; i++) {
+					h ^= (bits >>> 8 * i) & 0xff;
+					h *= 0x100000001b3L;
+				}
+			}
+		}
+		return h;
+	}
+	
+	/**
+	 * @param text The text of an expression.
+	 * @return A 64-bit FNV-1a hash of the text.
+	 */
+	private static long hash (String text) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < text.length(); i++) {
+			h ^= text.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		return h;
+	}
+}
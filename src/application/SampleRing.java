@@ -0,0 +1,110 @@
+package application;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class is a lock-free ring buffer of (x, y) samples for exactly one producer thread and one
+ * consumer thread. Samples are kept in primitive arrays, so neither side allocates anything per
+ * sample, and neither side ever waits for the other: when the ring is full, new samples are dropped
+ * and counted rather than blocking the producer. Each side publishes its position with an ordered
+ * write, and only reads the other side's position when its cached copy says the ring is full or
+ * empty.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class SampleRing {
+	
+	private final double[] xs;					// The x values of the samples.
+	private final double[] ys;					// The y values of the samples.
+	private final int mask;						// Finds a slot from a position.
+	private final AtomicLong head;				// The position of the next sample to be read.
+	private final AtomicLong tail;				// The position of the next sample to be written.
+	private long producerTail;					// The producer's own copy of tail.
+	private long cachedHead;					// The producer's last look at head.
+	private long consumerHead;					// The consumer's own copy of head.
+	private long cachedTail;					// The consumer's last look at tail.
+	private volatile long dropped;				// How many samples have been dropped because the ring was full.
+	
+	/**
+	 * Create an empty ring.
+	 * @param capacity The most samples the ring holds, which is rounded up to a power of two.
+	 */
+	public SampleRing (int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+		xs = new double[size];
+		ys = new double[size];
+		mask = size - 1;
+		head = new AtomicLong();
+		tail = new AtomicLong();
+	}
+	
+	/**
+	 * Add a sample, or drop it if the ring is full. Only the producer thread may call this.
+	 * @param x The x value of the sample.
+	 * @param y The y value of the sample.
+	 * @return Whether or not the sample was added.
+	 */
+	public boolean offer (double x, double y) {
+		long t = producerTail;
+		if (t - cachedHead > mask) {
+			cachedHead = head.get();
+			if (t - cachedHead > mask) {
+				dropped++;
+				return false;
+			}
+		}
+		int i = (int) t & mask;
+		xs[i] = x;
+		ys[i] = y;
+		producerTail = t + 1;
+		tail.lazySet(t + 1);
+		return true;
+	}
+	
+	/**
+	 * Pass every sample in the ring to a sink, oldest first. Only the consumer thread may call this.
+	 * @param sink Where the samples go.
+	 * @param max The most samples to take.
+	 * @return How many samples were taken.
+	 */
+	public int drain (Sink sink, int max) {
+		long h = consumerHead;
+		if (cachedTail - h < max) {
+			cachedTail = tail.get();
+		}
+		long end = Math.min(cachedTail, h + max);
+		for (long p = h; p < end; p++) {
+			int i = (int) p & mask;
+			sink.accept(xs[i], ys[i]);
+		}
+		consumerHead = end;
+		head.lazySet(end);
+		return (int) (end - h);
+	}
+	
+	/**
+	 * @return How many samples have been dropped because the ring was full.
+	 */
+	public long getDropped () {
+		return dropped;
+	}
+	
+	/**
+	 * @return The most samples the ring holds.
+	 */
+	public int getCapacity () {
+		return mask + 1;
+	}
+	
+	/**
+	 * This interface receives the samples drained from a ring.
+	 */
+	public interface Sink {
+		
+		/**
+		 * @param x The x value of a sample.
+		 * @param y The y value of the sample.
+		 */
+		void accept (double x, double y);
+	}
+}
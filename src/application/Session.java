@@ -0,0 +1,195 @@
+package application;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Properties;
+
+import javafx.scene.paint.Color;
+
+/**
+ * This class saves and restores a session: the rows of an InputBox with their colors and bounds,
+ * the values of the parameters, and the viewport of its GraphArea. Sessions are kept as a properties file in a directory in the
+ * user's home, next to a SampleCache of the graphs' last samples, which lets a restored session be
+ * shown without sampling any graph whose expression and x range have not changed. It has a nested
+ * class for one row.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class Session {
+	
+	private static final String SESSION_FILE = "session.properties";	// The name of the session file.
+	private static final String CACHE_FILE = "samples.bin";				// The name of the sample cache.
+	
+	private Path directory;			// The directory holding the session and its cache.
+	
+	/**
+	 * Create a session kept in the directory given by the graph.session.dir system property, or in
+	 * .graphing-calculator in the user's home if it is not set.
+	 */
+	public Session () {
+		this(Paths.get(System.getProperty("graph.session.dir",
+				Paths.get(System.getProperty("user.home"), ".graphing-calculator").toString())));
+	}
+	
+	/**
+	 * Create a session kept in the given directory.
+	 * @param directory The directory holding the session and its cache.
+	 */
+	public Session (Path directory) {
+		this.directory = directory;
+	}
+	
+	/**
+	 * Save the viewport of a GraphArea, the values of its parameters, the rows of its InputBox, and the
+	 * samples of its graphs.
+	 * @param ga The GraphArea.
+	 * @throws IOException If the session cannot be written.
+	 */
+	public void save (GraphArea ga) throws IOException {
+		Files.createDirectories(directory);
+		Properties p = new Properties();
+		p.setProperty("xMin", Double.toString(ga.getXMin()));
+		p.setProperty("xMax", Double.toString(ga.getXMax()));
+		p.setProperty("yMin", Double.toString(ga.getYMin()));
+		p.setProperty("yMax", Double.toString(ga.getYMax()));
+		p.setProperty("xIncrement", Double.toString(ga.getXIncrement()));
+		p.setProperty("yIncrement", Double.toString(ga.getYIncrement()));
+		p.setProperty("xZoom", Double.toString(ga.getXZoom()));
+		p.setProperty("yZoom", Double.toString(ga.getYZoom()));
+		p.setProperty("xPan", Double.toString(ga.getXPermaPan() + ga.getXTempPan()));
+		p.setProperty("yPan", Double.toString(ga.getYPermaPan() + ga.getYTempPan()));
+		double[] values = ga.getParameters().values;
+		for (int slot = 0; slot < values.length; slot++) {
+			p.setProperty("parameter." + Parameters.name(slot), Double.toString(values[slot]));
+		}
+		List<Entry> entries = ga.getInputBox().getEntries();
+		p.setProperty("rows", Integer.toString(entries.size()));
+		for (int i = 0; i < entries.size(); i++) {
+			Entry e = entries.get(i);
+			p.setProperty("row." + i + ".expression", e.getExpression());
+			p.setProperty("row." + i + ".color", e.getColor().toString());
+			p.setProperty("row." + i + ".bounds", e.getBounds());
+		}
+		try (Writer out = Files.newBufferedWriter(directory.resolve(SESSION_FILE), StandardCharsets.UTF_8)) {
+			p.store(out, "Graphing calculator session");
+		}
+		SampleCache.write(directory.resolve(CACHE_FILE), ga.getGraphs(), ga.getVisibleXMin(), ga.getVisibleXMax(),
+				ga.getParameters());
+	}
+	
+	/**
+	 * Restore the viewport of a GraphArea, the values of its parameters, and the rows of its InputBox,
+	 * filling in the samples of graphs from the cache where they are still valid. Nothing happens if there is no saved session.
+	 * @param ga The GraphArea.
+	 * @throws IOException If the session cannot be read.
+	 */
+	public void load (GraphArea ga) throws IOException {
+		Path file = directory.resolve(SESSION_FILE);
+		if (!Files.exists(file)) {
+			return;
+		}
+		Properties p = new Properties();
+		try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			p.load(in);
+		}
+		
+		// Restore the viewport first, so that cached samples are checked against the right range.
+		ga.setViewport(number(p, "xMin", -10), number(p, "xMax", 10), number(p, "xIncrement", 2), number(p, "yMin", -10),
+				number(p, "yMax", 10), number(p, "yIncrement", 2), number(p, "xZoom", 0), number(p, "yZoom", 0),
+				number(p, "xPan", 0), number(p, "yPan", 0));
+		
+		// Restore the parameters before any row is added, so that its graph and sliders use them.
+		Parameters parameters = ga.getParameters();
+		for (int slot = 0; slot < Parameters.COUNT; slot++) {
+			char name = Parameters.name(slot);
+			parameters.set(name, number(p, "parameter." + name, parameters.get(name)));
+		}
+		
+		// A missing or unreadable cache only means that every graph is sampled again.
+		try {
+			ga.setSampleCache(new SampleCache(directory.resolve(CACHE_FILE)));
+		} catch (IOException e) {
+			ga.setSampleCache(null);
+		}
+		try {
+			int rows = (int) number(p, "rows", 0);
+			for (int i = 0; i < rows; i++) {
+				String expression = p.getProperty("row." + i + ".expression", "");
+				Color color;
+				try {
+					color = Color.web(p.getProperty("row." + i + ".color", ""));
+				} catch (IllegalArgumentException e) {
+					color = new Color(Math.random(), Math.random(), Math.random(), 1);
+				}
+				ga.getInputBox().addEntry(new Entry(expression, color, p.getProperty("row." + i + ".bounds", "")));
+			}
+		} finally {
+			ga.setSampleCache(null);
+		}
+	}
+	
+	/**
+	 * @param p The properties.
+	 * @param key A key.
+	 * @param fallback The value to use if the key is missing or not a number.
+	 * @return The number stored under the key.
+	 */
+	private static double number (Properties p, String key, double fallback) {
+		try {
+			return Double.parseDouble(p.getProperty(key, ""));
+		} catch (NumberFormatException e) {
+			return fallback;
+		}
+	}
+	
+	/**
+	 * This class represents one row of an InputBox. It has fields for the expression in the row,
+	 * the color of its graph, and the bounds it is integrated between.
+	 * @author Mark Kikta
+	 * @version 1.0
+	 */
+	public static class Entry {
+		private String expression;	// The expression in the row.
+		private Color color;		// The color of the row's graph.
+		private String bounds;		// The bounds the row is integrated between, or an empty string.
+		
+		/**
+		 * Create a row.
+		 * @param expression The expression in the row.
+		 * @param color The color of the row's graph.
+		 * @param bounds The bounds the row is integrated between, or an empty string.
+		 */
+		public Entry (String expression, Color color, String bounds) {
+			this.expression = expression;
+			this.color = color;
+			this.bounds = bounds;
+		}
+		
+		/**
+		 * @return expression
+		 */
+		public String getExpression () {
+			return expression;
+		}
+		
+		/**
+		 * @return color
+		 */
+		public Color getColor () {
+			return color;
+		}
+		
+		/**
+		 * @return bounds
+		 */
+		public String getBounds () {
+			return bounds;
+		}
+	}
+}
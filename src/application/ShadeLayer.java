@@ -0,0 +1,125 @@
+package application;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+/**
+ * This class extends Canvas from JavaFX. It shades the area between graphs and the x-axis between
+ * given bounds, in the color of each graph. Each shape is filled from one point per pixel column
+ * across the visible part of its bounds, so it costs the same no matter how wide the bounds are. The
+ * points are kept in arrays that are reused between draws, so drawing creates no objects per point.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class ShadeLayer extends Canvas {
+	
+	private static final double OPACITY = 0.3;	// The opacity of the shading.
+	
+	private GraphArea ga;						// The GraphArea that this layer belongs to.
+	private Map<Graph, double[]> bounds;		// The lower and upper bounds shaded under each graph.
+	private Map<Graph, Color> fills;			// The color shaded under each graph.
+	private double[] xs = new double[0];		// The x coordinates of the points of a shape, reused between draws.
+	private double[] ys = new double[0];		// The y coordinates of the points of a shape, reused between draws.
+	
+	/**
+	 * Create an empty layer belonging to the given GraphArea.
+	 * @param ga The GraphArea that this layer belongs to.
+	 */
+	public ShadeLayer (GraphArea ga) {
+		this.ga = ga;
+		bounds = new LinkedHashMap<Graph, double[]>();
+		fills = new LinkedHashMap<Graph, Color>();
+		
+		// The shading never needs to receive mouse events.
+		setMouseTransparent(true);
+	}
+	
+	/**
+	 * Shade the area under a graph between two bounds, replacing any area already shaded under it.
+	 * @param g The graph.
+	 * @param a The lower bound.
+	 * @param b The upper bound.
+	 */
+	public void shade (Graph g, double a, double b) {
+		bounds.put(g, new double[] {Math.min(a, b), Math.max(a, b)});
+		Color c = g.getColor();
+		fills.put(g, Color.color(c.getRed(), c.getGreen(), c.getBlue(), OPACITY));
+		draw();
+	}
+	
+	/**
+	 * Stop shading under a graph.
+	 * @param g The graph.
+	 */
+	public void remove (Graph g) {
+		if (bounds.remove(g) != null) {
+			fills.remove(g);
+			draw();
+		}
+	}
+	
+	/**
+	 * Fill every shape again for the current viewport, on a canvas the same size as the GraphArea.
+	 */
+	public void draw () {
+		double width = ga.getWidth();
+		double height = ga.getHeight();
+		if (getWidth() != width || getHeight() != height) {
+			setWidth(width);
+			setHeight(height);
+		}
+		GraphicsContext gc = getGraphicsContext2D();
+		gc.clearRect(0, 0, width, height);
+		for (Graph g : bounds.keySet()) {
+			draw(g, gc);
+		}
+	}
+	
+	/**
+	 * Fill the shape under one graph for the current viewport.
+	 * @param g The graph.
+	 * @param gc The graphics context of this canvas.
+	 */
+	private void draw (Graph g, GraphicsContext gc) {
+		double[] ab = bounds.get(g);
+		
+		// Only the visible part of the bounds is shaded.
+		double from = Math.max(ab[0], ga.getVisibleXMin());
+		double to = Math.min(ab[1], ga.getVisibleXMax());
+		if (!(to > from)) {
+			return;
+		}
+		
+		// Walk along the top of the area one pixel column at a time, then close it along the x-axis.
+		// Points far off the GraphArea are pulled in so that the shape stays small.
+		double xScale = ga.getXScale(), xTrans = ga.getXTranslation();
+		double yScale = ga.getYScale(), yTrans = ga.getYTranslation();
+		double limit = 2 * ga.getHeight();
+		double axis = Math.max(-limit, Math.min(limit, yTrans));
+		int columns = Math.max(1, (int) Math.ceil((to - from) * xScale));
+		if (xs.length < columns + 3) {
+			xs = new double[columns + 3];
+			ys = new double[columns + 3];
+		}
+		int n = 0;
+		xs[n] = from * xScale + xTrans;
+		ys[n++] = axis;
+		for (int i = 0; i <= columns; i++) {
+			double x = from + (to - from) * i / columns;
+			double y = g.getFunction().applyAsDouble(x);
+			if (Double.isNaN(y)) {
+				y = 0;
+			}
+			xs[n] = x * xScale + xTrans;
+			ys[n++] = Math.max(-limit, Math.min(limit, -y * yScale + yTrans));
+		}
+		xs[n] = to * xScale + xTrans;
+		ys[n++] = axis;
+		gc.setFill(fills.get(g));
+		gc.fillPolygon(xs, ys, n);
+	}
+}
@@ -0,0 +1,184 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.scene.paint.Color;
+
+/**
+ * This class extends Graph. It represents the slope field of a differential equation dy/dx = f(x, y),
+ * with an arrow showing the slope at each point of a grid across the viewport, and the solutions
+ * through any points that the user has clicked. The grid is fixed to the coordinate system rather
+ * than to the screen, so it slides along when the viewport is panned. The slopes are evaluated in
+ * parallel, and every arrow and solution goes into the sample buffer as its own segment, so they are
+ * all stroked as one path instead of as thousands of nodes. The solutions are Trajectories, which keep
+ * their points and are only integrated further as new parts of them come into view.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class SlopeField extends Graph {
+	
+	public static final String PREFIX = "dy/dx";	// How the text of a differential equation starts.
+	private static final double SPACING = 32;		// How many pixels apart the arrows are.
+	private static final double LENGTH = 22;		// How many pixels long the arrows are.
+	private static final double HEAD = 5;			// How many pixels long the sides of the arrowheads are.
+	private static final double ANGLE = 0.5;		// The angle between each side of an arrowhead and its shaft.
+	
+	private GraphArea ga;							// The GraphArea that this graph belongs to.
+	private Expression slope;						// The right side of the differential equation.
+	private double[] slopes = new double[0];		// The slope at each point of the grid, row by row.
+	private List<Trajectory> trajectories;			// The solutions through the points that were clicked.
+	
+	/**
+	 * Set this graph's fields and style.
+	 * @param slope The right side of the differential equation, an expression of x and y.
+	 * @param ga The GraphArea that this graph belongs to.
+	 * @param color The color of this graph.
+	 */
+	public SlopeField (Expression slope, GraphArea ga, Color color) {
+		super(NONE, ga, color);
+		if (slope == null) {
+			throw new IllegalArgumentException("Invalid differential equation");
+		}
+		this.ga = ga;
+		this.slope = slope;
+		trajectories = new ArrayList<Trajectory>();
+	}
+	
+	/**
+	 * @param text The text that the user entered.
+	 * @return Whether or not it is a differential equation, such as "dy/dx = x * y".
+	 */
+	public static boolean isEquation (String text) {
+		return text.trim().startsWith(PREFIX);
+	}
+	
+	/**
+	 * @param text The text of a differential equation.
+	 * @return The right side of it.
+	 */
+	public static String rightSide (String text) {
+		text = text.trim().substring(PREFIX.length()).trim();
+		return text.startsWith("=") ? text.substring(1).trim() : text;
+	}
+	
+	/**
+	 * Add the solution through a point. It is integrated the next time this graph is drawn.
+	 * @param x The x value of the point.
+	 * @param y The y value of the point.
+	 */
+	public void addTrajectory (double x, double y) {
+		trajectories.add(new Trajectory(slope, x, y));
+		invalidate();
+	}
+	
+	/**
+	 * Integrate every solution again from its starting point, because the differential equation has
+	 * changed.
+	 */
+	@Override
+	public void parametersChanged () {
+		List<Trajectory> old = new ArrayList<Trajectory>(trajectories);
+		trajectories.clear();
+		for (Trajectory t : old) {
+			trajectories.add(new Trajectory(slope, t.getX0(), t.getY0()));
+		}
+		invalidate();
+	}
+	
+	@Override
+	public long getParameterMask () {
+		return slope.getParameterMask();
+	}
+	
+	/**
+	 * Remove every solution.
+	 */
+	public void clearTrajectories () {
+		trajectories.clear();
+		invalidate();
+	}
+	
+	@Override
+	protected void fill (SampleBuffer buffer, double from, double to) {
+		buffer.clear();
+		double xScale = ga.getXScale(), yScale = ga.getYScale();
+		double yMin = ga.getVisibleYMin(), yMax = ga.getVisibleYMax();
+		
+		// Find the grid points in view, which lie on multiples of the spacing.
+		double dx = SPACING / xScale, dy = SPACING / yScale;
+		long firstColumn = (long) Math.ceil(from / dx), firstRow = (long) Math.ceil(yMin / dy);
+		int columns = Math.max(0, (int) (Math.floor(to / dx) - firstColumn + 1));
+		int rows = Math.max(0, (int) (Math.floor(yMax / dy) - firstRow + 1));
+		evaluate(firstColumn, columns, dx, firstRow, rows, dy);
+		
+		// Add an arrow along the slope at each grid point. Its direction is found in pixels so that it is the same length at every slope.
+		double cos = Math.cos(ANGLE), sin = Math.sin(ANGLE);
+		for (int r = 0; r < rows; r++) {
+			double y = (firstRow + r) * dy;
+			for (int c = 0; c < columns; c++) {
+				double m = slopes[r * columns + c];
+				if (Double.isNaN(m)) {
+					continue;
+				}
+				double ux = 1, uy = Math.signum(m);
+				if (!Double.isInfinite(m)) {
+					double length = Math.hypot(xScale, m * yScale);
+					ux = xScale / length;
+					uy = m * yScale / length;
+				}
+				double x = (firstColumn + c) * dx;
+				double tipX = x + LENGTH / 2 * ux / xScale, tipY = y + LENGTH / 2 * uy / yScale;
+				buffer.add(x - LENGTH / 2 * ux / xScale, y - LENGTH / 2 * uy / yScale, true);
+				buffer.add(tipX, tipY, false);
+				buffer.add(tipX - HEAD * (ux * cos - uy * sin) / xScale, tipY - HEAD * (ux * sin + uy * cos) / yScale, true);
+				buffer.add(tipX, tipY, false);
+				buffer.add(tipX - HEAD * (ux * cos + uy * sin) / xScale, tipY - HEAD * (uy * cos - ux * sin) / yScale, false);
+			}
+		}
+		
+		// Integrate whatever parts of the solutions have come into view, then add them.
+		for (Trajectory t : trajectories) {
+			t.extend(from, to, yMin, yMax);
+			t.emit(buffer, from, to);
+		}
+	}
+	
+	/**
+	 * Evaluate the slope at every grid point, splitting the rows into bands that are evaluated in parallel.
+	 * @param firstColumn The index of the first column, as a multiple of the spacing.
+	 * @param columns How many columns there are.
+	 * @param dx The spacing between columns.
+	 * @param firstRow The index of the first row, as a multiple of the spacing.
+	 * @param rows How many rows there are.
+	 * @param dy The spacing between rows.
+	 */
+	private void evaluate (long firstColumn, int columns, double dx, long firstRow, int rows, double dy) {
+		if (slopes.length < rows * columns) {
+			slopes = new double[rows * columns];
+		}
+		double[] out = slopes;
+		Parallel.bands(rows, (start, end) -> {
+			for (int r = start; r < end; r++) {
+				double y = (firstRow + r) * dy;
+				for (int c = 0; c < columns; c++) {
+					out[r * columns + c] = slope.applyAsDouble((firstColumn + c) * dx, y);
+				}
+			}
+		});
+	}
+	
+	/**
+	 * @return slope
+	 */
+	public Expression getSlope () {
+		return slope;
+	}
+	
+	/**
+	 * @return trajectories
+	 */
+	public List<Trajectory> getTrajectories () {
+		return trajectories;
+	}
+}
@@ -0,0 +1,268 @@
+package application;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.paint.Color;
+
+/**
+ * This class extends Graph. It represents a live stream of (x, y) samples, such as readings from an
+ * instrument, with x increasing over time. A single producer, either code calling offer or a client
+ * writing pairs of big-endian doubles to a local socket, writes samples into a SampleRing without ever
+ * waiting. Once per pulse the FX thread drains the ring into a bounded history and into a minimum and
+ * maximum for each pixel column, which are keyed by where the column lies on the x-axis rather than on
+ * the screen, so new samples only touch their own column and scrolling keeps every column it already
+ * has. While the newest sample is in view, the GraphArea scrolls to keep it at the right edge. Only
+ * zooming or resizing goes back to the history to find the columns again. A stream has no function to
+ * evaluate, so it has no features and no values in the table.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class StreamGraph extends Graph {
+	
+	private static final int RING = 1 << 20;		// How many samples the producer can be ahead of the FX thread.
+	private static final int HISTORY = 1 << 21;		// How many of the newest samples are kept to find the columns again.
+	private static final int COLUMNS = 1 << 14;		// How many columns are kept, more than any screen is wide.
+	
+	private GraphArea ga;							// The GraphArea that this graph belongs to.
+	private String name;							// What this stream is called.
+	private SampleRing ring;						// The samples that the FX thread has not taken yet.
+	private SampleRing.Sink sink;					// Adds drained samples to the history and the columns.
+	private double[] historyX;						// The x values of the newest samples.
+	private double[] historyY;						// The y values of the newest samples.
+	private long count;								// How many samples have been taken in all.
+	private double lastX = Double.NaN;				// The x value of the newest sample.
+	private double columnWidth;						// How much of the x-axis each column covers, or 0 before the first draw.
+	private long[] keys;							// Which column of the x-axis each slot currently holds.
+	private double[] mins;							// The least y value in each column.
+	private double[] maxes;							// The greatest y value in each column.
+	private AnimationTimer timer;					// Drains the ring once per pulse, or null before it starts.
+	private ServerSocket server;					// Accepts producers on a local port, or null.
+	
+	/**
+	 * Set this graph's fields and style.
+	 * @param name What this stream is called.
+	 * @param ga The GraphArea that this graph belongs to.
+	 * @param color The color of this graph.
+	 */
+	public StreamGraph (String name, GraphArea ga, Color color) {
+		super(NONE, ga, color);
+		this.ga = ga;
+		this.name = name;
+		ring = new SampleRing(RING);
+		sink = this::take;
+		historyX = new double[HISTORY];
+		historyY = new double[HISTORY];
+		keys = new long[COLUMNS];
+		mins = new double[COLUMNS];
+		maxes = new double[COLUMNS];
+		Arrays.fill(keys, Long.MIN_VALUE);
+	}
+	
+	/**
+	 * Add a sample to the stream, or drop it if the FX thread has fallen a whole ring behind. This
+	 * never waits, and it may be called from any one thread at a time, but not while a socket is
+	 * being listened on.
+	 * @param x The x value of the sample, which should be no less than the one before it.
+	 * @param y The y value of the sample.
+	 * @return Whether or not the sample was added.
+	 */
+	public boolean offer (double x, double y) {
+		return ring.offer(x, y);
+	}
+	
+	/**
+	 * Start draining the stream once per pulse.
+	 */
+	public void start () {
+		if (timer == null) {
+			timer = new AnimationTimer() {
+				@Override
+				public void handle (long now) {
+					pulse();
+				}
+			};
+		}
+		timer.start();
+	}
+	
+	/**
+	 * Stop draining the stream, and stop listening for producers.
+	 */
+	public void stop () {
+		if (timer != null) {
+			timer.stop();
+		}
+		if (server != null) {
+			try {
+				server.close();
+			} catch (IOException e) {
+				// The socket is closed either way.
+			}
+		}
+	}
+	
+	/**
+	 * Accept producers on a local port, one at a time. Each one writes pairs of big-endian doubles,
+	 * x then y, until it disconnects, and its samples are offered from a daemon thread.
+	 * @param port The port, or 0 for any free one.
+	 * @return The port that is being listened on.
+	 * @throws IOException If the port cannot be listened on.
+	 */
+	public int listen (int port) throws IOException {
+		ServerSocket server = new ServerSocket(port, 1, InetAddress.getLoopbackAddress());
+		this.server = server;
+		Thread thread = new Thread(() -> {
+			while (!server.isClosed()) {
+				try (Socket socket = server.accept();
+						DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16))) {
+					while (true) {
+						double x = in.readDouble();
+						ring.offer(x, in.readDouble());
+					}
+				} catch (IOException e) {
+					// The producer disconnected or the socket was closed, so wait for the next one.
+				}
+			}
+		}, "stream-" + name);
+		thread.setDaemon(true);
+		thread.start();
+		return server.getLocalPort();
+	}
+	
+	/**
+	 * Take every sample that has been offered, then scroll to the newest one if the one before it was
+	 * in view, and redraw this graph.
+	 */
+	private void pulse () {
+		double before = lastX;
+		double xMin = ga.getVisibleXMin();
+		double xMax = ga.getVisibleXMax();
+		if (drain() == 0) {
+			return;
+		}
+		
+		// Follow the stream only while its end is in view, so that panning back to look at it stops the scrolling.
+		if ((Double.isNaN(before) || before >= xMin && before <= xMax) && lastX > xMax) {
+			ga.scroll(lastX - xMax);
+		}
+		invalidate();
+		ga.update();
+	}
+	
+	/**
+	 * Add every sample that has been offered to the history and to the columns.
+	 * @return How many samples were taken.
+	 */
+	public int drain () {
+		return ring.drain(sink, RING);
+	}
+	
+	/**
+	 * Add a sample to the history and to its column.
+	 * @param x The x value of the sample.
+	 * @param y The y value of the sample.
+	 */
+	private void take (double x, double y) {
+		int i = (int) (count & (HISTORY - 1));
+		historyX[i] = x;
+		historyY[i] = y;
+		count++;
+		lastX = x;
+		bin(x, y);
+	}
+	
+	/**
+	 * Widen the column that a sample lies in to include it. Samples that are not numbers are left out.
+	 * @param x The x value of the sample.
+	 * @param y The y value of the sample.
+	 */
+	private void bin (double x, double y) {
+		if (columnWidth == 0 || Double.isNaN(y)) {
+			return;
+		}
+		long key = (long) Math.floor(x / columnWidth);
+		int slot = (int) (key & (COLUMNS - 1));
+		if (keys[slot] != key) {
+			keys[slot] = key;
+			mins[slot] = y;
+			maxes[slot] = y;
+		} else if (y < mins[slot]) {
+			mins[slot] = y;
+		} else if (y > maxes[slot]) {
+			maxes[slot] = y;
+		}
+	}
+	
+	@Override
+	protected void fill (SampleBuffer buffer, double from, double to) {
+		columns(from, to, Math.max(1, (int) Math.ceil(ga.getWidth())), buffer);
+	}
+	
+	/**
+	 * Fill a buffer with the lowest and highest point in each column between two x values. The columns
+	 * are found again from the history only if they have changed width.
+	 * @param from The first x value.
+	 * @param to The last x value.
+	 * @param columns How many columns to split the range into, which is at most the width in pixels.
+	 * @param out The buffer.
+	 */
+	public void columns (double from, double to, int columns, SampleBuffer out) {
+		double width = (to - from) / Math.min(columns, COLUMNS / 2);
+		if (!(Math.abs(width - columnWidth) <= columnWidth * 1e-9)) {
+			rebin(width);
+		}
+		out.clear();
+		out.ensureCapacity(2 * columns + 2);
+		boolean move = true;
+		for (long key = (long) Math.floor(from / columnWidth), last = (long) Math.floor(to / columnWidth); key <= last; key++) {
+			int slot = (int) (key & (COLUMNS - 1));
+			if (keys[slot] == key) {
+				double x = (key + 0.5) * columnWidth;
+				out.add(x, mins[slot], move);
+				out.add(x, maxes[slot], false);
+				move = false;
+			}
+		}
+	}
+	
+	/**
+	 * Empty the columns and fill them again from the history at a new width.
+	 * @param width How much of the x-axis each column covers.
+	 */
+	private void rebin (double width) {
+		columnWidth = width;
+		Arrays.fill(keys, Long.MIN_VALUE);
+		for (long n = Math.max(0, count - HISTORY); n < count; n++) {
+			int i = (int) (n & (HISTORY - 1));
+			bin(historyX[i], historyY[i]);
+		}
+	}
+	
+	/**
+	 * @return name
+	 */
+	public String getName () {
+		return name;
+	}
+	
+	/**
+	 * @return How many samples have been taken in all.
+	 */
+	public long getCount () {
+		return count;
+	}
+	
+	/**
+	 * @return ring
+	 */
+	public SampleRing getRing () {
+		return ring;
+	}
+}
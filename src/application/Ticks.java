@@ -0,0 +1,46 @@
+package application;
+
+import java.text.DecimalFormat;
+
+/**
+ * This class has methods shared by everything that draws grid lines and tick labels, both in a
+ * GraphArea and when rendering without a window, so that they all agree on where lines go and how
+ * labels look.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class Ticks {
+	
+	/**
+	 * Determine the distance between lines, which is the given spacing unless that would draw more
+	 * than the maximum number of lines, in which case it is doubled until it does not.
+	 * @param spacing The preferred distance between lines.
+	 * @param min The smallest visible value.
+	 * @param max The largest visible value.
+	 * @param maxLines The most lines that may be drawn.
+	 * @return The distance between lines, or 0 if no lines should be drawn.
+	 */
+	public static double lineStep (double spacing, double min, double max, int maxLines) {
+		if (!(spacing > 0) || !(max > min) || Double.isInfinite(max - min)) {
+			return 0;
+		}
+		double step = spacing;
+		while ((max - min) / step > maxLines) {
+			step *= 2;
+		}
+		return step;
+	}
+	
+	/**
+	 * Create a format that shows as many decimal places as the given tick unit needs.
+	 * @param step The tick unit.
+	 * @return The format.
+	 */
+	public static DecimalFormat labelFormat (double step) {
+		int decimals = step > 0 && step < 1 ? (int) Math.ceil(-Math.log10(step)) : 0;
+		DecimalFormat df = new DecimalFormat();
+		df.setGroupingUsed(false);
+		df.setMaximumFractionDigits(Math.min(decimals + 1, 15));
+		return df;
+	}
+}
@@ -7,7 +7,8 @@ import java.util.function.Function;
 /**
  * This class represents a token to be used in the parser. It has fields for the string the token represents,
  * the type of token it is, its associativity, and its precedence. It has methods for applying functions and 
- * operators. It has arrays of supported functions and operators.
+ * operators. It has arrays of supported functions and operators, and of the functions that complex functions of
+ * z may also use, in which every operator works on complex numbers and i is the imaginary unit.
  * @author Mark Kikta
  * @version 1.0
  */
@@ -16,11 +17,16 @@ public class Token {
 	private TokenType type;										// The type of this token.
 	private int precedence;										// The precedence of this token, -1 if not operator.
 	private boolean associativity;								// The associativity of this token, -1 if not operator.
-	private static final List<String> FUNCTIONS = 
+	static final List<String> FUNCTIONS = 
 			Arrays.asList("abs", "acos", "asin", "atan", "cbrt", "ceil", "cos", "cosh", "exp", "floor", "log", "ln", 
 					"max", "min", "round", "sin", "sinh", "sqrt","tan", "tanh");	// Currently supported functions.
 	private static final List<String> OPERATORS = 
 			Arrays.asList("+", "-", "*", "/", "^");				// Currently supported operators.
+	static final List<String> COMPLEX_FUNCTIONS = 
+			Arrays.asList("abs", "cos", "cosh", "exp", "log", "ln", "sin", "sinh", "sqrt", "tan",
+					"tanh");									// Functions also supported on complex numbers.
+	static final String COMPLEX_VARIABLE = "z";					// The variable of a complex function.
+	static final String IMAGINARY_UNIT = "i";					// The square root of -1 in a complex function.
 	
 	
 	/**
@@ -35,7 +41,7 @@ public class Token {
 		// Set this token's type corresponding to its symbol.
 		if (isNumeric()) {
 			type = TokenType.CONSTANT;
-		} else if (symbol.equals("x")) {
+		} else if (symbol.equals("x") || symbol.equals("y")) {
 			type = TokenType.VARIABLE;
 		} else if (symbol.equals(",")) {
 			type = TokenType.COMMA;
@@ -73,6 +79,11 @@ public class Token {
 			type = TokenType.FUNCTION;
 		} 
 		
+		// If it is any other single letter, it is a parameter.
+		else if (Parameters.isName(symbol)) {
+			type = TokenType.PARAMETER;
+		}
+		
 		// If it is not a valid token, set it to this default token type.
 		else {
 			type = TokenType.NULL;
@@ -7,5 +7,5 @@ package application;
  * @version 1.0
  */
 public enum TokenType {
-	CONSTANT, VARIABLE, OPERATOR, FUNCTION, NULL, COMMA, PARENTHESES;
+	CONSTANT, VARIABLE, PARAMETER, OPERATOR, FUNCTION, NULL, COMMA, PARENTHESES;
 }
@@ -0,0 +1,110 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.scene.Group;
+import javafx.scene.shape.Circle;
+import javafx.scene.text.Text;
+
+/**
+ * This class extends Group from JavaFX. It follows the mouse across a GraphArea and marks the point
+ * of each graph closest to the mouse's x value, with a label giving its coordinates. Points are
+ * found with a binary search of each graph's samples, so tracing never evaluates a function and
+ * never updates the GraphArea. Markers and labels are pooled and reused.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class TraceLayer extends Group {
+	
+	private static final double RADIUS = 5;		// The radius of a marker in pixels.
+	private static final double GAP = 8;		// The distance between a marker and its label.
+	
+	private GraphArea ga;						// The GraphArea that this layer belongs to.
+	private List<Circle> markers;				// Pool of markers.
+	private List<Text> labels;					// Pool of labels, one for each marker.
+	
+	/**
+	 * Create an empty layer belonging to the given GraphArea.
+	 * @param ga The GraphArea that this layer belongs to.
+	 */
+	public TraceLayer (GraphArea ga) {
+		this.ga = ga;
+		markers = new ArrayList<Circle>();
+		labels = new ArrayList<Text>();
+		
+		// The trace never needs to receive mouse events.
+		setMouseTransparent(true);
+	}
+	
+	/**
+	 * Mark the point of each graph closest to the given x coordinate.
+	 * @param graphs The graphs to trace.
+	 * @param mouseX The x coordinate of the mouse on the GraphArea.
+	 */
+	public void trace (List<Graph> graphs, double mouseX) {
+		double xScale = ga.getXScale(), xTrans = ga.getXTranslation();
+		double yScale = ga.getYScale(), yTrans = ga.getYTranslation();
+		double x = (mouseX - xTrans) / xScale;
+		int used = 0;
+		for (Graph g : graphs) {
+			
+			// The arrows and solutions of a slope field are not in order of x, so they cannot be traced.
+			if (g instanceof SlopeField) {
+				continue;
+			}
+			SampleBuffer samples = g.getSamples();
+			int i = samples.nearest(x);
+			if (i < 0 || Double.isNaN(samples.getY(i)) || Double.isInfinite(samples.getY(i))) {
+				continue;
+			}
+			double px = samples.getX(i), py = samples.getY(i);
+			double sx = px * xScale + xTrans, sy = -py * yScale + yTrans;
+			if (sy < 0 || sy > ga.getHeight()) {
+				continue;
+			}
+			
+			// Reuse a marker and label from the pool, or create them if the pool has run out.
+			if (used == markers.size()) {
+				Circle marker = new Circle(RADIUS);
+				marker.getStyleClass().add("trace-marker");
+				Text label = new Text();
+				label.getStyleClass().add("trace-label");
+				markers.add(marker);
+				labels.add(label);
+				getChildren().addAll(marker, label);
+			}
+			Circle marker = markers.get(used);
+			marker.setCenterX(sx);
+			marker.setCenterY(sy);
+			marker.setStroke(g.getColor());
+			marker.setVisible(true);
+			Text label = labels.get(used);
+			label.setText(String.format("(%.4g, %.4g)", px, py));
+			label.setFill(g.getColor());
+			label.setX(sx + GAP);
+			label.setY(sy - GAP);
+			label.setVisible(true);
+			used++;
+		}
+		hideFrom(used);
+	}
+	
+	/**
+	 * Hide every marker and label.
+	 */
+	public void hide () {
+		hideFrom(0);
+	}
+	
+	/**
+	 * Hide the markers and labels from the given index on.
+	 * @param used The number of markers that are in use.
+	 */
+	private void hideFrom (int used) {
+		for (int i = used; i < markers.size(); i++) {
+			markers.get(i).setVisible(false);
+			labels.get(i).setVisible(false);
+		}
+	}
+}
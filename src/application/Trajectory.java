@@ -0,0 +1,222 @@
+package application;
+
+import java.util.Arrays;
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * This class represents the solution of a differential equation dy/dx = f(x, y) through a starting
+ * point. It is integrated with the adaptive Dormand-Prince method, a fifth-order Runge-Kutta method
+ * with an embedded fourth-order one whose difference gives an error estimate, so that steps are long
+ * where the solution is smooth and short where it is not. The solution is followed to the right and to
+ * the left of the starting point as two branches, and the points of each are kept, so that panning only
+ * integrates the part that has just come into view. It has a nested class for a branch.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class Trajectory {
+	
+	private static final double REL_TOL = 1e-8;		// The error allowed in a step relative to y.
+	private static final double ABS_TOL = 1e-10;	// The error that is always allowed in a step.
+	private static final int STEPS = 256;			// The fewest steps across the visible x range.
+	private static final int MAX_STEPS = 50000;		// The most steps taken each time a branch is extended.
+	private static final int MAX_POINTS = 1 << 18;	// The most points kept for each branch.
+	
+	// The nodes and weights of the Dormand-Prince method, and the differences between its two sets of weights.
+	private static final double C2 = 1.0 / 5, C3 = 3.0 / 10, C4 = 4.0 / 5, C5 = 8.0 / 9;
+	private static final double A21 = 1.0 / 5;
+	private static final double A31 = 3.0 / 40, A32 = 9.0 / 40;
+	private static final double A41 = 44.0 / 45, A42 = -56.0 / 15, A43 = 32.0 / 9;
+	private static final double A51 = 19372.0 / 6561, A52 = -25360.0 / 2187, A53 = 64448.0 / 6561, A54 = -212.0 / 729;
+	private static final double A61 = 9017.0 / 3168, A62 = -355.0 / 33, A63 = 46732.0 / 5247, A64 = 49.0 / 176,
+			A65 = -5103.0 / 18656;
+	private static final double B1 = 35.0 / 384, B3 = 500.0 / 1113, B4 = 125.0 / 192, B5 = -2187.0 / 6784, B6 = 11.0 / 84;
+	private static final double E1 = 71.0 / 57600, E3 = -71.0 / 16695, E4 = 71.0 / 1920, E5 = -17253.0 / 339200,
+			E6 = 22.0 / 525, E7 = -1.0 / 40;
+	
+	private DoubleBinaryOperator f;		// The right side of the differential equation.
+	private double x0, y0;				// The starting point.
+	private Branch right, left;			// The solution to the right and to the left of the starting point.
+	private double resolution;			// The longest step that the branches were integrated with, or 0 before they are.
+	
+	/**
+	 * Create the solution through a starting point, without integrating it yet.
+	 * @param f The right side of the differential equation.
+	 * @param x0 The x value of the starting point.
+	 * @param y0 The y value of the starting point.
+	 */
+	public Trajectory (DoubleBinaryOperator f, double x0, double y0) {
+		this.f = f;
+		this.x0 = x0;
+		this.y0 = y0;
+	}
+	
+	/**
+	 * Integrate the solution across a viewport, continuing from where it was last left off. If the
+	 * viewport is much narrower than when the solution was first integrated, its steps would look
+	 * jagged, so it is integrated again from the starting point.
+	 * @param from The left end of the visible x range.
+	 * @param to The right end of the visible x range.
+	 * @param yMin The bottom of the visible y range.
+	 * @param yMax The top of the visible y range.
+	 */
+	public void extend (double from, double to, double yMin, double yMax) {
+		double hMax = (to - from) / STEPS;
+		if (resolution == 0 || hMax < resolution / 4) {
+			resolution = hMax;
+			right = new Branch(1);
+			left = new Branch(-1);
+		}
+		
+		// Stop following the solution once it is far above or below the viewport, until it is panned there.
+		double margin = 4 * (yMax - yMin);
+		right.extend(to, yMin - margin, yMax + margin, hMax);
+		left.extend(from, yMin - margin, yMax + margin, hMax);
+	}
+	
+	/**
+	 * Add the points of the solution between two x values to a buffer as one segment, along with the
+	 * nearest point outside of them on each side.
+	 * @param out The buffer.
+	 * @param from The first x value.
+	 * @param to The last x value.
+	 */
+	public void emit (SampleBuffer out, double from, double to) {
+		if (right == null) {
+			return;
+		}
+		boolean move = true;
+		for (int i = Math.min(left.size - 1, left.find(from)); i > 0; i--) {
+			out.add(left.xs[i], left.ys[i], move);
+			move = false;
+		}
+		for (int i = 0, end = Math.min(right.size - 1, right.find(to)); i <= end; i++) {
+			out.add(right.xs[i], right.ys[i], move);
+			move = false;
+		}
+	}
+	
+	/**
+	 * @return The x value of the starting point.
+	 */
+	public double getX0 () {
+		return x0;
+	}
+	
+	/**
+	 * @return The y value of the starting point.
+	 */
+	public double getY0 () {
+		return y0;
+	}
+	
+	/**
+	 * This class represents the points of the solution in one direction from the starting point,
+	 * along with the state needed to take the next step.
+	 */
+	private class Branch {
+		private int direction;				// 1 to follow the solution to the right, -1 to the left.
+		private double[] xs, ys;			// The points found so far, starting with the starting point.
+		private int size;					// How many points have been found.
+		private double h;					// The length of the next step to try.
+		private double slope;				// The slope at the last point, which the next step starts with.
+		private boolean finished;			// Whether or not the solution cannot be followed any further.
+		
+		/**
+		 * Create a branch holding only the starting point.
+		 * @param direction 1 to follow the solution to the right, -1 to the left.
+		 */
+		private Branch (int direction) {
+			this.direction = direction;
+			xs = new double[64];
+			ys = new double[64];
+			xs[0] = x0;
+			ys[0] = y0;
+			size = 1;
+			h = resolution / 16;
+			slope = f.applyAsDouble(x0, y0);
+			finished = Double.isNaN(slope) || Double.isInfinite(slope);
+		}
+		
+		/**
+		 * Take steps until the solution reaches an x value or leaves a range of y values.
+		 * @param limit The x value to reach.
+		 * @param yLow The bottom of the range of y values.
+		 * @param yHigh The top of the range of y values.
+		 * @param hMax The longest step allowed.
+		 */
+		private void extend (double limit, double yLow, double yHigh, double hMax) {
+			for (int steps = 0; steps < MAX_STEPS && !finished && size < MAX_POINTS; steps++) {
+				double x = xs[size - 1], y = ys[size - 1];
+				if (direction * (x - limit) >= 0 || y < yLow || y > yHigh) {
+					return;
+				}
+				h = Math.min(h, hMax);
+				if (h <= Math.ulp(x) * 16) {
+					finished = true;
+					return;
+				}
+				
+				// Find the six stages, the fifth-order step, and the slope at its end.
+				double s = direction * h;
+				double k1 = slope;
+				double k2 = f.applyAsDouble(x + C2 * s, y + s * A21 * k1);
+				double k3 = f.applyAsDouble(x + C3 * s, y + s * (A31 * k1 + A32 * k2));
+				double k4 = f.applyAsDouble(x + C4 * s, y + s * (A41 * k1 + A42 * k2 + A43 * k3));
+				double k5 = f.applyAsDouble(x + C5 * s, y + s * (A51 * k1 + A52 * k2 + A53 * k3 + A54 * k4));
+				double k6 = f.applyAsDouble(x + s, y + s * (A61 * k1 + A62 * k2 + A63 * k3 + A64 * k4 + A65 * k5));
+				double next = y + s * (B1 * k1 + B3 * k3 + B4 * k4 + B5 * k5 + B6 * k6);
+				double k7 = f.applyAsDouble(x + s, next);
+				
+				// Compare it with the fourth-order step, then take it if it is accurate enough and size the next one.
+				double error = Math.abs(s * (E1 * k1 + E3 * k3 + E4 * k4 + E5 * k5 + E6 * k6 + E7 * k7));
+				double ratio = error / (ABS_TOL + REL_TOL * Math.max(Math.abs(y), Math.abs(next)));
+				if (Double.isNaN(ratio)) {
+					h /= 4;
+					continue;
+				}
+				if (ratio <= 1) {
+					add(x + s, next);
+					slope = k7;
+					if (Double.isNaN(k7) || Double.isInfinite(k7)) {
+						finished = true;
+					}
+				}
+				h *= Math.max(0.2, Math.min(5, 0.9 * Math.pow(Math.max(ratio, 1e-10), -0.2)));
+			}
+		}
+		
+		/**
+		 * Add a point to the end of this branch.
+		 * @param x The x value of the point.
+		 * @param y The y value of the point.
+		 */
+		private void add (double x, double y) {
+			if (size == xs.length) {
+				xs = Arrays.copyOf(xs, size * 2);
+				ys = Arrays.copyOf(ys, size * 2);
+			}
+			xs[size] = x;
+			ys[size] = y;
+			size++;
+		}
+		
+		/**
+		 * Find the first point that reaches an x value in the direction of this branch with a binary
+		 * search, which relies on the points being in order.
+		 * @param x An x value.
+		 * @return The index of the point, or size if no point reaches it.
+		 */
+		private int find (double x) {
+			int lo = 0, hi = size;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (direction * (xs[mid] - x) < 0) {
+					lo = mid + 1;
+				} else {
+					hi = mid;
+				}
+			}
+			return lo;
+		}
+	}
+}
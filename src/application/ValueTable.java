@@ -0,0 +1,231 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleUnaryOperator;
+
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.collections.ObservableListBase;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
+import javafx.scene.input.KeyCode;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+
+/**
+ * This class extends VBox from JavaFX. It shows a table of x values and the values of every graph
+ * on a GraphArea, starting from a given x and going up by a given step. The table has millions of
+ * rows, but its items are only row numbers that are never stored, and values are only computed for
+ * the rows that are on screen, a page at a time, with a small cache of recently computed pages. It
+ * has fields for the start, step, and graphs of the table, and methods for changing them.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class ValueTable extends VBox {
+	
+	private static final int ROWS = 100000000;	// The number of rows in the table.
+	private static final int PAGE_SIZE = 256;	// The number of rows computed at once.
+	private static final int MAX_PAGES = 64;	// The most pages kept in the cache.
+	
+	private double start = 0;					// The x value of the first row.
+	private double step = 1;					// How much x goes up from one row to the next.
+	private List<DoubleUnaryOperator> functions;	// The functions shown, one per column after x.
+	private Map<Integer, double[][]> pages;		// Recently computed pages, least recently used first.
+	
+	private TableView<Integer> table;			// The table itself, whose items are row numbers.
+	private TextField startField;				// The textfield for entering the start.
+	private TextField stepField;				// The textfield for entering the step.
+	private TextField rowField;					// The textfield for jumping to a row.
+	
+	/**
+	 * Create an empty table with a row of fields above it for the start, the step, and a row to jump to.
+	 */
+	public ValueTable () {
+		functions = new ArrayList<DoubleUnaryOperator>();
+		pages = new LinkedHashMap<Integer, double[][]>(MAX_PAGES, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected boolean removeEldestEntry (Map.Entry<Integer, double[][]> eldest) {
+				return size() > MAX_PAGES;
+			}
+		};
+		
+		// Every row has the same height, which lets the table jump anywhere without measuring rows.
+		table = new TableView<Integer>(new RowList());
+		table.setFixedCellSize(24);
+		table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+		VBox.setVgrow(table, Priority.ALWAYS);
+		
+		// Create the fields, which apply their value when the user presses enter.
+		startField = field("start", "0");
+		stepField = field("step", "1");
+		rowField = field("row", "");
+		HBox fields = new HBox(5, new Label("Start"), startField, new Label("Step"), stepField, new Label("Row"), rowField);
+		fields.getStyleClass().add("value-table-fields");
+		
+		getChildren().addAll(fields, table);
+		getStyleClass().add("value-table");
+		setGraphs(new ArrayList<Graph>());
+	}
+	
+	/**
+	 * Show a column for each of the given graphs after the x column, except for graphs that have no
+	 * function of x, such as slope fields and complex functions, whose values would all be NaN. Data
+	 * series are named by their file.
+	 * @param graphs The graphs to show.
+	 */
+	public void setGraphs (List<Graph> graphs) {
+		functions = new ArrayList<DoubleUnaryOperator>();
+		List<TableColumn<Integer, String>> columns = new ArrayList<TableColumn<Integer, String>>();
+		columns.add(column("x", -1));
+		for (Graph g : graphs) {
+			DoubleUnaryOperator f = g.getFunction();
+			if (f == Graph.NONE) {
+				continue;
+			}
+			columns.add(column(GraphEvents.describe(f), functions.size()));
+			functions.add(f);
+		}
+		pages.clear();
+		table.getColumns().setAll(columns);
+	}
+	
+	/**
+	 * Change the x value of the first row and the step between rows.
+	 * @param start The x value of the first row.
+	 * @param step How much x goes up from one row to the next.
+	 */
+	public void setRange (double start, double step) {
+		this.start = start;
+		this.step = step;
+		pages.clear();
+		table.refresh();
+	}
+	
+	/**
+	 * Compute every value again, because the functions have changed.
+	 */
+	public void refresh () {
+		pages.clear();
+		table.refresh();
+	}
+	
+	/**
+	 * Scroll the table so that the given row is at the top.
+	 * @param row The row number.
+	 */
+	public void scrollTo (int row) {
+		table.scrollTo(Math.max(0, Math.min(ROWS - 1, row)));
+	}
+	
+	/**
+	 * Create a column whose cells show a value of the row they are in.
+	 * @param name The header of the column.
+	 * @param index The index of the function the column shows, or -1 for x.
+	 * @return The column.
+	 */
+	private TableColumn<Integer, String> column (String name, int index) {
+		TableColumn<Integer, String> column = new TableColumn<Integer, String>(name);
+		column.setSortable(false);
+		column.setCellValueFactory(cell -> {
+			int row = cell.getValue();
+			double value = index < 0 ? xAt(row) : valueAt(row, index);
+			return new ReadOnlyStringWrapper(String.format("%.10g", value));
+		});
+		return column;
+	}
+	
+	/**
+	 * Create a textfield that changes the table when the user presses enter.
+	 * @param prompt The prompt text of the field.
+	 * @param text The initial text of the field.
+	 * @return The field.
+	 */
+	private TextField field (String prompt, String text) {
+		TextField tf = new TextField(text);
+		tf.setPromptText(prompt);
+		tf.setPrefColumnCount(5);
+		tf.setOnKeyPressed( event -> {
+			if (event.getCode() == KeyCode.ENTER) {
+				apply();
+			}
+		});
+		return tf;
+	}
+	
+	/**
+	 * Apply the start and step fields, then jump to the row in the row field if there is one.
+	 * Fields that are not numbers are ignored.
+	 */
+	private void apply () {
+		try {
+			setRange(Double.parseDouble(startField.getText().trim()), Double.parseDouble(stepField.getText().trim()));
+		} catch (NumberFormatException e) {
+			// Keep the current range.
+		}
+		try {
+			if (!rowField.getText().trim().equals("")) {
+				scrollTo(Integer.parseInt(rowField.getText().trim().replace(",", "").replace("_", "")));
+			}
+		} catch (NumberFormatException e) {
+			// Stay on the current row.
+		}
+	}
+	
+	/**
+	 * @param row A row number.
+	 * @return The x value of the row.
+	 */
+	private double xAt (int row) {
+		return start + row * step;
+	}
+	
+	/**
+	 * Find the value of a function on a row, computing the page of the row if it is not cached.
+	 * @param row The row number.
+	 * @param index The index of the function.
+	 * @return The value of the function at the x value of the row.
+	 */
+	private double valueAt (int row, int index) {
+		int page = row / PAGE_SIZE;
+		double[][] values = pages.get(page);
+		if (values == null) {
+			values = new double[functions.size()][PAGE_SIZE];
+			int first = page * PAGE_SIZE;
+			for (int f = 0; f < functions.size(); f++) {
+				DoubleUnaryOperator function = functions.get(f);
+				for (int i = 0; i < PAGE_SIZE; i++) {
+					values[f][i] = function.applyAsDouble(xAt(first + i));
+				}
+			}
+			pages.put(page, values);
+		}
+		return values[index][row % PAGE_SIZE];
+	}
+	
+	/**
+	 * This class is a list of every row number of the table. It stores nothing, so it takes the
+	 * same memory no matter how many rows there are.
+	 */
+	private static class RowList extends ObservableListBase<Integer> {
+		
+		@Override
+		public Integer get (int index) {
+			if (index < 0 || index >= ROWS) {
+				throw new IndexOutOfBoundsException(index);
+			}
+			return index;
+		}
+		
+		@Override
+		public int size () {
+			return ROWS;
+		}
+	}
+}
@@ -0,0 +1,222 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class holds the views that a GraphArea has shown, so that the user can step back and forth
+ * between them. Each entry keeps the bounds, increments, and effects of zooming and panning of its
+ * view, along with a compact snapshot of the samples of every graph that is an expression: its y
+ * values as floats and its segment starts as bits, since the x values of sampled graphs are evenly
+ * spaced across the visible range and can be found again from it. Stepping back to an entry fills
+ * the graphs in from its snapshot instead of sampling them, and the GraphArea then samples them
+ * exactly in the background. The snapshots of all entries together are kept within BUDGET bytes by dropping those
+ * of the entries farthest from the current one first, which then fall back to sampling.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+public class ViewportHistory {
+	
+	private static final long BUDGET = 32L << 20;	// The most bytes that the snapshots may take up together.
+	private static final int MAX_ENTRIES = 256;		// The most views that are remembered.
+	
+	private List<Entry> entries;					// The views, from the oldest to the newest.
+	private int current = -1;						// The index of the view being shown, or -1 if there is none.
+	private long bytes;								// How many bytes the snapshots take up together.
+	
+	/**
+	 * Create an empty history.
+	 */
+	public ViewportHistory () {
+		entries = new ArrayList<Entry>();
+	}
+	
+	/**
+	 * Record the view that a GraphArea is showing along with a snapshot of its graphs. If it is the
+	 * same view as the current entry, only the snapshot of that entry is replaced. Otherwise it
+	 * becomes the newest entry, and any entries that had been stepped back from are forgotten.
+	 * @param ga The GraphArea.
+	 */
+	public void record (GraphArea ga) {
+		Entry e = new Entry(ga);
+		if (current >= 0 && Arrays.equals(entries.get(current).view, e.view)) {
+			drop(entries.get(current));
+			entries.set(current, e);
+		} else {
+			while (entries.size() > current + 1) {
+				drop(entries.remove(entries.size() - 1));
+			}
+			entries.add(e);
+			current++;
+			if (entries.size() > MAX_ENTRIES) {
+				drop(entries.remove(0));
+				current--;
+			}
+		}
+		bytes += e.bytes;
+		
+		// Drop the snapshots farthest from the current entry until they fit again.
+		for (int distance = entries.size(); bytes > BUDGET && distance > 0; distance--) {
+			if (current - distance >= 0) {
+				drop(entries.get(current - distance));
+			}
+			if (current + distance < entries.size()) {
+				drop(entries.get(current + distance));
+			}
+		}
+	}
+	
+	/**
+	 * Forget the snapshot of an entry, keeping its view.
+	 * @param e The entry.
+	 */
+	private void drop (Entry e) {
+		bytes -= e.bytes;
+		e.snapshots.clear();
+		e.bytes = 0;
+	}
+	
+	/**
+	 * Step back to the entry before the current one.
+	 * @return The entry, or null if there is none.
+	 */
+	public Entry back () {
+		if (current <= 0) {
+			return null;
+		}
+		return entries.get(--current);
+	}
+	
+	/**
+	 * Step forward to the entry after the current one.
+	 * @return The entry, or null if there is none.
+	 */
+	public Entry forward () {
+		if (current + 1 >= entries.size()) {
+			return null;
+		}
+		return entries.get(++current);
+	}
+	
+	/**
+	 * @return How many bytes the snapshots take up together.
+	 */
+	public long getBytes () {
+		return bytes;
+	}
+	
+	/**
+	 * @return How many views are remembered.
+	 */
+	public int size () {
+		return entries.size();
+	}
+	
+	/**
+	 * This class represents one view of a GraphArea and the snapshots of its graphs.
+	 */
+	public static class Entry {
+		private double[] view;					// The bounds, increments, and effects of zooming and panning.
+		private double[] parameters;			// The values of the parameters when the snapshots were taken.
+		private Map<Graph, Snapshot> snapshots;	// The snapshot of each graph that is an expression.
+		private long bytes;						// How many bytes the snapshots take up.
+		
+		/**
+		 * Record the view that a GraphArea is showing, and take a snapshot of every graph that is an
+		 * expression and has been sampled exactly for it.
+		 * @param ga The GraphArea.
+		 */
+		private Entry (GraphArea ga) {
+			view = new double[] {ga.getXMin(), ga.getXMax(), ga.getXIncrement(), ga.getYMin(), ga.getYMax(),
+					ga.getYIncrement(), ga.getXZoom(), ga.getYZoom(), ga.getXPermaPan() + ga.getXTempPan(),
+					ga.getYPermaPan() + ga.getYTempPan()};
+			parameters = ga.getParameters().values.clone();
+			snapshots = new IdentityHashMap<Graph, Snapshot>();
+			for (Graph g : ga.getGraphs()) {
+				if (g.getFunction() instanceof Expression && !g.isDirty() && !g.isApproximate()
+						&& g.getSamples().size() > 1) {
+					Snapshot s = new Snapshot(g.getSamples());
+					snapshots.put(g, s);
+					bytes += s.bytes();
+				}
+			}
+		}
+		
+		/**
+		 * Fill in the samples of a graph from its snapshot, if it has one and the parameters still
+		 * have the values that they had when it was taken.
+		 * @param g The graph.
+		 * @param parameters The parameters of the GraphArea.
+		 * @return Whether or not the samples were filled in.
+		 */
+		public boolean restore (Graph g, Parameters parameters) {
+			Snapshot s = snapshots.get(g);
+			if (s == null || !Arrays.equals(this.parameters, parameters.values)) {
+				return false;
+			}
+			s.restore(g.getSamples());
+			return true;
+		}
+		
+		/**
+		 * @return The bounds, increments, and effects of zooming and panning of this view, in the
+		 * order that GraphArea.setViewport takes them.
+		 */
+		public double[] getView () {
+			return view;
+		}
+	}
+	
+	/**
+	 * This class represents the samples of one graph, with its x values evenly spaced from the first
+	 * to the last.
+	 */
+	private static class Snapshot {
+		private double from, to;		// The first and last x values.
+		private float[] ys;				// The y values.
+		private BitSet moves;			// Which points start a new segment.
+		
+		/**
+		 * Take a snapshot of the points in a sample buffer. The x values are those that the buffer
+		 * was sampled at, which are not always those of the view being recorded.
+		 * @param samples The buffer, which holds evenly spaced samples.
+		 */
+		private Snapshot (SampleBuffer samples) {
+			int n = samples.size();
+			from = samples.getX(0);
+			to = samples.getX(n - 1);
+			ys = new float[n];
+			moves = new BitSet(n);
+			for (int i = 0; i < n; i++) {
+				ys[i] = (float) samples.getY(i);
+				moves.set(i, samples.isMove(i));
+			}
+		}
+		
+		/**
+		 * Replace the points in a sample buffer with the ones in this snapshot. The x values are found
+		 * the same way that SampleBuffer.sample finds them.
+		 * @param samples The buffer.
+		 */
+		private void restore (SampleBuffer samples) {
+			int intervals = ys.length - 1;
+			double increment = (to - from) / intervals;
+			samples.clear();
+			samples.ensureCapacity(ys.length);
+			for (int i = 0; i <= intervals; i++) {
+				samples.add(from + i * increment, ys[i], moves.get(i));
+			}
+		}
+		
+		/**
+		 * @return About how many bytes this snapshot takes up.
+		 */
+		private long bytes () {
+			return 4L * ys.length + ys.length / 8 + 64;
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package application;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import javafx.scene.Scene;
+import javafx.scene.paint.Color;
+
+/**
+ * This class checks that panning reuses the sample buffers of graphs instead of allocating new
+ * points, by counting the bytes the current thread allocates once everything has warmed up. Sampling
+ * should allocate nothing, while stroking may allocate the few small objects that JavaFX makes for
+ * each path it strokes, but nothing for each point.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+class AllocationTest {
+	
+	private static final int WARMUP = 3000;		// How many times to pan before counting, so that the JIT has compiled everything.
+	private static final int PANS = 1000;		// How many times to pan while counting.
+	private static final long MAX_SAMPLE_BYTES = 64;	// The most that resampling may allocate in a pan, for what the JIT leaves on the heap.
+	private static final long MAX_STROKE_BYTES = 1024;	// The most that stroking a graph may allocate, where a Path of 20000 points took over 600 KB.
+	private static final String[] FUNCTIONS = {"sin ( x )", "x ^ 2 - 1", "1 / x", "sqrt ( abs ( x ) ) * cos ( 3 * x )"};
+	
+	/**
+	 * Resampling the functions across a moving x range, as a Graph does on every pan.
+	 * @throws Exception Never.
+	 */
+	@Test
+	void resamplingAllocatesNothing () throws Exception {
+		List<Expression> functions = new ArrayList<Expression>();
+		for (String f : FUNCTIONS) {
+			functions.add(Parser.compile(f));
+		}
+		SampleBuffer buffer = new SampleBuffer();
+		Runnable pan = new Runnable() {
+			private int pans;	// How many times the range has moved.
+			
+			@Override
+			public void run () {
+				double from = -10 + (pans++ % 100) * 0.01;
+				for (Expression f : functions) {
+					buffer.sample(f, from, from + 20, 20000);
+				}
+			}
+		};
+		assertAllocatesNothing(pan, MAX_SAMPLE_BYTES);
+	}
+	
+	/**
+	 * Sampling and stroking the graphs of a GraphArea after each pan.
+	 * @throws Exception If the graphs cannot be drawn.
+	 */
+	@Test
+	void drawingPannedGraphsAllocatesNothing () throws Exception {
+		FxThread.start();
+		FxThread.call(() -> {
+			GraphArea ga = new GraphArea(800, 600, -10, 10, 2, -10, 10, 2);
+			new Scene(ga, 800, 600);
+			List<Graph> graphs = new ArrayList<Graph>();
+			for (int i = 0; i < FUNCTIONS.length; i++) {
+				Graph g = new Graph(Parser.compile(FUNCTIONS[i]), ga, Color.hsb(i * 90, 1, 0.8));
+				ga.addGraph(g);
+				graphs.add(g);
+			}
+			Runnable pan = () -> {
+				ga.scroll(0.01);
+				for (Graph g : graphs) {
+					g.invalidate();
+					g.draw();
+				}
+			};
+			assertAllocatesNothing(pan, MAX_SAMPLE_BYTES + FUNCTIONS.length * MAX_STROKE_BYTES);
+			return null;
+		});
+	}
+	
+	/**
+	 * Check that a pan allocates next to nothing once it has been warmed up.
+	 * @param pan One pan.
+	 * @param maxBytes The most that one pan may allocate.
+	 */
+	private static void assertAllocatesNothing (Runnable pan, long maxBytes) {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled(),
+				"The JVM cannot count the bytes a thread allocates");
+		for (int i = 0; i < WARMUP; i++) {
+			pan.run();
+		}
+		long allocated = threads.getCurrentThreadAllocatedBytes();
+		for (int i = 0; i < PANS; i++) {
+			pan.run();
+		}
+		allocated = threads.getCurrentThreadAllocatedBytes() - allocated;
+		assertTrue(allocated <= maxBytes * PANS, allocated + " bytes were allocated in " + PANS + " pans");
+	}
+}
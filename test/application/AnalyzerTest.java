@@ -0,0 +1,137 @@
+package application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.DoubleUnaryOperator;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class checks that an Analyzer finds the roots, intersections and extrema of functions whose
+ * points are known, to within a tight tolerance, and that it does not mistake a pole for a root.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+class AnalyzerTest {
+	
+	private static final double TOLERANCE = 1e-9;	// How close a root or intersection must be to where it is known to be.
+	private static final double EXTREMUM_TOLERANCE = 1e-6;	// How close an extremum must be, since it is only as sharp as the square root of the precision.
+	
+	/**
+	 * The roots and extrema of sin ( x ), several periods of it.
+	 */
+	@Test
+	void findsThePointsOfASine () {
+		List<Analyzer.Feature> features = analyze(-10, 10, Math::sin);
+		assertXs(features, Analyzer.Feature.Kind.ROOT, -3 * Math.PI, -2 * Math.PI, -Math.PI, 0, Math.PI, 2 * Math.PI, 3 * Math.PI);
+		assertXs(features, Analyzer.Feature.Kind.MAXIMUM, -3 * Math.PI / 2, Math.PI / 2, 5 * Math.PI / 2);
+		assertXs(features, Analyzer.Feature.Kind.MINIMUM, -5 * Math.PI / 2, -Math.PI / 2, 3 * Math.PI / 2);
+		for (Analyzer.Feature f : features) {
+			assertEquals(Math.sin(f.getX()), f.getY(), TOLERANCE);
+		}
+	}
+	
+	/**
+	 * The roots and the minimum of a parabola, whose minimum lies between two samples.
+	 */
+	@Test
+	void findsThePointsOfAParabola () {
+		List<Analyzer.Feature> features = analyze(-3, 3.1, x -> (x - 0.3) * (x - 0.3) - 2);
+		assertXs(features, Analyzer.Feature.Kind.ROOT, 0.3 - Math.sqrt(2), 0.3 + Math.sqrt(2));
+		assertXs(features, Analyzer.Feature.Kind.MINIMUM, 0.3);
+		assertXs(features, Analyzer.Feature.Kind.MAXIMUM);
+	}
+	
+	/**
+	 * A minimum that touches zero is a root as well, though the function never changes sign.
+	 */
+	@Test
+	void findsADoubleRoot () {
+		List<Analyzer.Feature> features = analyze(-2, 2.3, x -> (x - 1) * (x - 1));
+		assertXs(features, Analyzer.Feature.Kind.ROOT, 1);
+		assertXs(features, Analyzer.Feature.Kind.MINIMUM, 1);
+	}
+	
+	/**
+	 * Where sin ( x ) and cos ( x ) cross, and which functions each intersection belongs to.
+	 */
+	@Test
+	void findsIntersections () {
+		List<Analyzer.Feature> features = analyze(0, 6, Math::sin, Math::cos);
+		assertXs(features, Analyzer.Feature.Kind.INTERSECTION, Math.PI / 4, 5 * Math.PI / 4);
+		for (Analyzer.Feature f : features) {
+			if (f.getKind() == Analyzer.Feature.Kind.INTERSECTION) {
+				assertEquals(0, f.getFirst());
+				assertEquals(1, f.getSecond());
+			}
+		}
+	}
+	
+	/**
+	 * The sign changes across the poles of 1 / x and tan ( x ) are not roots or extrema, even when a
+	 * pole falls right on a sample.
+	 */
+	@Test
+	void rejectsPoles () {
+		List<Analyzer.Feature> features = analyze(-1, 1, x -> 1 / x);
+		assertTrue(features.isEmpty(), "1 / x has no points, but " + features.size() + " were found");
+		
+		// The pole at 0 falls between two samples rather than on one.
+		features = analyze(-1, 1.3, x -> 1 / x);
+		assertTrue(features.isEmpty(), "1 / x has no points, but " + features.size() + " were found");
+		features = analyze(-2, 2, Math::tan);
+		assertXs(features, Analyzer.Feature.Kind.ROOT, 0);
+		assertXs(features, Analyzer.Feature.Kind.MINIMUM);
+		assertXs(features, Analyzer.Feature.Kind.MAXIMUM);
+	}
+	
+	/**
+	 * An analysis that has been cancelled stops rather than returning what it found.
+	 */
+	@Test
+	void aCancelledAnalysisStops () {
+		List<DoubleUnaryOperator> functions = new ArrayList<DoubleUnaryOperator>();
+		functions.add(Math::sin);
+		Analyzer analyzer = new Analyzer(functions, -10, 10);
+		analyzer.cancel();
+		assertThrows(CancellationException.class, analyzer::run);
+	}
+	
+	/**
+	 * Analyze functions over an interval.
+	 * @param from The left end of the interval.
+	 * @param to The right end of the interval.
+	 * @param functions The functions.
+	 * @return The points that were found.
+	 */
+	private static List<Analyzer.Feature> analyze (double from, double to, DoubleUnaryOperator... functions) {
+		return new Analyzer(Arrays.asList(functions), from, to).run();
+	}
+	
+	/**
+	 * Check that the points of a kind are exactly the expected ones, from left to right.
+	 * @param features The points that were found.
+	 * @param kind The kind of point to check.
+	 * @param xs Where the points of that kind are known to be, from left to right.
+	 */
+	private static void assertXs (List<Analyzer.Feature> features, Analyzer.Feature.Kind kind, double... xs) {
+		List<Double> found = new ArrayList<Double>();
+		for (Analyzer.Feature f : features) {
+			if (f.getKind() == kind) {
+				found.add(f.getX());
+			}
+		}
+		assertEquals(xs.length, found.size(), kind + " points found at " + found);
+		for (int i = 0; i < xs.length; i++) {
+			double tolerance = kind == Analyzer.Feature.Kind.MINIMUM || kind == Analyzer.Feature.Kind.MAXIMUM
+					? EXTREMUM_TOLERANCE : TOLERANCE;
+			assertEquals(xs[i], found.get(i), tolerance, kind + " point " + i);
+		}
+	}
+}
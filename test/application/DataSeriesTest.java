@@ -0,0 +1,97 @@
+package application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * This class checks the minimum and maximum that a DataSeries reads from its pyramid against a
+ * scan of every row, over random ranges of a series large enough to have several levels.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+class DataSeriesTest {
+	
+	private static final int ROWS = 300000;		// How many rows the series has, which is enough for three levels.
+	private static final int RANGES = 2000;		// How many random ranges are checked.
+	
+	@TempDir
+	Path directory;								// Where the series is written.
+	
+	/**
+	 * Compare minMax with a brute-force scan over random ranges, short and long, including rows
+	 * that are not numbers and ranges that end on the edges of blocks.
+	 * @throws IOException If the series cannot be written or opened.
+	 */
+	@Test
+	void minMaxMatchesAScan () throws IOException {
+		Random random = new Random(42);
+		double[] ys = new double[ROWS];
+		ByteBuffer bytes = ByteBuffer.allocate(16 * ROWS).order(ByteOrder.LITTLE_ENDIAN);
+		for (int i = 0; i < ROWS; i++) {
+			ys[i] = random.nextInt(100) == 0 ? Double.NaN : random.nextGaussian() * (1 + i % 1000);
+			bytes.putDouble(i * 0.5);
+			bytes.putDouble(ys[i]);
+		}
+		Path file = directory.resolve("series.bin");
+		Files.write(file, bytes.array());
+		DataSeries series = DataSeries.open(file);
+		assertEquals(ROWS, series.getRows());
+		
+		double[] range = new double[2];
+		for (int r = 0; r < RANGES; r++) {
+			int lo, hi;
+			switch (r % 4) {
+			case 0:
+				
+				// A short range.
+				lo = random.nextInt(ROWS);
+				hi = Math.min(ROWS, lo + random.nextInt(200));
+				break;
+			case 1:
+				
+				// A range from one block edge to another.
+				lo = random.nextInt(ROWS / 64) * 64;
+				hi = Math.min(ROWS, lo + random.nextInt(100) * 64);
+				break;
+			default:
+				lo = random.nextInt(ROWS);
+				hi = lo + random.nextInt(ROWS - lo + 1);
+			}
+			double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+			for (int i = lo; i < hi; i++) {
+				if (ys[i] < min) {
+					min = ys[i];
+				}
+				if (ys[i] > max) {
+					max = ys[i];
+				}
+			}
+			series.minMax(lo, hi, range);
+			assertEquals(min, range[0], "minimum of rows " + lo + " to " + hi);
+			assertEquals(max, range[1], "maximum of rows " + lo + " to " + hi);
+		}
+		
+		// The whole series.
+		series.minMax(0, ROWS, range);
+		double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+		for (double y : ys) {
+			if (y < min) {
+				min = y;
+			}
+			if (y > max) {
+				max = y;
+			}
+		}
+		assertEquals(min, range[0]);
+		assertEquals(max, range[1]);
+	}
+}
@@ -0,0 +1,82 @@
+package application;
+
+import static org.junit.jupiter.api.Assumptions.abort;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+
+import javafx.application.Platform;
+import javafx.scene.text.Text;
+
+/**
+ * This class starts the JavaFX toolkit for the tests that need it and runs code on the JavaFX
+ * thread. The build runs the toolkit on the Monocle headless platform, but JavaFX still needs its
+ * native text libraries to lay out the axes of a GraphArea, so a test that needs the toolkit is
+ * skipped rather than failed when it cannot start or cannot lay out text.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+class FxThread {
+	
+	private static Throwable unavailable;	// Why the toolkit cannot be used, or null if it can.
+	private static boolean started;			// Whether or not the toolkit has been started.
+	
+	/**
+	 * Start the toolkit if it has not been started, skipping the test if it cannot be used.
+	 */
+	static synchronized void start () {
+		if (!started) {
+			started = true;
+			try {
+				CountDownLatch ready = new CountDownLatch(1);
+				try {
+					Platform.startup(ready::countDown);
+				} catch (IllegalStateException e) {
+					// The toolkit is already running.
+					ready.countDown();
+				}
+				ready.await();
+				Platform.setImplicitExit(false);
+				call(() -> new Text("0").getLayoutBounds());
+			} catch (Throwable t) {
+				unavailable = t;
+			}
+		}
+		if (unavailable != null) {
+			abort("The JavaFX toolkit cannot be used here: " + unavailable);
+		}
+	}
+	
+	/**
+	 * Run code on the JavaFX thread and wait for it, starting the toolkit first if needed.
+	 * @param code The code.
+	 * @return What the code returned.
+	 * @throws Exception If the code threw it, or if interrupted while waiting.
+	 */
+	static <T> T call (Callable<T> code) throws Exception {
+		if (!started) {
+			start();
+		}
+		CountDownLatch done = new CountDownLatch(1);
+		Object[] result = new Object[1];
+		Throwable[] failure = new Throwable[1];
+		Platform.runLater(() -> {
+			try {
+				result[0] = code.call();
+			} catch (Throwable t) {
+				failure[0] = t;
+			} finally {
+				done.countDown();
+			}
+		});
+		done.await();
+		if (failure[0] instanceof Exception) {
+			throw (Exception) failure[0];
+		} else if (failure[0] instanceof Error) {
+			throw (Error) failure[0];
+		}
+		@SuppressWarnings("unchecked")
+		T t = (T) result[0];
+		return t;
+	}
+}
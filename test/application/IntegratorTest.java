@@ -0,0 +1,94 @@
+package application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleUnaryOperator;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class checks the Integrator against integrals with closed forms, requiring each one to be
+ * within the error that the Integrator reports, and checks that an integration can be cancelled.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+class IntegratorTest {
+	
+	private static final double REL_TOL = 1e-9;		// How close to the closed form a value must be, relative to it.
+	
+	/**
+	 * A function that oscillates thousands of times over the range.
+	 */
+	@Test
+	void integratesAFastOscillation () {
+		assertIntegral(x -> Math.sin(100 * x), 0, 1000, (1 - Math.cos(100000)) / 100);
+	}
+	
+	/**
+	 * Smooth functions, a compiled expression, and bounds given from right to left.
+	 * @throws Exception If the expression cannot be compiled.
+	 */
+	@Test
+	void integratesSmoothFunctions () throws Exception {
+		assertIntegral(x -> x * x * x, 0, 2, 4);
+		assertIntegral(Math::exp, 0, 1, Math.E - 1);
+		assertIntegral(x -> 1 / (1 + x * x), -1, 1, Math.PI / 2);
+		assertIntegral(Parser.compile("cos ( x ) * x"), 0, Math.PI, -2);
+		assertIntegral(x -> x * x, 3, 0, -9);
+	}
+	
+	/**
+	 * A function with a square root singularity at one end, which needs many bisections there.
+	 */
+	@Test
+	void integratesASingularity () {
+		assertIntegral(x -> 1 / Math.sqrt(x), 0, 1, 2);
+	}
+	
+	/**
+	 * An empty range integrates to exactly zero without evaluating the function.
+	 */
+	@Test
+	void anEmptyRangeIsZero () {
+		Integrator.Result r = Integrator.integrate(x -> 1, 5, 5);
+		assertEquals(0, r.getValue());
+		assertEquals(0, r.getEvaluations());
+	}
+	
+	/**
+	 * Setting the flag stops every part at its next bisection, long before the integral would be done.
+	 */
+	@Test
+	void aCancelledIntegrationStops () {
+		AtomicBoolean cancelled = new AtomicBoolean();
+		AtomicLong evaluations = new AtomicLong();
+		long full = Integrator.integrate(x -> Math.sin(100 * x), 0, 1000).getEvaluations();
+		DoubleUnaryOperator f = x -> {
+			if (evaluations.incrementAndGet() == 1000) {
+				cancelled.set(true);
+			}
+			return Math.sin(100 * x);
+		};
+		assertThrows(CancellationException.class, () -> Integrator.integrate(f, 0, 1000, cancelled));
+		assertTrue(evaluations.get() < full / 2, evaluations.get() + " of " + full + " evaluations were made");
+	}
+	
+	/**
+	 * Integrate a function and check the result against its closed form.
+	 * @param f The function.
+	 * @param a The lower bound.
+	 * @param b The upper bound.
+	 * @param expected The closed form of the integral.
+	 */
+	private static void assertIntegral (DoubleUnaryOperator f, double a, double b, double expected) {
+		Integrator.Result r = Integrator.integrate(f, a, b);
+		String range = "from " + a + " to " + b;
+		assertEquals(expected, r.getValue(), r.getError(), "the integral " + range + " is outside its reported error");
+		assertEquals(expected, r.getValue(), REL_TOL * Math.abs(expected), "the integral " + range);
+	}
+}
@@ -0,0 +1,139 @@
+package application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleUnaryOperator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javafx.scene.paint.Color;
+
+/**
+ * This class checks that a SampleCache gives back exactly the samples that were written to it,
+ * and only for a graph of the same expression, with the same parameter values, over the same range.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+class SampleCacheTest {
+	
+	private static final double FROM = -10;		// The first x value that the graphs are sampled at.
+	private static final double TO = 10;		// The last x value that the graphs are sampled at.
+	private static final int INTERVALS = 2000;	// How many intervals the graphs are sampled with.
+	private static final DoubleUnaryOperator IDENTITY = x -> x;	// A function that is not an expression.
+	
+	@TempDir
+	Path directory;								// Where the cache is written.
+	
+	/**
+	 * Write two sampled graphs, one of them with a parameter, read the file back, and restore them.
+	 * Then check that a stale range, a changed expression and a changed parameter are each rejected.
+	 * @throws IOException If the cache cannot be written or read.
+	 */
+	@Test
+	void restoresOnlyWhatMatches () throws IOException {
+		Parameters parameters = new Parameters();
+		parameters.set('a', 2);
+		List<Graph> graphs = new ArrayList<Graph>();
+		graphs.add(sampled("sin ( x ) * x", parameters));
+		graphs.add(sampled("a * x ^ 2", parameters));
+		
+		// A graph that is not an expression is left out.
+		Graph other = new Graph(IDENTITY, null, Color.BLUE);
+		other.getSamples().sample(other.getFunction(), FROM, TO, INTERVALS);
+		other.markSampled();
+		graphs.add(other);
+		Path file = directory.resolve("samples.bin");
+		SampleCache.write(file, graphs, FROM, TO, parameters);
+		SampleCache cache = new SampleCache(file);
+		
+		// The same expressions over the same range come back point for point.
+		for (int i = 0; i < 2; i++) {
+			Graph written = graphs.get(i);
+			Graph restored = graph(((Expression) written.getFunction()).getText(), parameters);
+			assertTrue(cache.restore(restored, FROM, TO, parameters));
+			assertFalse(restored.isDirty());
+			SampleBuffer a = written.getSamples(), b = restored.getSamples();
+			assertEquals(a.size(), b.size());
+			for (int j = 0; j < a.size(); j++) {
+				assertEquals(a.getX(j), b.getX(j), "x of point " + j);
+				assertEquals(a.getY(j), b.getY(j), "y of point " + j);
+				assertEquals(a.isMove(j), b.isMove(j), "segment start at point " + j);
+			}
+		}
+		assertFalse(cache.restore(new Graph(IDENTITY, null, Color.BLUE), FROM, TO, parameters));
+		
+		// A range that has moved, even slightly.
+		assertRejected(cache, graph("sin ( x ) * x", parameters), FROM + 1e-9, TO, parameters);
+		assertRejected(cache, graph("sin ( x ) * x", parameters), FROM, TO * 2, parameters);
+		
+		// An expression that has been edited.
+		assertRejected(cache, graph("sin ( x ) * x + 1", parameters), FROM, TO, parameters);
+		
+		// A parameter that the expression uses has changed, while one that it does not use makes no difference.
+		Parameters changed = new Parameters();
+		changed.set('a', 2);
+		changed.set('b', 5);
+		assertTrue(cache.restore(graph("a * x ^ 2", changed), FROM, TO, changed));
+		changed.set('a', 3);
+		assertRejected(cache, graph("a * x ^ 2", changed), FROM, TO, changed);
+		assertTrue(cache.restore(graph("sin ( x ) * x", changed), FROM, TO, changed));
+	}
+	
+	/**
+	 * A file that is not a sample cache is refused rather than misread.
+	 * @throws IOException If the file cannot be written.
+	 */
+	@Test
+	void refusesOtherFiles () throws IOException {
+		Path file = directory.resolve("other.bin");
+		Files.write(file, "not a sample cache".getBytes(StandardCharsets.US_ASCII));
+		assertThrows(IOException.class, () -> new SampleCache(file));
+		Files.write(file, new byte[0]);
+		assertThrows(IOException.class, () -> new SampleCache(file));
+	}
+	
+	/**
+	 * Check that a graph is not filled in from a cache and is still waiting to be sampled.
+	 * @param cache The cache.
+	 * @param g The graph.
+	 * @param from The first x value that the graph should be sampled at.
+	 * @param to The last x value that the graph should be sampled at.
+	 * @param parameters The parameters that the graph is sampled with.
+	 */
+	private static void assertRejected (SampleCache cache, Graph g, double from, double to, Parameters parameters) {
+		assertFalse(cache.restore(g, from, to, parameters));
+		assertTrue(g.isDirty());
+		assertEquals(0, g.getSamples().size());
+	}
+	
+	/**
+	 * @param text An expression.
+	 * @param parameters The parameters that it may use.
+	 * @return A graph of the expression that has not been sampled, and belongs to no GraphArea.
+	 */
+	private static Graph graph (String text, Parameters parameters) {
+		return new Graph(Parser.compile(text, false, parameters), null, Color.RED);
+	}
+	
+	/**
+	 * @param text An expression.
+	 * @param parameters The parameters that it may use.
+	 * @return A graph of the expression, sampled over the range.
+	 */
+	private static Graph sampled (String text, Parameters parameters) {
+		Graph g = graph(text, parameters);
+		g.getSamples().sample(g.getFunction(), FROM, TO, INTERVALS);
+		g.markSampled();
+		return g;
+	}
+}
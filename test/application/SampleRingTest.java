@@ -0,0 +1,104 @@
+package application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class checks that a SampleRing hands samples over in order as its positions wrap around
+ * the arrays many times, and that it drops and counts samples when it is full.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+class SampleRingTest {
+	
+	private static final int SAMPLES = 1000000;	// How many samples the threaded producer offers.
+	
+	/**
+	 * The capacity is rounded up to a power of two.
+	 */
+	@Test
+	void roundsTheCapacityUp () {
+		assertEquals(8, new SampleRing(8).getCapacity());
+		assertEquals(8, new SampleRing(5).getCapacity());
+		assertEquals(1024, new SampleRing(1000).getCapacity());
+	}
+	
+	/**
+	 * Fill and partly drain a small ring over and over, so that its positions wrap around many times,
+	 * and check the order of what comes out and the number of samples dropped.
+	 */
+	@Test
+	void wrapsAroundAndCountsDrops () {
+		SampleRing ring = new SampleRing(8);
+		List<Double> taken = new ArrayList<Double>();
+		SampleRing.Sink sink = (x, y) -> {
+			assertEquals(2 * x, y);
+			taken.add(x);
+		};
+		int next = 0, expected = 0;
+		for (int round = 0; round < 100; round++) {
+			
+			// Fill the ring, then offer one more sample, which is dropped.
+			while (next - expected < 8) {
+				assertTrue(ring.offer(next, 2 * next));
+				next++;
+			}
+			assertFalse(ring.offer(-1, -2));
+			assertEquals(round + 1, ring.getDropped());
+			
+			// Take a few, oldest first, leaving the rest to wrap around in the next round.
+			taken.clear();
+			int count = round % 7 + 1;
+			assertEquals(count, ring.drain(sink, count));
+			for (int i = 0; i < count; i++) {
+				assertEquals(expected++, taken.get(i));
+			}
+		}
+		
+		// Draining more than is left takes only what is left.
+		taken.clear();
+		assertEquals(next - expected, ring.drain(sink, 100));
+		for (double x : taken) {
+			assertEquals(expected++, x);
+		}
+		assertEquals(0, ring.drain(sink, 100));
+	}
+	
+	/**
+	 * A producer and a consumer on their own threads: every sample is either taken in order or
+	 * counted as dropped.
+	 * @throws InterruptedException If interrupted while waiting for the producer.
+	 */
+	@Test
+	void handsSamplesBetweenThreads () throws InterruptedException {
+		SampleRing ring = new SampleRing(64);
+		Thread producer = new Thread(() -> {
+			for (int i = 0; i < SAMPLES; i++) {
+				ring.offer(i, 2 * i);
+			}
+		});
+		producer.start();
+		double[] last = {-1};
+		long[] taken = {0};
+		SampleRing.Sink sink = (x, y) -> {
+			assertTrue(x > last[0], x + " came after " + last[0]);
+			assertEquals(2 * x, y);
+			last[0] = x;
+			taken[0]++;
+		};
+		while (producer.isAlive()) {
+			ring.drain(sink, 16);
+		}
+		producer.join();
+		while (ring.drain(sink, 16) > 0) {
+			continue;
+		}
+		assertEquals(SAMPLES, taken[0] + ring.getDropped());
+	}
+}
@@ -0,0 +1,95 @@
+package application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import javafx.scene.Scene;
+import javafx.scene.paint.Color;
+
+/**
+ * This class checks that stepping back through the history of a GraphArea shows the view that the
+ * user left, filled in with the samples that were taken for that view.
+ * @author Mark Kikta
+ * @version 1.0
+ */
+class ViewportHistoryTest {
+	
+	/**
+	 * Zoom in, step back, and compare the bounds and the samples with those from before the zoom.
+	 * @throws Exception If the GraphArea cannot be built.
+	 */
+	@Test
+	void backRestoresTheViewBeforeAZoom () throws Exception {
+		FxThread.start();
+		FxThread.call(() -> {
+			GraphArea ga = new GraphArea(800, 600, -10, 10, 2, -10, 10, 2);
+			new Scene(ga, 800, 600);
+			Graph g = new Graph(Parser.compile("sin ( x ) * x"), ga, Color.RED);
+			ga.addGraph(g);
+			ga.update();
+			double xMin = ga.getVisibleXMin(), xMax = ga.getVisibleXMax();
+			SampleBuffer before = new SampleBuffer();
+			before.copy(g.getSamples());
+			
+			// Zoom in around a point off center, as the scroll wheel does, and draw the zoomed view.
+			ga.zoom(1, 600, 200);
+			ga.update();
+			assertNotEquals(xMin, ga.getVisibleXMin());
+			
+			// Step back, which fills the graph in from the snapshot rather than sampling it.
+			assertTrue(ga.back());
+			assertEquals(xMin, ga.getVisibleXMin(), 1e-12);
+			assertEquals(xMax, ga.getVisibleXMax(), 1e-12);
+			assertFalse(g.isDirty());
+			SampleBuffer after = g.getSamples();
+			assertEquals(before.size(), after.size());
+			for (int i = 0; i < before.size(); i++) {
+				assertEquals(before.getX(i), after.getX(i), 1e-9, "x of point " + i);
+				assertEquals((float) before.getY(i), (float) after.getY(i), "y of point " + i);
+				assertEquals(before.isMove(i), after.isMove(i), "segment start at point " + i);
+			}
+			return null;
+		});
+	}
+	
+	/**
+	 * Step back, then change a parameter before the exact samples of the view stepped back to have
+	 * been found in the background, and check that they do not replace the samples for the new value.
+	 * @throws Exception If the GraphArea cannot be built.
+	 */
+	@Test
+	void aLateRefreshDoesNotUndoAParameterChange () throws Exception {
+		FxThread.start();
+		GraphArea ga = FxThread.call(() -> {
+			GraphArea area = new GraphArea(800, 600, -10, 10, 2, -10, 10, 2);
+			new Scene(area, 800, 600);
+			area.addGraph(new Graph(Parser.compile("a * sin ( x )", false, area.getParameters()), area, Color.RED));
+			area.update();
+			area.zoom(1, 400, 300);
+			area.update();
+			assertTrue(area.back());
+			
+			// Change the parameter in the same turn of the JavaFX thread, so that the refresh is still running,
+			// and not as an interaction, which would sample the graph again once it settles.
+			area.getParameters().set('a', 3);
+			area.parametersChanged(1L << Parameters.slot('a'), false);
+			return area;
+		});
+		
+		// Give the refresh time to finish, then let the JavaFX thread run whatever it handed back.
+		Thread.sleep(1000);
+		FxThread.call(() -> null);
+		FxThread.call(() -> {
+			Graph g = ga.getGraphs().get(0);
+			SampleBuffer samples = g.getSamples();
+			for (int i = 0; i < samples.size(); i++) {
+				assertEquals(3 * Math.sin(samples.getX(i)), samples.getY(i), 1e-9, "y of point " + i);
+			}
+			return null;
+		});
+	}
+}
@@ -0,0 +1,12 @@
+#!/bin/sh
+# Builds the calculator and its class-data sharing archive with the appcds profile of the Maven
+# build, which starts it once with --exit-after-startup so that every class loaded up to the first
+# interactive frame is archived. Maven gets JavaFX itself, and a display is needed for the training run.
+# The jar and archive are target/graphing-calculator-1.0.jar and target/graphing-calculator-1.0.jsa.
+set -e
+cd "$(dirname "$0")/.."
+mvn -B -q -Pappcds package
+
+FX="--module-path $(cat target/javafx-module-path.txt) --add-modules javafx.controls"
+echo "Run with:"
+echo "java -XX:SharedArchiveFile=target/graphing-calculator-1.0.jsa $FX -cp target/graphing-calculator-1.0.jar application.Runner"
@@ -0,0 +1,33 @@
+#!/bin/sh
+# Builds the calculator and its JMH benchmarks with Maven and runs them, writing the results to
+# build/bench/results.json. Any arguments are passed on to JMH, for example a regular expression
+# of the benchmarks to run, and fewer iterations for a quick look:
+#   tools/bench.sh 'Benchmarks.(parse|evaluate)' -wi 2 -i 3 -p section=short
+# Results can be compared with an earlier run by loading both JSON files into a JMH visualizer.
+# BENCH_CLASS picks another harness in bench/, for example the load test of the plot server:
+#   BENCH_CLASS=application.PlotServerLoadTest tools/bench.sh --requests 20000 --concurrency 2000
+# or the throughput of a live stream:
+#   BENCH_CLASS=application.StreamBenchmark tools/bench.sh --rate 1000000 --fps 60
+# or the accuracy of the FastMath approximations, which exits with 1 if any is outside its bound:
+#   BENCH_CLASS=application.FastMathReport tools/bench.sh
+# The GraphArea benchmarks need the JavaFX toolkit, so without a display they run on the Monocle
+# headless platform.
+set -e
+cd "$(dirname "$0")/.."
+mvn -B -q install
+mvn -B -q -f bench/pom.xml package
+CP="build/bench/graphing-calculator-bench-1.0.jar:$(cat build/bench/classpath.txt)"
+
+# Run the JavaFX toolkit without a display if there is none.
+HEADLESS=""
+if [ -z "$DISPLAY" ]; then
+	HEADLESS="-Dglass.platform=Monocle -Dmonocle.platform=Headless -Dprism.order=sw"
+fi
+if [ -n "$BENCH_CLASS" ]; then
+	java $HEADLESS -cp "$CP" "$BENCH_CLASS" "$@"
+else
+	if [ -n "$HEADLESS" ]; then
+		set -- -jvmArgsAppend "$HEADLESS" "$@"
+	fi
+	java -cp "$CP" org.openjdk.jmh.Main -rf json -rff build/bench/results.json "$@"
+fi
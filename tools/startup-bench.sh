@@ -0,0 +1,44 @@
+#!/bin/sh
+# Measures startup with and without the class-data sharing archive made by appcds.sh. Each run
+# starts the calculator with --exit-after-startup, which prints the time from JVM start to the
+# first frame and to the whole interface being shown, and the median of each is reported.
+# Usage: tools/startup-bench.sh [runs]
+set -e
+cd "$(dirname "$0")/.."
+RUNS=${1:-10}
+JAR=target/graphing-calculator-1.0.jar
+JSA=target/graphing-calculator-1.0.jsa
+if [ ! -f $JSA ]; then
+	echo "Run tools/appcds.sh first." >&2
+	exit 1
+fi
+
+# Use the JavaFX that the archive was trained with, which the build wrote out, unless JAVAFX_HOME is set.
+if [ -n "$JAVAFX_HOME" ]; then
+	FX="--module-path $JAVAFX_HOME/lib --add-modules javafx.controls"
+else
+	FX="--module-path $(cat target/javafx-module-path.txt) --add-modules javafx.controls"
+fi
+
+# Print the median of a column of numbers read from standard input.
+median () {
+	sort -n | awk '{ v[NR] = $1 } END { print v[int((NR + 1) / 2)] }'
+}
+
+# Print the median first frame and interactive times of a number of runs with the given JVM options.
+measure () {
+	out=$(mktemp)
+	i=0
+	while [ $i -lt "$RUNS" ]; do
+		java "$@" -Dgraph.session.dir=target/training-session $FX -cp $JAR \
+			application.Runner --exit-after-startup | grep '^Startup:' >> "$out"
+		i=$((i + 1))
+	done
+	echo "first frame $(awk '{ print $4 }' "$out" | median) ms, interactive $(awk '{ print $7 }' "$out" | median) ms"
+	rm -f "$out"
+}
+
+printf "Without archive: "
+measure -Xshare:auto
+printf "With archive:    "
+measure -XX:SharedArchiveFile=$JSA